@@ -0,0 +1,217 @@
+package com.example.benchmarks;
+
+import com.example.liberty.cluster.MBeanAttributeHarvester;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remote calls needed to read the attributes of collective Server MBeans
+ *
+ * Compares the previous pattern of one getAttribute call per readable attribute
+ * (after a getMBeanInfo call) with {@link MBeanAttributeHarvester}, which reads
+ * all attributes in one getAttributes call using a cached MBeanInfo.
+ *
+ * The MBeans live in a private MBeanServer behind a proxy that counts calls and
+ * can add a fixed cost per call, standing in for the collective routing layer.
+ * The remoteCalls and mbeanReads counters are totals per iteration; their ratio
+ * is the number of remote calls per MBean read.
+ *
+ * Run: java -jar benchmarks/target/benchmarks.jar AttributeHarvestBenchmark -rf json
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttributeHarvestBenchmark {
+
+    private static final int SERVERS = 20;
+    private static final String[] ATTRIBUTES = {
+        "Name", "Host", "HostName", "HttpPort", "HttpsPort", "State", "Cluster",
+        "UserDir", "WlpInstallDir", "RpcSslPort", "ServerIdentity", "ProductVersion"
+    };
+
+    /** Simulated cost of one routed MBean server call, in microseconds */
+    @Param({"0", "50"})
+    public long remoteCallMicros;
+
+    private MBeanServer routed;
+    private List<ObjectName> servers;
+    private MBeanAttributeHarvester harvester;
+    private RemoteCallCounter counter;
+
+    @Setup
+    public void setUp() throws Exception {
+        MBeanServer local = MBeanServerFactory.newMBeanServer();
+        servers = new ArrayList<>();
+        for (int i = 0; i < SERVERS; i++) {
+            ObjectName name = new ObjectName("WebSphere:feature=collectiveController,type=Server,name=member" + i);
+            local.registerMBean(new ServerMBean("member" + i), name);
+            servers.add(name);
+        }
+        routed = (MBeanServer) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {MBeanServer.class}, new RoutingHandler(local));
+        harvester = new MBeanAttributeHarvester(Long.MAX_VALUE / 2, 4096);
+    }
+
+    /**
+     * Calls made during the current iteration
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RemoteCallCounter {
+        public long remoteCalls;
+        public long mbeanReads;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            remoteCalls = 0;
+            mbeanReads = 0;
+        }
+    }
+
+    @Benchmark
+    public Object perAttribute(RemoteCallCounter calls) throws Exception {
+        counter = calls;
+        List<Map<String, Object>> results = new ArrayList<>(SERVERS);
+        for (ObjectName server : servers) {
+            Map<String, Object> values = new HashMap<>();
+            for (MBeanAttributeInfo attribute : routed.getMBeanInfo(server).getAttributes()) {
+                if (attribute.isReadable()) {
+                    try {
+                        values.put(attribute.getName(), routed.getAttribute(server, attribute.getName()));
+                    } catch (Exception e) {
+                        // Skip attributes that can't be read
+                    }
+                }
+            }
+            results.add(values);
+            calls.mbeanReads++;
+        }
+        return results;
+    }
+
+    @Benchmark
+    public Object harvester(RemoteCallCounter calls) throws Exception {
+        counter = calls;
+        List<Map<String, Object>> results = new ArrayList<>(SERVERS);
+        for (ObjectName server : servers) {
+            results.add(harvester.readAll(routed, server));
+            calls.mbeanReads++;
+        }
+        return results;
+    }
+
+    /**
+     * Counts calls that would cross the routing layer and charges their cost
+     */
+    private final class RoutingHandler implements InvocationHandler {
+        private final MBeanServer target;
+
+        RoutingHandler(MBeanServer target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, java.lang.reflect.Method method, Object[] args) throws Throwable {
+            if (counter != null) {
+                counter.remoteCalls++;
+            }
+            if (remoteCallMicros > 0) {
+                long until = System.nanoTime() + remoteCallMicros * 1000;
+                while (System.nanoTime() < until) {
+                    // Busy wait so the cost is charged to the calling thread
+                }
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Server MBean with read-only string attributes
+     */
+    public static final class ServerMBean implements DynamicMBean {
+        private final Map<String, Object> values = new HashMap<>();
+        private final MBeanInfo info;
+
+        ServerMBean(String serverName) {
+            MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[ATTRIBUTES.length];
+            for (int i = 0; i < ATTRIBUTES.length; i++) {
+                attributes[i] = new MBeanAttributeInfo(ATTRIBUTES[i], String.class.getName(), ATTRIBUTES[i], true, false, false);
+                values.put(ATTRIBUTES[i], serverName + "-" + ATTRIBUTES[i]);
+            }
+            info = new MBeanInfo(ServerMBean.class.getName(), "Collective server", attributes, null, null, null);
+        }
+
+        @Override
+        public Object getAttribute(String attribute) {
+            return values.get(attribute);
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                if (values.containsKey(attribute)) {
+                    list.add(new Attribute(attribute, values.get(attribute)));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            return info;
+        }
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,33 @@
+package com.example.benchmarks;
+
+import java.lang.reflect.Field;
+
+/**
+ * Wires container-managed beans by hand so benchmarks can run them outside the server
+ */
+final class Beans {
+
+    private Beans() {
+    }
+
+    /**
+     * Set an injected field, looking in the bean's class and its superclasses
+     */
+    static void inject(Object bean, String fieldName, Object value) {
+        for (Class<?> type = bean.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(bean, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // Try the superclass
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Cannot inject " + fieldName + " into " + bean.getClass().getName(), e);
+            }
+        }
+        throw new IllegalArgumentException("No field " + fieldName + " in " + bean.getClass().getName());
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,60 @@
+package com.example.benchmarks;
+
+import com.example.controller.LibertyClusterMember;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of parsing the member tuples returned by ClusterManager.listMembers()
+ *
+ * The topology refresh parses one tuple per member of every cluster, so this
+ * runs once per member per refresh. The shapes cover a typical tuple, one with
+ * padding around the parts, and an incomplete tuple that takes the fallback path.
+ *
+ * Run: java -jar benchmarks/target/benchmarks.jar ClusterMemberParseBenchmark -rf json
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClusterMemberParseBenchmark {
+
+    @Param({"typical", "padded", "incomplete"})
+    public String shape;
+
+    private String tuple;
+
+    @Setup
+    public void setUp() {
+        switch (shape) {
+            case "padded":
+                tuple = "  cads-v9-rss-ft1.fyre.ibm.com , C:/wlp-m1/usr , m1  ";
+                break;
+            case "incomplete":
+                tuple = "cads-v9-rss-ft1.fyre.ibm.com,C:/wlp-m1/usr";
+                break;
+            default:
+                tuple = "cads-v9-rss-ft1.fyre.ibm.com,C:/wlp-m1/usr,m1";
+        }
+    }
+
+    @Benchmark
+    public LibertyClusterMember parse() {
+        return LibertyClusterMember.parseClusterMemberTuple(tuple);
+    }
+}
+
+// Made with Bob
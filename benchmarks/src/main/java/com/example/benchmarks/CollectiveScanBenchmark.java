@@ -0,0 +1,211 @@
+package com.example.benchmarks;
+
+import com.example.controller.AsyncRequestExecutor;
+import com.example.controller.ClusterTopologyCache;
+import com.example.controller.MBeanMetadataCache;
+import com.example.controller.MemberCircuitBreakers;
+import com.example.controller.MemberCounterClient;
+import com.example.controller.MemberCounterResource;
+import com.example.controller.MemberEndpointResolver;
+import com.example.controller.MemberFanOut;
+import com.example.controller.MemberHttpClient;
+import com.example.controller.MemberRequestHedger;
+import com.example.liberty.cluster.ClusterScanExecutor;
+import com.example.liberty.cluster.MBeanAttributeHarvester;
+import com.example.liberty.cluster.MemberConnectorPool;
+import com.example.liberty.cluster.MemberMBeanResource;
+import com.example.mbean.MBeanCatalog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.json.JsonObject;
+import javax.management.MBeanServer;
+import javax.ws.rs.core.Response;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cluster-wide counter scans against a {@link SimulatedCollective}
+ *
+ * controllerCounters is GET /api/counters of the controller application,
+ * which fans out one HTTP request per member to the member stubs. The
+ * mbean* benchmarks are GET /mbeans/counters of the cluster application in
+ * its default mode (one routed Counter MBean lookup and read per member, in
+ * turn), collective mode (one routed Counter MBean query, parallel reads) and
+ * direct mode (pooled in-process connectors to each member).
+ *
+ * Every member has its own loopback address. Member latency and failure rate
+ * apply to each routed MBean call, connector open and stub request; with a
+ * failure rate above zero the scans report failed members rather than fail.
+ *
+ * Run: java -jar benchmarks/target/benchmarks.jar CollectiveScanBenchmark -rf json
+ *      java -jar benchmarks/target/benchmarks.jar CollectiveScanBenchmark -p members=100 -p latencyMicros=2000 -p failureRate=0.01
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollectiveScanBenchmark {
+
+    private static final int CLUSTERS = 4;
+    private static final long SCAN_TIMEOUT_MILLIS = 120000L;
+
+    /** Both applications log every scan at INFO and every failed member at WARNING; held so the level sticks */
+    private static final Logger APPLICATION_LOGGER = Logger.getLogger("com.example");
+
+    @Param({"10", "100", "1000"})
+    public int members;
+
+    /** Latency of every member call, in microseconds */
+    @Param({"0"})
+    public long latencyMicros;
+
+    /** Probability that a member call fails */
+    @Param({"0"})
+    public double failureRate;
+
+    private SimulatedCollective collective;
+
+    private MBeanMetadataCache metadata;
+    private MemberEndpointResolver resolver;
+    private MemberHttpClient httpClient;
+    private MemberRequestHedger hedger;
+    private ClusterTopologyCache topology;
+    private MemberFanOut fanOut;
+    private AsyncRequestExecutor requestExecutor;
+    private MemberCounterResource controllerResource;
+
+    private ClusterScanExecutor scanExecutor;
+    private MBeanCatalog catalog;
+    private MemberConnectorPool connectorPool;
+    private MemberMBeanResource mbeanResource;
+
+    @Setup
+    public void setUp() throws Exception {
+        APPLICATION_LOGGER.setLevel(Level.SEVERE);
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        collective = new SimulatedCollective(mbs, members, CLUSTERS, latencyMicros, failureRate, true).start();
+
+        // Controller application
+        metadata = new MBeanMetadataCache(mbs, 4096);
+        metadata.start();
+        resolver = new MemberEndpointResolver(mbs, 300000L, 15000L, "http", Integer.toString(collective.getHttpPort()));
+        Beans.inject(resolver, "metadata", metadata);
+        resolver.start();
+        httpClient = new MemberHttpClient(8, 30000L, 5000, 5000);
+        httpClient.start();
+        hedger = new MemberRequestHedger(null, false, 5, 10, 5L, 16);
+        Beans.inject(hedger, "httpClient", httpClient);
+        hedger.start();
+        MemberCounterClient counterClient = new MemberCounterClient();
+        Beans.inject(counterClient, "endpointResolver", resolver);
+        Beans.inject(counterClient, "requestHedger", hedger);
+        Beans.inject(counterClient, "circuitBreakers", new MemberCircuitBreakers(3, 5000L, 60000L, 500, 5000, 4));
+        topology = new ClusterTopologyCache(mbs, 30000L, 500L);
+        topology.start();
+        fanOut = new MemberFanOut(null, 16, Math.max(1024, members), 10000L, SCAN_TIMEOUT_MILLIS);
+        fanOut.start();
+        requestExecutor = new AsyncRequestExecutor(null, 8, 256, SCAN_TIMEOUT_MILLIS);
+        requestExecutor.start();
+        controllerResource = new MemberCounterResource();
+        Beans.inject(controllerResource, "fanOut", fanOut);
+        Beans.inject(controllerResource, "requestExecutor", requestExecutor);
+        Beans.inject(controllerResource, "topology", topology);
+        Beans.inject(controllerResource, "counterClient", counterClient);
+        Beans.inject(controllerResource, "metadata", metadata);
+
+        // Cluster application
+        scanExecutor = new ClusterScanExecutor();
+        scanExecutor.start();
+        catalog = new MBeanCatalog(mbs);
+        catalog.start();
+        connectorPool = new MemberConnectorPool(2, 60000L, 10000L, 1000L, 60000L, 1000L, collective.connectorOpener());
+        connectorPool.start();
+        mbeanResource = new MemberMBeanResource();
+        Beans.inject(mbeanResource, "scanExecutor", scanExecutor);
+        Beans.inject(mbeanResource, "harvester", new MBeanAttributeHarvester(300000L, 4096));
+        Beans.inject(mbeanResource, "catalog", catalog);
+        Beans.inject(mbeanResource, "connectorPool", connectorPool);
+
+        if (failureRate == 0) {
+            verify(controllerCounters(), "controller");
+            verify(mbeanMemberCounters(), "per-member");
+            verify(mbeanCollectiveCounters(), "collective");
+            verify(mbeanDirectCounters(), "direct");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        connectorPool.shutdown();
+        catalog.shutdown();
+        scanExecutor.shutdown();
+        requestExecutor.shutdown();
+        fanOut.shutdown();
+        topology.shutdown();
+        hedger.shutdown();
+        httpClient.shutdown();
+        resolver.shutdown();
+        metadata.shutdown();
+        collective.close();
+    }
+
+    @Benchmark
+    public Response controllerCounters() throws Exception {
+        SuspendedResponse response = new SuspendedResponse();
+        controllerResource.getAllMemberCounters(null, null, response);
+        return response.awaitOk(SCAN_TIMEOUT_MILLIS);
+    }
+
+    @Benchmark
+    public Response mbeanMemberCounters() throws Exception {
+        SuspendedResponse response = new SuspendedResponse();
+        mbeanResource.getAllMemberCounters(null, null, response);
+        return response.awaitOk(SCAN_TIMEOUT_MILLIS);
+    }
+
+    @Benchmark
+    public Response mbeanCollectiveCounters() throws Exception {
+        SuspendedResponse response = new SuspendedResponse();
+        mbeanResource.getAllMemberCounters(null, "collective", response);
+        return response.awaitOk(SCAN_TIMEOUT_MILLIS);
+    }
+
+    @Benchmark
+    public Response mbeanDirectCounters() throws Exception {
+        SuspendedResponse response = new SuspendedResponse();
+        mbeanResource.getAllMemberCounters(null, "direct", response);
+        return response.awaitOk(SCAN_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Fail the run if a scan of a healthy collective did not reach every member
+     */
+    private void verify(Response response, String scan) {
+        JsonObject result = (JsonObject) response.getEntity();
+        if (result.getInt("successCount", -1) != members) {
+            throw new IllegalStateException("The " + scan + " scan reached " + result.getInt("successCount", -1)
+                + " of " + members + " members: " + result);
+        }
+        if (result.getInt("discoveredCounters", members) != members) {
+            throw new IllegalStateException("The " + scan + " scan discovered " + result.getInt("discoveredCounters")
+                + " Counter MBeans for " + members + " members");
+        }
+    }
+}
+
+// Made with Bob
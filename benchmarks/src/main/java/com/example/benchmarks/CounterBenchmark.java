@@ -0,0 +1,94 @@
+package com.example.benchmarks;
+
+import com.example.liberty.member.Counter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Increment throughput of the member {@link Counter} as thread count grows
+ *
+ * The atomic* benchmarks reproduce the previous single AtomicLong counter as a
+ * baseline. With the striped counter, throughput per thread should stay roughly
+ * flat as threads are added, while the AtomicLong baseline flattens out.
+ *
+ * Run: java -jar benchmarks/target/benchmarks.jar CounterBenchmark -rf json
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CounterBenchmark {
+
+    private final Counter counter = new Counter("benchmark-member");
+    private final AtomicLong atomic = new AtomicLong();
+
+    @Benchmark
+    @Threads(1)
+    public void striped01() {
+        counter.increment();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void striped04() {
+        counter.increment();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void striped16() {
+        counter.increment();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long atomic01() {
+        return atomic.incrementAndGet();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long atomic04() {
+        return atomic.incrementAndGet();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long atomic16() {
+        return atomic.incrementAndGet();
+    }
+
+    /**
+     * Requests incrementing while a JMX client polls the counter
+     */
+    @Benchmark
+    @Group("incrementWhilePolled")
+    @GroupThreads(8)
+    public void incrementWhilePolledWriter() {
+        counter.increment();
+    }
+
+    @Benchmark
+    @Group("incrementWhilePolled")
+    @GroupThreads(1)
+    public long incrementWhilePolledReader() {
+        return counter.getCounter();
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,148 @@
+package com.example.benchmarks;
+
+import com.example.liberty.member.CounterJson;
+import com.example.liberty.member.CounterJsonWriter;
+import com.example.liberty.member.CounterResource;
+import com.example.liberty.member.MBeanManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Variant;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Member cost of answering the Counter REST API, {@link CounterResource}
+ *
+ * The build* benchmarks call the resource methods, which read the counter and
+ * build the response entity. The write* benchmarks also write that entity into
+ * a reused buffer, which is what a member pays per request apart from the HTTP
+ * layer. With encoding=jsonb the entity is a HashMap serialized with JSON-B, as
+ * the jsonb-1.0 feature does; with encoding=direct it is a {@link CounterJson}
+ * payload written by {@link CounterJsonWriter}. Run with -prof gc to see the
+ * allocation per response.
+ *
+ * Run: java -jar benchmarks/target/benchmarks.jar CounterResourceBenchmark -prof gc -rf json
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CounterResourceBenchmark {
+
+    /** Value of member.json.direct: jsonb serializes every response, direct encodes both counter endpoints */
+    @Param({"jsonb", "direct"})
+    public String encoding;
+
+    private MBeanManager mBeanManager;
+    private CounterResource resource;
+    private Jsonb jsonb;
+    private final CounterJsonWriter directWriter = new CounterJsonWriter();
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+
+    /** A request without conditional headers, so every GET is answered with a body */
+    private final Request unconditional = new UnconditionalRequest();
+
+    @Setup
+    public void setUp() {
+        System.setProperty("member.json.direct", "direct".equals(encoding) ? "increment,counter" : "none");
+        mBeanManager = new MBeanManager();
+        mBeanManager.init();
+        resource = new CounterResource();
+        Beans.inject(resource, "mBeanManager", mBeanManager);
+        jsonb = JsonbBuilder.create();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        jsonb.close();
+        mBeanManager.cleanup();
+        System.clearProperty("member.json.direct");
+    }
+
+    @Benchmark
+    public Response buildIncrement() {
+        return resource.incrementCounter();
+    }
+
+    @Benchmark
+    public Response buildGetCounter() {
+        return resource.getCounter(unconditional);
+    }
+
+    @Benchmark
+    public int writeIncrement() throws IOException {
+        return write(resource.incrementCounter());
+    }
+
+    @Benchmark
+    public int writeGetCounter() throws IOException {
+        return write(resource.getCounter(unconditional));
+    }
+
+    private int write(Response response) throws IOException {
+        buffer.reset();
+        Object entity = response.getEntity();
+        if (entity instanceof CounterJson.Payload) {
+            directWriter.writeTo((CounterJson.Payload) entity, CounterJson.Payload.class, CounterJson.Payload.class,
+                null, null, null, buffer);
+        } else {
+            jsonb.toJson(entity, buffer);
+        }
+        return buffer.size();
+    }
+
+    private static final class UnconditionalRequest implements Request {
+        @Override
+        public String getMethod() {
+            return "GET";
+        }
+
+        @Override
+        public Variant selectVariant(List<Variant> variants) {
+            return null;
+        }
+
+        @Override
+        public Response.ResponseBuilder evaluatePreconditions(EntityTag eTag) {
+            return null;
+        }
+
+        @Override
+        public Response.ResponseBuilder evaluatePreconditions(Date lastModified) {
+            return null;
+        }
+
+        @Override
+        public Response.ResponseBuilder evaluatePreconditions(Date lastModified, EntityTag eTag) {
+            return null;
+        }
+
+        @Override
+        public Response.ResponseBuilder evaluatePreconditions() {
+            return null;
+        }
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,166 @@
+package com.example.benchmarks;
+
+import com.example.controller.MBeanMetadataCache;
+import com.example.controller.MemberCircuitBreakers;
+import com.example.controller.MemberCounterClient;
+import com.example.controller.MemberEndpointResolver;
+import com.example.controller.MemberHttpClient;
+import com.example.controller.MemberRequestHedger;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.json.JsonObject;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Controller cost of one member counter query, {@link MemberCounterClient#queryCounter}
+ *
+ * Covers endpoint resolution from the cache, the circuit breaker, the pooled
+ * HTTP call, parsing the member's JSON and building the result object. The
+ * routing MBeans live in a private MBeanServer and the member is a loopback HTTP
+ * server answering /api/counter with an ETag, so the numbers exclude network time.
+ *
+ * With counterChanges=true every call returns a new counter value and a body to
+ * parse; with false the member answers 304 and the previous result is reused.
+ *
+ * Run: java -jar benchmarks/target/benchmarks.jar MemberCounterQueryBenchmark -rf json
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemberCounterQueryBenchmark {
+
+    private static final String CONTEXT_ROOT = "/" + MemberEndpointResolver.COUNTER_APPLICATION;
+    private static final String SERVER_NAME = "member1";
+
+    /** The query logs at INFO on every call; held so the level sticks */
+    private static final Logger CONTROLLER_LOGGER = Logger.getLogger("com.example.controller");
+
+    @Param({"true", "false"})
+    public boolean counterChanges;
+
+    private final AtomicLong counter = new AtomicLong();
+    private HttpServer member;
+    private MemberHttpClient httpClient;
+    private MemberEndpointResolver resolver;
+    private MBeanMetadataCache metadata;
+    private MemberCounterClient client;
+    private String hostName;
+
+    /** Attributes of the collective EndpointRoutingInfo MBean read by the resolver */
+    public interface EndpointRoutingInfo {
+        int getHttpPort();
+    }
+
+    /** Attributes of the Liberty ApplicationMBean read by the resolver */
+    public interface ApplicationMBean {
+        String getContextRoot();
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        CONTROLLER_LOGGER.setLevel(Level.WARNING);
+
+        // Without TCP_NODELAY the stub's separate header and body writes stall on delayed ACKs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        hostName = loopback.getHostAddress();
+        member = HttpServer.create(new InetSocketAddress(loopback, 0), 0);
+        member.createContext(CONTEXT_ROOT + "/api/counter", this::serveCounter);
+        member.setExecutor(Executors.newFixedThreadPool(2));
+        member.start();
+        int port = member.getAddress().getPort();
+
+        MBeanServer mbs = MBeanServerFactory.newMBeanServer();
+        mbs.registerMBean(new StandardMBean(() -> port, EndpointRoutingInfo.class),
+            new ObjectName("WebSphere:feature=collectiveMember,type=EndpointRoutingInfo,name=EndpointRoutingInfo"));
+        mbs.registerMBean(new StandardMBean(() -> CONTEXT_ROOT, ApplicationMBean.class),
+            new ObjectName("WebSphere:service=com.ibm.websphere.application.ApplicationMBean,name="
+                + MemberEndpointResolver.COUNTER_APPLICATION));
+
+        metadata = new MBeanMetadataCache(mbs, 4096);
+        metadata.start();
+        resolver = new MemberEndpointResolver(mbs, Long.MAX_VALUE / 2, Long.MAX_VALUE / 2, "http", Integer.toString(port));
+        Beans.inject(resolver, "metadata", metadata);
+        resolver.start();
+
+        httpClient = new MemberHttpClient(8, 30000L, 5000, 5000);
+        httpClient.start();
+        MemberRequestHedger hedger = new MemberRequestHedger(null, false, 5, 10, 5L, 16);
+        Beans.inject(hedger, "httpClient", httpClient);
+
+        client = new MemberCounterClient();
+        Beans.inject(client, "endpointResolver", resolver);
+        Beans.inject(client, "requestHedger", hedger);
+        Beans.inject(client, "circuitBreakers", new MemberCircuitBreakers(3, 5000L, 60000L, 500, 5000, 4));
+
+        JsonObject first = client.queryCounter(SERVER_NAME, hostName);
+        if (!"success".equals(first.getString("status"))) {
+            throw new IllegalStateException("Member stand-in did not answer: " + first);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        httpClient.shutdown();
+        resolver.shutdown();
+        metadata.shutdown();
+        member.stop(0);
+    }
+
+    @Benchmark
+    public JsonObject queryCounter() {
+        return client.queryCounter(SERVER_NAME, hostName);
+    }
+
+    /**
+     * Member stand-in for GET /api/counter, honouring If-None-Match like CounterResource
+     */
+    private void serveCounter(HttpExchange exchange) throws IOException {
+        long value = counterChanges ? counter.incrementAndGet() : counter.get();
+        String etag = "\"" + value + "\"";
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = ("{\"memberName\":\"" + SERVER_NAME + "\",\"counter\":" + value
+            + ",\"totalRequests\":" + value + ",\"version\":" + value + "}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
+
+// Made with Bob
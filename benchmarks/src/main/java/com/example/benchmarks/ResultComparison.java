@@ -0,0 +1,97 @@
+package com.example.benchmarks;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files and fails if a benchmark got slower
+ *
+ * Benchmarks are matched by name and parameters. Throughput scores are better
+ * when higher, all other modes when lower. A change worse than the threshold
+ * (default 10%) is reported as a regression and the exit code is 1.
+ *
+ * Run: java -cp benchmarks/target/benchmarks.jar com.example.benchmarks.ResultComparison
+ *          baseline.json current.json [thresholdPercent]
+ */
+public final class ResultComparison {
+
+    private ResultComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ResultComparison <baseline.json> <current.json> [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+        Map<String, JsonObject> baseline = load(args[0]);
+        Map<String, JsonObject> current = load(args[1]);
+
+        int regressions = 0;
+        System.out.println(String.format(Locale.ROOT, "%-90s %14s %14s %9s", "Benchmark", "Baseline", "Current", "Change"));
+        for (Map.Entry<String, JsonObject> entry : current.entrySet()) {
+            JsonObject before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.println(String.format(Locale.ROOT, "%-90s %14s %14.3f %9s", entry.getKey(), "-", score(entry.getValue()), "new"));
+                continue;
+            }
+            double old = score(before);
+            double now = score(entry.getValue());
+            boolean higherIsBetter = "thrpt".equals(entry.getValue().getString("mode"));
+            double change = old != 0 ? (now - old) * 100.0 / old : 0.0;
+            double worse = higherIsBetter ? -change : change;
+            boolean regression = worse > threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.out.println(String.format(Locale.ROOT, "%-90s %14.3f %14.3f %+8.1f%%%s",
+                entry.getKey(), old, now, change, regression ? "  REGRESSION" : ""));
+        }
+
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed by more than " + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, JsonObject> load(String file) throws IOException {
+        Map<String, JsonObject> results = new TreeMap<>();
+        try (Reader in = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8);
+             JsonReader reader = Json.createReader(in)) {
+            JsonArray runs = reader.readArray();
+            for (JsonValue run : runs) {
+                JsonObject result = (JsonObject) run;
+                results.put(key(result), result);
+            }
+        }
+        return results;
+    }
+
+    private static String key(JsonObject result) {
+        StringBuilder key = new StringBuilder(result.getString("benchmark"));
+        JsonObject params = result.getJsonObject("params");
+        if (params != null) {
+            for (String name : new TreeMap<>(params).keySet()) {
+                key.append(key.indexOf(":") < 0 ? ":" : ",").append(name).append('=').append(params.getString(name));
+            }
+        }
+        return key.toString();
+    }
+
+    private static double score(JsonObject result) {
+        return result.getJsonObject("primaryMetric").getJsonNumber("score").doubleValue();
+    }
+}
+
+// Made with Bob
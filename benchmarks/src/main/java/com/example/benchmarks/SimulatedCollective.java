@@ -0,0 +1,507 @@
+package com.example.benchmarks;
+
+import com.example.liberty.member.Counter;
+import com.example.liberty.member.CounterMBean;
+import com.example.liberty.member.CounterRegistry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerFactory;
+import javax.management.NotCompliantMBeanException;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import javax.management.StandardMBean;
+import javax.management.remote.JMXConnector;
+import javax.security.auth.Subject;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process stand-in for a Liberty collective with synthetic members
+ *
+ * Registers on an MBeanServer what the controller and cluster applications look
+ * for on a collective controller:
+ *   ClusterManager         listClusterNames and listMembers, with "host,userDir,server" tuples
+ *   CollectiveRepository   marks the server as a collective controller
+ *   type=Server            one per member, with Cluster, HostName, HttpsPort and State
+ *   type=Counter           one routed Counter MBean per member, with host and server keys
+ *   type=NamedCounter      one routed named counter per member, which Counter scans must skip
+ *   EndpointRoutingInfo    the port of the members' HTTP stubs
+ *   ApplicationMBean       the context root of liberty-cluster-member-app
+ *
+ * Each member gets its own loopback address (127.0.1.1, 127.0.1.2, ...) so
+ * per-host connection pools, endpoint caches and circuit breakers see distinct
+ * hosts. With HTTP stubs enabled, every member serves GET
+ * /liberty-cluster-member-app/api/counter on its address, all on the same port,
+ * with an ETag and 304 handling like the member's CounterResource. Direct
+ * member connections are served by {@link #connectorOpener()}, which connects
+ * to a private MBeanServer per member holding its Counter MBean.
+ *
+ * Every routed MBean call and stub request waits for the member's latency and
+ * then fails with the member's failure rate. Both can be changed per member
+ * while the collective runs.
+ *
+ * Loopback addresses other than 127.0.0.1 need Linux or an equivalent loopback setup.
+ */
+public final class SimulatedCollective implements AutoCloseable {
+
+    public static final String CLUSTER_MANAGER = "WebSphere:feature=collectiveController,type=ClusterManager,name=ClusterManager";
+    public static final String COLLECTIVE_REPOSITORY = "WebSphere:feature=collectiveController,type=CollectiveRepository,name=CollectiveRepository";
+    public static final String ENDPOINT_ROUTING_INFO = "WebSphere:feature=collectiveMember,type=EndpointRoutingInfo,name=EndpointRoutingInfo";
+    public static final String MEMBER_APPLICATION = "liberty-cluster-member-app";
+    public static final String COUNTER_PATH = "/" + MEMBER_APPLICATION + "/api/counter";
+    public static final String COUNTER_MBEAN_NAME = "com.example.liberty.member:type=Counter";
+    public static final String NAMED_COUNTER_MBEAN_NAME = CounterRegistry.COUNTER_MBEAN_PREFIX + "requests";
+
+    private static final String APPLICATION_MBEAN = "WebSphere:service=com.ibm.websphere.application.ApplicationMBean,name=" + MEMBER_APPLICATION;
+
+    private final MBeanServer mbs;
+    private final int clusterCount;
+    private final boolean httpStubs;
+    private final List<Member> members = new ArrayList<>();
+    private final Map<String, Member> membersByHost = new LinkedHashMap<>();
+    private final List<ObjectName> registered = new ArrayList<>();
+    private final List<HttpServer> stubs = new ArrayList<>();
+    private ExecutorService stubExecutor;
+    private int httpPort = -1;
+
+    /** ClusterManager operations used by the topology cache */
+    public interface ClusterManager {
+        Collection<String> listClusterNames();
+
+        Collection<String> listMembers(String clusterName);
+    }
+
+    /** Presence of this MBean marks a collective controller */
+    public interface CollectiveRepository {
+        int getMemberCount();
+    }
+
+    /** Collective Server MBean attributes read by the cluster application */
+    public interface Server {
+        String getCluster();
+
+        String getHostName();
+
+        String getHttpsPort();
+
+        String getState();
+    }
+
+    /** EndpointRoutingInfo attributes read by the controller's endpoint resolver */
+    public interface EndpointRoutingInfo {
+        int getHttpPort();
+
+        int getHttpsPort();
+    }
+
+    /** ApplicationMBean attributes read by the controller's endpoint resolver */
+    public interface Application {
+        String getContextRoot();
+    }
+
+    /**
+     * @param mbs server to register the collective MBeans with
+     * @param memberCount synthetic members, at most 62500
+     * @param clusterCount clusters the members are spread over, round robin
+     * @param latencyMicros initial latency of every member call, in microseconds
+     * @param failureRate initial probability, 0 to 1, that a member call fails
+     * @param httpStubs whether to start the members' HTTP stubs
+     */
+    public SimulatedCollective(MBeanServer mbs, int memberCount, int clusterCount,
+                               long latencyMicros, double failureRate, boolean httpStubs) {
+        if (memberCount < 1 || memberCount > 250 * 250) {
+            throw new IllegalArgumentException("Member count must be between 1 and 62500: " + memberCount);
+        }
+        this.mbs = mbs;
+        this.clusterCount = Math.max(1, Math.min(clusterCount, memberCount));
+        this.httpStubs = httpStubs;
+        for (int i = 0; i < memberCount; i++) {
+            String host = "127.0." + (1 + i / 250) + "." + (1 + i % 250);
+            Member member = new Member("member" + (i + 1), host, "cluster" + (1 + i % this.clusterCount));
+            member.setLatencyMicros(latencyMicros);
+            member.setFailureRate(failureRate);
+            members.add(member);
+            membersByHost.put(host, member);
+        }
+    }
+
+    /**
+     * Start the HTTP stubs and register the collective MBeans
+     */
+    public SimulatedCollective start() throws Exception {
+        try {
+            if (httpStubs) {
+                startStubs();
+            }
+            register(new StandardMBean(new ClusterManager() {
+                @Override
+                public Collection<String> listClusterNames() {
+                    List<String> names = new ArrayList<>();
+                    for (int i = 1; i <= clusterCount; i++) {
+                        names.add("cluster" + i);
+                    }
+                    return names;
+                }
+
+                @Override
+                public Collection<String> listMembers(String clusterName) {
+                    List<String> tuples = new ArrayList<>();
+                    for (Member member : members) {
+                        if (member.cluster.equals(clusterName)) {
+                            tuples.add(member.host + ",/simulated/" + member.name + "/usr," + member.name);
+                        }
+                    }
+                    return tuples;
+                }
+            }, ClusterManager.class), CLUSTER_MANAGER);
+            register(new StandardMBean((CollectiveRepository) members::size, CollectiveRepository.class), COLLECTIVE_REPOSITORY);
+
+            final int port = httpPort;
+            register(new StandardMBean(new EndpointRoutingInfo() {
+                @Override
+                public int getHttpPort() {
+                    return port;
+                }
+
+                @Override
+                public int getHttpsPort() {
+                    return port;
+                }
+            }, EndpointRoutingInfo.class), ENDPOINT_ROUTING_INFO);
+            register(new StandardMBean((Application) () -> "/" + MEMBER_APPLICATION, Application.class), APPLICATION_MBEAN);
+
+            for (final Member member : members) {
+                register(new RemoteMBean<>(new Server() {
+                    @Override
+                    public String getCluster() {
+                        return member.cluster;
+                    }
+
+                    @Override
+                    public String getHostName() {
+                        return member.host;
+                    }
+
+                    @Override
+                    public String getHttpsPort() {
+                        return Integer.toString(port);
+                    }
+
+                    @Override
+                    public String getState() {
+                        return "STARTED";
+                    }
+                }, Server.class, member), "WebSphere:feature=collectiveController,type=Server,name=" + member.name);
+                register(new RemoteMBean<>(member.counter, CounterMBean.class, member),
+                    COUNTER_MBEAN_NAME + ",host=" + member.host + ",server=" + member.name);
+                register(new RemoteMBean<>(member.namedCounter, CounterMBean.class, member),
+                    NAMED_COUNTER_MBEAN_NAME + ",host=" + member.host + ",server=" + member.name);
+                member.local.registerMBean(new RemoteMBean<>(member.counter, CounterMBean.class, member),
+                    new ObjectName(COUNTER_MBEAN_NAME));
+            }
+        } catch (Exception e) {
+            close();
+            throw e;
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        for (ObjectName name : registered) {
+            try {
+                mbs.unregisterMBean(name);
+            } catch (Exception e) {
+                // Already unregistered
+            }
+        }
+        registered.clear();
+        for (HttpServer stub : stubs) {
+            stub.stop(0);
+        }
+        stubs.clear();
+        if (stubExecutor != null) {
+            stubExecutor.shutdownNow();
+        }
+    }
+
+    public List<Member> getMembers() {
+        return Collections.unmodifiableList(members);
+    }
+
+    /**
+     * Port shared by the members' HTTP stubs, or -1 without stubs
+     */
+    public int getHttpPort() {
+        return httpPort;
+    }
+
+    /**
+     * Opener for MemberConnectorPool that connects to the member with that host in-process
+     * The port is not checked.
+     */
+    public com.example.liberty.cluster.MemberConnectorPool.Opener connectorOpener() {
+        return (host, port) -> {
+            Member member = membersByHost.get(host);
+            if (member == null) {
+                throw new IOException("No simulated member at " + host);
+            }
+            try {
+                member.remoteCall();
+            } catch (MemberFailureException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            return new LocalConnector(member.local);
+        };
+    }
+
+    private void register(Object mbean, String name) throws Exception {
+        ObjectName objectName = new ObjectName(name);
+        mbs.registerMBean(mbean, objectName);
+        registered.add(objectName);
+    }
+
+    private void startStubs() throws IOException {
+        final AtomicInteger sequence = new AtomicInteger();
+        stubExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "member-stub-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Without TCP_NODELAY the stub's separate header and body writes stall on delayed ACKs
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        int port = 0;
+        for (final Member member : members) {
+            HttpServer stub;
+            try {
+                stub = HttpServer.create(new InetSocketAddress(InetAddress.getByName(member.host), port), 0);
+            } catch (BindException e) {
+                throw new IOException("Cannot bind a member stub to " + member.host + ":" + port
+                    + "; the simulated collective needs the whole 127.0.0.0/8 loopback range", e);
+            }
+            stub.createContext(COUNTER_PATH, exchange -> serveCounter(member, exchange));
+            stub.setExecutor(stubExecutor);
+            stub.start();
+            stubs.add(stub);
+            port = stub.getAddress().getPort();
+        }
+        httpPort = port;
+    }
+
+    /**
+     * GET /api/counter of a member, honouring If-None-Match like CounterResource
+     */
+    private static void serveCounter(Member member, HttpExchange exchange) throws IOException {
+        try {
+            try {
+                member.remoteCall();
+            } catch (MemberFailureException e) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            long version = member.counter.getVersion();
+            String etag = "\"" + version + "\"";
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            byte[] body = ("{\"memberName\":\"" + member.name + "\",\"counter\":" + member.counter.getCounter()
+                + ",\"totalRequests\":" + member.counter.getTotalRequests()
+                + ",\"version\":" + version + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * A synthetic member with its counter, address and injected faults
+     */
+    public static final class Member {
+        private final String name;
+        private final String host;
+        private final String cluster;
+        private final Counter counter;
+        private final Counter namedCounter;
+        private final MBeanServer local = MBeanServerFactory.newMBeanServer();
+        private volatile long latencyNanos;
+        private volatile double failureRate;
+
+        Member(String name, String host, String cluster) {
+            this.name = name;
+            this.host = host;
+            this.cluster = cluster;
+            this.counter = new Counter(name);
+            this.namedCounter = new Counter(name);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public String getCluster() {
+            return cluster;
+        }
+
+        public Counter getCounter() {
+            return counter;
+        }
+
+        public void setLatencyMicros(long latencyMicros) {
+            this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, latencyMicros));
+        }
+
+        public void setFailureRate(double failureRate) {
+            this.failureRate = Math.max(0.0, Math.min(1.0, failureRate));
+        }
+
+        /**
+         * Wait for the member's latency, then fail with its failure rate
+         */
+        void remoteCall() {
+            long nanos = latencyNanos;
+            if (nanos > 0) {
+                long until = System.nanoTime() + nanos;
+                for (long left = nanos; left > 0; left = until - System.nanoTime()) {
+                    LockSupport.parkNanos(left);
+                }
+            }
+            double rate = failureRate;
+            if (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate) {
+                throw new MemberFailureException("Simulated failure of " + name);
+            }
+        }
+    }
+
+    /**
+     * Raised by a member call that was chosen to fail
+     */
+    public static final class MemberFailureException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        MemberFailureException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Standard MBean whose attribute reads and operations are member calls
+     */
+    private static final class RemoteMBean<T> extends StandardMBean {
+        private final Member member;
+
+        RemoteMBean(T implementation, Class<T> mbeanInterface, Member member) throws NotCompliantMBeanException {
+            super(implementation, mbeanInterface);
+            this.member = member;
+        }
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException, MBeanException, ReflectionException {
+            member.remoteCall();
+            return super.getAttribute(attribute);
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            member.remoteCall();
+            return super.getAttributes(attributes);
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException, ReflectionException {
+            member.remoteCall();
+            return super.invoke(actionName, params, signature);
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) {
+            throw new UnsupportedOperationException("Simulated MBeans are read-only");
+        }
+    }
+
+    /**
+     * JMX connector to an MBeanServer in this JVM
+     */
+    private static final class LocalConnector implements JMXConnector {
+        private final MBeanServer target;
+
+        LocalConnector(MBeanServer target) {
+            this.target = target;
+        }
+
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public void connect(Map<String, ?> env) {
+        }
+
+        @Override
+        public MBeanServerConnection getMBeanServerConnection() {
+            return target;
+        }
+
+        @Override
+        public MBeanServerConnection getMBeanServerConnection(Subject delegationSubject) {
+            return target;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void addConnectionNotificationListener(NotificationListener listener, NotificationFilter filter, Object handback) {
+        }
+
+        @Override
+        public void removeConnectionNotificationListener(NotificationListener listener) {
+        }
+
+        @Override
+        public void removeConnectionNotificationListener(NotificationListener l, NotificationFilter f, Object handback) {
+        }
+
+        @Override
+        public String getConnectionId() {
+            return "local:" + System.identityHashCode(target);
+        }
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,114 @@
+package com.example.benchmarks;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AsyncResponse stand-in for calling suspended resource methods outside a JAX-RS runtime
+ *
+ * Timeouts are recorded but not enforced; {@link #await(long)} bounds the wait instead.
+ */
+final class SuspendedResponse implements AsyncResponse {
+
+    private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+    /**
+     * Wait for the resource to resume this response
+     *
+     * @return the resumed entity, normally a Response
+     * @throws Exception if the resource resumed with an exception or did not resume in time
+     */
+    Object await(long timeoutMillis) throws Exception {
+        return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Wait for the resource to resume this response and fail unless it is 200 OK
+     */
+    Response awaitOk(long timeoutMillis) throws Exception {
+        Object resumed = await(timeoutMillis);
+        if (!(resumed instanceof Response) || ((Response) resumed).getStatus() != Response.Status.OK.getStatusCode()) {
+            throw new IllegalStateException("Resource did not answer 200 OK: "
+                + (resumed instanceof Response ? ((Response) resumed).getStatus() + " " + ((Response) resumed).getEntity() : resumed));
+        }
+        return (Response) resumed;
+    }
+
+    @Override
+    public boolean resume(Object response) {
+        return result.complete(response);
+    }
+
+    @Override
+    public boolean resume(Throwable response) {
+        return result.completeExceptionally(response);
+    }
+
+    @Override
+    public boolean cancel() {
+        return result.cancel(false);
+    }
+
+    @Override
+    public boolean cancel(int retryAfter) {
+        return cancel();
+    }
+
+    @Override
+    public boolean cancel(Date retryAfter) {
+        return cancel();
+    }
+
+    @Override
+    public boolean isSuspended() {
+        return !result.isDone();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return result.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    @Override
+    public boolean setTimeout(long time, TimeUnit unit) {
+        return !result.isDone();
+    }
+
+    @Override
+    public void setTimeoutHandler(TimeoutHandler handler) {
+    }
+
+    @Override
+    public Collection<Class<?>> register(Class<?> callback) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Map<Class<?>, Collection<Class<?>>> register(Class<?> callback, Class<?>... callbacks) {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public Collection<Class<?>> register(Object callback) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Map<Class<?>, Collection<Class<?>>> register(Object callback, Object... callbacks) {
+        return Collections.emptyMap();
+    }
+}
+
+// Made with Bob
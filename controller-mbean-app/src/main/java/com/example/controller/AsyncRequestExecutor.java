@@ -0,0 +1,177 @@
+package com.example.controller;
+
+import com.example.mbean.ManagedExecutors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Dedicated executor for suspended (asynchronous) controller requests.
+ *
+ * Resource methods hand their cluster-wide work to this pool and return
+ * immediately, so Liberty's request threads are not pinned while the controller
+ * scans the collective. The pool is sized independently of the default executor
+ * and rejects work once its queue is full, answering 503 instead of queueing
+ * dashboards' polls without bound. A request that times out is answered 503
+ * and its work is cancelled, so it does not start if it is still queued.
+ *
+ * In the server the pool is the managed executor bound at
+ * controller.async.executor, limited by its concurrencyPolicy in server.xml;
+ * where it is not bound a local pool sized by the properties below is used.
+ *
+ * Tuning (JVM system properties):
+ *   controller.async.executor         JNDI name of the managed executor, default concurrent/controllerAsync
+ *   controller.async.threads          worker threads of the local pool, default 8
+ *   controller.async.queueCapacity    queued requests of the local pool before rejecting, default 256
+ *   controller.async.timeoutMs        suspended response timeout, default 30000
+ */
+@ApplicationScoped
+public class AsyncRequestExecutor {
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncRequestExecutor.class.getName());
+
+    static final String DEFAULT_EXECUTOR = "concurrent/controllerAsync";
+
+    private final String executorName;
+    private final int threads;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong timedOutCount = new AtomicLong();
+
+    private ExecutorService pool;
+    private boolean localPool;
+
+    public AsyncRequestExecutor() {
+        this(System.getProperty("controller.async.executor", DEFAULT_EXECUTOR),
+             Integer.getInteger("controller.async.threads", 8),
+             Integer.getInteger("controller.async.queueCapacity", 256),
+             Long.getLong("controller.async.timeoutMs", 30000L));
+    }
+
+    /**
+     * @param executorName JNDI name of the managed executor, or null to always use a local pool
+     */
+    public AsyncRequestExecutor(String executorName, int threads, int queueCapacity, long timeoutMillis) {
+        this.executorName = executorName;
+        this.threads = Math.max(1, threads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        pool = ManagedExecutors.lookup(executorName, ManagedExecutorService.class);
+        localPool = pool == null;
+        if (localPool) {
+            ThreadPoolExecutor local = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), ManagedExecutors.namedDaemonThreads("controller-async"));
+            local.allowCoreThreadTimeOut(true);
+            pool = local;
+        }
+        LOGGER.info("Async request executor started: "
+            + (localPool ? "threads=" + threads + ", queueCapacity=" + queueCapacity : "executor=" + executorName));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // A managed executor belongs to the server and must not be shut down by the application
+        if (pool != null && localPool) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Run the work on the request pool and resume the suspended response with its result.
+     *
+     * @param asyncResponse suspended response to resume
+     * @param work produces the response; may itself complete asynchronously
+     * @param onError maps a failure of the work to the response sent to the client
+     */
+    public void resume(final AsyncResponse asyncResponse,
+                       final Callable<? extends CompletionStage<Response>> work,
+                       final Function<Throwable, Response> onError) {
+        final AtomicReference<Future<?>> running = new AtomicReference<>();
+        asyncResponse.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        asyncResponse.setTimeoutHandler(suspended -> {
+            timedOutCount.incrementAndGet();
+            suspended.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(error("Request did not complete within " + timeoutMillis + "ms"))
+                .build());
+            Future<?> task = running.get();
+            if (task != null) {
+                task.cancel(true);
+            }
+        });
+
+        try {
+            running.set(pool.submit(() -> {
+                try {
+                    work.call().whenComplete((response, failure) -> {
+                        if (failure != null) {
+                            asyncResponse.resume(onError.apply(unwrap(failure)));
+                        } else {
+                            asyncResponse.resume(response);
+                        }
+                    });
+                } catch (Exception e) {
+                    asyncResponse.resume(onError.apply(e));
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            LOGGER.log(Level.WARNING, "Async request rejected, the request executor's queue is full");
+            asyncResponse.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(error("Controller is busy, retry later"))
+                .build());
+        }
+    }
+
+    /**
+     * Request pool occupancy statistics
+     */
+    public JsonObject getStatistics() {
+        return Json.createObjectBuilder(ThreadPools.describe(pool, rejectedCount.get()))
+            .add("executor", localPool ? "local" : executorName)
+            .add("timeoutMillis", timeoutMillis)
+            .add("timedOutCount", timedOutCount.get())
+            .build();
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            return failure.getCause();
+        }
+        return failure;
+    }
+
+    private static JsonObject error(String message) {
+        return Json.createObjectBuilder()
+            .add("error", message)
+            .add("timestamp", System.currentTimeMillis())
+            .build();
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,110 @@
+package com.example.controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the collective's clusters and members
+ * Built by {@link ClusterTopologyCache} from the ClusterManager MBean and
+ * indexed by server name so request paths can look members up in O(1)
+ */
+public final class ClusterTopology {
+
+    private final long version;
+    private final long loadedAt;
+    private final List<String> clusterNames;
+    private final List<LibertyClusterMember> members;
+    private final Map<String, LibertyClusterMember> membersByServerName;
+    private final Map<String, List<LibertyClusterMember>> membersByCluster;
+
+    /**
+     * @param version monotonically increasing snapshot version
+     * @param membersByCluster members of each cluster, in ClusterManager order
+     */
+    public ClusterTopology(long version, Map<String, List<LibertyClusterMember>> membersByCluster) {
+        this.version = version;
+        this.loadedAt = System.currentTimeMillis();
+
+        List<String> names = new ArrayList<>();
+        List<LibertyClusterMember> all = new ArrayList<>();
+        Map<String, LibertyClusterMember> byServerName = new HashMap<>();
+        Map<String, List<LibertyClusterMember>> byCluster = new LinkedHashMap<>();
+
+        for (Map.Entry<String, List<LibertyClusterMember>> cluster : membersByCluster.entrySet()) {
+            names.add(cluster.getKey());
+            List<LibertyClusterMember> clusterMembers = new ArrayList<>(cluster.getValue());
+            byCluster.put(cluster.getKey(), Collections.unmodifiableList(clusterMembers));
+            for (LibertyClusterMember member : clusterMembers) {
+                all.add(member);
+                if (member.getServerName() != null) {
+                    byServerName.putIfAbsent(member.getServerName(), member);
+                }
+            }
+        }
+
+        this.clusterNames = Collections.unmodifiableList(names);
+        this.members = Collections.unmodifiableList(all);
+        this.membersByServerName = Collections.unmodifiableMap(byServerName);
+        this.membersByCluster = Collections.unmodifiableMap(byCluster);
+    }
+
+    /**
+     * Empty topology, used before the first successful load
+     */
+    public static ClusterTopology empty() {
+        return new ClusterTopology(0, Collections.<String, List<LibertyClusterMember>>emptyMap());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    public List<String> getClusterNames() {
+        return clusterNames;
+    }
+
+    /**
+     * All members across all clusters
+     */
+    public List<LibertyClusterMember> getMembers() {
+        return members;
+    }
+
+    /**
+     * Members of a single cluster
+     *
+     * @return the cluster's members, or an empty list if the cluster is unknown
+     */
+    public List<LibertyClusterMember> getMembers(String clusterName) {
+        List<LibertyClusterMember> clusterMembers = membersByCluster.get(clusterName);
+        return clusterMembers != null ? clusterMembers : Collections.<LibertyClusterMember>emptyList();
+    }
+
+    /**
+     * Find a member by server name
+     *
+     * @return the member, or null if no member has that server name
+     */
+    public LibertyClusterMember findMember(String serverName) {
+        return serverName != null ? membersByServerName.get(serverName) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "ClusterTopology{" +
+                "version=" + version +
+                ", clusters=" + clusterNames.size() +
+                ", members=" + members.size() +
+                '}';
+    }
+}
+
+// Made with Bob
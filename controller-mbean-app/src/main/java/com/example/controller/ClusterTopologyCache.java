@@ -0,0 +1,296 @@
+package com.example.controller;
+
+import com.example.mbean.ManagedExecutors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationBroadcaster;
+import javax.management.NotificationFilter;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Holds the current {@link ClusterTopology} so request paths never call the
+ * ClusterManager MBean.
+ *
+ * The snapshot is reloaded in the background on a fixed period and, sooner,
+ * whenever collective MBeans (servers, hosts, clusters) are registered or
+ * unregistered or the CollectiveRepository emits a notification. Reloads that
+ * arrive close together are coalesced. If a reload fails the previous snapshot
+ * stays in place. If only the members of one cluster cannot be listed, that
+ * cluster keeps its members from the previous snapshot; without one the whole
+ * reload fails.
+ *
+ * Reloads run on the server's default managed scheduled executor; outside the
+ * server a local single-thread scheduler is used.
+ *
+ * Tuning (JVM system properties):
+ *   controller.topology.refreshMs    periodic reload interval, default 30000
+ *   controller.topology.debounceMs   delay used to coalesce invalidations, default 500
+ */
+@ApplicationScoped
+public class ClusterTopologyCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ClusterTopologyCache.class.getName());
+
+    private static final String CLUSTER_MANAGER = "WebSphere:feature=collectiveController,type=ClusterManager,name=ClusterManager";
+    private static final String COLLECTIVE_REPOSITORY = "WebSphere:feature=collectiveController,type=CollectiveRepository,name=CollectiveRepository";
+    private static final Set<String> TOPOLOGY_MBEAN_TYPES = new HashSet<>(Arrays.asList(
+        "Server", "Host", "ClusterManager", "CollectiveMember", "CollectiveRepository"));
+
+    private final MBeanServer mbs;
+    private final long refreshMillis;
+    private final long debounceMillis;
+
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+    private final AtomicLong clusterFailures = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+    private final NotificationListener invalidationListener = (notification, handback) ->
+        invalidate(notification.getType());
+
+    private volatile ClusterTopology current;
+    private volatile String lastError;
+    private ScheduledExecutorService scheduler;
+    private boolean localScheduler;
+    private Future<?> periodicRefresh;
+    private volatile Future<?> pendingRefresh;
+    private boolean repositoryListenerRegistered;
+
+    public ClusterTopologyCache() {
+        this(ManagementFactory.getPlatformMBeanServer(),
+             Long.getLong("controller.topology.refreshMs", 30000L),
+             Long.getLong("controller.topology.debounceMs", 500L));
+    }
+
+    public ClusterTopologyCache(MBeanServer mbs, long refreshMillis, long debounceMillis) {
+        this.mbs = mbs;
+        this.refreshMillis = refreshMillis;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Create the cache when the application starts so the first request finds a loaded snapshot
+     */
+    public void onApplicationStart(@Observes @Initialized(ApplicationScoped.class) Object ignored) {
+        LOGGER.fine("Cluster topology cache initialized");
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = ManagedExecutors.lookup(MemberFanOut.DEFAULT_TIMER, ManagedScheduledExecutorService.class);
+        localScheduler = scheduler == null;
+        if (localScheduler) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(ManagedExecutors.namedDaemonThreads("controller-topology"));
+        }
+        registerListeners();
+        pendingRefresh = scheduler.submit(this::refreshQuietly);
+        periodicRefresh = scheduler.scheduleWithFixedDelay(this::refreshQuietly, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // The managed scheduler belongs to the server: cancel this cache's reloads instead of shutting it down
+        if (periodicRefresh != null) {
+            periodicRefresh.cancel(true);
+        }
+        Future<?> pending = pendingRefresh;
+        if (pending != null) {
+            pending.cancel(true);
+        }
+        if (scheduler != null && localScheduler) {
+            scheduler.shutdownNow();
+        }
+        try {
+            mbs.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, invalidationListener);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "MBeanServerDelegate listener already removed", e);
+        }
+        if (repositoryListenerRegistered) {
+            try {
+                mbs.removeNotificationListener(new ObjectName(COLLECTIVE_REPOSITORY), invalidationListener);
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "CollectiveRepository listener already removed", e);
+            }
+        }
+    }
+
+    /**
+     * Current topology snapshot
+     * Only loads synchronously if no snapshot has been loaded yet
+     *
+     * @throws Exception if there is no snapshot yet and loading it fails
+     */
+    public ClusterTopology snapshot() throws Exception {
+        ClusterTopology topology = current;
+        if (topology != null) {
+            return topology;
+        }
+        synchronized (this) {
+            if (current == null) {
+                current = load(null);
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Schedule a reload, coalescing with any reload already pending
+     */
+    public void invalidate(String reason) {
+        invalidations.incrementAndGet();
+        if (scheduler != null && refreshPending.compareAndSet(false, true)) {
+            LOGGER.fine("Cluster topology invalidated: " + reason);
+            pendingRefresh = scheduler.schedule(this::refreshQuietly, debounceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Topology cache statistics
+     */
+    public JsonObject getStatistics() {
+        ClusterTopology topology = current;
+        return Json.createObjectBuilder()
+            .add("loaded", topology != null)
+            .add("version", topology != null ? topology.getVersion() : 0)
+            .add("loadedAt", topology != null ? topology.getLoadedAt() : 0)
+            .add("clusterCount", topology != null ? topology.getClusterNames().size() : 0)
+            .add("memberCount", topology != null ? topology.getMembers().size() : 0)
+            .add("refreshCount", refreshCount.get())
+            .add("refreshFailures", refreshFailures.get())
+            .add("clusterFailures", clusterFailures.get())
+            .add("invalidations", invalidations.get())
+            .add("refreshMillis", refreshMillis)
+            .add("repositoryNotifications", repositoryListenerRegistered)
+            .add("lastError", lastError != null ? lastError : "")
+            .build();
+    }
+
+    private void refreshQuietly() {
+        refreshPending.set(false);
+        try {
+            ClusterTopology topology = load(current);
+            current = topology;
+            lastError = null;
+            LOGGER.fine("Loaded " + topology);
+        } catch (Exception e) {
+            refreshFailures.incrementAndGet();
+            lastError = e.getClass().getSimpleName() + ": " + e.getMessage();
+            LOGGER.log(Level.FINE, "Cluster topology refresh failed, keeping previous snapshot", e);
+        }
+    }
+
+    /**
+     * Load all clusters and their members from the ClusterManager MBean
+     *
+     * @param previous snapshot whose members stand in for a cluster that cannot be listed, or null
+     * @throws Exception if the clusters cannot be listed, or a cluster's members cannot be
+     *                   listed and the previous snapshot does not have that cluster
+     */
+    @SuppressWarnings("unchecked")
+    private ClusterTopology load(ClusterTopology previous) throws Exception {
+        refreshCount.incrementAndGet();
+        ObjectName clusterMgrMBean = new ObjectName(CLUSTER_MANAGER);
+        Collection<String> clusterNames = (Collection<String>) mbs.invoke(clusterMgrMBean, "listClusterNames", null, null);
+
+        Map<String, List<LibertyClusterMember>> membersByCluster = new LinkedHashMap<>();
+        if (clusterNames == null || clusterNames.isEmpty()) {
+            LOGGER.info("No clusters found in the collective");
+            return new ClusterTopology(versions.incrementAndGet(), membersByCluster);
+        }
+
+        int memberCount = 0;
+        for (String clusterName : clusterNames) {
+            List<LibertyClusterMember> clusterMembers = new ArrayList<>();
+            try {
+                Collection<String> clusterMemberTuples = (Collection<String>) mbs.invoke(clusterMgrMBean, "listMembers",
+                    new Object[] {clusterName}, new String[] {String.class.getName()});
+
+                if (clusterMemberTuples != null) {
+                    for (String clusterMemberTuple : clusterMemberTuples) {
+                        LibertyClusterMember cm = LibertyClusterMember.parseClusterMemberTuple(clusterMemberTuple);
+                        if (cm != null) {
+                            cm.setClusterName(clusterName);
+                            clusterMembers.add(cm);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                clusterFailures.incrementAndGet();
+                if (previous == null || !previous.getClusterNames().contains(clusterName)) {
+                    throw new Exception("Error getting members for cluster: " + clusterName, e);
+                }
+                // An empty cluster would look like all its members left; keep what was known
+                LOGGER.log(Level.WARNING, "Error getting members for cluster: " + clusterName
+                    + ", keeping its members from topology version " + previous.getVersion(), e);
+                clusterMembers = previous.getMembers(clusterName);
+            }
+            membersByCluster.put(clusterName, clusterMembers);
+            memberCount += clusterMembers.size();
+        }
+
+        LOGGER.info("Found total " + memberCount + " members across " + clusterNames.size() + " clusters");
+        return new ClusterTopology(versions.incrementAndGet(), membersByCluster);
+    }
+
+    private void registerListeners() {
+        NotificationFilter collectiveMBeans = notification -> isTopologyChange(notification);
+        try {
+            mbs.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, invalidationListener, collectiveMBeans, null);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Could not listen for MBean registrations, relying on periodic refresh", e);
+        }
+
+        try {
+            ObjectName repository = new ObjectName(COLLECTIVE_REPOSITORY);
+            if (mbs.isRegistered(repository) && mbs.isInstanceOf(repository, NotificationBroadcaster.class.getName())) {
+                mbs.addNotificationListener(repository, invalidationListener, null, null);
+                repositoryListenerRegistered = true;
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "CollectiveRepository does not emit notifications", e);
+        }
+    }
+
+    private static boolean isTopologyChange(Notification notification) {
+        if (!(notification instanceof MBeanServerNotification)) {
+            return false;
+        }
+        ObjectName name = ((MBeanServerNotification) notification).getMBeanName();
+        return "WebSphere".equals(name.getDomain())
+            && "collectiveController".equals(name.getKeyProperty("feature"))
+            && TOPOLOGY_MBEAN_TYPES.contains(name.getKeyProperty("type"));
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,146 @@
+package com.example.controller;
+
+import com.example.mbean.MBeanCatalog;
+
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * REST API Resource exposing the controller's own runtime statistics
+ * Used to verify the controller stays responsive while dashboards poll the collective
+ */
+@Path("/stats")
+public class ControllerStatsResource {
+
+    @Inject
+    private AsyncRequestExecutor requestExecutor;
+
+    @Inject
+    private MemberFanOut fanOut;
+
+    @Inject
+    private MemberHttpClient httpClient;
+
+    @Inject
+    private ClusterTopologyCache topology;
+
+    @Inject
+    private MemberEndpointResolver endpointResolver;
+
+    @Inject
+    private CounterStreamHub streamHub;
+
+    @Inject
+    private MemberCounterClient counterClient;
+
+    @Inject
+    private MemberCircuitBreakers circuitBreakers;
+
+    @Inject
+    private MemberRequestHedger requestHedger;
+
+    @Inject
+    private MBeanMetadataCache metadata;
+
+    @Inject
+    private MBeanCatalog catalog;
+
+    /**
+     * Get all controller statistics
+     *
+     * @return JSON response with thread pool occupancy, member HTTP client counters, topology cache state,
+     *         endpoint resolution cache hit rates, counter stream subscribers,
+     *         conditional counter request counts, member circuit breaker states, hedge rates
+     *         MBean metadata cache hit rates and MBean catalog query counts
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getStatistics() {
+        JsonObject response = Json.createObjectBuilder()
+            .add("executors", executorStatistics())
+            .add("httpClient", httpClient.getStatistics())
+            .add("topology", topology.getStatistics())
+            .add("endpoints", endpointResolver.getStatistics())
+            .add("stream", streamHub.getStatistics())
+            .add("counters", counterClient.getStatistics())
+            .add("circuitBreakers", circuitBreakers.getStatistics())
+            .add("hedging", requestHedger.getStatistics())
+            .add("mbeanMetadata", metadata.getStatistics())
+            .add("mbeanCatalog", catalog.getStatistics())
+            .add("timestamp", System.currentTimeMillis())
+            .build();
+
+        return Response.ok(response).build();
+    }
+
+    /**
+     * Get thread pool occupancy for the async request pool and the member fan-out pool
+     */
+    @GET
+    @Path("/executors")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getExecutorStatistics() {
+        JsonObject response = Json.createObjectBuilder(executorStatistics())
+            .add("timestamp", System.currentTimeMillis())
+            .build();
+
+        return Response.ok(response).build();
+    }
+
+    /**
+     * Get member HTTP connection pool, reuse and TLS handshake counters
+     */
+    @GET
+    @Path("/http")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getHttpClientStatistics() {
+        JsonObject response = Json.createObjectBuilder(httpClient.getStatistics())
+            .add("timestamp", System.currentTimeMillis())
+            .build();
+
+        return Response.ok(response).build();
+    }
+
+    /**
+     * Get member endpoint resolution cache hits, misses and invalidations
+     */
+    @GET
+    @Path("/endpoints")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getEndpointStatistics() {
+        JsonObject response = Json.createObjectBuilder(endpointResolver.getStatistics())
+            .add("timestamp", System.currentTimeMillis())
+            .build();
+
+        return Response.ok(response).build();
+    }
+
+    /**
+     * Get circuit breaker state, adaptive timeout and latency per member
+     */
+    @GET
+    @Path("/breakers")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getCircuitBreakerStatistics() {
+        JsonObject response = Json.createObjectBuilder(circuitBreakers.getStatistics())
+            .add("timestamp", System.currentTimeMillis())
+            .build();
+
+        return Response.ok(response).build();
+    }
+
+    private JsonObject executorStatistics() {
+        return Json.createObjectBuilder()
+            .add("asyncRequests", requestExecutor.getStatistics())
+            .add("memberFanOut", fanOut.getStatistics())
+            .build();
+    }
+}
+
+// Made with Bob
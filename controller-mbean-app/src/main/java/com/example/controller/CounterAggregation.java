@@ -0,0 +1,109 @@
+package com.example.controller;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cluster-wide aggregate of member counter snapshots
+ *
+ * Sums counters and request rates and merges latency histograms, both for the
+ * whole collective and per cluster, so a dashboard receives one small document
+ * instead of every member's payload. Members that did not answer are counted
+ * and named but contribute nothing to the totals.
+ */
+final class CounterAggregation {
+
+    private final Totals collective = new Totals();
+    private final Map<String, Totals> clusters = new LinkedHashMap<>();
+    private final JsonArrayBuilder unavailable = Json.createArrayBuilder();
+
+    /**
+     * Add one member's snapshot result
+     *
+     * @param member the member the result belongs to
+     * @param result result of querying the member's snapshot; only "success" results are summed
+     */
+    void add(LibertyClusterMember member, JsonObject result) {
+        String clusterName = member.getClusterName() != null ? member.getClusterName() : "unknown";
+        Totals cluster = clusters.computeIfAbsent(clusterName, name -> new Totals());
+        collective.memberCount++;
+        cluster.memberCount++;
+
+        if (!"success".equals(result.getString("status", ""))) {
+            unavailable.add(Json.createObjectBuilder()
+                .add("serverName", member.getServerName())
+                .add("clusterName", clusterName)
+                .add("status", result.getString("status", "unknown")));
+            return;
+        }
+        collective.add(result);
+        cluster.add(result);
+    }
+
+    JsonObjectBuilder toJson() {
+        JsonObjectBuilder perCluster = Json.createObjectBuilder();
+        for (Map.Entry<String, Totals> cluster : clusters.entrySet()) {
+            perCluster.add(cluster.getKey(), cluster.getValue().toJson());
+        }
+        return Json.createObjectBuilder()
+            .add("collective", collective.toJson())
+            .add("clusters", perCluster)
+            .add("unavailableMembers", unavailable);
+    }
+
+    private static final class Totals {
+        int memberCount;
+        int reportingCount;
+        long counter;
+        long totalRequests;
+        double requestRate1s;
+        double requestRate10s;
+        double requestRate60s;
+        final MergedLatencyHistogram latency = new MergedLatencyHistogram();
+
+        void add(JsonObject result) {
+            reportingCount++;
+            counter += longValue(result, "counter");
+            totalRequests += longValue(result, "totalRequests");
+
+            JsonObject metrics = result.containsKey("metrics") ? result.getJsonObject("metrics") : null;
+            if (metrics != null) {
+                requestRate1s += doubleValue(metrics, "requestRate1s");
+                requestRate10s += doubleValue(metrics, "requestRate10s");
+                requestRate60s += doubleValue(metrics, "requestRate60s");
+                latency.add(metrics.containsKey("latencyLayout") ? metrics.getJsonObject("latencyLayout") : null,
+                    metrics.containsKey("latencyBuckets") ? metrics.getJsonArray("latencyBuckets") : null);
+            }
+        }
+
+        JsonObject toJson() {
+            return Json.createObjectBuilder()
+                .add("memberCount", memberCount)
+                .add("reportingCount", reportingCount)
+                .add("counter", counter)
+                .add("totalRequests", totalRequests)
+                .add("requestRate1s", requestRate1s)
+                .add("requestRate10s", requestRate10s)
+                .add("requestRate60s", requestRate60s)
+                .add("latency", latency.toJson())
+                .build();
+        }
+
+        private static long longValue(JsonObject object, String name) {
+            JsonNumber number = object.getJsonNumber(name);
+            return number != null ? number.longValue() : 0;
+        }
+
+        private static double doubleValue(JsonObject object, String name) {
+            JsonNumber number = object.getJsonNumber(name);
+            return number != null ? number.doubleValue() : 0.0;
+        }
+    }
+}
+
+// Made with Bob
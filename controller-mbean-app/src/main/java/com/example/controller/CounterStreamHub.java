@@ -0,0 +1,387 @@
+package com.example.controller;
+
+import com.example.mbean.ManagedExecutors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pushes member counter changes to Server-Sent Events subscribers.
+ *
+ * Each cluster with at least one subscriber is collected once per interval,
+ * however many subscribers there are, and only members whose counter or status
+ * changed since the previous cycle are pushed. A cycle that is still running
+ * when the next one is due is skipped rather than queued.
+ *
+ * Each subscriber may have a bounded number of events in flight. A subscriber
+ * that falls further behind, or whose connection fails, is evicted and its
+ * stream closed; the client can reconnect and receives a full snapshot first.
+ * A heartbeat comment is sent periodically so closed connections are noticed
+ * even when nothing changes. Cycles and heartbeats run on the server's default
+ * managed scheduled executor; outside the server a local single-thread
+ * scheduler is used.
+ *
+ * Tuning (JVM system properties):
+ *   controller.stream.intervalMs          collection interval per cluster, default 1000
+ *   controller.stream.maxPendingEvents    events in flight per subscriber before eviction, default 32
+ *   controller.stream.heartbeatMs         heartbeat interval, default 15000
+ */
+@ApplicationScoped
+public class CounterStreamHub {
+
+    private static final Logger LOGGER = Logger.getLogger(CounterStreamHub.class.getName());
+
+    /** Cluster key used by subscribers of the whole collective */
+    private static final String ALL_CLUSTERS = "";
+
+    @Inject
+    private ClusterTopologyCache topology;
+
+    @Inject
+    private MemberFanOut fanOut;
+
+    @Inject
+    private MemberCounterClient counterClient;
+
+    private final long intervalMillis;
+    private final int maxPendingEvents;
+    private final long heartbeatMillis;
+
+    private final ConcurrentHashMap<String, Set<Subscriber>> subscribersByCluster = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ClusterState> clusters = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong cycleCount = new AtomicLong();
+    private final AtomicLong skippedCycleCount = new AtomicLong();
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    private volatile Sse sse;
+    private ScheduledExecutorService scheduler;
+    private boolean localScheduler;
+    private ScheduledFuture<?> cycles;
+    private ScheduledFuture<?> heartbeats;
+
+    public CounterStreamHub() {
+        this(Long.getLong("controller.stream.intervalMs", 1000L),
+             Integer.getInteger("controller.stream.maxPendingEvents", 32),
+             Long.getLong("controller.stream.heartbeatMs", 15000L));
+    }
+
+    public CounterStreamHub(long intervalMillis, int maxPendingEvents, long heartbeatMillis) {
+        this.intervalMillis = intervalMillis;
+        this.maxPendingEvents = maxPendingEvents;
+        this.heartbeatMillis = heartbeatMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = ManagedExecutors.lookup(MemberFanOut.DEFAULT_TIMER, ManagedScheduledExecutorService.class);
+        localScheduler = scheduler == null;
+        if (localScheduler) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(ManagedExecutors.namedDaemonThreads("controller-stream"));
+        }
+        cycles = scheduler.scheduleWithFixedDelay(this::tick, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        heartbeats = scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // The managed scheduler belongs to the server: cancel this hub's tasks instead of shutting it down
+        if (cycles != null) {
+            cycles.cancel(true);
+        }
+        if (heartbeats != null) {
+            heartbeats.cancel(true);
+        }
+        if (scheduler != null && localScheduler) {
+            scheduler.shutdownNow();
+        }
+        for (Set<Subscriber> subscribers : subscribersByCluster.values()) {
+            for (Subscriber subscriber : subscribers) {
+                subscriber.close();
+            }
+        }
+        subscribersByCluster.clear();
+    }
+
+    /**
+     * Register a subscriber and send it the last known state of its clusters
+     *
+     * @param clusterName cluster to follow, or null for every cluster
+     */
+    public void subscribe(SseEventSink sink, Sse sse, String clusterName) {
+        this.sse = sse;
+        String key = clusterName != null ? clusterName : ALL_CLUSTERS;
+        Subscriber subscriber = new Subscriber(sink, key);
+        subscribersByCluster.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        LOGGER.info("Counter stream subscriber added for " + (clusterName != null ? "cluster " + clusterName : "all clusters"));
+
+        JsonArrayBuilder members = Json.createArrayBuilder();
+        for (ClusterState cluster : clusters.values()) {
+            if (key.equals(ALL_CLUSTERS) || key.equals(cluster.clusterName)) {
+                for (JsonObject member : cluster.lastByServer.values()) {
+                    members.add(member);
+                }
+            }
+        }
+        send(subscriber, newEvent("snapshot", members, clusterName));
+    }
+
+    /**
+     * Streaming statistics
+     */
+    public JsonObject getStatistics() {
+        int subscriberCount = 0;
+        for (Set<Subscriber> subscribers : subscribersByCluster.values()) {
+            subscriberCount += subscribers.size();
+        }
+        return Json.createObjectBuilder()
+            .add("subscribers", subscriberCount)
+            .add("collectingClusters", clusters.size())
+            .add("cycles", cycleCount.get())
+            .add("skippedCycles", skippedCycleCount.get())
+            .add("eventsPublished", publishedCount.get())
+            .add("eventsSent", sentCount.get())
+            .add("evictedSubscribers", evictedCount.get())
+            .add("intervalMillis", intervalMillis)
+            .add("maxPendingEvents", maxPendingEvents)
+            .build();
+    }
+
+    /**
+     * Start a collection cycle for every cluster that has subscribers
+     */
+    private void tick() {
+        try {
+            boolean allClusters = hasSubscribers(ALL_CLUSTERS);
+            ClusterTopology snapshot = topology.snapshot();
+            for (String clusterName : snapshot.getClusterNames()) {
+                if (!allClusters && !hasSubscribers(clusterName)) {
+                    clusters.remove(clusterName);
+                    continue;
+                }
+                ClusterState cluster = clusters.computeIfAbsent(clusterName, ClusterState::new);
+                if (cluster.collecting.compareAndSet(false, true)) {
+                    collect(cluster, snapshot.getMembers(clusterName));
+                } else {
+                    skippedCycleCount.incrementAndGet();
+                }
+            }
+            clusters.keySet().retainAll(snapshot.getClusterNames());
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Counter stream cycle failed", e);
+        }
+    }
+
+    private void collect(ClusterState cluster, List<LibertyClusterMember> members) {
+        cycleCount.incrementAndGet();
+        fanOut.invokeAll(
+            members,
+            (member, timeoutMillis) -> counterClient.queryCounter(member.getServerName(), member.getHostName(), timeoutMillis),
+            (member, status, message) -> Json.createObjectBuilder()
+                .add("serverName", member.getServerName())
+                .add("hostName", member.getHostName() != null ? member.getHostName() : "unknown")
+                .add("status", status)
+                .add("message", message)
+                .build(),
+            intervalMillis * 5
+        ).whenComplete((results, failure) -> {
+            try {
+                if (failure != null) {
+                    LOGGER.log(Level.FINE, "Counter stream collection failed for cluster " + cluster.clusterName, failure);
+                } else {
+                    publishChanges(cluster, results);
+                }
+            } finally {
+                cluster.collecting.set(false);
+            }
+        });
+    }
+
+    private void publishChanges(ClusterState cluster, List<JsonObject> results) {
+        JsonArrayBuilder changed = Json.createArrayBuilder();
+        boolean anyChanged = false;
+        Set<String> seen = new HashSet<>();
+
+        for (JsonObject result : results) {
+            String serverName = result.getString("serverName", "unknown");
+            seen.add(serverName);
+            JsonObject member = Json.createObjectBuilder(result).add("clusterName", cluster.clusterName).build();
+            JsonObject previous = cluster.lastByServer.put(serverName, member);
+            if (previous == null || !sameState(previous, member)) {
+                changed.add(member);
+                anyChanged = true;
+            }
+        }
+        for (String serverName : cluster.lastByServer.keySet()) {
+            if (!seen.contains(serverName)) {
+                cluster.lastByServer.remove(serverName);
+                changed.add(Json.createObjectBuilder()
+                    .add("serverName", serverName)
+                    .add("clusterName", cluster.clusterName)
+                    .add("status", "removed"));
+                anyChanged = true;
+            }
+        }
+
+        if (anyChanged) {
+            OutboundSseEvent event = newEvent("counters", changed, cluster.clusterName);
+            publishedCount.incrementAndGet();
+            broadcast(subscribersByCluster.get(cluster.clusterName), event);
+            broadcast(subscribersByCluster.get(ALL_CLUSTERS), event);
+        }
+    }
+
+    private void heartbeat() {
+        Sse factory = sse;
+        if (factory == null) {
+            return;
+        }
+        OutboundSseEvent event = factory.newEventBuilder().comment("heartbeat").build();
+        for (Set<Subscriber> subscribers : subscribersByCluster.values()) {
+            broadcast(subscribers, event);
+        }
+    }
+
+    private void broadcast(Collection<Subscriber> subscribers, OutboundSseEvent event) {
+        if (subscribers == null || event == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            send(subscriber, event);
+        }
+    }
+
+    private void send(Subscriber subscriber, OutboundSseEvent event) {
+        if (subscriber.sink.isClosed()) {
+            remove(subscriber, "closed by client");
+            return;
+        }
+        if (subscriber.pending.incrementAndGet() > maxPendingEvents) {
+            evict(subscriber, "more than " + maxPendingEvents + " events pending");
+            return;
+        }
+        try {
+            subscriber.sink.send(event).whenComplete((ignored, failure) -> {
+                subscriber.pending.decrementAndGet();
+                if (failure != null) {
+                    evict(subscriber, failure.getClass().getSimpleName());
+                } else {
+                    sentCount.incrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            evict(subscriber, e.getClass().getSimpleName());
+        }
+    }
+
+    private void evict(Subscriber subscriber, String reason) {
+        if (remove(subscriber, reason)) {
+            evictedCount.incrementAndGet();
+            subscriber.close();
+        }
+    }
+
+    private boolean remove(Subscriber subscriber, String reason) {
+        Set<Subscriber> subscribers = subscribersByCluster.get(subscriber.clusterKey);
+        boolean removed = subscribers != null && subscribers.remove(subscriber);
+        if (removed) {
+            LOGGER.info("Counter stream subscriber removed: " + reason);
+        }
+        return removed;
+    }
+
+    private boolean hasSubscribers(String key) {
+        Set<Subscriber> subscribers = subscribersByCluster.get(key);
+        return subscribers != null && !subscribers.isEmpty();
+    }
+
+    private OutboundSseEvent newEvent(String name, JsonArrayBuilder members, String clusterName) {
+        Sse factory = sse;
+        if (factory == null) {
+            return null;
+        }
+        long id = sequence.incrementAndGet();
+        JsonObject data = Json.createObjectBuilder()
+            .add("cluster", clusterName != null ? clusterName : "*")
+            .add("sequence", id)
+            .add("members", members)
+            .add("timestamp", System.currentTimeMillis())
+            .build();
+        return factory.newEventBuilder()
+            .name(name)
+            .id(Long.toString(id))
+            .mediaType(MediaType.APPLICATION_JSON_TYPE)
+            .data(String.class, data.toString())
+            .build();
+    }
+
+    private static boolean sameState(JsonObject previous, JsonObject current) {
+        return previous.getString("status", "").equals(current.getString("status", ""))
+            && numberEquals(previous.getJsonNumber("counter"), current.getJsonNumber("counter"))
+            && numberEquals(previous.getJsonNumber("totalRequests"), current.getJsonNumber("totalRequests"));
+    }
+
+    private static boolean numberEquals(JsonNumber a, JsonNumber b) {
+        return a == null ? b == null : b != null && a.longValue() == b.longValue();
+    }
+
+    private static final class ClusterState {
+        final String clusterName;
+        final Map<String, JsonObject> lastByServer = new ConcurrentHashMap<>();
+        final AtomicBoolean collecting = new AtomicBoolean();
+
+        ClusterState(String clusterName) {
+            this.clusterName = clusterName;
+        }
+    }
+
+    private static final class Subscriber {
+        final SseEventSink sink;
+        final String clusterKey;
+        final AtomicInteger pending = new AtomicInteger();
+
+        Subscriber(SseEventSink sink, String clusterKey) {
+            this.sink = sink;
+            this.clusterKey = clusterKey;
+        }
+
+        void close() {
+            try {
+                sink.close();
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Error closing event sink", e);
+            }
+        }
+    }
+}
+
+// Made with Bob
@@ -9,6 +9,7 @@ public class LibertyClusterMember {
     private String hostName;
     private String userDir;
     private String serverName;
+    private String clusterName;
     
     public LibertyClusterMember() {
     }
@@ -74,12 +75,21 @@ public class LibertyClusterMember {
         this.serverName = serverName;
     }
     
+    public String getClusterName() {
+        return clusterName;
+    }
+    
+    public void setClusterName(String clusterName) {
+        this.clusterName = clusterName;
+    }
+    
     @Override
     public String toString() {
         return "LibertyClusterMember{" +
                 "hostName='" + hostName + '\'' +
                 ", userDir='" + userDir + '\'' +
                 ", serverName='" + serverName + '\'' +
+                ", clusterName='" + clusterName + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,203 @@
+package com.example.controller;
+
+import com.example.mbean.BoundedCache;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caches MBean metadata used on request paths
+ *
+ * Holds the {@code MBeanInfo} and readable attribute names of each MBean that
+ * has been looked at, and parsed {@link ObjectName}s for the names and query
+ * patterns the resources use. An MBean's entry is dropped when it is registered
+ * or unregistered, as reported by the MBeanServerDelegate, so repeated requests
+ * check attributes without calling {@code getMBeanInfo} or probing with
+ * {@code getAttribute} and catching the failure. Beyond the size limit the
+ * entries cached longest ago are evicted.
+ *
+ * Tuning (JVM system properties):
+ *   controller.metadata.maxEntries   cached MBeanInfos and parsed names, each, default 4096
+ */
+@ApplicationScoped
+public class MBeanMetadataCache {
+
+    private static final Logger LOGGER = Logger.getLogger(MBeanMetadataCache.class.getName());
+
+    private final MBeanServer mbs;
+
+    private final BoundedCache<ObjectName, Metadata> metadata;
+    private final BoundedCache<String, ObjectName> objectNames;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    private volatile boolean listening;
+
+    private final NotificationListener registrationListener = (notification, handback) -> {
+        if (notification instanceof MBeanServerNotification) {
+            invalidate(((MBeanServerNotification) notification).getMBeanName());
+        }
+    };
+
+    public MBeanMetadataCache() {
+        this(ManagementFactory.getPlatformMBeanServer(),
+             Integer.getInteger("controller.metadata.maxEntries", 4096));
+    }
+
+    public MBeanMetadataCache(MBeanServer mbs, int maxEntries) {
+        this.mbs = mbs;
+        this.metadata = new BoundedCache<>(maxEntries, 0);
+        this.objectNames = new BoundedCache<>(maxEntries, 0);
+    }
+
+    @PostConstruct
+    public void start() {
+        try {
+            mbs.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, registrationListener, null, null);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Could not listen for MBean registrations, MBean metadata will not be cached", e);
+            return;
+        }
+        listening = true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            mbs.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, registrationListener);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "MBeanServerDelegate listener already removed", e);
+        }
+        listening = false;
+        metadata.clear();
+    }
+
+    /**
+     * Parsed ObjectName or pattern for a name used repeatedly
+     *
+     * @throws MalformedObjectNameException if the name is not a valid ObjectName
+     */
+    public ObjectName objectName(String name) throws MalformedObjectNameException {
+        ObjectName parsed = objectNames.get(name);
+        if (parsed == null) {
+            parsed = ObjectName.getInstance(name);
+            objectNames.put(name, parsed);
+        }
+        return parsed;
+    }
+
+    /**
+     * MBeanInfo of a registered MBean
+     *
+     * @throws InstanceNotFoundException if the MBean is not registered
+     */
+    public MBeanInfo getMBeanInfo(ObjectName name) throws JMException {
+        return lookup(name).info;
+    }
+
+    /**
+     * Names of the readable attributes of a registered MBean, in MBeanInfo order
+     *
+     * @throws InstanceNotFoundException if the MBean is not registered
+     */
+    public Set<String> readableAttributes(ObjectName name) throws JMException {
+        return lookup(name).readableAttributes;
+    }
+
+    /**
+     * Whether a registered MBean has a readable attribute with this name
+     * Returns false if the MBean is not registered or its metadata cannot be read.
+     */
+    public boolean isReadable(ObjectName name, String attribute) {
+        try {
+            return lookup(name).readableAttributes.contains(attribute);
+        } catch (JMException | RuntimeException e) {
+            LOGGER.log(Level.FINE, "No metadata for " + name, e);
+            return false;
+        }
+    }
+
+    /**
+     * Drop the cached metadata of an MBean
+     */
+    public void invalidate(ObjectName name) {
+        if (metadata.remove(name)) {
+            invalidationCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Metadata cache statistics
+     */
+    public JsonObject getStatistics() {
+        long hits = hitCount.get();
+        long misses = missCount.get();
+        return Json.createObjectBuilder()
+            .add("cachedInfos", metadata.size())
+            .add("cachedObjectNames", objectNames.size())
+            .add("evictions", metadata.getEvictions() + objectNames.getEvictions())
+            .add("hits", hits)
+            .add("misses", misses)
+            .add("hitRatio", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0)
+            .add("invalidations", invalidationCount.get())
+            .add("registrationNotifications", listening)
+            .build();
+    }
+
+    private Metadata lookup(ObjectName name) throws JMException {
+        Metadata cached = metadata.get(name);
+        if (cached != null) {
+            hitCount.incrementAndGet();
+            return cached;
+        }
+
+        missCount.incrementAndGet();
+        MBeanInfo info = mbs.getMBeanInfo(name);
+        Set<String> readable = new LinkedHashSet<>();
+        for (MBeanAttributeInfo attribute : info.getAttributes()) {
+            if (attribute.isReadable()) {
+                readable.add(attribute.getName());
+            }
+        }
+        Metadata loaded = new Metadata(info, Collections.unmodifiableSet(readable));
+        // Without registration notifications a re-registered MBean would keep stale metadata
+        if (listening) {
+            metadata.put(name, loaded);
+        }
+        return loaded;
+    }
+
+    private static final class Metadata {
+        final MBeanInfo info;
+        final Set<String> readableAttributes;
+
+        Metadata(MBeanInfo info, Set<String> readableAttributes) {
+            this.info = info;
+            this.readableAttributes = readableAttributes;
+        }
+    }
+}
+
+// Made with Bob
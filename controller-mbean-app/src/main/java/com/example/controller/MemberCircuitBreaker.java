@@ -0,0 +1,201 @@
+package com.example.controller;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker and latency tracker for calls to one member
+ *
+ * The breaker opens after a run of consecutive failures, so calls to a dead
+ * member fail immediately instead of waiting out their timeouts. Once the open
+ * period has passed, a single probe call is let through (half-open): success
+ * closes the breaker, failure opens it again for twice as long, up to a maximum.
+ *
+ * Successful call latencies are kept in a ring of recent samples. The call
+ * timeout is a multiple of their p99, clamped to a configured range, so a fast
+ * member that stops answering is given up on quickly while a slow one is not
+ * cut off. Until enough samples are available the maximum timeout applies.
+ */
+public final class MemberCircuitBreaker {
+
+    /**
+     * Breaker states
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final int LATENCY_SAMPLES = 128;
+    private static final int MIN_SAMPLES = 8;
+    private static final int RECOMPUTE_INTERVAL = 16;
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final long maxOpenMillis;
+    private final int minTimeoutMillis;
+    private final int maxTimeoutMillis;
+    private final int timeoutMultiplier;
+    private final LongSupplier clock;
+
+    private final long[] latencyMicros = new long[LATENCY_SAMPLES];
+    private long sampleCount;
+    private volatile int timeoutMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long currentOpenMillis;
+    private long openUntil;
+    private long probeStartedAt = -1;
+
+    private long successCount;
+    private long failureCount;
+    private long rejectedCount;
+    private long tripCount;
+
+    public MemberCircuitBreaker(int failureThreshold, long openMillis, long maxOpenMillis,
+                                int minTimeoutMillis, int maxTimeoutMillis, int timeoutMultiplier) {
+        this(failureThreshold, openMillis, maxOpenMillis, minTimeoutMillis, maxTimeoutMillis, timeoutMultiplier,
+            System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock source of {@link System#currentTimeMillis()}-like timestamps, replaceable in tests
+     */
+    MemberCircuitBreaker(int failureThreshold, long openMillis, long maxOpenMillis,
+                         int minTimeoutMillis, int maxTimeoutMillis, int timeoutMultiplier, LongSupplier clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(1, openMillis);
+        this.maxOpenMillis = Math.max(this.openMillis, maxOpenMillis);
+        this.minTimeoutMillis = Math.max(1, minTimeoutMillis);
+        this.maxTimeoutMillis = Math.max(this.minTimeoutMillis, maxTimeoutMillis);
+        this.timeoutMultiplier = Math.max(1, timeoutMultiplier);
+        this.currentOpenMillis = this.openMillis;
+        this.timeoutMillis = this.maxTimeoutMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Ask to make a call
+     * Every granted call must be followed by {@link #recordSuccess(long)} or {@link #recordFailure()}.
+     *
+     * @return true if the call may go ahead, false if it should fail fast
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        long now = clock.getAsLong();
+        if (state == State.OPEN && now >= openUntil) {
+            state = State.HALF_OPEN;
+            probeStartedAt = -1;
+        }
+        // A probe that never reported back (for example a cancelled call) does not block the member forever
+        if (state == State.HALF_OPEN && (probeStartedAt < 0 || now - probeStartedAt > maxTimeoutMillis)) {
+            probeStartedAt = now;
+            return true;
+        }
+        rejectedCount++;
+        return false;
+    }
+
+    /**
+     * Record a successful call and its latency
+     */
+    public synchronized void recordSuccess(long latencyNanos) {
+        successCount++;
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            currentOpenMillis = openMillis;
+            probeStartedAt = -1;
+        }
+
+        latencyMicros[(int) (sampleCount % LATENCY_SAMPLES)] = latencyNanos / 1000;
+        sampleCount++;
+        if (sampleCount == MIN_SAMPLES || (sampleCount > MIN_SAMPLES && sampleCount % RECOMPUTE_INTERVAL == 0)) {
+            long p99Millis = (getLatencyPercentileMicros(0.99) + 999) / 1000;
+            timeoutMillis = (int) Math.max(minTimeoutMillis, Math.min(maxTimeoutMillis, p99Millis * timeoutMultiplier));
+        }
+    }
+
+    /**
+     * Record a failed call: unreachable member, timeout or error response
+     */
+    public synchronized void recordFailure() {
+        failureCount++;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            currentOpenMillis = Math.min(maxOpenMillis, currentOpenMillis * 2);
+            trip();
+        } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            trip();
+        }
+    }
+
+    /**
+     * Timeout for the next call, derived from recent latencies
+     */
+    public int getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Milliseconds until an open breaker lets a probe through, 0 if it is not open
+     */
+    public synchronized long getRetryAfterMillis() {
+        return state == State.OPEN ? Math.max(0, openUntil - clock.getAsLong()) : 0;
+    }
+
+    /**
+     * Latency of recent successful calls at a percentile
+     *
+     * @param percentile between 0 and 1, for example 0.95
+     * @return latency in microseconds, or -1 without samples
+     */
+    public synchronized long getLatencyPercentileMicros(double percentile) {
+        int count = (int) Math.min(sampleCount, LATENCY_SAMPLES);
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencyMicros, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile * count);
+        return sorted[Math.max(0, Math.min(count, rank) - 1)];
+    }
+
+    /**
+     * Breaker state and counters for the stats endpoint
+     */
+    public synchronized JsonObject describe() {
+        JsonObjectBuilder builder = Json.createObjectBuilder()
+            .add("state", state.name())
+            .add("consecutiveFailures", consecutiveFailures)
+            .add("timeoutMillis", timeoutMillis)
+            .add("latencyP50Micros", getLatencyPercentileMicros(0.50))
+            .add("latencyP99Micros", getLatencyPercentileMicros(0.99))
+            .add("successes", successCount)
+            .add("failures", failureCount)
+            .add("rejected", rejectedCount)
+            .add("trips", tripCount);
+        if (state == State.OPEN) {
+            builder.add("retryAfterMillis", getRetryAfterMillis());
+        }
+        return builder.build();
+    }
+
+    private void trip() {
+        state = State.OPEN;
+        openUntil = clock.getAsLong() + currentOpenMillis;
+        probeStartedAt = -1;
+        tripCount++;
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,95 @@
+package com.example.controller;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-member circuit breakers for controller-to-member calls
+ *
+ * One {@link MemberCircuitBreaker} is kept per member (host and server name) and
+ * shared by every call path that talks to that member, so a member found dead by
+ * one poll fails fast for all of them.
+ *
+ * Tuning (JVM system properties):
+ *   controller.breaker.failureThreshold    consecutive failures that open a breaker, default 3
+ *   controller.breaker.openMs              first open period before a probe, default 5000
+ *   controller.breaker.maxOpenMs           longest open period after failed probes, default 60000
+ *   controller.breaker.minTimeoutMs        lower bound of the adaptive call timeout, default 500
+ *   controller.breaker.maxTimeoutMs        upper bound of the adaptive call timeout, default controller.http.readTimeoutMs
+ *   controller.breaker.timeoutMultiplier   call timeout as a multiple of the member's p99 latency, default 4
+ */
+@ApplicationScoped
+public class MemberCircuitBreakers {
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final long maxOpenMillis;
+    private final int minTimeoutMillis;
+    private final int maxTimeoutMillis;
+    private final int timeoutMultiplier;
+
+    private final ConcurrentHashMap<String, MemberCircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public MemberCircuitBreakers() {
+        this(Integer.getInteger("controller.breaker.failureThreshold", 3),
+             Long.getLong("controller.breaker.openMs", 5000L),
+             Long.getLong("controller.breaker.maxOpenMs", 60000L),
+             Integer.getInteger("controller.breaker.minTimeoutMs", 500),
+             Integer.getInteger("controller.breaker.maxTimeoutMs", Integer.getInteger("controller.http.readTimeoutMs", 5000)),
+             Integer.getInteger("controller.breaker.timeoutMultiplier", 4));
+    }
+
+    public MemberCircuitBreakers(int failureThreshold, long openMillis, long maxOpenMillis,
+                                 int minTimeoutMillis, int maxTimeoutMillis, int timeoutMultiplier) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.maxOpenMillis = maxOpenMillis;
+        this.minTimeoutMillis = minTimeoutMillis;
+        this.maxTimeoutMillis = maxTimeoutMillis;
+        this.timeoutMultiplier = timeoutMultiplier;
+    }
+
+    /**
+     * Breaker of a member, created closed on first use
+     */
+    public MemberCircuitBreaker forMember(String hostName, String serverName) {
+        return breakers.computeIfAbsent(hostName + "/" + serverName, key -> new MemberCircuitBreaker(
+            failureThreshold, openMillis, maxOpenMillis, minTimeoutMillis, maxTimeoutMillis, timeoutMultiplier));
+    }
+
+    /**
+     * Breaker states per member and totals for the stats endpoint
+     */
+    public JsonObject getStatistics() {
+        int open = 0;
+        int halfOpen = 0;
+        JsonObjectBuilder members = Json.createObjectBuilder();
+        for (Map.Entry<String, MemberCircuitBreaker> entry : breakers.entrySet()) {
+            JsonObject breaker = entry.getValue().describe();
+            String state = breaker.getString("state");
+            if (MemberCircuitBreaker.State.OPEN.name().equals(state)) {
+                open++;
+            } else if (MemberCircuitBreaker.State.HALF_OPEN.name().equals(state)) {
+                halfOpen++;
+            }
+            members.add(entry.getKey(), breaker);
+        }
+
+        return Json.createObjectBuilder()
+            .add("failureThreshold", failureThreshold)
+            .add("openMillis", openMillis)
+            .add("minTimeoutMillis", minTimeoutMillis)
+            .add("maxTimeoutMillis", maxTimeoutMillis)
+            .add("trackedMembers", breakers.size())
+            .add("openCount", open)
+            .add("halfOpenCount", halfOpen)
+            .add("members", members)
+            .build();
+    }
+}
+
+// Made with Bob
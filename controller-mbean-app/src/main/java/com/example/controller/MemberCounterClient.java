@@ -0,0 +1,304 @@
+package com.example.controller;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * REST calls from the controller to the Counter API of cluster members
+ * Shared by the request endpoints and the background stream collectors so
+ * endpoint resolution and connection pooling apply to both.
+ */
+@ApplicationScoped
+public class MemberCounterClient {
+
+    private static final Logger LOGGER = Logger.getLogger(MemberCounterClient.class.getName());
+
+    /** Status of a member call skipped because the member's circuit breaker is open */
+    public static final String STATUS_CIRCUIT_OPEN = "circuit_open";
+
+    @Inject
+    private MemberEndpointResolver endpointResolver;
+
+    @Inject
+    private MemberRequestHedger requestHedger;
+
+    @Inject
+    private MemberCircuitBreakers circuitBreakers;
+
+    private final ConcurrentMap<String, CounterState> counterStates = new ConcurrentHashMap<>();
+    private final AtomicLong changeSequence = new AtomicLong();
+    private final LongAdder conditionalRequests = new LongAdder();
+    private final LongAdder notModifiedResponses = new LongAdder();
+
+    /**
+     * Query the Counter from a specific member using REST API
+     * Resolves the member endpoint through the endpoint cache and makes HTTP call to member.
+     * The ETag of the last response is sent as If-None-Match, so an unchanged counter costs
+     * a 304 without a body and the previous data is reused without parsing.
+     * Calls go through the member's circuit breaker: while it is open the member is reported
+     * as "circuit_open" without a request, otherwise the call uses the breaker's adaptive timeout.
+     *
+     * @return counter data with status "success", or a failure status and message; always
+     *         carries the change sequence at which this member's result last changed
+     */
+    public JsonObject queryCounter(String serverName, String hostName) {
+        return queryCounter(serverName, hostName, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Query the Counter from a specific member, giving up at the caller's deadline
+     *
+     * @param timeoutMillis time left until the caller's deadline; the call's timeout is the
+     *                      shorter of this and the breaker's adaptive timeout
+     */
+    public JsonObject queryCounter(String serverName, String hostName, int timeoutMillis) {
+        JsonObjectBuilder resultBuilder = Json.createObjectBuilder();
+        resultBuilder.add("serverName", serverName);
+        resultBuilder.add("hostName", hostName != null ? hostName : "unknown");
+
+        String stateKey = hostName + "/" + serverName;
+        CounterState previous = counterStates.get(stateKey);
+        CounterState current;
+        MemberCircuitBreaker breaker = circuitBreakers.forMember(hostName, serverName);
+
+        MemberEndpoint endpoint = null;
+        try {
+            // Resolve the member's Counter endpoint, normally from the resolution cache
+            endpoint = endpointResolver.resolve(hostName, serverName, MemberEndpointResolver.COUNTER_APPLICATION);
+            String appContext = endpoint.getContextRoot();
+
+            // Make HTTP call to member's Counter REST endpoint
+            String counterEndpoint = endpoint.url("/api/counter");
+            if (!breaker.tryAcquire()) {
+                current = recordState(stateKey, previous, CounterState.failure(STATUS_CIRCUIT_OPEN, counterEndpoint));
+                return resultBuilder
+                    .add("status", STATUS_CIRCUIT_OPEN)
+                    .add("message", "Member failed repeatedly, next attempt in " + breaker.getRetryAfterMillis() + "ms")
+                    .add("circuitState", breaker.getState().name())
+                    .add("changeSequence", current.changeSequence)
+                    .build();
+            }
+            LOGGER.info("Calling Counter endpoint: " + counterEndpoint);
+
+            Map<String, String> headers = Collections.emptyMap();
+            if (previous != null && previous.etag != null && counterEndpoint.equals(previous.endpoint)) {
+                headers = Collections.singletonMap("If-None-Match", previous.etag);
+                conditionalRequests.increment();
+            }
+            MemberHttpResponse response = requestHedger.get(breaker, counterEndpoint, headers, timeoutMillis);
+
+            if (response.getStatus() == HttpURLConnection.HTTP_NOT_MODIFIED && previous != null && previous.isSuccess()) {
+                notModifiedResponses.increment();
+                current = previous;
+            } else if (response.getStatus() == HttpURLConnection.HTTP_OK) {
+                // Parse the JSON response from member
+                try (JsonReader reader = Json.createReader(new StringReader(response.getBody()))) {
+                    JsonObject counterData = reader.readObject();
+                    JsonNumber version = counterData.getJsonNumber("version");
+                    current = new CounterState(
+                        "success",
+                        counterData.getString("memberName", serverName),
+                        counterData.getJsonNumber("counter").longValue(),
+                        counterData.getJsonNumber("totalRequests").longValue(),
+                        version != null ? version.longValue() : -1,
+                        response.getHeader("ETag"),
+                        counterEndpoint);
+                }
+            } else {
+                LOGGER.warning("HTTP request failed with response code: " + response.getStatus());
+                endpointResolver.reportFailure(hostName, serverName, MemberEndpointResolver.COUNTER_APPLICATION);
+                current = CounterState.failure("connection_failed", counterEndpoint);
+                resultBuilder.add("message", "Failed to connect to member REST endpoint: " + counterEndpoint);
+            }
+
+            current = recordState(stateKey, previous, current);
+            resultBuilder.add("status", current.status);
+            if (current.isSuccess()) {
+                resultBuilder.add("memberName", current.memberName);
+                resultBuilder.add("counter", current.counter);
+                resultBuilder.add("totalRequests", current.totalRequests);
+                if (current.version >= 0) {
+                    resultBuilder.add("version", current.version);
+                }
+                resultBuilder.add("endpoint", counterEndpoint);
+            }
+            resultBuilder.add("discoveredContext", appContext);
+            resultBuilder.add("changeSequence", current.changeSequence);
+            resultBuilder.add("circuitState", breaker.getState().name());
+            if (!current.isSuccess()) {
+                return resultBuilder.build();
+            }
+
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error querying counter from member: " + serverName, e);
+            if (endpoint != null) {
+                endpointResolver.reportFailure(hostName, serverName, MemberEndpointResolver.COUNTER_APPLICATION);
+            }
+            current = recordState(stateKey, previous, CounterState.failure("error", null));
+            resultBuilder.add("status", "error");
+            resultBuilder.add("message", e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+            resultBuilder.add("errorType", e.getClass().getSimpleName());
+            resultBuilder.add("changeSequence", current.changeSequence);
+            resultBuilder.add("circuitState", breaker.getState().name());
+        }
+
+        resultBuilder.add("timestamp", System.currentTimeMillis());
+        return resultBuilder.build();
+    }
+
+    /**
+     * Latest change sequence handed out to any member result
+     * Results of later queries that carry a higher sequence have changed since this value.
+     */
+    public long getChangeSequence() {
+        return changeSequence.get();
+    }
+
+    /**
+     * Conditional request statistics for the stats endpoint
+     */
+    public JsonObject getStatistics() {
+        return Json.createObjectBuilder()
+            .add("trackedMembers", counterStates.size())
+            .add("changeSequence", changeSequence.get())
+            .add("conditionalRequests", conditionalRequests.sum())
+            .add("notModifiedResponses", notModifiedResponses.sum())
+            .build();
+    }
+
+    /**
+     * Store the latest state of a member, assigning a new change sequence if anything
+     * visible in the result differs from the previous state
+     */
+    private CounterState recordState(String stateKey, CounterState previous, CounterState current) {
+        if (current == previous) {
+            return previous;
+        }
+        current.changeSequence = previous != null && previous.sameResult(current)
+            ? previous.changeSequence
+            : changeSequence.incrementAndGet();
+        counterStates.put(stateKey, current);
+        return current;
+    }
+
+    /**
+     * Fetch a member's batch snapshot in a single HTTP request
+     *
+     * @param path snapshot path below the context root, including any field selection
+     * @param timeoutMillis time left until the caller's deadline; the call's timeout is the
+     *                      shorter of this and the breaker's adaptive timeout
+     * @return the snapshot fields with status "success", or a failure status and message
+     */
+    public JsonObject querySnapshot(LibertyClusterMember member, String path, int timeoutMillis) {
+        JsonObjectBuilder resultBuilder = Json.createObjectBuilder();
+        resultBuilder.add("serverName", member.getServerName());
+        resultBuilder.add("hostName", member.getHostName() != null ? member.getHostName() : "unknown");
+        if (member.getClusterName() != null) {
+            resultBuilder.add("clusterName", member.getClusterName());
+        }
+
+        MemberEndpoint endpoint = endpointResolver.resolve(
+            member.getHostName(), member.getServerName(), MemberEndpointResolver.COUNTER_APPLICATION);
+        String snapshotEndpoint = endpoint.url(path);
+
+        MemberCircuitBreaker breaker = circuitBreakers.forMember(member.getHostName(), member.getServerName());
+        if (!breaker.tryAcquire()) {
+            return resultBuilder
+                .add("status", STATUS_CIRCUIT_OPEN)
+                .add("message", "Member failed repeatedly, next attempt in " + breaker.getRetryAfterMillis() + "ms")
+                .add("circuitState", breaker.getState().name())
+                .build();
+        }
+
+        try {
+            MemberHttpResponse response = requestHedger.get(breaker, snapshotEndpoint, Collections.<String, String>emptyMap(),
+                timeoutMillis);
+            if (response.getStatus() != HttpURLConnection.HTTP_OK) {
+                if (response.getStatus() == HttpURLConnection.HTTP_NOT_FOUND) {
+                    endpointResolver.reportFailure(member.getHostName(), member.getServerName(), MemberEndpointResolver.COUNTER_APPLICATION);
+                }
+                resultBuilder.add("status", "http_error");
+                resultBuilder.add("httpStatus", response.getStatus());
+                resultBuilder.add("message", "Member snapshot request failed: " + snapshotEndpoint);
+                resultBuilder.add("circuitState", breaker.getState().name());
+                return resultBuilder.build();
+            }
+
+            try (JsonReader reader = Json.createReader(new StringReader(response.getBody()))) {
+                JsonObject snapshot = reader.readObject();
+                for (Map.Entry<String, JsonValue> field : snapshot.entrySet()) {
+                    resultBuilder.add(field.getKey(), field.getValue());
+                }
+            }
+            resultBuilder.add("status", "success");
+
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error querying snapshot from member: " + member.getServerName(), e);
+            endpointResolver.reportFailure(member.getHostName(), member.getServerName(), MemberEndpointResolver.COUNTER_APPLICATION);
+            resultBuilder.add("status", "connection_failed");
+            resultBuilder.add("message", e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+
+        resultBuilder.add("endpoint", snapshotEndpoint);
+        resultBuilder.add("circuitState", breaker.getState().name());
+        return resultBuilder.build();
+    }
+
+    /**
+     * Last result of a member's counter query, with the ETag to revalidate it
+     */
+    private static final class CounterState {
+        final String status;
+        final String memberName;
+        final long counter;
+        final long totalRequests;
+        final long version;
+        final String etag;
+        final String endpoint;
+        volatile long changeSequence;
+
+        CounterState(String status, String memberName, long counter, long totalRequests,
+                     long version, String etag, String endpoint) {
+            this.status = status;
+            this.memberName = memberName;
+            this.counter = counter;
+            this.totalRequests = totalRequests;
+            this.version = version;
+            this.etag = etag;
+            this.endpoint = endpoint;
+        }
+
+        static CounterState failure(String status, String endpoint) {
+            return new CounterState(status, null, 0, 0, -1, null, endpoint);
+        }
+
+        boolean isSuccess() {
+            return "success".equals(status);
+        }
+
+        boolean sameResult(CounterState other) {
+            return status.equals(other.status)
+                && counter == other.counter
+                && totalRequests == other.totalRequests
+                && version == other.version;
+        }
+    }
+}
+
+// Made with Bob
@@ -1,39 +1,41 @@
 package com.example.controller;
 
+import com.example.mbean.MBeanCatalog;
+import com.example.mbean.MBeanNamePage;
+
+import javax.inject.Inject;
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
+import javax.json.JsonNumber;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
-import javax.json.JsonReader;
+import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonGeneratorFactory;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
-import javax.net.ssl.HostnameVerifier;
-import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSession;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.StringReader;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
 import java.lang.management.ManagementFactory;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,134 +48,356 @@ import java.util.logging.Logger;
 public class MemberCounterResource {
     
     private static final Logger LOGGER = Logger.getLogger(MemberCounterResource.class.getName());
+    private static final JsonGeneratorFactory JSON_GENERATORS = Json.createGeneratorFactory(null);
     private static final String COUNTER_MBEAN_TYPE = "com.example.liberty.member:type=Counter";
     
+    @Inject
+    private MemberFanOut fanOut;
+    
+    @Inject
+    private AsyncRequestExecutor requestExecutor;
+    
+    @Inject
+    private ClusterTopologyCache topology;
+    
+    @Inject
+    private MemberCounterClient counterClient;
+    
+    @Inject
+    private CounterStreamHub streamHub;
+    
+    @Inject
+    private MBeanMetadataCache metadata;
+    
+    @Inject
+    private MBeanCatalog catalog;
+    
     /**
      * Get counter values from all cluster members
+     * Members are queried concurrently; members that miss their deadline are
+     * reported with a timeout status instead of delaying the whole response.
+     * The request is suspended while the collective is scanned so no request
+     * thread is held for the duration of the scan.
+     * 
+     * Every response carries a "version". Passing it back as {@code since} returns
+     * only the members whose result changed after that version; members are still
+     * queried, but unchanged counters are revalidated with a 304 instead of a full body.
      * 
-     * @return JSON response with counter data from all members
+     * @param timeoutMs Optional overall deadline in milliseconds (defaults to the fan-out setting)
+     * @param since Optional version of a previous response, to receive only changed members
+     * @param asyncResponse Suspended response, resumed with counter data from all members
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllMemberCounters() {
+    public void getAllMemberCounters(@QueryParam("timeoutMs") final Long timeoutMs,
+                                     @QueryParam("since") final Long since,
+                                     @Suspended final AsyncResponse asyncResponse) {
         LOGGER.info("Querying counter MBeans from all cluster members");
         
-        try {
-            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
-            
-            // Verify this is running on a collective controller
-            if (!isCollectiveController(mbs)) {
-                return createErrorResponse(
-                    "This application must be deployed on a Liberty Collective Controller",
-                    Response.Status.INTERNAL_SERVER_ERROR
-                );
-            }
-            
-            // Get all cluster members
-            List<Map<String, Object>> members = getClusterMembers(mbs);
-            
-            if (members.isEmpty()) {
-                return createErrorResponse(
-                    "No cluster members found. Ensure members are joined to the collective.",
-                    Response.Status.NOT_FOUND
-                );
-            }
-            
-            JsonArrayBuilder membersArray = Json.createArrayBuilder();
-            int successCount = 0;
-            int errorCount = 0;
-            
-            // Query counter MBean from each member
-            for (Map<String, Object> member : members) {
-                String serverName = (String) member.get("serverName");
-                String hostName = (String) member.get("hostName");
-                
-                try {
-                    JsonObject counterData = queryMemberCounter(mbs, serverName, hostName);
-                    membersArray.add(counterData);
-                    
-                    if ("success".equals(counterData.getString("status", ""))) {
-                        successCount++;
-                    } else {
-                        errorCount++;
-                    }
-                } catch (Exception e) {
-                    LOGGER.log(Level.WARNING, "Failed to query counter from member: " + serverName, e);
-                    JsonObject errorData = Json.createObjectBuilder()
-                        .add("serverName", serverName)
-                        .add("hostName", hostName != null ? hostName : "unknown")
-                        .add("status", "error")
-                        .add("message", e.getMessage())
-                        .build();
-                    membersArray.add(errorData);
-                    errorCount++;
-                }
+        requestExecutor.resume(asyncResponse, () -> collectAllMemberCounters(timeoutMs, since), e -> {
+            LOGGER.log(Level.SEVERE, "Failed to query member counters", e);
+            return createErrorResponse(
+                "Failed to query member counters: " + e.getMessage(),
+                Response.Status.INTERNAL_SERVER_ERROR
+            );
+        });
+    }
+    
+    private CompletionStage<Response> collectAllMemberCounters(Long timeoutMs, Long since) throws Exception {
+        final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        
+        // Verify this is running on a collective controller
+        if (!isCollectiveController(mbs)) {
+            return CompletableFuture.completedFuture(createErrorResponse(
+                "This application must be deployed on a Liberty Collective Controller",
+                Response.Status.INTERNAL_SERVER_ERROR
+            ));
+        }
+        
+        // Get all cluster members
+        final List<LibertyClusterMember> members = topology.snapshot().getMembers();
+        
+        if (members.isEmpty()) {
+            return CompletableFuture.completedFuture(createErrorResponse(
+                "No cluster members found. Ensure members are joined to the collective.",
+                Response.Status.NOT_FOUND
+            ));
+        }
+        
+        final long startTime = System.currentTimeMillis();
+        long deadline = timeoutMs != null && timeoutMs > 0 ? timeoutMs : fanOut.getRequestTimeoutMillis();
+        
+        // Query counter MBean from all members concurrently
+        return fanOut.invokeAll(
+            members,
+            (member, timeoutMillis) -> counterClient.queryCounter(member.getServerName(), member.getHostName(), timeoutMillis),
+            this::createMemberStatus,
+            deadline
+        ).thenApply(results -> Response.ok(summarizeCounterResults(members, results, startTime, since).build()).build());
+    }
+    
+    /**
+     * Summarize counter results, keeping only members that changed after {@code since} if given
+     * Results without a change sequence (timeouts and other fan-out failures) are always included.
+     */
+    private JsonObjectBuilder summarizeCounterResults(List<LibertyClusterMember> members, List<JsonObject> results,
+                                                      long startTime, Long since) {
+        long version = since != null ? since : 0;
+        List<JsonObject> changed = new ArrayList<>();
+        for (JsonObject memberData : results) {
+            JsonNumber sequence = memberData.getJsonNumber("changeSequence");
+            if (sequence != null) {
+                version = Math.max(version, sequence.longValue());
+            }
+            if (since == null || sequence == null || sequence.longValue() > since) {
+                changed.add(memberData);
             }
-            
-            JsonObject response = Json.createObjectBuilder()
-                .add("totalMembers", members.size())
-                .add("successCount", successCount)
-                .add("errorCount", errorCount)
-                .add("members", membersArray)
+        }
+        
+        if (since == null) {
+            return summarizeResults(members, results, startTime).add("version", version);
+        }
+        
+        // Counts describe all members; only the changed ones are listed
+        JsonObjectBuilder response = summarizeResults(members, results, startTime);
+        JsonArrayBuilder changedArray = Json.createArrayBuilder();
+        changed.forEach(changedArray::add);
+        return response
+            .add("members", changedArray)
+            .add("delta", true)
+            .add("since", since)
+            .add("unchangedCount", results.size() - changed.size())
+            .add("version", version);
+    }
+    
+    /**
+     * Get counter, application and runtime data from all cluster members
+     * Each member is asked for everything in one request to its batch snapshot
+     * endpoint, so a poll costs exactly one HTTP round trip per member.
+     * 
+     * @param fields Optional comma-separated selection of counter, applications and runtime (default all)
+     * @param timeoutMs Optional overall deadline in milliseconds (defaults to the fan-out setting)
+     * @param asyncResponse Suspended response, resumed with snapshot data from all members
+     */
+    @GET
+    @Path("/snapshot")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getAllMemberSnapshots(@QueryParam("fields") final String fields,
+                                      @QueryParam("timeoutMs") final Long timeoutMs,
+                                      @Suspended final AsyncResponse asyncResponse) {
+        LOGGER.info("Querying snapshots from all cluster members");
+        
+        requestExecutor.resume(asyncResponse, () -> collectAllMemberSnapshots(fields, timeoutMs), e -> {
+            LOGGER.log(Level.SEVERE, "Failed to query member snapshots", e);
+            return createErrorResponse(
+                "Failed to query member snapshots: " + e.getMessage(),
+                Response.Status.INTERNAL_SERVER_ERROR
+            );
+        });
+    }
+    
+    private CompletionStage<Response> collectAllMemberSnapshots(String fields, Long timeoutMs) throws Exception {
+        if (fields != null && !fields.matches("[A-Za-z,]*")) {
+            return CompletableFuture.completedFuture(createErrorResponse(
+                "Invalid fields selection: " + fields,
+                Response.Status.BAD_REQUEST
+            ));
+        }
+        
+        final List<LibertyClusterMember> members = topology.snapshot().getMembers();
+        
+        if (members.isEmpty()) {
+            return CompletableFuture.completedFuture(createErrorResponse(
+                "No cluster members found. Ensure members are joined to the collective.",
+                Response.Status.NOT_FOUND
+            ));
+        }
+        
+        final long startTime = System.currentTimeMillis();
+        long deadline = timeoutMs != null && timeoutMs > 0 ? timeoutMs : fanOut.getRequestTimeoutMillis();
+        final String path = fields != null && !fields.isEmpty() ? "/api/counter/snapshot?fields=" + fields : "/api/counter/snapshot";
+        
+        return fanOut.invokeAll(
+            members,
+            (member, timeoutMillis) -> counterClient.querySnapshot(member, path, timeoutMillis),
+            this::createMemberStatus,
+            deadline
+        ).thenApply(results -> {
+            JsonObjectBuilder response = summarizeResults(members, results, startTime);
+            response.add("requestsPerMember", 1);
+            response.add("fields", fields != null && !fields.isEmpty() ? fields : "all");
+            return Response.ok(response.build()).build();
+        });
+    }
+    
+    /**
+     * Get cluster-wide counter totals, per-cluster totals, summed request rates
+     * and merged latency histograms in one small document
+     * Members are queried with one snapshot request each and aggregated on the
+     * controller, so dashboards don't have to fetch and sum every member's payload.
+     * 
+     * @param clusterName Optional cluster to aggregate (default all clusters)
+     * @param timeoutMs Optional overall deadline in milliseconds (defaults to the fan-out setting)
+     * @param asyncResponse Suspended response, resumed with the aggregate
+     */
+    @GET
+    @Path("/aggregate")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void getAggregatedCounters(@QueryParam("clusterName") final String clusterName,
+                                      @QueryParam("timeoutMs") final Long timeoutMs,
+                                      @Suspended final AsyncResponse asyncResponse) {
+        LOGGER.info("Aggregating counters across cluster members");
+        
+        requestExecutor.resume(asyncResponse, () -> collectAggregatedCounters(clusterName, timeoutMs), e -> {
+            LOGGER.log(Level.SEVERE, "Failed to aggregate member counters", e);
+            return createErrorResponse(
+                "Failed to aggregate member counters: " + e.getMessage(),
+                Response.Status.INTERNAL_SERVER_ERROR
+            );
+        });
+    }
+    
+    private CompletionStage<Response> collectAggregatedCounters(String clusterName, Long timeoutMs) throws Exception {
+        ClusterTopology snapshot = topology.snapshot();
+        final List<LibertyClusterMember> members = clusterName != null && !clusterName.isEmpty()
+            ? snapshot.getMembers(clusterName)
+            : snapshot.getMembers();
+        
+        if (members.isEmpty()) {
+            return CompletableFuture.completedFuture(createErrorResponse(
+                clusterName != null ? "No members found in cluster: " + clusterName
+                                    : "No cluster members found. Ensure members are joined to the collective.",
+                Response.Status.NOT_FOUND
+            ));
+        }
+        
+        final long startTime = System.currentTimeMillis();
+        long deadline = timeoutMs != null && timeoutMs > 0 ? timeoutMs : fanOut.getRequestTimeoutMillis();
+        
+        return fanOut.invokeAll(
+            members,
+            (member, timeoutMillis) -> counterClient.querySnapshot(member, "/api/counter/snapshot?fields=counter", timeoutMillis),
+            this::createMemberStatus,
+            deadline
+        ).thenApply(results -> {
+            CounterAggregation aggregation = new CounterAggregation();
+            for (int i = 0; i < members.size(); i++) {
+                aggregation.add(members.get(i), results.get(i));
+            }
+            
+            JsonObject response = aggregation.toJson()
+                .add("elapsedMillis", System.currentTimeMillis() - startTime)
                 .add("timestamp", System.currentTimeMillis())
                 .build();
             
             return Response.ok(response).build();
+        });
+    }
+    
+    /**
+     * Stream member counter changes as Server-Sent Events
+     * A "snapshot" event with the last known state is sent first, followed by
+     * "counters" events listing only the members whose counter or status changed.
+     * All subscribers share one background collection per cluster.
+     * 
+     * @param clusterName Optional cluster to follow (default all clusters)
+     */
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void streamCounters(@QueryParam("clusterName") String clusterName,
+                               @Context SseEventSink eventSink,
+                               @Context Sse sse) {
+        streamHub.subscribe(eventSink, sse, clusterName != null && !clusterName.isEmpty() ? clusterName : null);
+    }
+    
+    /**
+     * Build the common response of a cluster-wide query from the per-member results
+     */
+    private JsonObjectBuilder summarizeResults(List<LibertyClusterMember> members, List<JsonObject> results, long startTime) {
+        JsonArrayBuilder membersArray = Json.createArrayBuilder();
+        int successCount = 0;
+        int errorCount = 0;
+        int timeoutCount = 0;
+        int circuitOpenCount = 0;
+        
+        for (JsonObject memberData : results) {
+            membersArray.add(memberData);
             
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Failed to query member counters", e);
-            return createErrorResponse(
-                "Failed to query member counters: " + e.getMessage(),
-                Response.Status.INTERNAL_SERVER_ERROR
-            );
+            String status = memberData.getString("status", "");
+            if ("success".equals(status)) {
+                successCount++;
+            } else {
+                errorCount++;
+                if (MemberFanOut.STATUS_TIMEOUT.equals(status) || MemberFanOut.STATUS_DEADLINE_EXCEEDED.equals(status)) {
+                    timeoutCount++;
+                } else if (MemberCounterClient.STATUS_CIRCUIT_OPEN.equals(status)) {
+                    circuitOpenCount++;
+                }
+            }
         }
+        
+        return Json.createObjectBuilder()
+            .add("totalMembers", members.size())
+            .add("successCount", successCount)
+            .add("errorCount", errorCount)
+            .add("timeoutCount", timeoutCount)
+            .add("circuitOpenCount", circuitOpenCount)
+            .add("partial", successCount < members.size())
+            .add("elapsedMillis", System.currentTimeMillis() - startTime)
+            .add("members", membersArray)
+            .add("timestamp", System.currentTimeMillis());
     }
     
     /**
      * Get counter value from a specific cluster member
      * 
      * @param serverName The name of the cluster member server
-     * @return JSON response with counter data from the specified member
+     * @param asyncResponse Suspended response, resumed with counter data from the specified member
      */
     @GET
     @Path("/{serverName}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getMemberCounter(@PathParam("serverName") String serverName) {
+    public void getMemberCounter(@PathParam("serverName") final String serverName,
+                                 @Suspended final AsyncResponse asyncResponse) {
         LOGGER.info("Querying counter MBean from member: " + serverName);
         
-        try {
-            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
-            
-            // Verify controller
-            if (!isCollectiveController(mbs)) {
-                return createErrorResponse(
-                    "This application must be deployed on a Liberty Collective Controller",
-                    Response.Status.INTERNAL_SERVER_ERROR
-                );
-            }
-            
-            // Find the specific member
-            Map<String, Object> member = findMemberByName(mbs, serverName);
-            
-            if (member == null) {
-                return createErrorResponse(
-                    "Member not found: " + serverName,
-                    Response.Status.NOT_FOUND
-                );
-            }
-            
-            String hostName = (String) member.get("hostName");
-            JsonObject counterData = queryMemberCounter(mbs, serverName, hostName);
-            
-            return Response.ok(counterData).build();
-            
-        } catch (Exception e) {
+        requestExecutor.resume(asyncResponse, () -> collectMemberCounter(serverName), e -> {
             LOGGER.log(Level.SEVERE, "Failed to query counter from member: " + serverName, e);
             return createErrorResponse(
                 "Failed to retrieve data from member: " + serverName + " - " + e.getMessage(),
                 Response.Status.INTERNAL_SERVER_ERROR
             );
+        });
+    }
+    
+    private CompletionStage<Response> collectMemberCounter(String serverName) throws Exception {
+        final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        
+        // Verify controller
+        if (!isCollectiveController(mbs)) {
+            return CompletableFuture.completedFuture(createErrorResponse(
+                "This application must be deployed on a Liberty Collective Controller",
+                Response.Status.INTERNAL_SERVER_ERROR
+            ));
+        }
+        
+        // Find the specific member
+        LibertyClusterMember member = topology.snapshot().findMember(serverName);
+        
+        if (member == null) {
+            return CompletableFuture.completedFuture(createErrorResponse(
+                "Member not found: " + serverName,
+                Response.Status.NOT_FOUND
+            ));
         }
+        
+        // Run through the fan-out so the member deadline applies to single queries too
+        return fanOut.invokeAll(
+            Collections.singletonList(member),
+            (m, timeoutMillis) -> counterClient.queryCounter(serverName, m.getHostName(), timeoutMillis),
+            this::createMemberStatus
+        ).thenApply(results -> Response.ok(results.get(0)).build());
     }
     
     /**
@@ -188,23 +412,18 @@ public class MemberCounterResource {
         LOGGER.info("Listing all cluster members");
         
         try {
-            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
-            
-            List<Map<String, Object>> members = getClusterMembers(mbs);
+            List<LibertyClusterMember> members = topology.snapshot().getMembers();
             
             JsonArrayBuilder membersArray = Json.createArrayBuilder();
-            for (Map<String, Object> member : members) {
+            for (LibertyClusterMember member : members) {
                 JsonObjectBuilder memberBuilder = Json.createObjectBuilder();
-                memberBuilder.add("serverName", (String) member.get("serverName"));
+                memberBuilder.add("serverName", member.getServerName() != null ? member.getServerName() : "unknown");
                 
-                if (member.get("hostName") != null) {
-                    memberBuilder.add("hostName", (String) member.get("hostName"));
+                if (member.getHostName() != null) {
+                    memberBuilder.add("hostName", member.getHostName());
                 }
-                if (member.get("state") != null) {
-                    memberBuilder.add("state", (String) member.get("state"));
-                }
-                if (member.get("clusterName") != null) {
-                    memberBuilder.add("clusterName", (String) member.get("clusterName"));
+                if (member.getClusterName() != null) {
+                    memberBuilder.add("clusterName", member.getClusterName());
                 }
                 
                 membersArray.add(memberBuilder.build());
@@ -232,7 +451,7 @@ public class MemberCounterResource {
      */
     private boolean isCollectiveController(MBeanServer mbs) {
         try {
-            ObjectName controllerMBean = new ObjectName(
+            ObjectName controllerMBean = metadata.objectName(
                 "WebSphere:feature=collectiveController,type=CollectiveRepository,name=CollectiveRepository"
             );
             return mbs.isRegistered(controllerMBean);
@@ -242,358 +461,6 @@ public class MemberCounterResource {
         }
     }
     
-    /**
-     * Get all cluster members from the collective using ClusterManager MBean
-     */
-    private List<Map<String, Object>> getClusterMembers(MBeanServer mbs) throws Exception {
-        List<Map<String, Object>> allMembers = new ArrayList<>();
-        
-        try {
-            // Get all clusters first
-            ObjectName clusterMgrMBean = new ObjectName("WebSphere:feature=collectiveController,type=ClusterManager,name=ClusterManager");
-            Collection<String> clusterNames = (Collection<String>) invokeOperation(mbs, clusterMgrMBean, "listClusterNames", null, null);
-            
-            if (clusterNames == null || clusterNames.isEmpty()) {
-                LOGGER.info("No clusters found in the collective");
-                return allMembers;
-            }
-            
-            LOGGER.info("Found " + clusterNames.size() + " clusters");
-            
-            // Get members from each cluster
-            for (String clusterName : clusterNames) {
-                try {
-                    Collection<String> clusterMemberTuples = (Collection<String>) invokeOperation(mbs, clusterMgrMBean, "listMembers",
-                        new Object[] {clusterName}, new String[] {String.class.getName()});
-                    
-                    if (clusterMemberTuples != null) {
-                        for (Iterator<String> iter = clusterMemberTuples.iterator(); iter.hasNext();) {
-                            String clusterMemberTuple = iter.next();
-                            LibertyClusterMember cm = LibertyClusterMember.parseClusterMemberTuple(clusterMemberTuple);
-                            
-                            if (cm != null) {
-                                Map<String, Object> memberInfo = new HashMap<>();
-                                memberInfo.put("serverName", cm.getServerName());
-                                memberInfo.put("clusterName", clusterName);
-                                memberInfo.put("hostName", cm.getHostName());
-                                memberInfo.put("userDir", cm.getUserDir());
-                                
-                                allMembers.add(memberInfo);
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    LOGGER.log(Level.WARNING, "Error getting members for cluster: " + clusterName, e);
-                }
-            }
-            
-            LOGGER.info("Found total " + allMembers.size() + " members across all clusters");
-            
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error getting cluster members", e);
-            throw e;
-        }
-        
-        return allMembers;
-    }
-    
-    /**
-     * Find a specific member by server name
-     */
-    private Map<String, Object> findMemberByName(MBeanServer mbs, String serverName) throws Exception {
-        List<Map<String, Object>> members = getClusterMembers(mbs);
-        
-        for (Map<String, Object> member : members) {
-            if (serverName.equals(member.get("serverName"))) {
-                return member;
-            }
-        }
-        
-        return null;
-    }
-    
-    /**
-     * Query the Counter from a specific member using REST API
-     * Gets endpoint information from collective controller MBeans and makes HTTP call to member
-     */
-    private JsonObject queryMemberCounter(MBeanServer mbs, String serverName, String hostName) throws Exception {
-        JsonObjectBuilder resultBuilder = Json.createObjectBuilder();
-        resultBuilder.add("serverName", serverName);
-        resultBuilder.add("hostName", hostName != null ? hostName : "unknown");
-        
-        try {
-            LOGGER.info("Getting endpoint information for server: " + serverName);
-            
-            // Get member endpoint information from ApplicationRoutingInfoMBean
-            String memberUrl = getMemberRestEndpoint(mbs, serverName, hostName);
-            
-            if (memberUrl == null) {
-                resultBuilder.add("status", "endpoint_not_found");
-                resultBuilder.add("message", "Could not determine REST endpoint for member: " + serverName);
-                return resultBuilder.build();
-            }
-            
-            LOGGER.info("Member REST endpoint: " + memberUrl);
-            
-            // Dynamically discover the application context root
-            String appContext = getCounterApplicationContext(mbs, serverName, hostName);
-            LOGGER.info("Discovered application context: " + appContext);
-            
-            // Make HTTP call to member's Counter REST endpoint
-            String counterEndpoint = memberUrl + appContext + "/api/counter";
-            LOGGER.info("Calling Counter endpoint: " + counterEndpoint);
-            
-            String jsonResponse = makeHttpGetRequest(counterEndpoint);
-            
-            if (jsonResponse == null) {
-                resultBuilder.add("status", "connection_failed");
-                resultBuilder.add("message", "Failed to connect to member REST endpoint: " + counterEndpoint);
-                resultBuilder.add("discoveredContext", appContext);
-                return resultBuilder.build();
-            }
-            
-            // Parse the JSON response from member
-            try (JsonReader reader = Json.createReader(new StringReader(jsonResponse))) {
-                JsonObject counterData = reader.readObject();
-                
-                // Extract counter information
-                resultBuilder.add("memberName", counterData.getString("memberName", serverName));
-                resultBuilder.add("counter", counterData.getJsonNumber("counter").longValue());
-                resultBuilder.add("totalRequests", counterData.getJsonNumber("totalRequests").longValue());
-                resultBuilder.add("status", "success");
-                resultBuilder.add("endpoint", counterEndpoint);
-                resultBuilder.add("discoveredContext", appContext);
-            }
-            
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Error querying counter from member: " + serverName, e);
-            resultBuilder.add("status", "error");
-            resultBuilder.add("message", e.getMessage());
-            resultBuilder.add("errorType", e.getClass().getSimpleName());
-        }
-        
-        resultBuilder.add("timestamp", System.currentTimeMillis());
-        return resultBuilder.build();
-    }
-    
-    /**
-     * Get the REST endpoint URL for a member server by querying collective controller MBeans
-     */
-    private String getMemberRestEndpoint(MBeanServer mbs, String serverName, String hostName) {
-        try {
-            // Query for ApplicationRoutingInfoMBean for the member
-            String pattern = String.format("WebSphere:feature=collectiveMember,type=ApplicationRoutingInfoMBean,name=*");
-            ObjectName query = new ObjectName(pattern);
-            Set<ObjectName> routingMBeans = mbs.queryNames(query, null);
-            
-            LOGGER.info("Found " + routingMBeans.size() + " ApplicationRoutingInfoMBeans");
-            
-            // Try to get endpoint from EndpointRoutingInfo MBean
-            ObjectName endpointMBean = new ObjectName("WebSphere:feature=collectiveMember,type=EndpointRoutingInfo,name=EndpointRoutingInfo");
-            
-            if (mbs.isRegistered(endpointMBean)) {
-                try {
-                    // Get HTTPS port - try different attribute names
-                    Object httpsPort = null;
-                    try {
-                        httpsPort = mbs.getAttribute(endpointMBean, "HttpsPort");
-                    } catch (Exception e) {
-                        LOGGER.fine("HttpsPort attribute not found, trying alternatives");
-                    }
-                    
-                    if (httpsPort == null) {
-                        try {
-                            httpsPort = mbs.getAttribute(endpointMBean, "DefaultHttpsPort");
-                        } catch (Exception e) {
-                            LOGGER.fine("DefaultHttpsPort attribute not found");
-                        }
-                    }
-                    
-                    if (httpsPort != null) {
-                        String url = "https://" + hostName + ":" + httpsPort;
-                        LOGGER.info("Constructed member URL from EndpointRoutingInfo: " + url);
-                        return url;
-                    }
-                } catch (Exception e) {
-                    LOGGER.log(Level.FINE, "Error getting endpoint from EndpointRoutingInfo", e);
-                }
-            }
-            
-            // Fallback: use default HTTPS port
-            String defaultUrl = "https://" + hostName + ":9443";
-            LOGGER.info("Using default HTTPS port, constructed URL: " + defaultUrl);
-            return defaultUrl;
-            
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Error getting member REST endpoint", e);
-            return null;
-        }
-    }
-    
-    /**
-     * Dynamically discover the application context root for the Counter application
-     * Queries ApplicationMBean from collective controller to find deployed applications
-     */
-    private String getCounterApplicationContext(MBeanServer mbs, String serverName, String hostName) {
-        try {
-            // Query for ApplicationMBean on the member server
-            // Pattern: WebSphere:service=com.ibm.websphere.application.ApplicationMBean,name=<appName>
-            String pattern = "WebSphere:service=com.ibm.websphere.application.ApplicationMBean,name=*";
-            ObjectName query = new ObjectName(pattern);
-            Set<ObjectName> appMBeans = mbs.queryNames(query, null);
-            
-            LOGGER.info("Found " + appMBeans.size() + " ApplicationMBeans");
-            
-            // Look for applications that might contain the Counter MBean
-            for (ObjectName appMBean : appMBeans) {
-                try {
-                    String appName = appMBean.getKeyProperty("name");
-                    LOGGER.info("Checking application: " + appName);
-                    
-                    // Check if this application has the Counter MBean or contains "member" in name
-                    if (appName != null && (appName.contains("member") || appName.contains("cluster"))) {
-                        // Try to get context root from application MBean
-                        try {
-                            Object contextRoot = mbs.getAttribute(appMBean, "ContextRoot");
-                            if (contextRoot != null) {
-                                String context = contextRoot.toString();
-                                LOGGER.info("Found context root from ApplicationMBean: " + context);
-                                return context;
-                            }
-                        } catch (Exception e) {
-                            LOGGER.fine("ContextRoot attribute not available on ApplicationMBean");
-                        }
-                        
-                        // Alternative: construct context from app name
-                        // Liberty default: app name becomes context root
-                        String context = "/" + appName;
-                        LOGGER.info("Using application name as context: " + context);
-                        return context;
-                    }
-                } catch (Exception e) {
-                    LOGGER.log(Level.FINE, "Error checking application MBean", e);
-                }
-            }
-            
-            // Try WebModuleMBean which has context root information
-            pattern = "WebSphere:j2eeType=WebModule,name=*";
-            query = new ObjectName(pattern);
-            Set<ObjectName> webModules = mbs.queryNames(query, null);
-            
-            LOGGER.info("Found " + webModules.size() + " WebModule MBeans");
-            
-            for (ObjectName webModule : webModules) {
-                try {
-                    String moduleName = webModule.getKeyProperty("name");
-                    LOGGER.info("Checking web module: " + moduleName);
-                    
-                    if (moduleName != null && (moduleName.contains("member") || moduleName.contains("cluster"))) {
-                        // Get context root from WebModule
-                        Object contextRoot = mbs.getAttribute(webModule, "contextRoot");
-                        if (contextRoot != null) {
-                            String context = contextRoot.toString();
-                            LOGGER.info("Found context root from WebModule: " + context);
-                            return context;
-                        }
-                    }
-                } catch (Exception e) {
-                    LOGGER.log(Level.FINE, "Error checking WebModule MBean", e);
-                }
-            }
-            
-            // Fallback: use default context
-            LOGGER.warning("Could not determine application context dynamically, using default");
-            return "/liberty-cluster-member-app";
-            
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Error discovering application context", e);
-            return "/liberty-cluster-member-app";
-        }
-    }
-    
-    /**
-     * Make HTTP GET request to the specified URL
-     * Handles both HTTP and HTTPS with SSL trust
-     */
-    private String makeHttpGetRequest(String urlString) {
-        HttpURLConnection conn = null;
-        try {
-            URL url = new URL(urlString);
-            
-            // Setup SSL trust for HTTPS
-            if (urlString.startsWith("https://")) {
-                setupSSLTrust();
-            }
-            
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(5000);
-            conn.setReadTimeout(5000);
-            conn.setRequestProperty("Accept", "application/json");
-            
-            int responseCode = conn.getResponseCode();
-            LOGGER.info("HTTP Response Code: " + responseCode);
-            
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                String inputLine;
-                StringBuilder response = new StringBuilder();
-                
-                while ((inputLine = in.readLine()) != null) {
-                    response.append(inputLine);
-                }
-                in.close();
-                
-                return response.toString();
-            } else {
-                LOGGER.warning("HTTP request failed with response code: " + responseCode);
-                return null;
-            }
-            
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Error making HTTP request to: " + urlString, e);
-            return null;
-        } finally {
-            if (conn != null) {
-                conn.disconnect();
-            }
-        }
-    }
-    
-    /**
-     * Setup SSL trust to accept all certificates (for development/testing)
-     * In production, use proper certificate validation
-     */
-    private void setupSSLTrust() {
-        try {
-            TrustManager[] trustAllCerts = new TrustManager[]{
-                new X509TrustManager() {
-                    public X509Certificate[] getAcceptedIssuers() {
-                        return null;
-                    }
-                    public void checkClientTrusted(X509Certificate[] certs, String authType) {
-                    }
-                    public void checkServerTrusted(X509Certificate[] certs, String authType) {
-                    }
-                }
-            };
-            
-            SSLContext sc = SSLContext.getInstance("SSL");
-            sc.init(null, trustAllCerts, new java.security.SecureRandom());
-            HttpsURLConnection.setDefaultSSLSocketFactory(sc.getSocketFactory());
-            
-            HostnameVerifier allHostsValid = new HostnameVerifier() {
-                public boolean verify(String hostname, SSLSession session) {
-                    return true;
-                }
-            };
-            HttpsURLConnection.setDefaultHostnameVerifier(allHostsValid);
-            
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Error setting up SSL trust", e);
-        }
-    }
-    
     /**
      * List all clusters using ClusterManager MBean
      */
@@ -613,18 +480,15 @@ public class MemberCounterResource {
                 );
             }
             
-            ObjectName clusterMgrMBean = new ObjectName("WebSphere:feature=collectiveController,type=ClusterManager,name=ClusterManager");
-            Collection<String> clusterNames = (Collection<String>) invokeOperation(mbs, clusterMgrMBean, "listClusterNames", null, null);
+            List<String> clusterNames = topology.snapshot().getClusterNames();
             
             JsonArrayBuilder clustersArray = Json.createArrayBuilder();
-            if (clusterNames != null) {
-                for (String clusterName : clusterNames) {
-                    clustersArray.add(clusterName);
-                }
+            for (String clusterName : clusterNames) {
+                clustersArray.add(clusterName);
             }
             
             JsonObject response = Json.createObjectBuilder()
-                .add("clusterCount", clusterNames != null ? clusterNames.size() : 0)
+                .add("clusterCount", clusterNames.size())
                 .add("clusters", clustersArray)
                 .add("timestamp", System.currentTimeMillis())
                 .build();
@@ -641,7 +505,7 @@ public class MemberCounterResource {
     }
     
     /**
-     * Get cluster members by cluster name using ClusterManager MBean
+     * Get cluster members by cluster name from the cached cluster topology
      */
     @GET
     @Path("/cluster")
@@ -666,12 +530,10 @@ public class MemberCounterResource {
                 );
             }
             
-            // Use ClusterManager MBean to get cluster members
-            ObjectName clusterMgrMBean = new ObjectName("WebSphere:feature=collectiveController,type=ClusterManager,name=ClusterManager");
-            Collection<String> clusterMemberTuples = (Collection<String>) invokeOperation(mbs, clusterMgrMBean, "listMembers",
-                new Object[] {clusterName}, new String[] {String.class.getName()});
+            // Cluster members come from the topology snapshot, not a ClusterManager call
+            List<LibertyClusterMember> clusterMembers = topology.snapshot().getMembers(clusterName);
             
-            if (clusterMemberTuples == null || clusterMemberTuples.isEmpty()) {
+            if (clusterMembers.isEmpty()) {
                 JsonObject response = Json.createObjectBuilder()
                     .add("clusterName", clusterName)
                     .add("memberCount", 0)
@@ -682,38 +544,32 @@ public class MemberCounterResource {
                 return Response.status(Response.Status.NOT_FOUND).entity(response).build();
             }
             
-            LOGGER.info("Found " + clusterMemberTuples.size() + " members in cluster: " + clusterName);
+            LOGGER.info("Found " + clusterMembers.size() + " members in cluster: " + clusterName);
             
             JsonArrayBuilder membersArray = Json.createArrayBuilder();
             
-            // Parse each member tuple
-            for (Iterator<String> iter = clusterMemberTuples.iterator(); iter.hasNext();) {
-                String clusterMemberTuple = iter.next();
-                LibertyClusterMember cm = LibertyClusterMember.parseClusterMemberTuple(clusterMemberTuple);
+            for (LibertyClusterMember cm : clusterMembers) {
+                JsonObjectBuilder memberBuilder = Json.createObjectBuilder();
                 
-                if (cm != null) {
-                    JsonObjectBuilder memberBuilder = Json.createObjectBuilder();
-                    
-                    // Add non-null values only
-                    if (cm.getServerName() != null) {
-                        memberBuilder.add("serverName", cm.getServerName());
-                    }
-                    memberBuilder.add("clusterName", clusterName);
-                    
-                    if (cm.getHostName() != null) {
-                        memberBuilder.add("hostName", cm.getHostName());
-                    }
-                    if (cm.getUserDir() != null) {
-                        memberBuilder.add("userDir", cm.getUserDir());
-                    }
-                    
-                    membersArray.add(memberBuilder.build());
+                // Add non-null values only
+                if (cm.getServerName() != null) {
+                    memberBuilder.add("serverName", cm.getServerName());
+                }
+                memberBuilder.add("clusterName", clusterName);
+                
+                if (cm.getHostName() != null) {
+                    memberBuilder.add("hostName", cm.getHostName());
+                }
+                if (cm.getUserDir() != null) {
+                    memberBuilder.add("userDir", cm.getUserDir());
                 }
+                
+                membersArray.add(memberBuilder.build());
             }
             
             JsonObject response = Json.createObjectBuilder()
                 .add("clusterName", clusterName)
-                .add("memberCount", clusterMemberTuples.size())
+                .add("memberCount", clusterMembers.size())
                 .add("members", membersArray)
                 .add("timestamp", System.currentTimeMillis())
                 .build();
@@ -732,35 +588,67 @@ public class MemberCounterResource {
     /**
      * Diagnostic endpoint to list all MBeans available on the controller
      * This helps debug MBean discovery issues
+     * The list is streamed as it is written, so memory does not grow with the number
+     * of MBeans. With {@code limit}, names are returned in canonical order one page at
+     * a time; pass the returned {@code nextCursor} as {@code cursor} for the next page.
+     * A page stops at the first name past it, so it reports no total count.
+     * Filters that fix the domain or the type, feature, server or host key are answered
+     * from the MBean catalog indexes.
+     * 
+     * @param filter Optional ObjectName pattern (default all MBeans)
+     * @param limit Optional page size
+     * @param cursor Optional cursor returned with the previous page
      */
     @GET
     @Path("/debug/mbeans")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response listAllMBeans(@QueryParam("filter") String filter) {
+    public Response listAllMBeans(@QueryParam("filter") String filter,
+                                  @QueryParam("limit") Integer limit,
+                                  @QueryParam("cursor") String cursor) {
         LOGGER.info("Listing all MBeans" + (filter != null ? " with filter: " + filter : ""));
         
+        if (limit != null && limit < 1) {
+            return createErrorResponse("limit must be at least 1", Response.Status.BAD_REQUEST);
+        }
+        
         try {
-            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
-            
             String pattern = filter != null && !filter.trim().isEmpty() ? filter : "*:*";
-            ObjectName query = new ObjectName(pattern);
-            Set<ObjectName> allMBeans = mbs.queryNames(query, null);
-            
-            LOGGER.info("Found " + allMBeans.size() + " MBeans with pattern: " + pattern);
-            
-            JsonArrayBuilder mbeansArray = Json.createArrayBuilder();
-            for (ObjectName mbean : allMBeans) {
-                mbeansArray.add(mbean.toString());
-            }
-            
-            JsonObject response = Json.createObjectBuilder()
-                .add("pattern", pattern)
-                .add("count", allMBeans.size())
-                .add("mbeans", mbeansArray)
-                .add("timestamp", System.currentTimeMillis())
-                .build();
+            ObjectName query = metadata.objectName(pattern);
+            // Answered from the MBean catalog rather than a scan of the MBeanServer; a page is read
+            // from the catalog's sorted names without collecting every match
+            final MBeanNamePage page = limit != null || cursor != null
+                ? catalog.page(query, cursor, limit != null ? limit : MBeanNamePage.DEFAULT_LIMIT)
+                : null;
+            final Collection<ObjectName> names = page != null ? page.getNames() : catalog.query(query);
+            
+            LOGGER.info("Found " + names.size() + " MBeans with pattern: " + pattern);
+            
+            StreamingOutput body = output -> {
+                try (JsonGenerator json = JSON_GENERATORS.createGenerator(output)) {
+                    json.writeStartObject()
+                        .write("pattern", pattern);
+                    if (page == null) {
+                        json.write("count", names.size());
+                    }
+                    json.writeStartArray("mbeans");
+                    for (ObjectName mbean : names) {
+                        json.write(mbean.toString());
+                    }
+                    json.writeEnd();
+                    if (page != null) {
+                        json.write("returned", names.size());
+                        if (page.getNextCursor() != null) {
+                            json.write("nextCursor", page.getNextCursor());
+                        } else {
+                            json.writeNull("nextCursor");
+                        }
+                    }
+                    json.write("timestamp", System.currentTimeMillis())
+                        .writeEnd();
+                }
+            };
             
-            return Response.ok(response).build();
+            return Response.ok(body, MediaType.APPLICATION_JSON_TYPE).build();
             
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Failed to list MBeans", e);
@@ -795,7 +683,7 @@ public class MemberCounterResource {
             }
             
             // Find the specific member
-            Map<String, Object> member = findMemberByName(mbs, serverName);
+            LibertyClusterMember member = topology.snapshot().findMember(serverName);
             
             if (member == null) {
                 return createErrorResponse(
@@ -804,7 +692,7 @@ public class MemberCounterResource {
                 );
             }
             
-            String hostName = (String) member.get("hostName");
+            String hostName = member.getHostName();
             
             // Query for deployed applications
             JsonArrayBuilder applications = getDeployedApplications(mbs, serverName, hostName);
@@ -830,86 +718,89 @@ public class MemberCounterResource {
     
     /**
      * List all applications deployed across all cluster members
+     * The request is suspended and the scan runs on the controller's async executor.
      *
-     * @return JSON response with applications from all members
+     * @param asyncResponse Suspended response, resumed with applications from all members
      */
     @GET
     @Path("/applications")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response listAllMemberApplications() {
+    public void listAllMemberApplications(@Suspended final AsyncResponse asyncResponse) {
         LOGGER.info("Listing applications from all cluster members");
         
-        try {
-            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
-            
-            // Verify controller
-            if (!isCollectiveController(mbs)) {
+        requestExecutor.resume(asyncResponse,
+            () -> CompletableFuture.completedFuture(collectAllMemberApplications()), e -> {
+                LOGGER.log(Level.SEVERE, "Failed to list applications from all members", e);
                 return createErrorResponse(
-                    "This application must be deployed on a Liberty Collective Controller",
+                    "Failed to list applications: " + e.getMessage(),
                     Response.Status.INTERNAL_SERVER_ERROR
                 );
-            }
-            
-            // Get all cluster members
-            List<Map<String, Object>> members = getClusterMembers(mbs);
-            
-            if (members.isEmpty()) {
-                return createErrorResponse(
-                    "No cluster members found",
-                    Response.Status.NOT_FOUND
-                );
-            }
-            
-            JsonArrayBuilder membersArray = Json.createArrayBuilder();
-            int totalApps = 0;
-            
-            // Query applications from each member
-            for (Map<String, Object> member : members) {
-                String serverName = (String) member.get("serverName");
-                String hostName = (String) member.get("hostName");
-                
-                try {
-                    JsonArrayBuilder applications = getDeployedApplications(mbs, serverName, hostName);
-                    int appCount = applications.build().size();
-                    
-                    JsonObject memberData = Json.createObjectBuilder()
-                        .add("serverName", serverName)
-                        .add("hostName", hostName != null ? hostName : "unknown")
-                        .add("applicationCount", appCount)
-                        .add("applications", applications)
-                        .build();
-                    
-                    membersArray.add(memberData);
-                    totalApps += appCount;
-                    
-                } catch (Exception e) {
-                    LOGGER.log(Level.WARNING, "Failed to get applications from member: " + serverName, e);
-                    JsonObject errorData = Json.createObjectBuilder()
-                        .add("serverName", serverName)
-                        .add("hostName", hostName != null ? hostName : "unknown")
-                        .add("status", "error")
-                        .add("message", e.getMessage())
-                        .build();
-                    membersArray.add(errorData);
-                }
-            }
-            
-            JsonObject response = Json.createObjectBuilder()
-                .add("memberCount", members.size())
-                .add("totalApplications", totalApps)
-                .add("members", membersArray)
-                .add("timestamp", System.currentTimeMillis())
-                .build();
-            
-            return Response.ok(response).build();
-            
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Failed to list applications from all members", e);
+            });
+    }
+    
+    private Response collectAllMemberApplications() throws Exception {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        
+        // Verify controller
+        if (!isCollectiveController(mbs)) {
             return createErrorResponse(
-                "Failed to list applications: " + e.getMessage(),
+                "This application must be deployed on a Liberty Collective Controller",
                 Response.Status.INTERNAL_SERVER_ERROR
             );
         }
+        
+        // Get all cluster members
+        List<LibertyClusterMember> members = topology.snapshot().getMembers();
+        
+        if (members.isEmpty()) {
+            return createErrorResponse(
+                "No cluster members found",
+                Response.Status.NOT_FOUND
+            );
+        }
+        
+        JsonArrayBuilder membersArray = Json.createArrayBuilder();
+        int totalApps = 0;
+        
+        // Query applications from each member
+        for (LibertyClusterMember member : members) {
+            String serverName = member.getServerName();
+            String hostName = member.getHostName();
+            
+            try {
+                JsonArrayBuilder applications = getDeployedApplications(mbs, serverName, hostName);
+                int appCount = applications.build().size();
+                
+                JsonObject memberData = Json.createObjectBuilder()
+                    .add("serverName", serverName)
+                    .add("hostName", hostName != null ? hostName : "unknown")
+                    .add("applicationCount", appCount)
+                    .add("applications", applications)
+                    .build();
+                
+                membersArray.add(memberData);
+                totalApps += appCount;
+                
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Failed to get applications from member: " + serverName, e);
+                JsonObject errorData = Json.createObjectBuilder()
+                    .add("serverName", serverName)
+                    .add("hostName", hostName != null ? hostName : "unknown")
+                    .add("status", "error")
+                    .add("message", e.getMessage())
+                    .build();
+                membersArray.add(errorData);
+            }
+        }
+        
+        JsonObject response = Json.createObjectBuilder()
+            .add("memberCount", members.size())
+            .add("totalApplications", totalApps)
+            .add("members", membersArray)
+            .add("timestamp", System.currentTimeMillis())
+            .build();
+        
+        return Response.ok(response).build();
     }
     
     /**
@@ -921,7 +812,7 @@ public class MemberCounterResource {
         try {
             // Query for ApplicationMBean - these represent deployed applications
             String pattern = "WebSphere:service=com.ibm.websphere.application.ApplicationMBean,name=*";
-            ObjectName query = new ObjectName(pattern);
+            ObjectName query = metadata.objectName(pattern);
             Set<ObjectName> appMBeans = mbs.queryNames(query, null);
             
             LOGGER.info("Found " + appMBeans.size() + " ApplicationMBeans for server: " + serverName);
@@ -937,9 +828,9 @@ public class MemberCounterResource {
                     JsonObjectBuilder appBuilder = Json.createObjectBuilder();
                     appBuilder.add("name", appName);
                     
-                    // Try to get additional application details
+                    // Try to get additional application details, skipping attributes the MBean does not have
                     try {
-                        Object state = mbs.getAttribute(appMBean, "State");
+                        Object state = metadata.isReadable(appMBean, "State") ? mbs.getAttribute(appMBean, "State") : null;
                         if (state != null) {
                             appBuilder.add("state", state.toString());
                         }
@@ -948,7 +839,7 @@ public class MemberCounterResource {
                     }
                     
                     try {
-                        Object contextRoot = mbs.getAttribute(appMBean, "ContextRoot");
+                        Object contextRoot = metadata.isReadable(appMBean, "ContextRoot") ? mbs.getAttribute(appMBean, "ContextRoot") : null;
                         if (contextRoot != null) {
                             appBuilder.add("contextRoot", contextRoot.toString());
                         }
@@ -965,7 +856,7 @@ public class MemberCounterResource {
             
             // Also check WebModule MBeans for additional context information
             pattern = "WebSphere:j2eeType=WebModule,name=*";
-            query = new ObjectName(pattern);
+            query = metadata.objectName(pattern);
             Set<ObjectName> webModules = mbs.queryNames(query, null);
             
             LOGGER.info("Found " + webModules.size() + " WebModule MBeans for server: " + serverName);
@@ -986,7 +877,7 @@ public class MemberCounterResource {
                     moduleBuilder.add("type", "WebModule");
                     
                     try {
-                        Object contextRoot = mbs.getAttribute(webModule, "contextRoot");
+                        Object contextRoot = metadata.isReadable(webModule, "contextRoot") ? mbs.getAttribute(webModule, "contextRoot") : null;
                         if (contextRoot != null) {
                             moduleBuilder.add("contextRoot", contextRoot.toString());
                         }
@@ -995,7 +886,7 @@ public class MemberCounterResource {
                     }
                     
                     try {
-                        Object path = mbs.getAttribute(webModule, "path");
+                        Object path = metadata.isReadable(webModule, "path") ? mbs.getAttribute(webModule, "path") : null;
                         if (path != null) {
                             moduleBuilder.add("path", path.toString());
                         }
@@ -1019,10 +910,18 @@ public class MemberCounterResource {
     }
     
     /**
-     * Helper method to invoke MBean operations
+     * Create the result entry for a member that did not return counter data
      */
-    private Object invokeOperation(MBeanServer mbs, ObjectName objName, String operationName, Object[] params, String[] signature) throws Exception {
-        return mbs.invoke(objName, operationName, params, signature);
+    private JsonObject createMemberStatus(LibertyClusterMember member, String status, String message) {
+        String serverName = member.getServerName();
+        String hostName = member.getHostName();
+        return Json.createObjectBuilder()
+            .add("serverName", serverName != null ? serverName : "unknown")
+            .add("hostName", hostName != null ? hostName : "unknown")
+            .add("status", status)
+            .add("message", message != null ? message : status)
+            .add("timestamp", System.currentTimeMillis())
+            .build();
     }
     
     /**
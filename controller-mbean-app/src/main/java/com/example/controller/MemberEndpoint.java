@@ -0,0 +1,53 @@
+package com.example.controller;
+
+/**
+ * Resolved REST location of an application on a cluster member
+ * Produced by {@link MemberEndpointResolver}
+ */
+public final class MemberEndpoint {
+
+    private final String baseUrl;
+    private final String contextRoot;
+    private final boolean discovered;
+
+    /**
+     * @param baseUrl scheme, host and port of the member, for example https://host:9443
+     * @param contextRoot context root of the application, starting with a slash
+     * @param discovered false if either part fell back to a default instead of being read from MBeans
+     */
+    public MemberEndpoint(String baseUrl, String contextRoot, boolean discovered) {
+        this.baseUrl = baseUrl;
+        this.contextRoot = contextRoot;
+        this.discovered = discovered;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public String getContextRoot() {
+        return contextRoot;
+    }
+
+    public boolean isDiscovered() {
+        return discovered;
+    }
+
+    /**
+     * Build a URL for a path below the application's context root
+     */
+    public String url(String path) {
+        return baseUrl + contextRoot + path;
+    }
+
+    @Override
+    public String toString() {
+        return "MemberEndpoint{" +
+                "baseUrl='" + baseUrl + '\'' +
+                ", contextRoot='" + contextRoot + '\'' +
+                ", discovered=" + discovered +
+                '}';
+    }
+}
+
+// Made with Bob
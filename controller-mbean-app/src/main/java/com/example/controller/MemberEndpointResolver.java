@@ -0,0 +1,421 @@
+package com.example.controller;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationBroadcaster;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caches where an application is reachable on each cluster member.
+ *
+ * Resolving an endpoint queries the ApplicationRoutingInfo, EndpointRoutingInfo,
+ * ApplicationMBean and WebModule MBeans, which costs a queryNames and several
+ * getAttribute calls per member. Results are cached per (host, server,
+ * application). Endpoints that could not be resolved, or that fell back to
+ * defaults, are cached for a shorter negative TTL so a member that is still
+ * starting is retried soon. Concurrent lookups of the same key share one
+ * resolution.
+ *
+ * Entries are dropped when application or routing MBeans are registered or
+ * unregistered, when an application MBean emits a notification, and when a
+ * caller reports that the member could not be reached at the cached endpoint.
+ *
+ * Tuning (JVM system properties):
+ *   controller.endpoint.ttlMs           lifetime of a resolved endpoint, default 300000
+ *   controller.endpoint.negativeTtlMs   lifetime of an unresolved or default endpoint, default 15000
+ *   controller.endpoint.scheme          scheme of member endpoints, https or http, default https
+ *   controller.endpoint.defaultPort     port used when a member does not publish one, default 9443
+ */
+@ApplicationScoped
+public class MemberEndpointResolver {
+
+    private static final Logger LOGGER = Logger.getLogger(MemberEndpointResolver.class.getName());
+
+    /** Application name of liberty-cluster-member-app, which hosts the Counter REST API */
+    public static final String COUNTER_APPLICATION = "liberty-cluster-member-app";
+
+    private static final String APPLICATION_MBEAN_SERVICE = "com.ibm.websphere.application.ApplicationMBean";
+    private static final String DEFAULT_HTTPS_PORT = "9443";
+    private static final String ENDPOINT_ROUTING_INFO = "WebSphere:feature=collectiveMember,type=EndpointRoutingInfo,name=EndpointRoutingInfo";
+    private static final String APPLICATION_MBEANS = "WebSphere:service=" + APPLICATION_MBEAN_SERVICE + ",name=*";
+    private static final String WEB_MODULES = "WebSphere:j2eeType=WebModule,name=*";
+
+    private final MBeanServer mbs;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final String scheme;
+    private final String defaultPort;
+    private final String portAttribute;
+
+    @Inject
+    private MBeanMetadataCache metadata;
+
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<ObjectName> watchedApplications = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong negativeHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private final AtomicLong failureInvalidationCount = new AtomicLong();
+
+    private final NotificationListener registrationListener = (notification, handback) ->
+        onRegistrationChange((MBeanServerNotification) notification);
+
+    private final NotificationListener applicationListener = (notification, handback) ->
+        onApplicationNotification(notification);
+
+    public MemberEndpointResolver() {
+        this(ManagementFactory.getPlatformMBeanServer(),
+             Long.getLong("controller.endpoint.ttlMs", 300000L),
+             Long.getLong("controller.endpoint.negativeTtlMs", 15000L),
+             System.getProperty("controller.endpoint.scheme", "https"),
+             System.getProperty("controller.endpoint.defaultPort", DEFAULT_HTTPS_PORT));
+    }
+
+    public MemberEndpointResolver(MBeanServer mbs, long ttlMillis, long negativeTtlMillis) {
+        this(mbs, ttlMillis, negativeTtlMillis, "https", DEFAULT_HTTPS_PORT);
+    }
+
+    public MemberEndpointResolver(MBeanServer mbs, long ttlMillis, long negativeTtlMillis,
+                                  String scheme, String defaultPort) {
+        this.mbs = mbs;
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.scheme = "http".equalsIgnoreCase(scheme) ? "http" : "https";
+        this.defaultPort = defaultPort;
+        // EndpointRoutingInfo publishes HttpsPort/DefaultHttpsPort and HttpPort/DefaultHttpPort
+        this.portAttribute = "http".equals(this.scheme) ? "HttpPort" : "HttpsPort";
+    }
+
+    @PostConstruct
+    public void start() {
+        try {
+            mbs.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, registrationListener,
+                notification -> notification instanceof MBeanServerNotification
+                    && isEndpointMBean(((MBeanServerNotification) notification).getMBeanName()),
+                null);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Could not listen for MBean registrations, relying on endpoint TTL", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            mbs.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, registrationListener);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "MBeanServerDelegate listener already removed", e);
+        }
+        for (ObjectName application : watchedApplications) {
+            try {
+                mbs.removeNotificationListener(application, applicationListener);
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Application listener already removed: " + application, e);
+            }
+        }
+        watchedApplications.clear();
+        entries.clear();
+    }
+
+    /**
+     * Resolve the endpoint of an application on a member, using the cache when possible
+     *
+     * @param hostName member host name
+     * @param serverName member server name
+     * @param application application name, also used as the default context root
+     * @return the endpoint; parts that could not be discovered fall back to the default port
+     *         and the application name as context root
+     */
+    public MemberEndpoint resolve(String hostName, String serverName, String application) {
+        Key key = new Key(hostName, serverName, application);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (!entry.endpoint.isDone()) {
+                hitCount.incrementAndGet();
+                return entry.endpoint.join();
+            }
+            if (System.currentTimeMillis() < entry.expiresAt) {
+                MemberEndpoint endpoint = entry.endpoint.join();
+                if (endpoint != null && endpoint.isDiscovered()) {
+                    hitCount.incrementAndGet();
+                } else {
+                    negativeHitCount.incrementAndGet();
+                }
+                return endpoint;
+            }
+            if (entries.remove(key, entry)) {
+                expiredCount.incrementAndGet();
+            }
+        }
+
+        Entry created = new Entry();
+        Entry existing = entries.putIfAbsent(key, created);
+        if (existing != null) {
+            hitCount.incrementAndGet();
+            return existing.endpoint.join();
+        }
+
+        missCount.incrementAndGet();
+        MemberEndpoint endpoint = null;
+        try {
+            endpoint = discover(hostName, serverName, application);
+        } finally {
+            boolean positive = endpoint != null && endpoint.isDiscovered();
+            created.expiresAt = System.currentTimeMillis() + (positive ? ttlMillis : negativeTtlMillis);
+            created.endpoint.complete(endpoint);
+        }
+        return endpoint;
+    }
+
+    /**
+     * Drop the cached endpoint after the member could not be reached at it
+     * The next lookup resolves it again
+     */
+    public void reportFailure(String hostName, String serverName, String application) {
+        if (entries.remove(new Key(hostName, serverName, application)) != null) {
+            failureInvalidationCount.incrementAndGet();
+            LOGGER.fine("Dropped cached endpoint after failure: " + serverName + "@" + hostName);
+        }
+    }
+
+    /**
+     * Drop every cached endpoint of a server, or all endpoints if serverName is null
+     */
+    public void invalidate(String serverName) {
+        invalidationCount.incrementAndGet();
+        if (serverName == null) {
+            entries.clear();
+        } else {
+            entries.keySet().removeIf(key -> serverName.equals(key.serverName));
+        }
+    }
+
+    /**
+     * Resolution cache statistics
+     */
+    public JsonObject getStatistics() {
+        long hits = hitCount.get();
+        long negativeHits = negativeHitCount.get();
+        long misses = missCount.get();
+        long lookups = hits + negativeHits + misses;
+        return Json.createObjectBuilder()
+            .add("size", entries.size())
+            .add("hits", hits)
+            .add("negativeHits", negativeHits)
+            .add("misses", misses)
+            .add("hitRatio", lookups > 0 ? (double) (hits + negativeHits) / lookups : 0.0)
+            .add("expired", expiredCount.get())
+            .add("invalidations", invalidationCount.get())
+            .add("failureInvalidations", failureInvalidationCount.get())
+            .add("watchedApplications", watchedApplications.size())
+            .add("ttlMillis", ttlMillis)
+            .add("negativeTtlMillis", negativeTtlMillis)
+            .build();
+    }
+
+    private MemberEndpoint discover(String hostName, String serverName, String application) {
+        LOGGER.info("Resolving endpoint for server: " + serverName);
+
+        Object port = getMemberPort();
+        String contextRoot = getApplicationContext(application);
+
+        if (port == null) {
+            LOGGER.info("Using default " + scheme + " port for host: " + hostName);
+        }
+        MemberEndpoint endpoint = new MemberEndpoint(
+            scheme + "://" + hostName + ":" + (port != null ? port : defaultPort),
+            contextRoot != null ? contextRoot : "/" + application,
+            port != null && contextRoot != null);
+        LOGGER.info("Resolved " + endpoint + " for server: " + serverName);
+        return endpoint;
+    }
+
+    /**
+     * Get the member port for the configured scheme from the EndpointRoutingInfo MBean
+     *
+     * @return the port, or null if it is not published
+     */
+    private Object getMemberPort() {
+        try {
+            ObjectName endpointMBean = metadata.objectName(ENDPOINT_ROUTING_INFO);
+            if (!mbs.isRegistered(endpointMBean)) {
+                return null;
+            }
+
+            // Try different attribute names, using the cached MBeanInfo to skip missing ones
+            if (metadata.isReadable(endpointMBean, portAttribute)) {
+                try {
+                    Object port = mbs.getAttribute(endpointMBean, portAttribute);
+                    if (port != null) {
+                        return port;
+                    }
+                } catch (Exception e) {
+                    LOGGER.fine(portAttribute + " attribute could not be read, trying alternatives");
+                }
+            }
+            if (metadata.isReadable(endpointMBean, "Default" + portAttribute)) {
+                return mbs.getAttribute(endpointMBean, "Default" + portAttribute);
+            }
+            LOGGER.fine("EndpointRoutingInfo has no " + portAttribute + " attribute");
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Error getting endpoint from EndpointRoutingInfo", e);
+        }
+        return null;
+    }
+
+    /**
+     * Discover the context root of the application from ApplicationMBean or WebModule MBeans
+     *
+     * @return the context root, or null if it could not be discovered
+     */
+    private String getApplicationContext(String application) {
+        try {
+            Set<ObjectName> appMBeans = mbs.queryNames(metadata.objectName(APPLICATION_MBEANS), null);
+
+            for (ObjectName appMBean : appMBeans) {
+                String appName = appMBean.getKeyProperty("name");
+                if (!isCandidate(appName, application)) {
+                    continue;
+                }
+                watchApplication(appMBean);
+                try {
+                    Object contextRoot = metadata.isReadable(appMBean, "ContextRoot") ? mbs.getAttribute(appMBean, "ContextRoot") : null;
+                    if (contextRoot != null) {
+                        return contextRoot.toString();
+                    }
+                } catch (Exception e) {
+                    LOGGER.fine("ContextRoot attribute not available on ApplicationMBean");
+                }
+                // Liberty default: app name becomes context root
+                return "/" + appName;
+            }
+
+            // Try WebModuleMBean which has context root information
+            Set<ObjectName> webModules = mbs.queryNames(metadata.objectName(WEB_MODULES), null);
+            for (ObjectName webModule : webModules) {
+                if (!isCandidate(webModule.getKeyProperty("name"), application)) {
+                    continue;
+                }
+                try {
+                    Object contextRoot = metadata.isReadable(webModule, "contextRoot") ? mbs.getAttribute(webModule, "contextRoot") : null;
+                    if (contextRoot != null) {
+                        return contextRoot.toString();
+                    }
+                } catch (Exception e) {
+                    LOGGER.log(Level.FINE, "Error checking WebModule MBean", e);
+                }
+            }
+
+            LOGGER.warning("Could not determine application context dynamically, using default");
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Error discovering application context", e);
+        }
+        return null;
+    }
+
+    private static boolean isCandidate(String name, String application) {
+        return name != null && (name.equals(application) || name.contains("member") || name.contains("cluster"));
+    }
+
+    /**
+     * Listen for state changes of an application whose MBean emits notifications
+     */
+    private void watchApplication(ObjectName appMBean) {
+        if (watchedApplications.contains(appMBean)) {
+            return;
+        }
+        try {
+            if (mbs.isInstanceOf(appMBean, NotificationBroadcaster.class.getName())
+                    && watchedApplications.add(appMBean)) {
+                mbs.addNotificationListener(appMBean, applicationListener, null, null);
+            }
+        } catch (Exception e) {
+            watchedApplications.remove(appMBean);
+            LOGGER.log(Level.FINE, "Cannot listen for state changes of " + appMBean, e);
+        }
+    }
+
+    private void onApplicationNotification(Notification notification) {
+        LOGGER.fine("Application notification " + notification.getType() + " from " + notification.getSource());
+        invalidate(null);
+    }
+
+    private void onRegistrationChange(MBeanServerNotification notification) {
+        ObjectName name = notification.getMBeanName();
+        if (MBeanServerNotification.UNREGISTRATION_NOTIFICATION.equals(notification.getType())) {
+            watchedApplications.remove(name);
+        }
+        LOGGER.fine("Endpoint MBean " + notification.getType() + ": " + name);
+        invalidate(name.getKeyProperty("server"));
+    }
+
+    private static boolean isEndpointMBean(ObjectName name) {
+        if (!"WebSphere".equals(name.getDomain())) {
+            return false;
+        }
+        String type = name.getKeyProperty("type");
+        return APPLICATION_MBEAN_SERVICE.equals(name.getKeyProperty("service"))
+            || "WebModule".equals(name.getKeyProperty("j2eeType"))
+            || "ApplicationRoutingInfoMBean".equals(type)
+            || "EndpointRoutingInfo".equals(type);
+    }
+
+    private static final class Entry {
+        final CompletableFuture<MemberEndpoint> endpoint = new CompletableFuture<>();
+        volatile long expiresAt;
+    }
+
+    private static final class Key {
+        final String hostName;
+        final String serverName;
+        final String application;
+        final int hash;
+
+        Key(String hostName, String serverName, String application) {
+            this.hostName = hostName;
+            this.serverName = serverName;
+            this.application = application;
+            this.hash = Objects.hash(hostName, serverName, application);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Objects.equals(hostName, other.hostName)
+                && Objects.equals(serverName, other.serverName)
+                && Objects.equals(application, other.application);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
+
+// Made with Bob
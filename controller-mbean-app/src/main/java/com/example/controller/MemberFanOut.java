@@ -0,0 +1,296 @@
+package com.example.controller;
+
+import com.example.mbean.ManagedExecutors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.json.Json;
+import javax.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded fan-out engine for controller-to-member calls.
+ *
+ * Member calls run on a bounded worker pool, so a cluster-wide query takes
+ * roughly as long as the slowest member instead of the sum of all members.
+ * Each call has its own deadline (measured from when it starts running) and the
+ * whole fan-out has an overall deadline. A call that misses either deadline is
+ * completed with a status-only placeholder, so callers always get one result per
+ * member, in member order, and can return partial data.
+ *
+ * A blocked socket read cannot be interrupted, so the call itself is given the
+ * time left until the earlier of its deadlines and uses it as its I/O timeout;
+ * the worker is free again shortly after the deadline instead of after the
+ * member's HTTP timeouts.
+ *
+ * In the server the workers are the managed executor bound at
+ * controller.fanout.executor, and the deadlines run on the default managed
+ * scheduled executor; concurrency and queueing are then limited by the
+ * executor's concurrencyPolicy in server.xml. Where the executor is not bound,
+ * as in benchmarks, a local pool sized by the properties below is used.
+ *
+ * Tuning (JVM system properties):
+ *   controller.fanout.executor           JNDI name of the managed executor, default concurrent/controllerFanOut
+ *   controller.fanout.maxConcurrency     worker threads of the local pool, default 16
+ *   controller.fanout.queueCapacity      queued calls of the local pool before rejecting, default 1024
+ *   controller.fanout.memberTimeoutMs    per-member deadline, default 10000
+ *   controller.fanout.requestTimeoutMs   overall deadline, default 15000
+ */
+@ApplicationScoped
+public class MemberFanOut {
+
+    private static final Logger LOGGER = Logger.getLogger(MemberFanOut.class.getName());
+
+    static final String DEFAULT_EXECUTOR = "concurrent/controllerFanOut";
+    static final String DEFAULT_TIMER = ManagedExecutors.DEFAULT_SCHEDULER;
+
+    public static final String STATUS_TIMEOUT = "timeout";
+    public static final String STATUS_DEADLINE_EXCEEDED = "deadline_exceeded";
+    public static final String STATUS_REJECTED = "rejected";
+    public static final String STATUS_ERROR = "error";
+
+    /**
+     * Work performed for a single member
+     */
+    public interface MemberCall<M> {
+        /**
+         * @param timeoutMillis time left until the call's deadline; bound every wait and socket read by it
+         */
+        JsonObject call(M member, int timeoutMillis) throws Exception;
+    }
+
+    /**
+     * Builds the result reported for a member whose call did not produce one
+     */
+    public interface Placeholder<M> {
+        JsonObject create(M member, String status, String message);
+    }
+
+    private final int maxConcurrency;
+    private final int queueCapacity;
+    private final long memberTimeoutMillis;
+    private final long requestTimeoutMillis;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    private final String executorName;
+
+    private ExecutorService workers;
+    private ScheduledExecutorService timer;
+    private boolean localWorkers;
+    private boolean localTimer;
+
+    public MemberFanOut() {
+        this(System.getProperty("controller.fanout.executor", DEFAULT_EXECUTOR),
+             Integer.getInteger("controller.fanout.maxConcurrency", 16),
+             Integer.getInteger("controller.fanout.queueCapacity", 1024),
+             Long.getLong("controller.fanout.memberTimeoutMs", 10000L),
+             Long.getLong("controller.fanout.requestTimeoutMs", 15000L));
+    }
+
+    /**
+     * @param executorName JNDI name of the managed executor, or null to always use a local pool
+     */
+    public MemberFanOut(String executorName, int maxConcurrency, int queueCapacity,
+                        long memberTimeoutMillis, long requestTimeoutMillis) {
+        this.executorName = executorName;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.memberTimeoutMillis = memberTimeoutMillis;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        workers = ManagedExecutors.lookup(executorName, ManagedExecutorService.class);
+        localWorkers = workers == null;
+        if (localWorkers) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), ManagedExecutors.namedDaemonThreads("controller-fanout"));
+            pool.allowCoreThreadTimeOut(true);
+            workers = pool;
+        }
+        timer = executorName != null ? ManagedExecutors.lookup(DEFAULT_TIMER, ManagedScheduledExecutorService.class) : null;
+        localTimer = timer == null;
+        if (localTimer) {
+            timer = Executors.newSingleThreadScheduledExecutor(ManagedExecutors.namedDaemonThreads("controller-fanout-timer"));
+        }
+        LOGGER.info("Member fan-out started: executor=" + (localWorkers ? "local, maxConcurrency=" + maxConcurrency : executorName)
+            + ", memberTimeoutMs=" + memberTimeoutMillis + ", requestTimeoutMs=" + requestTimeoutMillis);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Managed executors belong to the server and must not be shut down by the application
+        if (workers != null && localWorkers) {
+            workers.shutdownNow();
+        }
+        if (timer != null && localTimer) {
+            timer.shutdownNow();
+        }
+    }
+
+    /**
+     * Run the call for every member using the default request deadline
+     */
+    public <M> CompletableFuture<List<JsonObject>> invokeAll(List<M> members, MemberCall<M> call,
+                                                            Placeholder<M> placeholder) {
+        return invokeAll(members, call, placeholder, requestTimeoutMillis);
+    }
+
+    /**
+     * Run the call for every member concurrently.
+     *
+     * @param members members to call
+     * @param call work to perform per member
+     * @param placeholder builds the result for members that time out, fail or are rejected
+     * @param requestTimeoutMillis overall deadline for the fan-out
+     * @return future completing with one result per member, in the order of {@code members},
+     *         no later than the overall deadline
+     */
+    public <M> CompletableFuture<List<JsonObject>> invokeAll(List<M> members, MemberCall<M> call,
+                                                            Placeholder<M> placeholder,
+                                                            long requestTimeoutMillis) {
+        final long requestDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestTimeoutMillis);
+        final List<MemberSlot<M>> slots = new ArrayList<>(members.size());
+        for (M member : members) {
+            MemberSlot<M> slot = new MemberSlot<>(member, call, placeholder, requestDeadlineNanos);
+            slots.add(slot);
+            try {
+                slot.work = workers.submit(slot);
+            } catch (RejectedExecutionException e) {
+                rejectedCount.incrementAndGet();
+                slot.result.complete(placeholder.create(member, STATUS_REJECTED,
+                    "Fan-out queue is full (capacity " + queueCapacity + ")"));
+            }
+        }
+
+        final ScheduledFuture<?> deadline = timer.schedule(() -> {
+            for (MemberSlot<M> slot : slots) {
+                slot.expire(STATUS_DEADLINE_EXCEEDED,
+                    "Request deadline of " + requestTimeoutMillis + "ms exceeded");
+            }
+        }, requestTimeoutMillis, TimeUnit.MILLISECONDS);
+
+        CompletableFuture<?>[] pending = new CompletableFuture<?>[slots.size()];
+        for (int i = 0; i < pending.length; i++) {
+            pending[i] = slots.get(i).result;
+        }
+
+        return CompletableFuture.allOf(pending).thenApply(ignored -> {
+            deadline.cancel(false);
+            List<JsonObject> results = new ArrayList<>(slots.size());
+            for (MemberSlot<M> slot : slots) {
+                results.add(slot.result.join());
+            }
+            return results;
+        });
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public long getMemberTimeoutMillis() {
+        return memberTimeoutMillis;
+    }
+
+    public long getRequestTimeoutMillis() {
+        return requestTimeoutMillis;
+    }
+
+    /**
+     * Worker pool occupancy and deadline statistics
+     */
+    public JsonObject getStatistics() {
+        return Json.createObjectBuilder(ThreadPools.describe(workers, rejectedCount.get()))
+            .add("executor", localWorkers ? "local" : executorName)
+            .add("memberTimeoutMillis", memberTimeoutMillis)
+            .add("requestTimeoutMillis", requestTimeoutMillis)
+            .add("expiredCallCount", expiredCount.get())
+            .build();
+    }
+
+    /**
+     * One member's share of a fan-out: the queued work and the result it settles
+     */
+    private final class MemberSlot<M> implements Runnable {
+        private final M member;
+        private final MemberCall<M> call;
+        private final Placeholder<M> placeholder;
+        private final long requestDeadlineNanos;
+        private final CompletableFuture<JsonObject> result = new CompletableFuture<>();
+        private volatile Future<?> work;
+
+        MemberSlot(M member, MemberCall<M> call, Placeholder<M> placeholder, long requestDeadlineNanos) {
+            this.member = member;
+            this.call = call;
+            this.placeholder = placeholder;
+            this.requestDeadlineNanos = requestDeadlineNanos;
+        }
+
+        @Override
+        public void run() {
+            if (result.isDone()) {
+                // Request deadline passed while this call was still queued
+                return;
+            }
+
+            long remainingNanos = Math.min(TimeUnit.MILLISECONDS.toNanos(memberTimeoutMillis),
+                requestDeadlineNanos - System.nanoTime());
+            int timeoutMillis = (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMillis(remainingNanos));
+            if (timeoutMillis <= 0) {
+                if (result.complete(placeholder.create(member, STATUS_DEADLINE_EXCEEDED,
+                        "Request deadline exceeded before the member call started"))) {
+                    expiredCount.incrementAndGet();
+                }
+                return;
+            }
+
+            // Backstop for work the timeout cannot bound, such as a member trickling a response
+            ScheduledFuture<?> memberDeadline = timer.schedule(
+                () -> expire(STATUS_TIMEOUT, "Member did not respond within " + memberTimeoutMillis + "ms"),
+                memberTimeoutMillis, TimeUnit.MILLISECONDS);
+            try {
+                result.complete(call.call(member, timeoutMillis));
+            } catch (Exception e) {
+                if (!result.isDone()) {
+                    LOGGER.log(Level.WARNING, "Member call failed", e);
+                }
+                result.complete(placeholder.create(member, STATUS_ERROR, String.valueOf(e.getMessage())));
+            } finally {
+                memberDeadline.cancel(false);
+            }
+        }
+
+        void expire(String status, String message) {
+            if (result.complete(placeholder.create(member, status, message))) {
+                expiredCount.incrementAndGet();
+                Future<?> running = work;
+                if (running != null) {
+                    running.cancel(true);
+                }
+            }
+        }
+    }
+}
+
+// Made with Bob
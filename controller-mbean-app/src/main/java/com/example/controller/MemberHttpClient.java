@@ -0,0 +1,600 @@
+package com.example.controller;
+
+import com.example.mbean.ManagedExecutors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keep-alive HTTP/1.1 client for controller-to-member calls.
+ *
+ * Connections are pooled per member (scheme, host and port) and reused across
+ * polls, so a member is handshaken once rather than once per request. The
+ * SSLContext is built once at startup; its session cache lets reconnects resume
+ * the previous TLS session instead of performing a full handshake. Idle
+ * connections are evicted in the background, on the server's default managed
+ * scheduled executor or, outside the server, a local single-thread scheduler.
+ *
+ * The SSLContext trusts the truststore named by {@code controller.http.trustStore},
+ * or without one the JVM's default truststore, and member host names are
+ * verified. Members with self-signed certificates need their certificates in
+ * that truststore; {@code controller.http.insecureTrustAllCertificates} turns
+ * certificate and host name validation off for development setups only.
+ *
+ * Tuning (JVM system properties):
+ *   controller.http.maxConnectionsPerHost   pooled connections per member, default 8
+ *   controller.http.idleTimeoutMs           idle time before eviction, default 30000
+ *   controller.http.connectTimeoutMs        connect timeout, default 5000
+ *   controller.http.readTimeoutMs           read timeout, default 5000
+ *   controller.http.trustStore              truststore path, default the JVM's default truststore
+ *   controller.http.trustStorePassword      truststore password
+ *   controller.http.trustStoreType          truststore type, default PKCS12
+ *   controller.http.verifyHostname          verify member host names, default true
+ *   controller.http.insecureTrustAllCertificates
+ *                                           accept any member certificate and host name, default false;
+ *                                           development only
+ */
+@ApplicationScoped
+public class MemberHttpClient {
+
+    private static final Logger LOGGER = Logger.getLogger(MemberHttpClient.class.getName());
+
+    private final int maxConnectionsPerHost;
+    private final long idleTimeoutMillis;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+
+    private final ConcurrentHashMap<String, HostPool> pools = new ConcurrentHashMap<>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong connectionsReused = new AtomicLong();
+    private final AtomicLong connectionsEvicted = new AtomicLong();
+    private final AtomicLong staleRetries = new AtomicLong();
+    private final AtomicLong fullHandshakes = new AtomicLong();
+    private final AtomicLong resumedHandshakes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private SSLSocketFactory sslSocketFactory;
+    private boolean verifyHostname;
+    private ScheduledExecutorService evictor;
+    private boolean localEvictor;
+    private ScheduledFuture<?> eviction;
+
+    public MemberHttpClient() {
+        this(Integer.getInteger("controller.http.maxConnectionsPerHost", 8),
+             Long.getLong("controller.http.idleTimeoutMs", 30000L),
+             Integer.getInteger("controller.http.connectTimeoutMs", 5000),
+             Integer.getInteger("controller.http.readTimeoutMs", 5000));
+    }
+
+    public MemberHttpClient(int maxConnectionsPerHost, long idleTimeoutMillis,
+                            int connectTimeoutMillis, int readTimeoutMillis) {
+        this.maxConnectionsPerHost = Math.max(1, maxConnectionsPerHost);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        try {
+            sslSocketFactory = createSslContext().getSocketFactory();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Failed to initialize SSLContext for member calls", e);
+        }
+        evictor = ManagedExecutors.lookup(MemberFanOut.DEFAULT_TIMER, ManagedScheduledExecutorService.class);
+        localEvictor = evictor == null;
+        if (localEvictor) {
+            evictor = Executors.newSingleThreadScheduledExecutor(ManagedExecutors.namedDaemonThreads("controller-http-evictor"));
+        }
+        long period = Math.max(1000L, idleTimeoutMillis / 2);
+        eviction = evictor.scheduleWithFixedDelay(this::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // The managed scheduler belongs to the server: cancel the eviction task instead of shutting it down
+        if (eviction != null) {
+            eviction.cancel(true);
+        }
+        if (evictor != null && localEvictor) {
+            evictor.shutdownNow();
+        }
+        for (HostPool pool : pools.values()) {
+            Connection connection;
+            while ((connection = pool.idle.pollFirst()) != null) {
+                connection.close();
+            }
+        }
+        pools.clear();
+    }
+
+    /**
+     * Perform a GET request
+     */
+    public MemberHttpResponse get(String url) throws IOException {
+        return get(url, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Perform a GET request with additional request headers
+     *
+     * @param url absolute http or https URL
+     * @param headers extra request headers
+     * @return the response; non-2xx statuses are returned, not thrown
+     * @throws IOException if the member could not be reached or the response was malformed
+     */
+    public MemberHttpResponse get(String url, Map<String, String> headers) throws IOException {
+        return get(url, headers, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Perform a GET request with a per-call timeout
+     *
+     * @param url absolute http or https URL
+     * @param headers extra request headers
+     * @param timeoutMillis bound for waiting for a connection, connecting and each read;
+     *                      never longer than the configured connect and read timeouts
+     * @return the response; non-2xx statuses are returned, not thrown
+     * @throws IOException if the member could not be reached in time or the response was malformed
+     */
+    public MemberHttpResponse get(String url, Map<String, String> headers, int timeoutMillis) throws IOException {
+        int connectTimeout = Math.max(1, Math.min(connectTimeoutMillis, timeoutMillis));
+        int readTimeout = Math.max(1, Math.min(readTimeoutMillis, timeoutMillis));
+        requestCount.incrementAndGet();
+        URL target = new URL(url);
+        boolean secure = "https".equalsIgnoreCase(target.getProtocol());
+        int port = target.getPort() != -1 ? target.getPort() : target.getDefaultPort();
+        String path = target.getFile().isEmpty() ? "/" : target.getFile();
+        String key = target.getProtocol().toLowerCase(Locale.ROOT) + "://" + target.getHost() + ":" + port;
+
+        HostPool pool = pools.computeIfAbsent(key, k -> new HostPool(maxConnectionsPerHost));
+        try {
+            if (!pool.permits.tryAcquire(connectTimeout, TimeUnit.MILLISECONDS)) {
+                failures.incrementAndGet();
+                throw new IOException("No free connection to " + key + " within " + connectTimeout + "ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a connection to " + key, e);
+        }
+
+        try {
+            Connection connection = pool.takeIdle(idleTimeoutMillis);
+            if (connection != null) {
+                connectionsReused.incrementAndGet();
+                try {
+                    return exchange(pool, connection, true, target.getHost(), port, path, headers, readTimeout);
+                } catch (StaleConnectionException e) {
+                    // The member closed the pooled connection before answering; GET is safe to retry once.
+                    // Timeouts and failures after the first response byte are not retried.
+                    staleRetries.incrementAndGet();
+                    LOGGER.log(Level.FINE, "Retrying on a new connection to " + key, e);
+                }
+            }
+            connection = open(target.getHost(), port, secure, connectTimeout, readTimeout);
+            return exchange(pool, connection, false, target.getHost(), port, path, headers, readTimeout);
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            throw e;
+        } finally {
+            pool.permits.release();
+        }
+    }
+
+    /**
+     * Connection pool and TLS statistics
+     */
+    public JsonObject getStatistics() {
+        int idle = 0;
+        JsonObjectBuilder hosts = Json.createObjectBuilder();
+        for (Map.Entry<String, HostPool> entry : pools.entrySet()) {
+            HostPool pool = entry.getValue();
+            int hostIdle = pool.idle.size();
+            idle += hostIdle;
+            hosts.add(entry.getKey(), Json.createObjectBuilder()
+                .add("idle", hostIdle)
+                .add("leased", maxConnectionsPerHost - pool.permits.availablePermits()));
+        }
+
+        return Json.createObjectBuilder()
+            .add("maxConnectionsPerHost", maxConnectionsPerHost)
+            .add("idleTimeoutMillis", idleTimeoutMillis)
+            .add("requests", requestCount.get())
+            .add("failures", failures.get())
+            .add("connectionsOpened", connectionsOpened.get())
+            .add("connectionsReused", connectionsReused.get())
+            .add("connectionsEvicted", connectionsEvicted.get())
+            .add("staleRetries", staleRetries.get())
+            .add("tlsFullHandshakes", fullHandshakes.get())
+            .add("tlsResumedHandshakes", resumedHandshakes.get())
+            .add("idleConnections", idle)
+            .add("hosts", hosts)
+            .build();
+    }
+
+    /**
+     * Send the request and read the final response
+     *
+     * @param reused whether the connection served an earlier request; if so, an EOF or reset
+     *               before the first response byte is reported as a {@link StaleConnectionException}
+     */
+    private MemberHttpResponse exchange(HostPool pool, Connection connection, boolean reused, String host, int port,
+                                        String path, Map<String, String> headers,
+                                        int readTimeout) throws IOException {
+        boolean reusable = false;
+        try {
+            connection.socket.setSoTimeout(readTimeout);
+            StringBuilder request = new StringBuilder(256)
+                .append("GET ").append(path).append(" HTTP/1.1\r\n")
+                .append("Host: ").append(host).append(':').append(port).append("\r\n")
+                .append("Accept: application/json\r\n")
+                .append("Connection: keep-alive\r\n");
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                request.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+            }
+            request.append("\r\n");
+            int firstByte;
+            try {
+                connection.out.write(request.toString().getBytes(StandardCharsets.ISO_8859_1));
+                connection.out.flush();
+                firstByte = connection.in.read();
+            } catch (SocketException e) {
+                // Reset or broken pipe; a read timeout is a SocketTimeoutException and is not caught here
+                throw reused ? new StaleConnectionException("Pooled connection reset before response", e) : e;
+            }
+            if (firstByte == -1) {
+                throw reused ? new StaleConnectionException("Pooled connection closed before response", null)
+                    : new EOFException("Connection closed before response");
+            }
+
+            String[] statusParts = readStatusLine(connection.in, firstByte);
+            int status = parseNumber(statusParts[1], 10, "status code");
+            Map<String, String> responseHeaders = readHeaders(connection.in);
+            // Interim responses such as 100 Continue precede the final one; 101 would switch protocols
+            while (status >= 100 && status < 200 && status != 101) {
+                statusParts = readStatusLine(connection.in, -1);
+                status = parseNumber(statusParts[1], 10, "status code");
+                responseHeaders = readHeaders(connection.in);
+            }
+            if (status < 200 || status > 599) {
+                throw new IOException("Unexpected status code " + status);
+            }
+
+            boolean keepAlive = !"close".equalsIgnoreCase(responseHeaders.get("connection"))
+                && !statusParts[0].equals("HTTP/1.0");
+
+            byte[] body;
+            if (status == 204 || status == 304) {
+                body = new byte[0];
+            } else if ("chunked".equalsIgnoreCase(responseHeaders.get("transfer-encoding"))) {
+                body = readChunked(connection.in);
+            } else if (responseHeaders.containsKey("content-length")) {
+                int length = parseNumber(responseHeaders.get("content-length"), 10, "Content-Length");
+                if (length < 0) {
+                    throw new IOException("Negative Content-Length: " + length);
+                }
+                body = readFixed(connection.in, length);
+            } else {
+                body = readToEnd(connection.in);
+                keepAlive = false;
+            }
+
+            reusable = keepAlive;
+            return new MemberHttpResponse(status, responseHeaders, new String(body, StandardCharsets.UTF_8));
+        } finally {
+            if (reusable) {
+                connection.lastUsed = System.currentTimeMillis();
+                pool.idle.offerFirst(connection);
+            } else {
+                connection.close();
+            }
+        }
+    }
+
+    private Connection open(String host, int port, boolean secure, int connectTimeout, int readTimeout) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.connect(new InetSocketAddress(host, port), connectTimeout);
+            socket.setSoTimeout(readTimeout);
+
+            if (secure) {
+                if (sslSocketFactory == null) {
+                    throw new IOException("SSL is not available for member calls");
+                }
+                SSLSocket sslSocket = (SSLSocket) sslSocketFactory.createSocket(socket, host, port, true);
+                if (verifyHostname) {
+                    SSLParameters parameters = sslSocket.getSSLParameters();
+                    parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                    sslSocket.setSSLParameters(parameters);
+                }
+                long handshakeStart = System.currentTimeMillis();
+                sslSocket.startHandshake();
+                if (sslSocket.getSession().getCreationTime() < handshakeStart) {
+                    resumedHandshakes.incrementAndGet();
+                } else {
+                    fullHandshakes.incrementAndGet();
+                }
+                socket = sslSocket;
+            }
+
+            connectionsOpened.incrementAndGet();
+            return new Connection(socket);
+        } catch (IOException e) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already failing
+            }
+            throw e;
+        }
+    }
+
+    private void evictIdleConnections() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        for (HostPool pool : pools.values()) {
+            for (Iterator<Connection> it = pool.idle.iterator(); it.hasNext();) {
+                Connection connection = it.next();
+                if (connection.lastUsed < cutoff && pool.idle.remove(connection)) {
+                    connection.close();
+                    connectionsEvicted.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private SSLContext createSslContext() throws Exception {
+        TrustManager[] trustManagers;
+        if (Boolean.getBoolean("controller.http.insecureTrustAllCertificates")) {
+            trustManagers = new TrustManager[]{
+                new X509TrustManager() {
+                    public X509Certificate[] getAcceptedIssuers() {
+                        return new X509Certificate[0];
+                    }
+                    public void checkClientTrusted(X509Certificate[] certs, String authType) {
+                    }
+                    public void checkServerTrusted(X509Certificate[] certs, String authType) {
+                    }
+                }
+            };
+            verifyHostname = false;
+            LOGGER.warning("controller.http.insecureTrustAllCertificates is set: member certificates and host names"
+                + " are NOT validated. Do not use this outside development.");
+        } else {
+            String trustStorePath = System.getProperty("controller.http.trustStore");
+            // A null keystore makes the factory use the JVM's default truststore
+            KeyStore trustStore = null;
+            if (trustStorePath != null && !trustStorePath.trim().isEmpty()) {
+                String password = System.getProperty("controller.http.trustStorePassword", "");
+                trustStore = KeyStore.getInstance(System.getProperty("controller.http.trustStoreType", "PKCS12"));
+                try (InputStream in = new FileInputStream(trustStorePath)) {
+                    trustStore.load(in, password.toCharArray());
+                }
+            }
+            TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            factory.init(trustStore);
+            trustManagers = factory.getTrustManagers();
+            verifyHostname = Boolean.parseBoolean(System.getProperty("controller.http.verifyHostname", "true"));
+            LOGGER.info("Member calls trust certificates from: "
+                + (trustStore != null ? trustStorePath : "the JVM's default truststore"));
+        }
+
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, trustManagers, new java.security.SecureRandom());
+        return context;
+    }
+
+    private static Map<String, String> readHeaders(InputStream in) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * Read and split a status line
+     *
+     * @param firstByte first byte of the line if already read, else -1
+     */
+    private static String[] readStatusLine(InputStream in, int firstByte) throws IOException {
+        String statusLine = readLine(in, firstByte);
+        if (statusLine == null) {
+            throw new EOFException("Connection closed before response");
+        }
+        String[] statusParts = statusLine.split(" ", 3);
+        if (statusParts.length < 2 || !statusParts[0].startsWith("HTTP/1.")) {
+            throw new IOException("Malformed status line: " + statusLine);
+        }
+        return statusParts;
+    }
+
+    /**
+     * Parse a number from the response, reporting a malformed one as an IOException
+     */
+    private static int parseNumber(String value, int radix, String what) throws IOException {
+        try {
+            return Integer.parseInt(value.trim(), radix);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed " + what + ": " + value, e);
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        return readLine(in, -1);
+    }
+
+    private static String readLine(InputStream in, int firstByte) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        int b = firstByte;
+        if (b == -1) {
+            b = in.read();
+        }
+        for (; b != -1; b = in.read()) {
+            if (b == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            line.append((char) b);
+        }
+        return line.length() > 0 ? line.toString() : null;
+    }
+
+    private static byte[] readFixed(InputStream in, int length) throws IOException {
+        byte[] body = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(body, offset, length - offset);
+            if (read == -1) {
+                throw new EOFException("Response body truncated after " + offset + " of " + length + " bytes");
+            }
+            offset += read;
+        }
+        return body;
+    }
+
+    private static byte[] readChunked(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        while (true) {
+            String sizeLine = readLine(in);
+            if (sizeLine == null) {
+                throw new EOFException("Chunked response truncated");
+            }
+            int extension = sizeLine.indexOf(';');
+            int size = parseNumber(extension >= 0 ? sizeLine.substring(0, extension) : sizeLine, 16, "chunk size");
+            if (size < 0) {
+                throw new IOException("Negative chunk size: " + sizeLine);
+            }
+            if (size == 0) {
+                // Skip trailers
+                readHeaders(in);
+                return body.toByteArray();
+            }
+            body.write(readFixed(in, size));
+            readLine(in);
+        }
+    }
+
+    private static byte[] readToEnd(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * A pooled connection the member closed before sending any part of the response
+     */
+    private static final class StaleConnectionException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        StaleConnectionException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Connections to one member
+     */
+    private static final class HostPool {
+        private final Semaphore permits;
+        private final ConcurrentLinkedDeque<Connection> idle = new ConcurrentLinkedDeque<>();
+
+        HostPool(int maxConnections) {
+            this.permits = new Semaphore(maxConnections);
+        }
+
+        /**
+         * Most recently used idle connection that is still usable, or null
+         */
+        Connection takeIdle(long idleTimeoutMillis) {
+            long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+            Connection connection;
+            while ((connection = idle.pollFirst()) != null) {
+                if (connection.lastUsed >= cutoff && !connection.socket.isClosed()) {
+                    return connection;
+                }
+                connection.close();
+            }
+            return null;
+        }
+    }
+
+    private static final class Connection {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream(), 8192);
+            this.out = new BufferedOutputStream(socket.getOutputStream(), 1024);
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINEST, "Error closing member connection", e);
+            }
+        }
+    }
+}
+
+// Made with Bob
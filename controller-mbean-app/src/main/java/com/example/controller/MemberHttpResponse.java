@@ -0,0 +1,49 @@
+package com.example.controller;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Response returned by {@link MemberHttpClient}
+ */
+public class MemberHttpResponse {
+
+    private final int status;
+    private final Map<String, String> headers;
+    private final String body;
+
+    public MemberHttpResponse(int status, Map<String, String> headers, String body) {
+        this.status = status;
+        this.headers = Collections.unmodifiableMap(headers);
+        this.body = body;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Get a response header value
+     *
+     * @param name header name, case-insensitive
+     * @return header value or null if not present
+     */
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    @Override
+    public String toString() {
+        return "MemberHttpResponse{" +
+                "status=" + status +
+                ", bodyLength=" + (body != null ? body.length() : 0) +
+                '}';
+    }
+}
+
+// Made with Bob
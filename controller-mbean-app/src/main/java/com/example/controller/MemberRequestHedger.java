@@ -0,0 +1,337 @@
+package com.example.controller;
+
+import com.example.mbean.ManagedExecutors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonObject;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Member GET requests with optional hedging against slow members
+ *
+ * Every attempt uses the member's adaptive timeout, or the time left until the
+ * caller's deadline if that is shorter. The first attempt runs on the calling
+ * thread. With hedging enabled, a request that has not been answered within
+ * the member's recent p95 latency is sent a second time, on another pooled
+ * connection and a hedge executor thread, and the first answer wins; the
+ * caller takes it once its own attempt has ended, so a first attempt that
+ * stalls into its timeout is answered by the hedge. The member's circuit
+ * breaker is told one outcome per request: the answer that won, or the
+ * failure once every attempt has failed. Attempts that lost the race are not
+ * reported. Hedging is bounded:
+ * <ul>
+ *   <li>hedges spend credits earned by ordinary requests, so they stay below
+ *       {@code controller.hedge.maxPercent} of all requests apart from a small burst</li>
+ *   <li>a member has at most one hedge in flight and is only hedged while its breaker is closed</li>
+ *   <li>identical requests to the same member that overlap share one in-flight call; a caller
+ *       joining one waits no longer than its own timeout</li>
+ * </ul>
+ *
+ * In the server hedges run on the managed scheduled executor bound at
+ * controller.hedge.executor, limited by its concurrencyPolicy in server.xml.
+ * Where it is not bound, as in benchmarks, a local pool is used.
+ *
+ * Tuning (JVM system properties):
+ *   controller.hedge.enabled       hedge slow member requests, default false
+ *   controller.hedge.executor      JNDI name of the managed scheduled executor, default concurrent/controllerHedge
+ *   controller.hedge.maxPercent    hedges as a percentage of requests, default 5
+ *   controller.hedge.burst         hedges allowed in a burst above the rate, default 10
+ *   controller.hedge.minDelayMs    lower bound of the hedge delay, default 5
+ *   controller.hedge.threads       threads of the local hedge pool, default 16
+ */
+@ApplicationScoped
+public class MemberRequestHedger {
+
+    static final String DEFAULT_EXECUTOR = "concurrent/controllerHedge";
+
+    private final String executorName;
+    private final boolean enabled;
+    private final int maxPercent;
+    private final int burst;
+    private final long minDelayMicros;
+    private final int threads;
+
+    @Inject
+    private MemberHttpClient httpClient;
+
+    private final ConcurrentHashMap<String, CompletableFuture<MemberHttpResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Set<MemberCircuitBreaker> hedgingMembers = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final AtomicLong hedgeCredits;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedgesSent = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder skippedForBudget = new LongAdder();
+    private final LongAdder skippedInFlight = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private ScheduledExecutorService workers;
+    private boolean localWorkers;
+
+    public MemberRequestHedger() {
+        this(System.getProperty("controller.hedge.executor", DEFAULT_EXECUTOR),
+             Boolean.getBoolean("controller.hedge.enabled"),
+             Integer.getInteger("controller.hedge.maxPercent", 5),
+             Integer.getInteger("controller.hedge.burst", 10),
+             Long.getLong("controller.hedge.minDelayMs", 5L),
+             Integer.getInteger("controller.hedge.threads", 16));
+    }
+
+    /**
+     * @param executorName JNDI name of the managed scheduled executor, or null to always use a local pool
+     */
+    public MemberRequestHedger(String executorName, boolean enabled, int maxPercent, int burst, long minDelayMillis,
+                               int threads) {
+        this.executorName = executorName;
+        this.enabled = enabled;
+        this.maxPercent = Math.max(0, Math.min(100, maxPercent));
+        this.burst = Math.max(1, burst);
+        this.minDelayMicros = Math.max(0, minDelayMillis) * 1000;
+        this.threads = Math.max(1, threads);
+        this.hedgeCredits = new AtomicLong(this.burst * 100L);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        workers = ManagedExecutors.lookup(executorName, ManagedScheduledExecutorService.class);
+        localWorkers = workers == null;
+        if (localWorkers) {
+            ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(threads,
+                ManagedExecutors.namedDaemonThreads("controller-hedge"));
+            pool.setKeepAliveTime(60L, TimeUnit.SECONDS);
+            pool.allowCoreThreadTimeOut(true);
+            pool.setRemoveOnCancelPolicy(true);
+            workers = pool;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Managed executors belong to the server and must not be shut down by the application
+        if (workers != null && localWorkers) {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * GET a member URL, hedging the request if the member is slower than usual
+     *
+     * @param breaker circuit breaker of the member, already acquired by the caller
+     * @param url absolute member URL
+     * @param headers extra request headers
+     * @param timeoutMillis time left until the caller's deadline, bounding each attempt's waits and reads
+     * @return the first response received
+     * @throws IOException if every attempt failed, or no answer arrived within the timeout
+     */
+    public MemberHttpResponse get(MemberCircuitBreaker breaker, String url, Map<String, String> headers,
+                                  int timeoutMillis) throws IOException {
+        requests.increment();
+        int timeout = Math.min(breaker.getTimeoutMillis(), timeoutMillis);
+        long p95Micros = breaker.getLatencyPercentileMicros(0.95);
+        if (workers == null || p95Micros < 0 || breaker.getState() != MemberCircuitBreaker.State.CLOSED) {
+            return attempt(breaker, url, headers, timeout);
+        }
+        earnCredit();
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        String key = url + " " + headers;
+        CompletableFuture<MemberHttpResponse> result = new CompletableFuture<>();
+        CompletableFuture<MemberHttpResponse> existing = inFlight.putIfAbsent(key, result);
+        if (existing != null) {
+            deduplicated.increment();
+            return await(existing, deadlineNanos);
+        }
+
+        try {
+            AtomicInteger pending = new AtomicInteger(1);
+            ScheduledFuture<?> hedge = null;
+            try {
+                hedge = workers.schedule(() -> hedge(breaker, url, headers, deadlineNanos, result, pending),
+                    Math.max(minDelayMicros, p95Micros), TimeUnit.MICROSECONDS);
+            } catch (RejectedExecutionException e) {
+                rejectedCount.incrementAndGet();
+            }
+
+            long started = System.nanoTime();
+            try {
+                MemberHttpResponse response = httpClient.get(url, headers, timeout);
+                // Only the attempt that completes the request reports to the breaker
+                if (result.complete(response)) {
+                    record(breaker, response, System.nanoTime() - started);
+                }
+            } catch (IOException | RuntimeException e) {
+                // The hedge may still succeed; fail only when no attempt is left
+                if (pending.decrementAndGet() == 0 && result.completeExceptionally(e)) {
+                    breaker.recordFailure();
+                }
+            } finally {
+                if (hedge != null) {
+                    hedge.cancel(false);
+                }
+            }
+            return await(result, deadlineNanos);
+        } finally {
+            inFlight.remove(key, result);
+        }
+    }
+
+    /**
+     * Hedge counters and pool occupancy for the stats endpoint
+     */
+    public JsonObject getStatistics() {
+        long requestCount = requests.sum();
+        long hedgeCount = hedgesSent.sum();
+        return Json.createObjectBuilder()
+            .add("enabled", enabled)
+            .add("maxPercent", maxPercent)
+            .add("requests", requestCount)
+            .add("hedgesSent", hedgeCount)
+            .add("hedgeWins", hedgeWins.sum())
+            .add("hedgeRatePercent", requestCount > 0 ? hedgeCount * 100.0 / requestCount : 0.0)
+            .add("skippedForBudget", skippedForBudget.sum())
+            .add("skippedInFlight", skippedInFlight.sum())
+            .add("deduplicated", deduplicated.sum())
+            .add("executor", workers == null ? "none" : localWorkers ? "local" : executorName)
+            .add("workers", ThreadPools.describe(workers, rejectedCount.get()))
+            .build();
+    }
+
+    /**
+     * Send the second request unless the first was answered, the budget is spent or the member
+     * already has a hedge in flight; runs on a hedge executor thread
+     */
+    private void hedge(MemberCircuitBreaker breaker, String url, Map<String, String> headers, long deadlineNanos,
+                       CompletableFuture<MemberHttpResponse> result, AtomicInteger pending) {
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        if (result.isDone() || remainingMillis <= 0) {
+            return;
+        }
+        if (!hedgingMembers.add(breaker)) {
+            skippedInFlight.increment();
+            return;
+        }
+        try {
+            if (!spendCredit()) {
+                skippedForBudget.increment();
+                return;
+            }
+            // Only hedge while the first attempt is still outstanding
+            if (pending.getAndUpdate(n -> n > 0 ? n + 1 : n) == 0) {
+                return;
+            }
+            hedgesSent.increment();
+            long started = System.nanoTime();
+            try {
+                MemberHttpResponse response = httpClient.get(url, headers, (int) Math.min(Integer.MAX_VALUE, remainingMillis));
+                if (result.complete(response)) {
+                    record(breaker, response, System.nanoTime() - started);
+                    hedgeWins.increment();
+                }
+            } catch (IOException | RuntimeException e) {
+                if (pending.decrementAndGet() == 0 && result.completeExceptionally(e)) {
+                    breaker.recordFailure();
+                }
+            }
+        } finally {
+            hedgingMembers.remove(breaker);
+        }
+    }
+
+    /**
+     * One request without a hedge, with its outcome reported to the member's breaker
+     */
+    private MemberHttpResponse attempt(MemberCircuitBreaker breaker, String url,
+                                      Map<String, String> headers, int timeoutMillis) throws IOException {
+        long started = System.nanoTime();
+        MemberHttpResponse response;
+        try {
+            response = httpClient.get(url, headers, timeoutMillis);
+        } catch (IOException | RuntimeException e) {
+            breaker.recordFailure();
+            throw e;
+        }
+        record(breaker, response, System.nanoTime() - started);
+        return response;
+    }
+
+    /**
+     * Report a response to the member's breaker
+     * 200 and 304 count as success; other statuses count as failures.
+     */
+    private static void record(MemberCircuitBreaker breaker, MemberHttpResponse response, long latencyNanos) {
+        if (response.getStatus() == HttpURLConnection.HTTP_OK || response.getStatus() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            breaker.recordSuccess(latencyNanos);
+        } else {
+            breaker.recordFailure();
+        }
+    }
+
+    private void earnCredit() {
+        long cap = burst * 100L;
+        hedgeCredits.getAndUpdate(credits -> Math.min(cap, credits + maxPercent));
+    }
+
+    private boolean spendCredit() {
+        while (true) {
+            long credits = hedgeCredits.get();
+            if (credits < 100) {
+                return false;
+            }
+            if (hedgeCredits.compareAndSet(credits, credits - 100)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Wait for an answer until the caller's deadline
+     */
+    private static MemberHttpResponse await(CompletableFuture<MemberHttpResponse> result, long deadlineNanos)
+            throws IOException {
+        try {
+            return result.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new InterruptedIOException("No member response before the deadline");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for member response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,171 @@
+package com.example.controller;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+
+/**
+ * Sum of the latency histograms reported by several members
+ *
+ * Members report their non-empty buckets as [bucket, count] pairs together
+ * with the layout of their histogram (latencyLayout: subBucketBits and
+ * maxMagnitude of the member app's LatencyHistogram). The first layout seen
+ * is used for the sum; a member reporting another layout, or none, is
+ * skipped and counted instead of being added into the wrong buckets. Adding
+ * histograms bucket by bucket gives exact cluster-wide percentiles at the
+ * histogram's precision, which averaging member percentiles cannot.
+ */
+public final class MergedLatencyHistogram {
+
+    /** Largest layout accepted, so a malformed snapshot cannot size the histogram */
+    private static final int MAX_BUCKETS = 1 << 16;
+
+    private int subBucketBits = -1;
+    private int maxMagnitude;
+    private long[] counts;
+    private long total;
+    private int skippedMembers;
+
+    /**
+     * Add a member's sparse bucket list
+     *
+     * @param layout the member's latencyLayout, or null if it reported none
+     * @param buckets array of [bucket, count] pairs; entries outside the layout are ignored
+     */
+    public void add(JsonObject layout, JsonArray buckets) {
+        if (buckets == null) {
+            return;
+        }
+        if (!accept(layout)) {
+            skippedMembers++;
+            return;
+        }
+        for (JsonValue value : buckets) {
+            if (value.getValueType() != JsonValue.ValueType.ARRAY) {
+                continue;
+            }
+            JsonArray pair = (JsonArray) value;
+            if (pair.size() != 2) {
+                continue;
+            }
+            int bucket = pair.getJsonNumber(0).intValue();
+            long count = pair.getJsonNumber(1).longValue();
+            if (bucket >= 0 && bucket < counts.length && count > 0) {
+                counts[bucket] += count;
+                total += count;
+            }
+        }
+    }
+
+    /**
+     * Take the first valid layout, then accept only members reporting the same one
+     */
+    private boolean accept(JsonObject layout) {
+        if (layout == null) {
+            return false;
+        }
+        JsonNumber bits = layout.getJsonNumber("subBucketBits");
+        JsonNumber magnitude = layout.getJsonNumber("maxMagnitude");
+        if (bits == null || magnitude == null) {
+            return false;
+        }
+        if (counts != null) {
+            return bits.intValue() == subBucketBits && magnitude.intValue() == maxMagnitude;
+        }
+        int buckets = bucketCount(bits.intValue(), magnitude.intValue());
+        if (buckets <= 0) {
+            return false;
+        }
+        subBucketBits = bits.intValue();
+        maxMagnitude = magnitude.intValue();
+        counts = new long[buckets];
+        return true;
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * Latency at a percentile
+     *
+     * @param percentile between 0 and 1, for example 0.99
+     * @return upper bound of the bucket holding the percentile in microseconds, or 0 without samples
+     */
+    public long getPercentileMicros(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return bucketUpperBound(subBucketBits, bucket);
+            }
+        }
+        return bucketUpperBound(subBucketBits, counts.length - 1);
+    }
+
+    /**
+     * Percentiles and the merged sparse buckets with their layout, which can be merged again by the caller
+     */
+    public JsonObject toJson() {
+        JsonArrayBuilder buckets = Json.createArrayBuilder();
+        if (counts != null) {
+            for (int bucket = 0; bucket < counts.length; bucket++) {
+                if (counts[bucket] > 0) {
+                    buckets.add(Json.createArrayBuilder().add(bucket).add(counts[bucket]));
+                }
+            }
+        }
+        JsonObjectBuilder json = Json.createObjectBuilder()
+            .add("sampleCount", total)
+            .add("p50Micros", getPercentileMicros(0.50))
+            .add("p99Micros", getPercentileMicros(0.99))
+            .add("p999Micros", getPercentileMicros(0.999))
+            .add("buckets", buckets);
+        if (counts != null) {
+            json.add("layout", Json.createObjectBuilder()
+                .add("subBucketBits", subBucketBits)
+                .add("maxMagnitude", maxMagnitude));
+        }
+        return json.add("skippedMembers", skippedMembers).build();
+    }
+
+    public int getSkippedMembers() {
+        return skippedMembers;
+    }
+
+    /**
+     * Buckets of a layout: exact buckets below 2^subBucketBits, then 2^subBucketBits per power of two
+     *
+     * @return the bucket count, or 0 if the layout is not usable
+     */
+    static int bucketCount(int subBucketBits, int maxMagnitude) {
+        if (subBucketBits < 0 || subBucketBits > 12 || maxMagnitude < subBucketBits || maxMagnitude > 62) {
+            return 0;
+        }
+        long buckets = (long) (maxMagnitude - subBucketBits + 1) << subBucketBits;
+        return buckets <= MAX_BUCKETS ? (int) buckets : 0;
+    }
+
+    /**
+     * Largest latency in microseconds that falls into a bucket
+     */
+    static long bucketUpperBound(int subBucketBits, int bucket) {
+        int subBuckets = 1 << subBucketBits;
+        if (bucket < subBuckets) {
+            return bucket;
+        }
+        int shift = bucket / subBuckets - 1;
+        long lower = (long) (subBuckets + bucket % subBuckets) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,46 @@
+package com.example.controller;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Statistics helper shared by the controller's thread pools
+ * Lookup and local thread factories are in {@link com.example.mbean.ManagedExecutors}.
+ */
+final class ThreadPools {
+
+    private ThreadPools() {
+    }
+
+    /**
+     * Describe the current occupancy of a pool
+     * A managed executor does not expose its occupancy; its limits are in server.xml.
+     */
+    static JsonObject describe(ExecutorService executor, long rejectedCount) {
+        if (executor == null) {
+            return Json.createObjectBuilder().add("state", "stopped").build();
+        }
+        if (!(executor instanceof ThreadPoolExecutor)) {
+            return Json.createObjectBuilder()
+                .add("state", "managed")
+                .add("rejectedCount", rejectedCount)
+                .build();
+        }
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+        return Json.createObjectBuilder()
+            .add("state", pool.isShutdown() ? "stopped" : "running")
+            .add("maxPoolSize", pool.getMaximumPoolSize())
+            .add("poolSize", pool.getPoolSize())
+            .add("activeCount", pool.getActiveCount())
+            .add("largestPoolSize", pool.getLargestPoolSize())
+            .add("queueDepth", pool.getQueue().size())
+            .add("queueRemainingCapacity", pool.getQueue().remainingCapacity())
+            .add("completedTaskCount", pool.getCompletedTaskCount())
+            .add("rejectedCount", rejectedCount)
+            .build();
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,121 @@
+package com.example.controller;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemberCircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong(1_700_000_000_000L);
+    private final MemberCircuitBreaker breaker = new MemberCircuitBreaker(3, 1000L, 4000L, 50, 2000, 4, clock::get);
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        fail(2);
+        breaker.recordSuccess(TimeUnit.MILLISECONDS.toNanos(5));
+        fail(2);
+        assertEquals(MemberCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+
+        fail(1);
+        assertEquals(MemberCircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1000L, breaker.getRetryAfterMillis());
+    }
+
+    @Test
+    void openBreakerFailsFast() {
+        fail(3);
+        clock.addAndGet(999);
+
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1L, breaker.getRetryAfterMillis());
+        assertEquals(2, breaker.describe().getJsonNumber("rejected").longValue());
+    }
+
+    @Test
+    void halfOpenLetsOneProbeThrough() {
+        fail(3);
+        clock.addAndGet(1000);
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(MemberCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void successfulProbeCloses() {
+        fail(3);
+        clock.addAndGet(1000);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.recordSuccess(TimeUnit.MILLISECONDS.toNanos(5));
+        assertEquals(MemberCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+
+        // The open period starts over after closing
+        fail(3);
+        assertEquals(1000L, breaker.getRetryAfterMillis());
+    }
+
+    @Test
+    void failedProbeDoublesTheOpenPeriodUpToTheMaximum() {
+        fail(3);
+        long[] expected = {2000L, 4000L, 4000L};
+        for (long openMillis : expected) {
+            clock.addAndGet(breaker.getRetryAfterMillis());
+            assertTrue(breaker.tryAcquire());
+            breaker.recordFailure();
+            assertEquals(MemberCircuitBreaker.State.OPEN, breaker.getState());
+            assertEquals(openMillis, breaker.getRetryAfterMillis());
+        }
+        assertEquals(4, breaker.describe().getJsonNumber("trips").longValue());
+    }
+
+    @Test
+    void lostProbeIsReplacedAfterTheMaximumTimeout() {
+        fail(3);
+        clock.addAndGet(1000);
+        assertTrue(breaker.tryAcquire());
+
+        clock.addAndGet(2000);
+        assertFalse(breaker.tryAcquire());
+        clock.addAndGet(1);
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void timeoutFollowsTheLatencyP99() {
+        succeed(7, 10);
+        assertEquals(2000, breaker.getTimeoutMillis());
+
+        // 4 x 10ms is below the minimum
+        succeed(1, 10);
+        assertEquals(50, breaker.getTimeoutMillis());
+
+        succeed(8, 100);
+        assertEquals(400, breaker.getTimeoutMillis());
+
+        succeed(16, 1000);
+        assertEquals(2000, breaker.getTimeoutMillis());
+    }
+
+    private void fail(int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.recordFailure();
+        }
+    }
+
+    private void succeed(int calls, long latencyMillis) {
+        for (int i = 0; i < calls; i++) {
+            breaker.recordSuccess(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        }
+    }
+}
+
+// Made with Bob
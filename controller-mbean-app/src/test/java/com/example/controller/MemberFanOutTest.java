@@ -0,0 +1,162 @@
+package com.example.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemberFanOutTest {
+
+    private static final MemberFanOut.Placeholder<String> PLACEHOLDER = (member, status, message) ->
+        Json.createObjectBuilder().add("member", member).add("status", status).add("message", message).build();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final Map<String, Integer> timeouts = new ConcurrentHashMap<>();
+    private MemberFanOut fanOut;
+
+    @AfterEach
+    void stop() {
+        release.countDown();
+        if (fanOut != null) {
+            fanOut.shutdown();
+        }
+    }
+
+    @Test
+    void resultsKeepMemberOrder() throws Exception {
+        start(4, 16, 1000L, 2000L);
+
+        List<JsonObject> results = fanOut.invokeAll(Arrays.asList("m1", "m2", "m3", "m4"), (member, timeoutMillis) -> {
+            // Later members answer first
+            Thread.sleep(10L * (5 - Integer.parseInt(member.substring(1))));
+            return ok(member);
+        }, PLACEHOLDER).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("m1", "m2", "m3", "m4"), members(results));
+        for (JsonObject result : results) {
+            assertEquals("ok", result.getString("status"));
+        }
+    }
+
+    @Test
+    void slowMemberGetsTimeoutPlaceholder() throws Exception {
+        start(4, 16, 100L, 5000L);
+
+        long started = System.nanoTime();
+        List<JsonObject> results = fanOut.invokeAll(Arrays.asList("fast", "slow"), (member, timeoutMillis) -> {
+            timeouts.put(member, timeoutMillis);
+            if (member.equals("slow")) {
+                // Ignores its timeout, as a call stuck in a read would
+                release.await();
+            }
+            return ok(member);
+        }, PLACEHOLDER).get(5, TimeUnit.SECONDS);
+
+        assertEquals("ok", results.get(0).getString("status"));
+        assertEquals("slow", results.get(1).getString("member"));
+        assertEquals(MemberFanOut.STATUS_TIMEOUT, results.get(1).getString("status"));
+        assertTrue(elapsedMillis(started) < 1000, "took " + elapsedMillis(started) + "ms");
+        assertTrue(timeouts.get("fast") <= 100, "member call given " + timeouts.get("fast") + "ms");
+    }
+
+    @Test
+    void missedRequestDeadlineGivesPlaceholdersForRunningAndQueuedMembers() throws Exception {
+        start(1, 16, 5000L, 5000L);
+
+        long started = System.nanoTime();
+        List<JsonObject> results = fanOut.invokeAll(Arrays.asList("running", "queued"), (member, timeoutMillis) -> {
+            release.await();
+            return ok(member);
+        }, PLACEHOLDER, 150L).get(5, TimeUnit.SECONDS);
+
+        assertTrue(elapsedMillis(started) < 1000, "took " + elapsedMillis(started) + "ms");
+        assertEquals(Arrays.asList("running", "queued"), members(results));
+        assertEquals(MemberFanOut.STATUS_DEADLINE_EXCEEDED, results.get(0).getString("status"));
+        assertEquals(MemberFanOut.STATUS_DEADLINE_EXCEEDED, results.get(1).getString("status"));
+    }
+
+    @Test
+    void queuedMemberGetsOnlyTheTimeLeft() throws Exception {
+        start(1, 16, 5000L, 5000L);
+
+        List<JsonObject> results = fanOut.invokeAll(Arrays.asList("first", "second"), (member, timeoutMillis) -> {
+            timeouts.put(member, timeoutMillis);
+            if (member.equals("first")) {
+                Thread.sleep(200);
+            }
+            return ok(member);
+        }, PLACEHOLDER, 400L).get(5, TimeUnit.SECONDS);
+
+        assertEquals("ok", results.get(1).getString("status"));
+        assertTrue(timeouts.get("first") > 300, "first call given " + timeouts.get("first") + "ms");
+        assertTrue(timeouts.get("second") <= 200, "second call given " + timeouts.get("second") + "ms");
+    }
+
+    @Test
+    void fullQueueGivesRejectedPlaceholder() throws Exception {
+        start(1, 1, 5000L, 5000L);
+        CountDownLatch running = new CountDownLatch(1);
+
+        CompletableFuture<List<JsonObject>> future = fanOut.invokeAll(
+            Arrays.asList("running", "queued", "rejected"), (member, timeoutMillis) -> {
+                running.countDown();
+                release.await();
+                return ok(member);
+            }, PLACEHOLDER);
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        List<JsonObject> results = future.get(5, TimeUnit.SECONDS);
+
+        assertEquals("ok", results.get(0).getString("status"));
+        assertEquals("ok", results.get(1).getString("status"));
+        assertEquals(MemberFanOut.STATUS_REJECTED, results.get(2).getString("status"));
+        assertEquals(1, fanOut.getStatistics().getJsonNumber("rejectedCount").longValue());
+    }
+
+    @Test
+    void failedCallGivesErrorPlaceholder() throws Exception {
+        start(2, 16, 1000L, 2000L);
+
+        List<JsonObject> results = fanOut.invokeAll(Arrays.asList("good", "bad"), (member, timeoutMillis) -> {
+            if (member.equals("bad")) {
+                throw new IllegalStateException("member answered 500");
+            }
+            return ok(member);
+        }, PLACEHOLDER).get(5, TimeUnit.SECONDS);
+
+        assertEquals("ok", results.get(0).getString("status"));
+        assertEquals(MemberFanOut.STATUS_ERROR, results.get(1).getString("status"));
+        assertEquals("member answered 500", results.get(1).getString("message"));
+    }
+
+    private void start(int maxConcurrency, int queueCapacity, long memberTimeoutMillis, long requestTimeoutMillis) {
+        fanOut = new MemberFanOut(null, maxConcurrency, queueCapacity, memberTimeoutMillis, requestTimeoutMillis);
+        fanOut.start();
+    }
+
+    private static JsonObject ok(String member) {
+        return Json.createObjectBuilder().add("member", member).add("status", "ok").build();
+    }
+
+    private static List<String> members(List<JsonObject> results) {
+        return results.stream().map(result -> result.getString("member")).collect(Collectors.toList());
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,262 @@
+package com.example.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.json.JsonObject;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemberHttpClientTest {
+
+    /** Script step that closes the connection instead of answering */
+    private static final String CLOSE = "<close>";
+
+    private static final String OK = "HTTP/1.1 200 OK\r\nContent-Length: 11\r\n\r\n{\"count\":1}";
+
+    private final MemberHttpClient client = new MemberHttpClient(2, 30000L, 2000, 2000);
+    private ScriptedServer server;
+
+    @BeforeEach
+    void start() {
+        client.start();
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        client.shutdown();
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void readsContentLengthBodyAndReusesTheConnection() throws IOException {
+        server = new ScriptedServer(Arrays.asList(OK, OK));
+
+        assertEquals("{\"count\":1}", client.get(server.url()).getBody());
+        MemberHttpResponse second = client.get(server.url());
+
+        assertEquals(200, second.getStatus());
+        assertEquals("{\"count\":1}", second.getBody());
+        assertEquals(1, server.connections());
+        assertEquals(1, stat("connectionsReused"));
+        assertTrue(server.requests().get(0).startsWith("GET /api/counter HTTP/1.1"));
+    }
+
+    @Test
+    void readsChunkedBodyAndSkipsTrailers() throws IOException {
+        server = new ScriptedServer(Arrays.asList(
+            "HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "6;name=value\r\n{\"coun\r\n5\r\nt\":1}\r\n0\r\nX-Checksum: abc\r\nX-Other: def\r\n\r\n",
+            OK));
+
+        assertEquals("{\"count\":1}", client.get(server.url()).getBody());
+        // The trailers were consumed, so the connection is reusable
+        assertEquals("{\"count\":1}", client.get(server.url()).getBody());
+        assertEquals(1, server.connections());
+    }
+
+    @Test
+    void connectionCloseIsNotPooled() throws IOException {
+        server = new ScriptedServer(
+            Collections.singletonList("HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: 2\r\n\r\n{}"),
+            Collections.singletonList(OK));
+
+        assertEquals("{}", client.get(server.url()).getBody());
+        assertEquals("{\"count\":1}", client.get(server.url()).getBody());
+        assertEquals(2, server.connections());
+        assertEquals(0, stat("connectionsReused"));
+    }
+
+    @Test
+    void skipsInterimResponses() throws IOException {
+        server = new ScriptedServer(Collections.singletonList(
+            "HTTP/1.1 100 Continue\r\n\r\nHTTP/1.1 103 Early Hints\r\nLink: </a>\r\n\r\n" + OK));
+
+        MemberHttpResponse response = client.get(server.url());
+
+        assertEquals(200, response.getStatus());
+        assertEquals("{\"count\":1}", response.getBody());
+    }
+
+    @Test
+    void rejectsMalformedStatusLine() {
+        server = new ScriptedServer(Collections.singletonList("HTTP/1.1 OK\r\nContent-Length: 0\r\n\r\n"));
+        IOException e = assertThrows(IOException.class, () -> client.get(server.url()));
+        assertTrue(e.getMessage().contains("status code"), e.getMessage());
+    }
+
+    @Test
+    void rejectsNonHttpResponse() {
+        server = new ScriptedServer(Collections.singletonList("SSH-2.0-OpenSSH\r\n\r\n"));
+        IOException e = assertThrows(IOException.class, () -> client.get(server.url()));
+        assertTrue(e.getMessage().startsWith("Malformed status line"), e.getMessage());
+    }
+
+    @Test
+    void retriesOnceWhenAPooledConnectionWasClosed() throws IOException {
+        server = new ScriptedServer(Arrays.asList(OK, CLOSE), Collections.singletonList(OK));
+
+        client.get(server.url());
+        MemberHttpResponse response = client.get(server.url());
+
+        assertEquals(200, response.getStatus());
+        assertEquals(2, server.connections());
+        assertEquals(1, stat("staleRetries"));
+    }
+
+    @Test
+    void doesNotRetryANewConnection() {
+        server = new ScriptedServer(Collections.singletonList(CLOSE), Collections.singletonList(OK));
+
+        assertThrows(IOException.class, () -> client.get(server.url()));
+        assertEquals(1, server.connections());
+        assertEquals(0, stat("staleRetries"));
+    }
+
+    @Test
+    void doesNotRetryAfterTheResponseStarted() throws IOException {
+        server = new ScriptedServer(
+            Arrays.asList(OK, "HTTP/1.1 200 OK\r\nContent-Length: 20\r\n\r\n{\"cou" + CLOSE),
+            Collections.singletonList(OK));
+
+        client.get(server.url());
+        assertThrows(EOFException.class, () -> client.get(server.url()));
+        assertEquals(1, server.connections());
+        assertEquals(0, stat("staleRetries"));
+    }
+
+    private long stat(String name) {
+        JsonObject statistics = client.getStatistics();
+        return statistics.getJsonNumber(name).longValue();
+    }
+
+    /**
+     * Server answering each accepted connection from its own script
+     * A step is a raw response written after reading a request, or ends with {@link #CLOSE}
+     * to close the connection after writing what precedes it, without reading a request
+     * if nothing precedes it.
+     */
+    private static final class ScriptedServer implements AutoCloseable {
+        private final ServerSocket serverSocket;
+        private final ConcurrentLinkedQueue<List<String>> scripts = new ConcurrentLinkedQueue<>();
+        private final List<String> requests = new CopyOnWriteArrayList<>();
+        private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+        private final AtomicInteger connections = new AtomicInteger();
+
+        @SafeVarargs
+        ScriptedServer(List<String>... connectionScripts) {
+            try {
+                serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            scripts.addAll(Arrays.asList(connectionScripts));
+            Thread acceptor = new Thread(this::accept, "scripted-server");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/api/counter";
+        }
+
+        int connections() {
+            return connections.get();
+        }
+
+        List<String> requests() {
+            return new ArrayList<>(requests);
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    sockets.add(socket);
+                    List<String> script = scripts.poll();
+                    Thread handler = new Thread(() -> serve(socket, script), "scripted-connection");
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket, List<String> script) {
+            try {
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+                OutputStream out = socket.getOutputStream();
+                for (String step : script == null ? Collections.<String>emptyList() : script) {
+                    boolean close = step.endsWith(CLOSE);
+                    String response = close ? step.substring(0, step.length() - CLOSE.length()) : step;
+                    if (!response.isEmpty() && !readRequest(in)) {
+                        return;
+                    }
+                    out.write(response.getBytes(StandardCharsets.ISO_8859_1));
+                    out.flush();
+                    if (close) {
+                        return;
+                    }
+                }
+                // Hold the connection open until the client closes it
+                while (in.read() != -1) {
+                    continue;
+                }
+            } catch (IOException e) {
+                // Client went away
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // Closing anyway
+                }
+            }
+        }
+
+        private boolean readRequest(BufferedReader in) throws IOException {
+            StringBuilder request = new StringBuilder();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) {
+                    requests.add(request.toString());
+                    return true;
+                }
+                request.append(line).append('\n');
+            }
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,119 @@
+package com.example.controller;
+
+import org.junit.jupiter.api.Test;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MergedLatencyHistogramTest {
+
+    private static final JsonObject MEMBER_LAYOUT = layout(4, 26);
+
+    private final MergedLatencyHistogram merged = new MergedLatencyHistogram();
+
+    @Test
+    void sumsMemberBuckets() {
+        merged.add(MEMBER_LAYOUT, buckets(new long[][] {{10, 3}}));
+        merged.add(MEMBER_LAYOUT, buckets(new long[][] {{10, 1}, {40, 4}}));
+
+        assertEquals(8, merged.getCount());
+        assertEquals(10, merged.getPercentileMicros(0.5));
+        // Bucket 40 holds 48 to 49 us with 16 sub-buckets
+        assertEquals(49, merged.getPercentileMicros(0.99));
+        assertEquals(0, merged.getSkippedMembers());
+    }
+
+    @Test
+    void skipsMembersWithAnotherOrNoLayout() {
+        merged.add(MEMBER_LAYOUT, buckets(new long[][] {{20, 2}}));
+        merged.add(layout(3, 26), buckets(new long[][] {{20, 5}}));
+        merged.add(layout(4, 30), buckets(new long[][] {{20, 5}}));
+        merged.add(null, buckets(new long[][] {{20, 5}}));
+        merged.add(Json.createObjectBuilder().add("subBucketBits", 4).build(), buckets(new long[][] {{20, 5}}));
+
+        assertEquals(2, merged.getCount());
+        assertEquals(4, merged.getSkippedMembers());
+    }
+
+    @Test
+    void unusableFirstLayoutDoesNotFixTheLayout() {
+        merged.add(layout(20, 26), buckets(new long[][] {{1, 1}}));
+        merged.add(layout(3, 10), buckets(new long[][] {{20, 2}}));
+
+        assertEquals(1, merged.getSkippedMembers());
+        assertEquals(2, merged.getCount());
+        // Bucket 20 holds 24 to 25 us with 8 sub-buckets
+        assertEquals(25, merged.getPercentileMicros(0.5));
+    }
+
+    @Test
+    void ignoresEntriesOutsideTheLayout() {
+        JsonArray buckets = Json.createArrayBuilder()
+            .add(Json.createArrayBuilder().add(-1).add(5))
+            .add(Json.createArrayBuilder().add(368).add(5))
+            .add(Json.createArrayBuilder().add(3).add(0))
+            .add(Json.createArrayBuilder().add(3))
+            .add(7)
+            .add(Json.createArrayBuilder().add(367).add(1))
+            .build();
+        merged.add(MEMBER_LAYOUT, buckets);
+
+        assertEquals(1, merged.getCount());
+        assertEquals((1L << 26) - 1, merged.getPercentileMicros(0.5));
+    }
+
+    @Test
+    void mergedJsonCanBeMergedAgain() {
+        merged.add(MEMBER_LAYOUT, buckets(new long[][] {{5, 2}, {100, 1}}));
+        JsonObject json = merged.toJson();
+
+        MergedLatencyHistogram again = new MergedLatencyHistogram();
+        again.add(json.getJsonObject("layout"), json.getJsonArray("buckets"));
+        again.add(json.getJsonObject("layout"), json.getJsonArray("buckets"));
+
+        assertEquals(6, again.getCount());
+        assertEquals(json.getJsonNumber("p99Micros").longValue(), again.getPercentileMicros(0.99));
+        assertEquals(0, json.getInt("skippedMembers"));
+    }
+
+    @Test
+    void emptyHistogramHasNoLayout() {
+        JsonObject json = merged.toJson();
+
+        assertEquals(0, json.getJsonNumber("sampleCount").longValue());
+        assertEquals(0, json.getJsonNumber("p99Micros").longValue());
+        assertNull(json.getJsonObject("layout"));
+        assertFalse(json.getJsonArray("buckets").iterator().hasNext());
+    }
+
+    @Test
+    void bucketCountRejectsUnusableLayouts() {
+        assertEquals(368, MergedLatencyHistogram.bucketCount(4, 26));
+        assertEquals(0, MergedLatencyHistogram.bucketCount(-1, 26));
+        assertEquals(0, MergedLatencyHistogram.bucketCount(4, 3));
+        assertEquals(0, MergedLatencyHistogram.bucketCount(12, 62));
+    }
+
+    private static JsonObject layout(int subBucketBits, int maxMagnitude) {
+        return Json.createObjectBuilder()
+            .add("subBucketBits", subBucketBits)
+            .add("maxMagnitude", maxMagnitude)
+            .build();
+    }
+
+    private static JsonArray buckets(long[][] pairs) {
+        JsonArrayBuilder buckets = Json.createArrayBuilder();
+        for (long[] pair : pairs) {
+            buckets.add(Json.createArrayBuilder().add(pair[0]).add(pair[1]));
+        }
+        return buckets.build();
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,238 @@
+package com.example.liberty.cluster;
+
+import com.example.mbean.ManagedExecutors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Dedicated, sized executor for cluster-wide MBean scans.
+ * Resources suspend the request and run the scan here, so Liberty request
+ * threads are not held while every member is queried through the controller.
+ * A scan can read member MBeans in parallel on a separate fetch pool, so scans
+ * never wait on tasks queued behind themselves. A scan that times out is
+ * answered 503 and cancelled: the scan thread is interrupted and its reads
+ * that have not started yet are dropped.
+ *
+ * Both pools are managed executors looked up at cluster.scan.executor and
+ * cluster.scan.fetchExecutor, limited by their concurrencyPolicy; the
+ * server.xml elements defining them are in CLUSTER-README.md. Where they are
+ * not bound, local pools sized by the properties below are used.
+ *
+ * Tuning (JVM system properties):
+ *   cluster.scan.executor         JNDI name of the scan executor, default concurrent/clusterScan
+ *   cluster.scan.fetchExecutor    JNDI name of the fetch executor, default concurrent/clusterFetch
+ *   cluster.scan.threads          worker threads of the local scan pool, default 4
+ *   cluster.scan.queueCapacity    queued scans of the local pool before rejecting, default 128
+ *   cluster.scan.timeoutMs        suspended response timeout, default 30000
+ *   cluster.scan.fetchThreads     threads of the local pool reading member MBeans for a scan, default 16
+ */
+@ApplicationScoped
+public class ClusterScanExecutor {
+
+    private static final Logger LOGGER = Logger.getLogger(ClusterScanExecutor.class.getName());
+
+    private final String executorName = System.getProperty("cluster.scan.executor", "concurrent/clusterScan");
+    private final String fetchExecutorName = System.getProperty("cluster.scan.fetchExecutor", "concurrent/clusterFetch");
+    private final int threads = Integer.getInteger("cluster.scan.threads", 4);
+    private final int queueCapacity = Integer.getInteger("cluster.scan.queueCapacity", 128);
+    private final long timeoutMillis = Long.getLong("cluster.scan.timeoutMs", 30000L);
+    private final int fetchThreads = Integer.getInteger("cluster.scan.fetchThreads", 16);
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong timedOutCount = new AtomicLong();
+    private final AtomicLong cancelledFetches = new AtomicLong();
+    private final AtomicLong fetchCount = new AtomicLong();
+    private final AtomicLong fetchesRunInline = new AtomicLong();
+
+    private ExecutorService pool;
+    private ExecutorService fetchPool;
+    private boolean localPool;
+    private boolean localFetchPool;
+
+    @PostConstruct
+    public void start() {
+        pool = ManagedExecutors.lookup(executorName, ManagedExecutorService.class);
+        localPool = pool == null;
+        if (localPool) {
+            ThreadPoolExecutor local = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), ManagedExecutors.namedDaemonThreads("cluster-scan"));
+            local.allowCoreThreadTimeOut(true);
+            pool = local;
+        }
+
+        fetchPool = ManagedExecutors.lookup(fetchExecutorName, ManagedExecutorService.class);
+        localFetchPool = fetchPool == null;
+        if (localFetchPool) {
+            ThreadPoolExecutor local = new ThreadPoolExecutor(fetchThreads, fetchThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(fetchThreads * 4), ManagedExecutors.namedDaemonThreads("cluster-fetch"));
+            local.allowCoreThreadTimeOut(true);
+            fetchPool = local;
+        }
+        LOGGER.info("Cluster scan executor started: "
+            + (localPool ? "threads=" + threads + ", queueCapacity=" + queueCapacity : "executor=" + executorName)
+            + ", " + (localFetchPool ? "fetchThreads=" + fetchThreads : "fetchExecutor=" + fetchExecutorName));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Managed executors belong to the server and must not be shut down by the application
+        if (pool != null && localPool) {
+            pool.shutdownNow();
+        }
+        if (fetchPool != null && localFetchPool) {
+            fetchPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Run the reads of a scan in parallel on the fetch pool and wait for all of them
+     * Reads the pool cannot accept run on the calling thread instead of failing.
+     * If the scan is cancelled while waiting, the reads that have not started are dropped.
+     *
+     * @return one result per read, in the order given
+     * @throws InterruptedException if the scan was cancelled
+     */
+    public <T> List<T> fetchAll(List<Supplier<T>> reads) throws InterruptedException {
+        List<CompletableFuture<T>> pending = new ArrayList<>(reads.size());
+        for (Supplier<T> read : reads) {
+            fetchCount.incrementAndGet();
+            CompletableFuture<T> result;
+            try {
+                result = CompletableFuture.supplyAsync(read, fetchPool);
+            } catch (RejectedExecutionException e) {
+                fetchesRunInline.incrementAndGet();
+                result = CompletableFuture.completedFuture(read.get());
+            }
+            pending.add(result);
+        }
+
+        List<T> results = new ArrayList<>(pending.size());
+        try {
+            for (CompletableFuture<T> result : pending) {
+                results.add(result.get());
+            }
+        } catch (InterruptedException e) {
+            // A cancelled future's read is skipped when the fetch pool reaches it
+            for (CompletableFuture<T> result : pending) {
+                if (result.cancel(false)) {
+                    cancelledFetches.incrementAndGet();
+                }
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        return results;
+    }
+
+    /**
+     * Run the scan on the pool and resume the suspended response with its result
+     */
+    public void resume(final AsyncResponse asyncResponse, final Callable<Response> scan,
+                       final Function<Exception, Response> onError) {
+        final AtomicReference<Future<?>> running = new AtomicReference<>();
+        asyncResponse.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        asyncResponse.setTimeoutHandler(suspended -> {
+            timedOutCount.incrementAndGet();
+            suspended.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(error("Scan did not complete within " + timeoutMillis + "ms"))
+                .build());
+            // The client has its answer; stop the scan instead of letting it run to the end
+            Future<?> task = running.get();
+            if (task != null) {
+                task.cancel(true);
+            }
+        });
+
+        try {
+            running.set(pool.submit(() -> {
+                try {
+                    asyncResponse.resume(scan.call());
+                } catch (InterruptedException e) {
+                    LOGGER.log(Level.FINE, "Cluster scan cancelled after its timeout");
+                } catch (Exception e) {
+                    asyncResponse.resume(onError.apply(e));
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            asyncResponse.resume(Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity(error("Cluster scan queue is full, retry later"))
+                .build());
+        }
+    }
+
+    /**
+     * Pool occupancy statistics
+     */
+    public JsonObject getStatistics() {
+        JsonObjectBuilder statistics = Json.createObjectBuilder()
+            .add("executor", localPool ? "local" : executorName);
+        // Managed executors do not expose their occupancy; their limits are in server.xml
+        if (localPool) {
+            ThreadPoolExecutor local = (ThreadPoolExecutor) pool;
+            statistics.add("maxPoolSize", local.getMaximumPoolSize())
+                .add("poolSize", local.getPoolSize())
+                .add("activeCount", local.getActiveCount())
+                .add("largestPoolSize", local.getLargestPoolSize())
+                .add("queueDepth", local.getQueue().size())
+                .add("queueRemainingCapacity", local.getQueue().remainingCapacity())
+                .add("completedTaskCount", local.getCompletedTaskCount());
+        }
+        statistics.add("rejectedCount", rejectedCount.get())
+            .add("timeoutMillis", timeoutMillis)
+            .add("timedOutCount", timedOutCount.get())
+            .add("fetchExecutor", localFetchPool ? "local" : fetchExecutorName);
+        if (localFetchPool) {
+            ThreadPoolExecutor local = (ThreadPoolExecutor) fetchPool;
+            statistics.add("fetchThreads", local.getMaximumPoolSize())
+                .add("fetchActiveCount", local.getActiveCount())
+                .add("fetchQueueDepth", local.getQueue().size());
+        }
+        return statistics.add("fetchCount", fetchCount.get())
+            .add("fetchesRunInline", fetchesRunInline.get())
+            .add("cancelledFetches", cancelledFetches.get())
+            .build();
+    }
+
+    private static JsonObject error(String message) {
+        return Json.createObjectBuilder()
+            .add("error", message)
+            .add("timestamp", System.currentTimeMillis())
+            .build();
+    }
+}
+
+// Made with Bob
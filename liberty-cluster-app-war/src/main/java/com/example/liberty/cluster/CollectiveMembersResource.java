@@ -1,20 +1,26 @@
 package com.example.liberty.cluster;
 
+import com.example.mbean.MBeanCatalog;
+import com.example.mbean.MBeanNamePage;
+
+import javax.inject.Inject;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import javax.management.openmbean.CompositeData;
-import javax.management.Attribute;
-import javax.management.AttributeList;
 import javax.management.MBeanAttributeInfo;
 import javax.management.MBeanInfo;
 import javax.management.MBeanOperationInfo;
 import javax.management.MBeanParameterInfo;
+import javax.json.Json;
+import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonGeneratorFactory;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -26,6 +32,20 @@ import java.util.Set;
 @Path("/members")
 public class CollectiveMembersResource {
 
+    private static final JsonGeneratorFactory JSON_GENERATORS = Json.createGeneratorFactory(null);
+    private static final String[] SERVER_ATTRIBUTES = {
+        "Host", "HostName", "HttpsPort", "HttpPort", "State", "UserDir", "WlpInstallDir"
+    };
+    private static final String[] SERVER_ATTRIBUTE_KEYS = {
+        "host", "hostName", "httpsPort", "httpPort", "state", "userDir", "wlpInstallDir"
+    };
+
+    @Inject
+    private MBeanAttributeHarvester harvester;
+    
+    @Inject
+    private MBeanCatalog catalog;
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response getCollectiveMembers() {
@@ -55,12 +75,8 @@ public class CollectiveMembersResource {
             for (ObjectName mbeanName : memberMBeans) {
                 Map<String, Object> memberDetails = new HashMap<>();
                 try {
-                    MBeanInfo info = mbs.getMBeanInfo(mbeanName);
-                    AttributeList attributes = mbs.getAttributes(mbeanName, getAttributeNames(info));
-                    
-                    for (Attribute attr : attributes.asList()) {
-                        memberDetails.put(attr.getName(), attr.getValue());
-                    }
+                    // One bulk read; the attribute list comes from the cached MBeanInfo
+                    memberDetails.putAll(harvester.readAll(mbs, mbeanName));
                     members.add(memberDetails);
                 } catch (Exception e) {
                     System.err.println("Error processing member MBean " + mbeanName + ": " + e.getMessage());
@@ -86,15 +102,6 @@ public class CollectiveMembersResource {
         }
     }
 
-    private String[] getAttributeNames(MBeanInfo info) {
-        MBeanAttributeInfo[] attributes = info.getAttributes();
-        String[] names = new String[attributes.length];
-        for (int i = 0; i < attributes.length; i++) {
-            names[i] = attributes[i].getName();
-        }
-        return names;
-    }
-    
     @GET
     @Path("detailed")
     @Produces(MediaType.APPLICATION_JSON)
@@ -121,20 +128,19 @@ public class CollectiveMembersResource {
                     memberDetails.put("type", mbean.getKeyProperty("type"));
                     memberDetails.put("properties", mbean.getKeyPropertyList());
                     
-                    // Get all available attributes
+                    // Get all available attributes in one bulk read
                     try {
-                        MBeanInfo mbeanInfo = mbs.getMBeanInfo(mbean);
-                        MBeanAttributeInfo[] attributes = mbeanInfo.getAttributes();
+                        String[] readable = harvester.readableAttributes(mbs, mbean);
+                        Map<String, Object> values = harvester.read(mbs, mbean, readable);
                         Map<String, Object> attributeValues = new HashMap<>();
                         
-                        for (MBeanAttributeInfo attr : attributes) {
-                            if (attr.isReadable()) {
-                                try {
-                                    Object value = mbs.getAttribute(mbean, attr.getName());
-                                    attributeValues.put(attr.getName(), value != null ? value.toString() : "null");
-                                } catch (Exception e) {
-                                    attributeValues.put(attr.getName(), "Error: " + e.getMessage());
-                                }
+                        for (String attrName : readable) {
+                            if (values.containsKey(attrName)) {
+                                Object value = values.get(attrName);
+                                attributeValues.put(attrName, value != null ? value.toString() : "null");
+                            } else {
+                                // getAttributes leaves out attributes that failed to read
+                                attributeValues.put(attrName, "Error: attribute could not be read");
                             }
                         }
                         
@@ -291,38 +297,65 @@ public class CollectiveMembersResource {
         }
     }
     
+    /**
+     * List the WebSphere and collective MBeans on this server
+     * The list is streamed as it is written, so memory does not grow with the number
+     * of MBeans. With {@code limit}, MBeans are returned in canonical name order one
+     * page at a time; pass the returned {@code nextCursor} as {@code cursor} for the next page.
+     * A page stops at the first MBean past it, so it reports no match count.
+     */
     @GET
     @Path("/mbeans")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllMBeans() {
+    public Response getAllMBeans(@QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor) {
+        if (limit != null && limit < 1) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "limit must be at least 1");
+            return Response.status(Response.Status.BAD_REQUEST).entity(error).build();
+        }
+        
         try {
-            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
-            
-            // Get all MBeans
-            Set<ObjectName> allMBeans = mbs.queryNames(null, null);
-            
-            List<Map<String, Object>> mbeanList = new ArrayList<>();
-            for (ObjectName mbean : allMBeans) {
-                String mbeanName = mbean.toString();
-                // Filter for WebSphere and collective-related MBeans
-                if (mbeanName.startsWith("WebSphere:") || 
-                    mbeanName.contains("collective") || 
-                    mbeanName.contains("Collective")) {
-                    
-                    Map<String, Object> mbeanInfo = new HashMap<>();
-                    mbeanInfo.put("objectName", mbeanName);
-                    mbeanInfo.put("domain", mbean.getDomain());
-                    mbeanInfo.put("properties", mbean.getKeyPropertyList());
-                    mbeanList.add(mbeanInfo);
+            // WebSphere and collective-related MBeans, kept sorted by the catalog; a page is
+            // read from the cursor onwards without collecting every match
+            final int totalMBeans = catalog.size();
+            final MBeanNamePage page = limit != null || cursor != null
+                ? catalog.webSphereOrCollectivePage(cursor, limit != null ? limit : MBeanNamePage.DEFAULT_LIMIT)
+                : null;
+            final Collection<ObjectName> matchingMBeans = page != null ? page.getNames() : catalog.webSphereOrCollective();
+            
+            StreamingOutput body = output -> {
+                try (JsonGenerator json = JSON_GENERATORS.createGenerator(output)) {
+                    json.writeStartObject()
+                        .write("totalMBeans", totalMBeans)
+                        .writeStartArray("mbeans");
+                    int matches = 0;
+                    for (ObjectName mbean : matchingMBeans) {
+                        matches++;
+                        json.writeStartObject()
+                            .write("objectName", mbean.toString())
+                            .write("domain", mbean.getDomain())
+                            .writeStartObject("properties");
+                        for (Map.Entry<String, String> property : mbean.getKeyPropertyList().entrySet()) {
+                            json.write(property.getKey(), property.getValue());
+                        }
+                        json.writeEnd().writeEnd();
+                    }
+                    json.writeEnd();
+                    if (page != null) {
+                        json.write("returned", matches);
+                        if (page.getNextCursor() != null) {
+                            json.write("nextCursor", page.getNextCursor());
+                        } else {
+                            json.writeNull("nextCursor");
+                        }
+                    } else {
+                        json.write("websphereAndCollectiveMBeans", matches);
+                    }
+                    json.writeEnd();
                 }
-            }
+            };
             
-            Map<String, Object> response = new HashMap<>();
-            response.put("totalMBeans", allMBeans.size());
-            response.put("websphereAndCollectiveMBeans", mbeanList.size());
-            response.put("mbeans", mbeanList);
-            
-            return Response.ok(response).build();
+            return Response.ok(body, MediaType.APPLICATION_JSON_TYPE).build();
             
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
@@ -426,74 +459,13 @@ public class CollectiveMembersResource {
                         memberInfo.put("serverName", memberName);
                         memberInfo.put("clusterName", clusterName);
                         
-                        // Get host information
-                        try {
-                            Object hostAttr = mbs.getAttribute(serverQuery, "Host");
-                            if (hostAttr != null) {
-                                memberInfo.put("host", hostAttr.toString());
-                            }
-                        } catch (Exception e) {
-                            System.err.println("Could not get Host attribute for " + memberName);
-                        }
-                        
-                        // Get hostname
-                        try {
-                            Object hostNameAttr = mbs.getAttribute(serverQuery, "HostName");
-                            if (hostNameAttr != null) {
-                                memberInfo.put("hostName", hostNameAttr.toString());
-                            }
-                        } catch (Exception e) {
-                            System.err.println("Could not get HostName attribute for " + memberName);
-                        }
-                        
-                        // Get HTTPS port
-                        try {
-                            Object httpsPortAttr = mbs.getAttribute(serverQuery, "HttpsPort");
-                            if (httpsPortAttr != null) {
-                                memberInfo.put("httpsPort", httpsPortAttr.toString());
-                            }
-                        } catch (Exception e) {
-                            System.err.println("Could not get HttpsPort attribute for " + memberName);
-                        }
-                        
-                        // Get HTTP port
-                        try {
-                            Object httpPortAttr = mbs.getAttribute(serverQuery, "HttpPort");
-                            if (httpPortAttr != null) {
-                                memberInfo.put("httpPort", httpPortAttr.toString());
-                            }
-                        } catch (Exception e) {
-                            // HTTP port might not be configured
-                        }
-                        
-                        // Get server state
-                        try {
-                            Object stateAttr = mbs.getAttribute(serverQuery, "State");
-                            if (stateAttr != null) {
-                                memberInfo.put("state", stateAttr.toString());
-                            }
-                        } catch (Exception e) {
-                            System.err.println("Could not get State attribute for " + memberName);
-                        }
-                        
-                        // Get user directory
-                        try {
-                            Object userDirAttr = mbs.getAttribute(serverQuery, "UserDir");
-                            if (userDirAttr != null) {
-                                memberInfo.put("userDir", userDirAttr.toString());
-                            }
-                        } catch (Exception e) {
-                            // Optional attribute
-                        }
-                        
-                        // Get WLP install directory
-                        try {
-                            Object wlpInstallDirAttr = mbs.getAttribute(serverQuery, "WlpInstallDir");
-                            if (wlpInstallDirAttr != null) {
-                                memberInfo.put("wlpInstallDir", wlpInstallDirAttr.toString());
+                        // Read the server attributes in one bulk call; missing attributes are left out
+                        Map<String, Object> attributes = harvester.read(mbs, serverQuery, SERVER_ATTRIBUTES);
+                        for (int i = 0; i < SERVER_ATTRIBUTES.length; i++) {
+                            Object value = attributes.get(SERVER_ATTRIBUTES[i]);
+                            if (value != null) {
+                                memberInfo.put(SERVER_ATTRIBUTE_KEYS[i], value.toString());
                             }
-                        } catch (Exception e) {
-                            // Optional attribute
                         }
                         
                         // Get application MBean states from this member server
@@ -597,45 +569,22 @@ public class CollectiveMembersResource {
                         appInfo.put("j2eeType", j2eeType);
                     }
                     
-                    // Try to get application state
+                    // Get all available attributes, including state and deployment descriptor, in one bulk read
                     try {
-                        Object state = mbs.getAttribute(appMBean, "state");
-                        if (state != null) {
-                            appInfo.put("state", state.toString());
-                        }
-                    } catch (Exception e) {
-                        // State attribute might not be available
-                    }
-                    
-                    // Try to get deployment descriptor
-                    try {
-                        Object deploymentDescriptor = mbs.getAttribute(appMBean, "deploymentDescriptor");
-                        if (deploymentDescriptor != null) {
-                            appInfo.put("deploymentDescriptor", deploymentDescriptor.toString());
-                        }
-                    } catch (Exception e) {
-                        // Attribute might not be available
-                    }
-                    
-                    // Get all available attributes
-                    try {
-                        MBeanInfo mbeanInfo = mbs.getMBeanInfo(appMBean);
-                        MBeanAttributeInfo[] attributes = mbeanInfo.getAttributes();
                         Map<String, Object> allAttributes = new HashMap<>();
-                        
-                        for (MBeanAttributeInfo attr : attributes) {
-                            if (attr.isReadable()) {
-                                try {
-                                    Object value = mbs.getAttribute(appMBean, attr.getName());
-                                    if (value != null) {
-                                        allAttributes.put(attr.getName(), value.toString());
-                                    }
-                                } catch (Exception e) {
-                                    // Skip attributes that can't be read
-                                }
+                        for (Map.Entry<String, Object> attr : harvester.readAll(mbs, appMBean).entrySet()) {
+                            if (attr.getValue() != null) {
+                                allAttributes.put(attr.getKey(), attr.getValue().toString());
                             }
                         }
                         
+                        if (allAttributes.containsKey("state")) {
+                            appInfo.put("state", allAttributes.get("state"));
+                        }
+                        if (allAttributes.containsKey("deploymentDescriptor")) {
+                            appInfo.put("deploymentDescriptor", allAttributes.get("deploymentDescriptor"));
+                        }
+                        
                         if (!allAttributes.isEmpty()) {
                             appInfo.put("attributes", allAttributes);
                         }
@@ -659,21 +608,11 @@ public class CollectiveMembersResource {
                         runtimeInfo.put("mbeanObjectName", runtimeMBean.toString());
                         runtimeInfo.put("type", runtimeMBean.getKeyProperty("type"));
                         
-                        // Get available attributes
-                        MBeanInfo mbeanInfo = mbs.getMBeanInfo(runtimeMBean);
-                        MBeanAttributeInfo[] attributes = mbeanInfo.getAttributes();
+                        // Get available attributes in one bulk read
                         Map<String, Object> attrValues = new HashMap<>();
-                        
-                        for (MBeanAttributeInfo attr : attributes) {
-                            if (attr.isReadable()) {
-                                try {
-                                    Object value = mbs.getAttribute(runtimeMBean, attr.getName());
-                                    if (value != null) {
-                                        attrValues.put(attr.getName(), value.toString());
-                                    }
-                                } catch (Exception e) {
-                                    // Skip
-                                }
+                        for (Map.Entry<String, Object> attr : harvester.readAll(mbs, runtimeMBean).entrySet()) {
+                            if (attr.getValue() != null) {
+                                attrValues.put(attr.getKey(), attr.getValue().toString());
                             }
                         }
                         
@@ -0,0 +1,134 @@
+package com.example.liberty.cluster;
+
+import com.example.mbean.BoundedCache;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads MBean attributes with one {@code getAttributes} call per MBean
+ *
+ * Collective MBeans are routed to the member that owns them, so every
+ * {@code getAttribute} is a remote call. Reading the attributes of an MBean
+ * in one bulk call, with the list of readable attributes taken from a cached
+ * {@code MBeanInfo}, turns 1 + N calls per MBean into one call once the
+ * MBeanInfo is cached.
+ *
+ * Attributes that cannot be read are left out of the result instead of
+ * failing the whole read, as {@code getAttributes} does.
+ *
+ * Tuning (JVM system properties):
+ *   cluster.harvest.infoTtlMs        lifetime of a cached attribute list, default 300000
+ *   cluster.harvest.maxCachedInfos   cached attribute lists, the oldest are evicted beyond this, default 4096
+ */
+@ApplicationScoped
+public class MBeanAttributeHarvester {
+
+    private final BoundedCache<ObjectName, String[]> attributeNames;
+
+    private final AtomicLong bulkReads = new AtomicLong();
+    private final AtomicLong infoCacheHits = new AtomicLong();
+    private final AtomicLong infoCacheMisses = new AtomicLong();
+
+    public MBeanAttributeHarvester() {
+        this(Long.getLong("cluster.harvest.infoTtlMs", 300000L),
+             Integer.getInteger("cluster.harvest.maxCachedInfos", 4096));
+    }
+
+    public MBeanAttributeHarvester(long infoTtlMillis, int maxCachedInfos) {
+        this.attributeNames = new BoundedCache<>(maxCachedInfos, infoTtlMillis);
+    }
+
+    /**
+     * Read every readable attribute of an MBean
+     *
+     * @return attribute values by name, in MBeanInfo order; attributes that could not be read are absent
+     */
+    public Map<String, Object> readAll(MBeanServerConnection mbs, ObjectName name) throws JMException, IOException {
+        return read(mbs, name, readableAttributes(mbs, name));
+    }
+
+    /**
+     * Read the named attributes of an MBean in one call
+     *
+     * @return attribute values by name; attributes that do not exist or could not be read are absent
+     */
+    public Map<String, Object> read(MBeanServerConnection mbs, ObjectName name, String... attributes)
+            throws JMException, IOException {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (attributes.length == 0) {
+            return values;
+        }
+        bulkReads.incrementAndGet();
+        AttributeList list;
+        try {
+            list = mbs.getAttributes(name, attributes);
+        } catch (InstanceNotFoundException e) {
+            attributeNames.remove(name);
+            throw e;
+        }
+        for (Attribute attribute : list.asList()) {
+            values.put(attribute.getName(), attribute.getValue());
+        }
+        return values;
+    }
+
+    /**
+     * Names of the readable attributes of an MBean, from the MBeanInfo cache
+     */
+    public String[] readableAttributes(MBeanServerConnection mbs, ObjectName name) throws JMException, IOException {
+        String[] cached = attributeNames.get(name);
+        if (cached != null) {
+            infoCacheHits.incrementAndGet();
+            return cached;
+        }
+
+        infoCacheMisses.incrementAndGet();
+        List<String> readable = new ArrayList<>();
+        try {
+            for (MBeanAttributeInfo attribute : mbs.getMBeanInfo(name).getAttributes()) {
+                if (attribute.isReadable()) {
+                    readable.add(attribute.getName());
+                }
+            }
+        } catch (InstanceNotFoundException e) {
+            attributeNames.remove(name);
+            throw e;
+        }
+
+        String[] names = readable.toArray(new String[0]);
+        attributeNames.put(name, names);
+        return names;
+    }
+
+    /**
+     * Bulk read and MBeanInfo cache counters
+     */
+    public JsonObject getStatistics() {
+        return Json.createObjectBuilder()
+            .add("bulkReads", bulkReads.get())
+            .add("infoCacheHits", infoCacheHits.get())
+            .add("infoCacheMisses", infoCacheMisses.get())
+            .add("cachedInfos", attributeNames.size())
+            .add("infoEvictions", attributeNames.getEvictions())
+            .add("infoExpirations", attributeNames.getExpirations())
+            .add("infoTtlMillis", attributeNames.getTtlMillis())
+            .build();
+    }
+}
+
+// Made with Bob
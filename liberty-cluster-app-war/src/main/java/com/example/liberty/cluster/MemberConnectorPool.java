@@ -0,0 +1,444 @@
+package com.example.liberty.cluster;
+
+import com.example.mbean.ManagedExecutors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool of REST connector sessions to cluster members
+ *
+ * Reading member MBeans through the collective routes every call through the
+ * controller. A member can instead be read directly over its REST connector,
+ * but creating a JMXConnector costs a TLS handshake and a login. The pool keeps
+ * up to {@code maxPerMember} connected sessions per member and hands them out
+ * as leases:
+ * <ul>
+ *   <li>a member has at most {@code maxPerMember} sessions in use; a caller waits up to
+ *       {@code acquireTimeoutMs} for one to be returned, then fails</li>
+ *   <li>a session idle for longer than the health check interval is checked with
+ *       a cheap call before it is handed out, and closed if the check fails</li>
+ *   <li>after a failed connect or health check the member is not connected to again
+ *       until a backoff has passed, doubling from {@code minBackoffMs} up to {@code maxBackoffMs}</li>
+ *   <li>sessions idle for longer than {@code idleTimeoutMs} are closed in the background</li>
+ * </ul>
+ * Idle sessions are closed on the server's default managed scheduled executor;
+ * outside the server a local single-thread scheduler is used.
+ *
+ * Tuning (JVM system properties):
+ *   cluster.connector.maxPerMember    sessions per member, pooled and in use, default 2
+ *   cluster.connector.acquireTimeoutMs  longest wait for a member session in use elsewhere, default 1000
+ *   cluster.connector.idleTimeoutMs   idle sessions are closed after this, default 60000
+ *   cluster.connector.healthCheckMs   idle time before a session is checked on borrow, default 10000
+ *   cluster.connector.minBackoffMs    first reconnect delay after a failed connect, default 1000
+ *   cluster.connector.maxBackoffMs    longest reconnect delay, default 60000
+ *   cluster.connector.readTimeoutMs   REST connector read timeout, default 5000
+ *   cluster.connector.user            user for the member REST connectors, default none
+ *   cluster.connector.password        password for the member REST connectors
+ */
+@ApplicationScoped
+public class MemberConnectorPool {
+
+    private static final Logger LOGGER = Logger.getLogger(MemberConnectorPool.class.getName());
+
+    private static final String REST_CONNECTOR_PATH = "/IBMJMXConnectorREST";
+    private static final String REST_CLIENT_PACKAGES = "com.ibm.ws.jmx.connector.client";
+    private static final String REST_READ_TIMEOUT = "com.ibm.ws.jmx.connector.client.rest.readTimeout";
+
+    /**
+     * Opens a connector to a member; replaced in tests and benchmarks
+     */
+    public interface Opener {
+        JMXConnector open(String host, int port) throws IOException;
+    }
+
+    private final int maxPerMember;
+    private final long idleTimeoutMillis;
+    private final long healthCheckMillis;
+    private final long minBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long acquireTimeoutMillis;
+    private final Opener opener;
+
+    private final ConcurrentHashMap<String, MemberSessions> members = new ConcurrentHashMap<>();
+
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong connectFailures = new AtomicLong();
+    private final AtomicLong reuses = new AtomicLong();
+    private final AtomicLong healthChecks = new AtomicLong();
+    private final AtomicLong healthCheckFailures = new AtomicLong();
+    private final AtomicLong backoffRejections = new AtomicLong();
+    private final AtomicLong acquireTimeouts = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private ScheduledExecutorService evictor;
+    private boolean localEvictor;
+    private ScheduledFuture<?> eviction;
+
+    public MemberConnectorPool() {
+        this(Integer.getInteger("cluster.connector.maxPerMember", 2),
+             Long.getLong("cluster.connector.idleTimeoutMs", 60000L),
+             Long.getLong("cluster.connector.healthCheckMs", 10000L),
+             Long.getLong("cluster.connector.minBackoffMs", 1000L),
+             Long.getLong("cluster.connector.maxBackoffMs", 60000L),
+             Long.getLong("cluster.connector.acquireTimeoutMs", 1000L),
+             restConnectorOpener(Long.getLong("cluster.connector.readTimeoutMs", 5000L),
+                 System.getProperty("cluster.connector.user"),
+                 System.getProperty("cluster.connector.password")));
+    }
+
+    public MemberConnectorPool(int maxPerMember, long idleTimeoutMillis, long healthCheckMillis,
+                               long minBackoffMillis, long maxBackoffMillis, long acquireTimeoutMillis,
+                               Opener opener) {
+        this.maxPerMember = Math.max(1, maxPerMember);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.healthCheckMillis = healthCheckMillis;
+        this.minBackoffMillis = Math.max(1, minBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.minBackoffMillis, maxBackoffMillis);
+        this.acquireTimeoutMillis = Math.max(0, acquireTimeoutMillis);
+        this.opener = opener;
+    }
+
+    @PostConstruct
+    public void start() {
+        evictor = ManagedExecutors.lookup(ManagedExecutors.DEFAULT_SCHEDULER, ManagedScheduledExecutorService.class);
+        localEvictor = evictor == null;
+        if (localEvictor) {
+            evictor = Executors.newSingleThreadScheduledExecutor(ManagedExecutors.namedDaemonThreads("cluster-connector-evictor"));
+        }
+        long period = Math.max(1000L, idleTimeoutMillis / 2);
+        eviction = evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // The managed scheduler belongs to the server: cancel the eviction task instead of shutting it down
+        if (eviction != null) {
+            eviction.cancel(true);
+        }
+        if (evictor != null && localEvictor) {
+            evictor.shutdownNow();
+        }
+        for (MemberSessions sessions : members.values()) {
+            sessions.closeAll();
+        }
+        members.clear();
+    }
+
+    /**
+     * Borrow a connected session to a member
+     * The lease must be closed; call {@link Lease#invalidate()} first if the connection failed.
+     *
+     * @throws IOException if the member cannot be connected to, is backing off after a failure,
+     *                     or has all its sessions in use for longer than the acquire timeout
+     */
+    public Lease acquire(String host, int port) throws IOException {
+        MemberSessions sessions = members.computeIfAbsent(host + ":" + port, key -> new MemberSessions(host, port));
+        return sessions.acquire();
+    }
+
+    /**
+     * Session counts and connect statistics
+     */
+    public JsonObject getStatistics() {
+        JsonArrayBuilder memberStats = Json.createArrayBuilder();
+        for (MemberSessions sessions : members.values()) {
+            memberStats.add(sessions.describe());
+        }
+        return Json.createObjectBuilder()
+            .add("maxPerMember", maxPerMember)
+            .add("acquireTimeoutMillis", acquireTimeoutMillis)
+            .add("connects", connects.get())
+            .add("connectFailures", connectFailures.get())
+            .add("reuses", reuses.get())
+            .add("healthChecks", healthChecks.get())
+            .add("healthCheckFailures", healthCheckFailures.get())
+            .add("backoffRejections", backoffRejections.get())
+            .add("acquireTimeouts", acquireTimeouts.get())
+            .add("evictions", evictions.get())
+            .add("members", memberStats)
+            .build();
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        for (MemberSessions sessions : members.values()) {
+            sessions.evictIdleSince(cutoff);
+        }
+    }
+
+    private static Opener restConnectorOpener(long readTimeoutMillis, String user, String password) {
+        return (host, port) -> {
+            Map<String, Object> environment = new HashMap<>();
+            environment.put(JMXConnectorFactory.PROTOCOL_PROVIDER_PACKAGES, REST_CLIENT_PACKAGES);
+            environment.put(REST_READ_TIMEOUT, readTimeoutMillis);
+            if (user != null) {
+                environment.put(JMXConnector.CREDENTIALS, new String[] {user, password != null ? password : ""});
+            }
+            JMXServiceURL url = new JMXServiceURL("REST", host, port, REST_CONNECTOR_PATH);
+            return JMXConnectorFactory.connect(url, environment);
+        };
+    }
+
+    private static void closeQuietly(JMXConnector connector) {
+        try {
+            connector.close();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.FINE, "Error closing member connector", e);
+        }
+    }
+
+    /**
+     * A borrowed member session
+     */
+    public static final class Lease implements AutoCloseable {
+        private final MemberSessions owner;
+        private final Session session;
+        private boolean invalid;
+        private boolean closed;
+
+        private Lease(MemberSessions owner, Session session) {
+            this.owner = owner;
+            this.session = session;
+        }
+
+        public MBeanServerConnection connection() {
+            return session.connection;
+        }
+
+        /**
+         * Mark the session broken so it is closed instead of returned to the pool
+         */
+        public void invalidate() {
+            invalid = true;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                owner.release(session, invalid);
+            }
+        }
+    }
+
+    private static final class Session {
+        final JMXConnector connector;
+        final MBeanServerConnection connection;
+        long lastUsed;
+
+        Session(JMXConnector connector, MBeanServerConnection connection) {
+            this.connector = connector;
+            this.connection = connection;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Idle sessions, session permits and connect backoff of one member
+     */
+    private final class MemberSessions {
+        private final String host;
+        private final int port;
+        /** One permit per session a caller may hold */
+        private final Semaphore leases = new Semaphore(maxPerMember);
+        private final ArrayDeque<Session> idle = new ArrayDeque<>();
+        private int open;
+        private long backoffMillis;
+        private long retryAt;
+        private String lastError;
+
+        MemberSessions(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        Lease acquire() throws IOException {
+            try {
+                if (!leases.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    acquireTimeouts.incrementAndGet();
+                    throw new IOException("All " + maxPerMember + " connector sessions to " + host + ":" + port
+                        + " stayed in use for " + acquireTimeoutMillis + "ms");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for a connector session to " + host + ":" + port);
+            }
+
+            boolean leased = false;
+            try {
+                while (true) {
+                    Session session;
+                    synchronized (this) {
+                        session = idle.pollFirst();
+                        if (session == null) {
+                            break;
+                        }
+                    }
+                    if (isHealthy(session)) {
+                        reuses.incrementAndGet();
+                        leased = true;
+                        return new Lease(this, session);
+                    }
+                    discard(session);
+                }
+                Lease lease = new Lease(this, connect());
+                leased = true;
+                return lease;
+            } finally {
+                if (!leased) {
+                    leases.release();
+                }
+            }
+        }
+
+        private boolean isHealthy(Session session) {
+            if (System.currentTimeMillis() - session.lastUsed < healthCheckMillis) {
+                return true;
+            }
+            healthChecks.incrementAndGet();
+            try {
+                session.connection.getMBeanCount();
+                return true;
+            } catch (IOException | RuntimeException e) {
+                healthCheckFailures.incrementAndGet();
+                LOGGER.log(Level.FINE, "Pooled connector to " + host + ":" + port + " failed its health check", e);
+                // The member is likely down; back off as after a failed connect instead of reconnecting at once
+                backOff(e);
+                return false;
+            }
+        }
+
+        private Session connect() throws IOException {
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                if (now < retryAt) {
+                    backoffRejections.incrementAndGet();
+                    throw new IOException("Connector to " + host + ":" + port + " is backing off for "
+                        + (retryAt - now) + "ms after: " + lastError);
+                }
+                open++;
+            }
+
+            JMXConnector connector = null;
+            try {
+                connector = opener.open(host, port);
+                Session session = new Session(connector, connector.getMBeanServerConnection());
+                connects.incrementAndGet();
+                synchronized (this) {
+                    backoffMillis = 0;
+                    retryAt = 0;
+                    lastError = null;
+                }
+                return session;
+            } catch (IOException | RuntimeException e) {
+                connectFailures.incrementAndGet();
+                if (connector != null) {
+                    closeQuietly(connector);
+                }
+                synchronized (this) {
+                    open--;
+                }
+                backOff(e);
+                throw e;
+            }
+        }
+
+        private synchronized void backOff(Exception failure) {
+            long now = System.currentTimeMillis();
+            if (now < retryAt) {
+                // Another session already failed within this backoff
+                return;
+            }
+            backoffMillis = backoffMillis == 0 ? minBackoffMillis : Math.min(maxBackoffMillis, backoffMillis * 2);
+            retryAt = now + backoffMillis;
+            lastError = failure.getClass().getSimpleName() + ": " + failure.getMessage();
+        }
+
+        void release(Session session, boolean invalid) {
+            try {
+                synchronized (this) {
+                    if (!invalid && idle.size() < maxPerMember) {
+                        session.lastUsed = System.currentTimeMillis();
+                        idle.addFirst(session);
+                        return;
+                    }
+                }
+                discard(session);
+            } finally {
+                leases.release();
+            }
+        }
+
+        private void discard(Session session) {
+            synchronized (this) {
+                open--;
+            }
+            closeQuietly(session.connector);
+        }
+
+        void evictIdleSince(long cutoff) {
+            while (true) {
+                Session session;
+                synchronized (this) {
+                    // The least recently used session is at the end
+                    session = idle.peekLast();
+                    if (session == null || session.lastUsed > cutoff) {
+                        return;
+                    }
+                    idle.pollLast();
+                }
+                evictions.incrementAndGet();
+                discard(session);
+            }
+        }
+
+        void closeAll() {
+            synchronized (this) {
+                for (Iterator<Session> it = idle.iterator(); it.hasNext(); ) {
+                    closeQuietly(it.next().connector);
+                    it.remove();
+                    open--;
+                }
+            }
+        }
+
+        synchronized JsonObject describe() {
+            long now = System.currentTimeMillis();
+            return Json.createObjectBuilder()
+                .add("member", host + ":" + port)
+                .add("open", open)
+                .add("inUse", maxPerMember - leases.availablePermits())
+                .add("idle", idle.size())
+                .add("backoffRemainingMillis", Math.max(0, retryAt - now))
+                .add("lastError", lastError != null ? lastError : "")
+                .build();
+        }
+    }
+}
+
+// Made with Bob
@@ -1,9 +1,8 @@
 package com.example.liberty.cluster;
 
+import javax.inject.Inject;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
-import javax.management.MBeanAttributeInfo;
-import javax.management.MBeanInfo;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
@@ -19,6 +18,9 @@ import java.util.Set;
 @Path("/member-details")
 public class MemberDetailsResource {
 
+    @Inject
+    private MBeanAttributeHarvester harvester;
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     public Response getMemberDetails() {
@@ -45,29 +47,22 @@ public class MemberDetailsResource {
                     memberDetails.put("name", mbean.getKeyProperty("name"));
                     memberDetails.put("properties", mbean.getKeyPropertyList());
                     
-                    // Get all available attributes
+                    // Get the useful attributes in one bulk read
                     try {
-                        MBeanInfo mbeanInfo = mbs.getMBeanInfo(mbean);
-                        MBeanAttributeInfo[] attributes = mbeanInfo.getAttributes();
-                        Map<String, Object> attributeValues = new HashMap<>();
+                        List<String> usefulAttributes = new ArrayList<>();
+                        for (String attrName : harvester.readableAttributes(mbs, mbean)) {
+                            if (attrName.contains("Host") || attrName.contains("Port") || 
+                                attrName.contains("Ssl") || attrName.contains("Ip") ||
+                                attrName.contains("Address") || attrName.contains("Endpoint") ||
+                                attrName.contains("Server") || attrName.contains("Name")) {
+                                usefulAttributes.add(attrName);
+                            }
+                        }
                         
-                        for (MBeanAttributeInfo attr : attributes) {
-                            if (attr.isReadable()) {
-                                try {
-                                    Object value = mbs.getAttribute(mbean, attr.getName());
-                                    if (value != null) {
-                                        // Extract useful information
-                                        String attrName = attr.getName();
-                                        if (attrName.contains("Host") || attrName.contains("Port") || 
-                                            attrName.contains("Ssl") || attrName.contains("Ip") ||
-                                            attrName.contains("Address") || attrName.contains("Endpoint") ||
-                                            attrName.contains("Server") || attrName.contains("Name")) {
-                                            attributeValues.put(attrName, value.toString());
-                                        }
-                                    }
-                                } catch (Exception e) {
-                                    // Skip attributes that can't be read
-                                }
+                        Map<String, Object> attributeValues = new HashMap<>();
+                        for (Map.Entry<String, Object> attr : harvester.read(mbs, mbean, usefulAttributes.toArray(new String[0])).entrySet()) {
+                            if (attr.getValue() != null) {
+                                attributeValues.put(attr.getKey(), attr.getValue().toString());
                             }
                         }
                         
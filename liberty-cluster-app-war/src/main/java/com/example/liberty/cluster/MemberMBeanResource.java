@@ -1,28 +1,33 @@
 package com.example.liberty.cluster;
 
+import com.example.mbean.MBeanCatalog;
+
+import javax.inject.Inject;
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 import javax.management.MBeanServer;
-import javax.management.MBeanServerConnection;
 import javax.management.ObjectName;
-import javax.management.remote.JMXConnector;
-import javax.management.remote.JMXConnectorFactory;
-import javax.management.remote.JMXServiceURL;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -36,89 +41,359 @@ public class MemberMBeanResource {
     
     private static final Logger LOGGER = Logger.getLogger(MemberMBeanResource.class.getName());
     private static final String COUNTER_MBEAN_NAME = "com.example.liberty.member:type=Counter";
+    private static final String[] SERVER_ATTRIBUTES = {"Cluster", "HostName", "HttpsPort", "State"};
+    private static final String[] COUNTER_ATTRIBUTES = {"Counter", "TotalRequests", "MemberName"};
+    /**
+     * Every routed Counter MBean in the collective, in one query: the member's
+     * Counter MBean name with the host and server keys added and no other keys,
+     * so named counters and other Counter types do not match
+     */
+    private static final String COLLECTIVE_COUNTER_PATTERN = COUNTER_MBEAN_NAME + ",host=*,server=*";
+    private static final String SCAN_MODE_COLLECTIVE = "collective";
+    private static final String SCAN_MODE_DIRECT = "direct";
+    
+    @Inject
+    private ClusterScanExecutor scanExecutor;
+    
+    @Inject
+    private MBeanAttributeHarvester harvester;
+    
+    @Inject
+    private MBeanCatalog catalog;
+    
+    @Inject
+    private MemberConnectorPool connectorPool;
     
     /**
      * Get counter MBean values from all members in a cluster
+     * The request is suspended and the scan runs on the dedicated cluster scan executor
+     * With mode=collective all Counter MBeans are found with one collective-wide query
+     * and read in parallel, instead of two queries and a read per member in turn.
+     * With mode=direct each member's Counter MBean is read in parallel over a pooled
+     * REST connector session to the member, falling back to collective routing.
      * @param clusterName The name of the cluster (optional, if not provided, queries all members)
+     * @param mode Scan mode (optional): "collective" for the single-query scan, "direct" for
+     *             pooled member connectors, otherwise per member through the controller
      */
     @GET
     @Path("/counters")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllMemberCounters(@QueryParam("clusterName") String clusterName) {
-        try {
-            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
-            
-            // Verify this is running on a collective controller
-            ObjectName controllerMBeanName = new ObjectName(
-                "WebSphere:feature=collectiveController,type=CollectiveRepository,name=CollectiveRepository");
-            
-            if (!mbs.isRegistered(controllerMBeanName)) {
-                JsonObject error = Json.createObjectBuilder()
-                    .add("error", "This endpoint must be deployed on a Liberty Collective Controller")
-                    .add("mbean_not_found", controllerMBeanName.toString())
-                    .build();
-                return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(error).build();
+    public void getAllMemberCounters(@QueryParam("clusterName") final String clusterName,
+                                     @QueryParam("mode") final String mode,
+                                     @Suspended final AsyncResponse asyncResponse) {
+        final Callable<Response> scan;
+        if (SCAN_MODE_COLLECTIVE.equalsIgnoreCase(mode)) {
+            scan = () -> scanCollectiveCounters(clusterName);
+        } else if (SCAN_MODE_DIRECT.equalsIgnoreCase(mode)) {
+            scan = () -> scanDirectCounters(clusterName);
+        } else {
+            scan = () -> scanMemberCounters(clusterName);
+        }
+        scanExecutor.resume(asyncResponse, scan, e -> {
+            LOGGER.log(Level.SEVERE, "Failed to query member counters", e);
+            JsonObject error = Json.createObjectBuilder()
+                .add("error", "Failed to query member counters")
+                .add("message", String.valueOf(e.getMessage()))
+                .add("type", e.getClass().getName())
+                .build();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(error).build();
+        });
+    }
+    
+    /**
+     * Get occupancy of the executor running cluster-wide counter scans
+     * with the bulk attribute read, MBean catalog and member connector pool counters
+     */
+    @GET
+    @Path("/executor")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getExecutorStatistics() {
+        JsonObject response = Json.createObjectBuilder(scanExecutor.getStatistics())
+            .add("attributeHarvester", harvester.getStatistics())
+            .add("mbeanCatalog", catalog.getStatistics())
+            .add("memberConnectors", connectorPool.getStatistics())
+            .add("timestamp", System.currentTimeMillis())
+            .build();
+        return Response.ok(response).build();
+    }
+    
+    private Response scanMemberCounters(String clusterName) throws Exception {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        
+        // Verify this is running on a collective controller
+        ObjectName controllerMBeanName = new ObjectName(
+            "WebSphere:feature=collectiveController,type=CollectiveRepository,name=CollectiveRepository");
+        
+        if (!mbs.isRegistered(controllerMBeanName)) {
+            JsonObject error = Json.createObjectBuilder()
+                .add("error", "This endpoint must be deployed on a Liberty Collective Controller")
+                .add("mbean_not_found", controllerMBeanName.toString())
+                .build();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(error).build();
+        }
+        
+        LOGGER.info("Querying counter MBeans from cluster members" + 
+                   (clusterName != null ? " in cluster: " + clusterName : ""));
+        
+        // Get all cluster members
+        List<Map<String, Object>> members = getClusterMembers(mbs, clusterName);
+        
+        JsonArrayBuilder membersArray = Json.createArrayBuilder();
+        int successCount = 0;
+        int errorCount = 0;
+        
+        for (Map<String, Object> member : members) {
+            if (Thread.interrupted()) {
+                // Cancelled by the scan timeout; the client was already answered
+                throw new InterruptedException("Cluster scan cancelled");
             }
+            String serverName = (String) member.get("serverName");
+            String hostName = (String) member.get("hostName");
+            String httpsPort = (String) member.get("httpsPort");
             
-            LOGGER.info("Querying counter MBeans from cluster members" + 
-                       (clusterName != null ? " in cluster: " + clusterName : ""));
-            
-            // Get all cluster members
-            List<Map<String, Object>> members = getClusterMembers(mbs, clusterName);
-            
-            JsonArrayBuilder membersArray = Json.createArrayBuilder();
-            int successCount = 0;
-            int errorCount = 0;
-            
-            for (Map<String, Object> member : members) {
-                String serverName = (String) member.get("serverName");
-                String hostName = (String) member.get("hostName");
-                String httpsPort = (String) member.get("httpsPort");
+            try {
+                JsonObject counterData = queryMemberCounterMBean(
+                    mbs, serverName, hostName, httpsPort);
+                membersArray.add(counterData);
                 
+                if (counterData.containsKey("counter")) {
+                    successCount++;
+                } else {
+                    errorCount++;
+                }
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Failed to query counter from member: " + serverName, e);
+                JsonObject errorData = Json.createObjectBuilder()
+                    .add("serverName", serverName)
+                    .add("hostName", hostName != null ? hostName : "unknown")
+                    .add("status", "error")
+                    .add("message", e.getMessage())
+                    .build();
+                membersArray.add(errorData);
+                errorCount++;
+            }
+        }
+        
+        JsonObjectBuilder responseBuilder = Json.createObjectBuilder()
+            .add("clusterName", clusterName != null ? clusterName : "all")
+            .add("totalMembers", members.size())
+            .add("successCount", successCount)
+            .add("errorCount", errorCount)
+            .add("members", membersArray)
+            .add("timestamp", System.currentTimeMillis());
+        
+        return Response.ok(responseBuilder.build()).build();
+    }
+    
+    /**
+     * Scan all members with one Counter MBean query across the collective
+     * Each found MBean is read with one bulk attribute call; the reads run in parallel
+     */
+    private Response scanCollectiveCounters(String clusterName) throws Exception {
+        final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        
+        ObjectName controllerMBeanName = new ObjectName(
+            "WebSphere:feature=collectiveController,type=CollectiveRepository,name=CollectiveRepository");
+        
+        if (!mbs.isRegistered(controllerMBeanName)) {
+            JsonObject error = Json.createObjectBuilder()
+                .add("error", "This endpoint must be deployed on a Liberty Collective Controller")
+                .add("mbean_not_found", controllerMBeanName.toString())
+                .build();
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(error).build();
+        }
+        
+        List<Map<String, Object>> members = getClusterMembers(mbs, clusterName);
+        
+        // One query finds the Counter MBeans of every member
+        Set<ObjectName> counterMBeans = mbs.queryNames(new ObjectName(COLLECTIVE_COUNTER_PATTERN), null);
+        LOGGER.info("Found " + counterMBeans.size() + " counter MBeans across the collective");
+        
+        Map<String, ObjectName> countersByMember = new HashMap<>();
+        Map<String, ObjectName> countersByServer = new HashMap<>();
+        Set<String> sharedServerNames = new HashSet<>();
+        for (ObjectName counterMBean : counterMBeans) {
+            String server = counterMBean.getKeyProperty("server");
+            countersByMember.put(memberKey(counterMBean.getKeyProperty("host"), server), counterMBean);
+            if (countersByServer.putIfAbsent(server, counterMBean) != null) {
+                sharedServerNames.add(server);
+            }
+        }
+        // A server name alone identifies a member only if no other host has a server of that name
+        countersByServer.keySet().removeAll(sharedServerNames);
+        
+        List<Supplier<JsonObject>> reads = new ArrayList<>(members.size());
+        for (Map<String, Object> member : members) {
+            final String serverName = (String) member.get("serverName");
+            final String hostName = (String) member.get("hostName");
+            ObjectName found = countersByMember.get(memberKey(hostName, serverName));
+            final ObjectName counterMBean = found != null ? found : countersByServer.get(serverName);
+            reads.add(() -> readCounter(mbs, serverName, hostName, counterMBean));
+        }
+        
+        JsonArrayBuilder membersArray = Json.createArrayBuilder();
+        int successCount = 0;
+        int errorCount = 0;
+        for (JsonObject counterData : scanExecutor.fetchAll(reads)) {
+            membersArray.add(counterData);
+            if (counterData.containsKey("counter")) {
+                successCount++;
+            } else {
+                errorCount++;
+            }
+        }
+        
+        JsonObjectBuilder responseBuilder = Json.createObjectBuilder()
+            .add("clusterName", clusterName != null ? clusterName : "all")
+            .add("mode", SCAN_MODE_COLLECTIVE)
+            .add("discoveredCounters", counterMBeans.size())
+            .add("totalMembers", members.size())
+            .add("successCount", successCount)
+            .add("errorCount", errorCount)
+            .add("members", membersArray)
+            .add("timestamp", System.currentTimeMillis());
+        
+        return Response.ok(responseBuilder.build()).build();
+    }
+    
+    /**
+     * Scan all members by reading their Counter MBeans directly over pooled REST connectors
+     * Members without a known HTTPS port, or whose connector fails, are read through the controller
+     */
+    private Response scanDirectCounters(String clusterName) throws Exception {
+        final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        List<Map<String, Object>> members = getClusterMembers(mbs, clusterName);
+        
+        List<Supplier<JsonObject>> reads = new ArrayList<>(members.size());
+        for (Map<String, Object> member : members) {
+            final String serverName = (String) member.get("serverName");
+            final String hostName = (String) member.get("hostName");
+            final String httpsPort = (String) member.get("httpsPort");
+            reads.add(() -> readCounterDirect(mbs, serverName, hostName, httpsPort));
+        }
+        
+        JsonArrayBuilder membersArray = Json.createArrayBuilder();
+        int successCount = 0;
+        int errorCount = 0;
+        int directCount = 0;
+        for (JsonObject counterData : scanExecutor.fetchAll(reads)) {
+            membersArray.add(counterData);
+            if (counterData.containsKey("counter")) {
+                successCount++;
+            } else {
+                errorCount++;
+            }
+            if (SCAN_MODE_DIRECT.equals(counterData.getString("route", null))) {
+                directCount++;
+            }
+        }
+        
+        JsonObjectBuilder responseBuilder = Json.createObjectBuilder()
+            .add("clusterName", clusterName != null ? clusterName : "all")
+            .add("mode", SCAN_MODE_DIRECT)
+            .add("totalMembers", members.size())
+            .add("successCount", successCount)
+            .add("errorCount", errorCount)
+            .add("directCount", directCount)
+            .add("members", membersArray)
+            .add("timestamp", System.currentTimeMillis());
+        
+        return Response.ok(responseBuilder.build()).build();
+    }
+    
+    /**
+     * Read a member's Counter MBean over a pooled connector, or through the controller if that fails
+     */
+    private JsonObject readCounterDirect(MBeanServer mbs, String serverName, String hostName, String httpsPort) {
+        if (hostName != null && httpsPort != null) {
+            try (MemberConnectorPool.Lease lease = connectorPool.acquire(hostName, Integer.parseInt(httpsPort))) {
                 try {
-                    JsonObject counterData = queryMemberCounterMBean(
-                        mbs, serverName, hostName, httpsPort);
-                    membersArray.add(counterData);
-                    
-                    if (counterData.containsKey("counter")) {
-                        successCount++;
-                    } else {
-                        errorCount++;
-                    }
-                } catch (Exception e) {
-                    LOGGER.log(Level.WARNING, "Failed to query counter from member: " + serverName, e);
-                    JsonObject errorData = Json.createObjectBuilder()
+                    ObjectName counterMBean = new ObjectName(COUNTER_MBEAN_NAME);
+                    JsonObjectBuilder resultBuilder = Json.createObjectBuilder()
                         .add("serverName", serverName)
-                        .add("hostName", hostName != null ? hostName : "unknown")
-                        .add("status", "error")
-                        .add("message", e.getMessage())
+                        .add("hostName", hostName);
+                    addCounterAttributes(resultBuilder, counterMBean,
+                        harvester.read(lease.connection(), counterMBean, COUNTER_ATTRIBUTES));
+                    return resultBuilder
+                        .add("route", SCAN_MODE_DIRECT)
+                        .add("timestamp", System.currentTimeMillis())
                         .build();
-                    membersArray.add(errorData);
-                    errorCount++;
+                } catch (IOException e) {
+                    lease.invalidate();
+                    throw e;
                 }
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Direct read failed for " + serverName + ", routing through the controller", e);
             }
-            
-            JsonObjectBuilder responseBuilder = Json.createObjectBuilder()
-                .add("clusterName", clusterName != null ? clusterName : "all")
-                .add("totalMembers", members.size())
-                .add("successCount", successCount)
-                .add("errorCount", errorCount)
-                .add("members", membersArray)
-                .add("timestamp", System.currentTimeMillis());
-            
-            return Response.ok(responseBuilder.build()).build();
-            
+        }
+        try {
+            return Json.createObjectBuilder(queryMemberCounterMBean(mbs, serverName, hostName, httpsPort))
+                .add("route", "controller")
+                .build();
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Failed to query member counters", e);
-            JsonObject error = Json.createObjectBuilder()
-                .add("error", "Failed to query member counters")
-                .add("message", e.getMessage())
-                .add("type", e.getClass().getName())
+            return Json.createObjectBuilder()
+                .add("serverName", serverName)
+                .add("hostName", hostName != null ? hostName : "unknown")
+                .add("status", "error")
+                .add("message", String.valueOf(e.getMessage()))
+                .add("timestamp", System.currentTimeMillis())
                 .build();
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(error).build();
         }
     }
     
+    /**
+     * Read a member's Counter MBean found by the collective-wide query
+     */
+    private JsonObject readCounter(MBeanServer mbs, String serverName, String hostName, ObjectName counterMBean) {
+        JsonObjectBuilder resultBuilder = Json.createObjectBuilder();
+        resultBuilder.add("serverName", serverName);
+        resultBuilder.add("hostName", hostName != null ? hostName : "unknown");
+        
+        if (counterMBean == null) {
+            resultBuilder.add("status", "mbean_not_found");
+            resultBuilder.add("message", "Counter MBean not found on member. Ensure member-app is deployed and running.");
+            resultBuilder.add("searchPattern", COLLECTIVE_COUNTER_PATTERN);
+        } else {
+            try {
+                addCounterAttributes(resultBuilder, counterMBean, harvester.read(mbs, counterMBean, COUNTER_ATTRIBUTES));
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Error reading counter MBean for " + serverName, e);
+                resultBuilder.add("status", "error");
+                resultBuilder.add("message", String.valueOf(e.getMessage()));
+                resultBuilder.add("errorType", e.getClass().getSimpleName());
+            }
+        }
+        
+        resultBuilder.add("timestamp", System.currentTimeMillis());
+        return resultBuilder.build();
+    }
+    
+    /**
+     * Add the values of a bulk Counter MBean read to a member result
+     */
+    private static void addCounterAttributes(JsonObjectBuilder resultBuilder, ObjectName counterMBean,
+                                             Map<String, Object> values) {
+        Object counter = values.get("Counter");
+        Object totalRequests = values.get("TotalRequests");
+        if (!(counter instanceof Number) || !(totalRequests instanceof Number)) {
+            resultBuilder.add("status", "error");
+            resultBuilder.add("message", "Counter attributes could not be read from " + counterMBean);
+            return;
+        }
+        Object mbeanMemberName = values.get("MemberName");
+        if (mbeanMemberName != null) {
+            resultBuilder.add("mbeanMemberName", mbeanMemberName.toString());
+        }
+        resultBuilder.add("counter", ((Number) counter).longValue());
+        resultBuilder.add("totalRequests", ((Number) totalRequests).longValue());
+        resultBuilder.add("status", "success");
+        resultBuilder.add("mbeanObjectName", counterMBean.toString());
+    }
+    
+    private static String memberKey(String hostName, String serverName) {
+        return (hostName != null ? hostName : "") + "/" + serverName;
+    }
+    
     /**
      * Get counter MBean value from a specific member
      */
@@ -230,16 +505,12 @@ public class MemberMBeanResource {
         
         for (ObjectName serverMBean : serverMBeans) {
             try {
+                // Read the server attributes in one bulk call; missing attributes are left out
+                Map<String, Object> attributes = harvester.read(mbs, serverMBean, SERVER_ATTRIBUTES);
+                Object clusterAttr = attributes.get("Cluster");
+                
                 // If clusterName is specified, filter by cluster
                 if (clusterName != null && !clusterName.trim().isEmpty()) {
-                    Object clusterAttr = null;
-                    try {
-                        clusterAttr = mbs.getAttribute(serverMBean, "Cluster");
-                    } catch (Exception e) {
-                        // Server might not have cluster attribute
-                        continue;
-                    }
-                    
                     if (clusterAttr == null || !clusterName.equals(clusterAttr.toString())) {
                         continue;
                     }
@@ -252,42 +523,28 @@ public class MemberMBeanResource {
                 memberInfo.put("serverName", serverName);
                 
                 // Get cluster name if available
-                try {
-                    Object clusterAttr = mbs.getAttribute(serverMBean, "Cluster");
-                    if (clusterAttr != null) {
-                        memberInfo.put("clusterName", clusterAttr.toString());
-                    }
-                } catch (Exception e) {
-                    // No cluster attribute
+                if (clusterAttr != null) {
+                    memberInfo.put("clusterName", clusterAttr.toString());
                 }
                 
                 // Get host information
-                try {
-                    Object hostNameAttr = mbs.getAttribute(serverMBean, "HostName");
-                    if (hostNameAttr != null) {
-                        memberInfo.put("hostName", hostNameAttr.toString());
-                    }
-                } catch (Exception e) {
+                if (attributes.get("HostName") != null) {
+                    memberInfo.put("hostName", attributes.get("HostName").toString());
+                } else {
                     LOGGER.fine("Could not get HostName for " + serverName);
                 }
                 
                 // Get HTTPS port
-                try {
-                    Object httpsPortAttr = mbs.getAttribute(serverMBean, "HttpsPort");
-                    if (httpsPortAttr != null) {
-                        memberInfo.put("httpsPort", httpsPortAttr.toString());
-                    }
-                } catch (Exception e) {
+                if (attributes.get("HttpsPort") != null) {
+                    memberInfo.put("httpsPort", attributes.get("HttpsPort").toString());
+                } else {
                     LOGGER.fine("Could not get HttpsPort for " + serverName);
                 }
                 
                 // Get server state
-                try {
-                    Object stateAttr = mbs.getAttribute(serverMBean, "State");
-                    if (stateAttr != null) {
-                        memberInfo.put("state", stateAttr.toString());
-                    }
-                } catch (Exception e) {
+                if (attributes.get("State") != null) {
+                    memberInfo.put("state", attributes.get("State").toString());
+                } else {
                     LOGGER.fine("Could not get State for " + serverName);
                 }
                 
@@ -327,51 +584,34 @@ public class MemberMBeanResource {
         resultBuilder.add("hostName", hostName != null ? hostName : "unknown");
         
         try {
-            // Try to query the counter MBean through the collective controller's routing
-            // The MBean name pattern for accessing member MBeans through the controller
-            String mbeanPattern = String.format(
-                "WebSphere:feature=collectiveController,type=Runtime,name=%s,host=%s,server=%s,*",
-                hostName, hostName, serverName
-            );
-            
-            ObjectName runtimeQuery = new ObjectName(mbeanPattern);
-            Set<ObjectName> runtimeMBeans = mbs.queryNames(runtimeQuery, null);
-            
-            LOGGER.info("Found " + runtimeMBeans.size() + " runtime MBeans for server: " + serverName);
-            
-            // Try to find our counter MBean
-            // The counter MBean should be accessible through the collective controller
-            // Pattern: WebSphere:feature=collectiveController,type=Runtime,name=<host>,host=<host>,server=<server>,<original-mbean-properties>
-            String counterMBeanPattern = String.format(
-                "WebSphere:feature=collectiveController,type=Runtime,name=%s,host=%s,server=%s,type=Counter,*",
-                hostName, hostName, serverName
-            );
-            
-            ObjectName counterQuery = new ObjectName(counterMBeanPattern);
-            Set<ObjectName> counterMBeans = mbs.queryNames(counterQuery, null);
+            // The controller routes the member's Counter MBean under its own name with host and server keys
+            ObjectName counterMBean = null;
+            String searchPattern;
+            if (hostName != null) {
+                ObjectName routed = new ObjectName(COUNTER_MBEAN_NAME + ",host=" + hostName + ",server=" + serverName);
+                searchPattern = routed.toString();
+                if (mbs.isRegistered(routed)) {
+                    counterMBean = routed;
+                }
+            } else {
+                ObjectName counterQuery = new ObjectName(COUNTER_MBEAN_NAME + ",host=*,server=" + serverName);
+                searchPattern = counterQuery.toString();
+                Set<ObjectName> counterMBeans = mbs.queryNames(counterQuery, null);
+                // Without the host, a server name shared by several hosts does not identify the member
+                if (counterMBeans.size() == 1) {
+                    counterMBean = counterMBeans.iterator().next();
+                }
+            }
             
-            if (counterMBeans.isEmpty()) {
-                // Try alternative pattern - direct member MBean access
-                // This requires the member to have restConnector enabled
+            if (counterMBean == null) {
                 resultBuilder.add("status", "mbean_not_found");
                 resultBuilder.add("message", "Counter MBean not found on member. Ensure member-app is deployed and running.");
-                resultBuilder.add("searchPattern", counterMBeanPattern);
+                resultBuilder.add("searchPattern", searchPattern);
                 return resultBuilder.build();
             }
             
-            // Get the first counter MBean found
-            ObjectName counterMBean = counterMBeans.iterator().next();
-            
-            // Get MBean attributes
-            Long counter = (Long) mbs.getAttribute(counterMBean, "Counter");
-            Long totalRequests = (Long) mbs.getAttribute(counterMBean, "TotalRequests");
-            String mbeanMemberName = (String) mbs.getAttribute(counterMBean, "MemberName");
-            
-            resultBuilder.add("mbeanMemberName", mbeanMemberName);
-            resultBuilder.add("counter", counter);
-            resultBuilder.add("totalRequests", totalRequests);
-            resultBuilder.add("status", "success");
-            resultBuilder.add("mbeanObjectName", counterMBean.toString());
+            // Get MBean attributes in one bulk call
+            addCounterAttributes(resultBuilder, counterMBean, harvester.read(mbs, counterMBean, COUNTER_ATTRIBUTES));
             
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Error querying counter MBean for " + serverName, e);
@@ -1,14 +1,32 @@
 package com.example.liberty.member;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Implementation of CounterMBean for tracking request counts
+ *
+ * Increments go to a striped {@link LongAdder}, so concurrent requests update
+ * separate cells instead of contending on a single cache line. The adder is
+ * never reset; a reset records the current sum as a base that reads subtract.
+ * An increment racing with a reset is therefore either included in the base or
+ * still visible afterwards, never lost.
+ *
+ * The version is the number of increments plus the number of resets (plus a
+ * restored version), so it grows whenever the value may have changed and
+ * never goes backwards. Read it
+ * before the value: a value read afterwards is at least as new as the version.
+ *
+ * Request rates and latency percentiles are recorded by the JAX-RS layer
+ * through {@link #recordRequest(long)}. Their fixed-size buffers are only
+ * allocated for counters that record requests, so named counters stay small.
  */
 public class Counter implements CounterMBean {
     
-    private final AtomicLong counter = new AtomicLong(0);
+    private final LongAdder increments = new LongAdder();
     private final String memberName;
+    private volatile long resetBase;
+    private volatile long resetCount;
+    private volatile RequestMetrics requestMetrics;
     
     public Counter(String memberName) {
         this.memberName = memberName;
@@ -18,28 +36,120 @@ public class Counter implements CounterMBean {
      * Increment the counter
      */
     public void increment() {
-        counter.incrementAndGet();
+        increments.increment();
+    }
+    
+    /**
+     * Record a served request for the rate and latency attributes
+     * @param latencyNanos time taken to serve the request
+     */
+    public void recordRequest(long latencyNanos) {
+        RequestMetrics metrics = requestMetrics;
+        if (metrics == null) {
+            metrics = createRequestMetrics();
+        }
+        metrics.rate.record();
+        metrics.latency.record(latencyNanos);
     }
     
     @Override
     public long getCounter() {
-        return counter.get();
+        // Read the base before the sum so a concurrent reset can't make the value negative
+        long base = resetBase;
+        return Math.max(0, increments.sum() - base);
     }
     
     @Override
     public long getTotalRequests() {
-        return counter.get();
+        return getCounter();
+    }
+    
+    @Override
+    public synchronized void resetCounter() {
+        resetBase = increments.sum();
+        resetCount++;
+    }
+    
+    /**
+     * Continue from a persisted value and version, typically before the counter serves requests
+     * Both are added to the current ones, so increments made before the restore are kept.
+     */
+    public synchronized void restore(long value, long version) {
+        resetBase -= value;
+        resetCount += version;
     }
     
     @Override
-    public void resetCounter() {
-        counter.set(0);
+    public long getVersion() {
+        return increments.sum() + resetCount;
+    }
+    
+    @Override
+    public double getRequestRate1s() {
+        RequestMetrics metrics = requestMetrics;
+        return metrics != null ? metrics.rate.getRate(1) : 0.0;
+    }
+    
+    @Override
+    public double getRequestRate10s() {
+        RequestMetrics metrics = requestMetrics;
+        return metrics != null ? metrics.rate.getRate(10) : 0.0;
+    }
+    
+    @Override
+    public double getRequestRate60s() {
+        RequestMetrics metrics = requestMetrics;
+        return metrics != null ? metrics.rate.getRate(60) : 0.0;
+    }
+    
+    @Override
+    public long getLatencyP50Micros() {
+        return latencyPercentile(0.50);
+    }
+    
+    @Override
+    public long getLatencyP99Micros() {
+        return latencyPercentile(0.99);
+    }
+    
+    @Override
+    public long getLatencyP999Micros() {
+        return latencyPercentile(0.999);
+    }
+    
+    @Override
+    public long getLatencySampleCount() {
+        RequestMetrics metrics = requestMetrics;
+        return metrics != null ? metrics.latency.getCount() : 0;
+    }
+    
+    @Override
+    public long[] getLatencyBucketCounts() {
+        RequestMetrics metrics = requestMetrics;
+        return metrics != null ? metrics.latency.getBucketCounts() : new long[LatencyHistogram.BUCKETS];
     }
     
     @Override
     public String getMemberName() {
         return memberName;
     }
+    
+    private long latencyPercentile(double percentile) {
+        RequestMetrics metrics = requestMetrics;
+        return metrics != null ? metrics.latency.getPercentileMicros(percentile) : 0;
+    }
+    
+    private synchronized RequestMetrics createRequestMetrics() {
+        if (requestMetrics == null) {
+            requestMetrics = new RequestMetrics();
+        }
+        return requestMetrics;
+    }
+    
+    private static final class RequestMetrics {
+        final RequestRate rate = new RequestRate();
+        final LatencyHistogram latency = new LatencyHistogram();
+    }
 }
 
 // Made with Bob
@@ -0,0 +1,196 @@
+package com.example.liberty.member;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Direct JSON encoding of the member counter responses
+ *
+ * The "memberName" prefix is encoded once per counter and the numbers are
+ * written digit by digit into a buffer of exactly the response's length, so
+ * answering {@code GET /counter/increment} and {@code GET /counter} allocates
+ * one byte array and no map, boxed longs or JSON-B serializer state. The bytes
+ * are the same JSON objects the JSON-B path produces, with the fields in a
+ * fixed order.
+ *
+ * Endpoints using this encoding are chosen with the member.json.direct system
+ * property: a comma-separated list of increment and counter (default both),
+ * or none to serialize every response with JSON-B.
+ */
+public final class CounterJson {
+
+    private static final Logger LOGGER = Logger.getLogger(CounterJson.class.getName());
+
+    public static final String ENDPOINT_INCREMENT = "increment";
+    public static final String ENDPOINT_COUNTER = "counter";
+
+    /** Endpoints that can use the direct encoding */
+    public static final Set<String> ENDPOINTS = Collections.unmodifiableSet(
+        new LinkedHashSet<>(Arrays.asList(ENDPOINT_INCREMENT, ENDPOINT_COUNTER)));
+
+    private static final byte[] TOTAL_REQUESTS = bytes(",\"totalRequests\":");
+    private static final byte[] VERSION = bytes(",\"version\":");
+    private static final byte[] INCREMENTED = bytes(",\"message\":\"Counter incremented successfully\"}");
+
+    private final byte[] prefix;
+
+    /**
+     * @param memberName member name written in every response
+     */
+    public CounterJson(String memberName) {
+        this.prefix = bytes("{\"memberName\":" + quote(memberName) + ",\"counter\":");
+    }
+
+    /**
+     * Parse the member.json.direct endpoint selection
+     *
+     * @param endpoints comma-separated endpoint names, or none; null selects every endpoint
+     * @return the endpoints to encode directly, without unknown names
+     */
+    public static Set<String> parseEndpoints(String endpoints) {
+        if (endpoints == null) {
+            return ENDPOINTS;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String endpoint : endpoints.split(",")) {
+            String name = endpoint.trim().toLowerCase(Locale.ROOT);
+            if (name.isEmpty() || "none".equals(name)) {
+                continue;
+            }
+            if (ENDPOINTS.contains(name)) {
+                selected.add(name);
+            } else {
+                LOGGER.warning("Ignoring unknown endpoint in member.json.direct: " + name + ", expected one of " + ENDPOINTS);
+            }
+        }
+        return Collections.unmodifiableSet(selected);
+    }
+
+    /**
+     * Encode the response of {@code GET /counter/increment}
+     */
+    public Payload increment(long counter, long totalRequests) {
+        byte[] bytes = new byte[prefix.length + length(counter) + TOTAL_REQUESTS.length + length(totalRequests)
+            + INCREMENTED.length];
+        int position = append(bytes, 0, prefix);
+        position = writeLong(bytes, position, counter);
+        position = append(bytes, position, TOTAL_REQUESTS);
+        position = writeLong(bytes, position, totalRequests);
+        append(bytes, position, INCREMENTED);
+        return new Payload(bytes);
+    }
+
+    /**
+     * Encode the response of {@code GET /counter}
+     */
+    public Payload counter(long counter, long totalRequests, long version) {
+        byte[] bytes = new byte[prefix.length + length(counter) + TOTAL_REQUESTS.length + length(totalRequests)
+            + VERSION.length + length(version) + 1];
+        int position = append(bytes, 0, prefix);
+        position = writeLong(bytes, position, counter);
+        position = append(bytes, position, TOTAL_REQUESTS);
+        position = writeLong(bytes, position, totalRequests);
+        position = append(bytes, position, VERSION);
+        position = writeLong(bytes, position, version);
+        bytes[position] = '}';
+        return new Payload(bytes);
+    }
+
+    private static int append(byte[] bytes, int position, byte[] value) {
+        System.arraycopy(value, 0, bytes, position, value.length);
+        return position + value.length;
+    }
+
+    /**
+     * Write the decimal digits of a long
+     *
+     * @return the position after the last digit
+     */
+    static int writeLong(byte[] bytes, int position, long value) {
+        // Write digits of the negated value so Long.MIN_VALUE needs no special case
+        long negative = value;
+        if (value < 0) {
+            bytes[position++] = '-';
+        } else {
+            negative = -value;
+        }
+        int end = position + digits(negative);
+        for (int i = end - 1; i >= position; i--) {
+            bytes[i] = (byte) ('0' - negative % 10);
+            negative /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * Length of the decimal form of a long, including its sign
+     */
+    static int length(long value) {
+        return value < 0 ? 1 + digits(value) : digits(-value);
+    }
+
+    /**
+     * Digits of a value that is zero or negative
+     */
+    private static int digits(long negative) {
+        int digits = 1;
+        for (long rest = negative / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * JSON string literal with quotes, backslashes and control characters escaped
+     */
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encoded response entity, written by {@link CounterJsonWriter}
+     */
+    public static final class Payload {
+
+        private final byte[] bytes;
+
+        private Payload(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public int getLength() {
+            return bytes.length;
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,39 @@
+package com.example.liberty.member;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Writes {@link CounterJson} payloads as they are, bypassing JSON-B
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class CounterJsonWriter implements MessageBodyWriter<CounterJson.Payload> {
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type == CounterJson.Payload.class;
+    }
+
+    @Override
+    public long getSize(CounterJson.Payload payload, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType) {
+        return payload.getLength();
+    }
+
+    @Override
+    public void writeTo(CounterJson.Payload payload, Class<?> type, Type genericType, Annotation[] annotations,
+                        MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+            throws IOException {
+        entityStream.write(payload.getBytes(), 0, payload.getLength());
+    }
+}
+
+// Made with Bob
@@ -22,6 +22,63 @@ public interface CounterMBean {
      */
     void resetCounter();
     
+    /**
+     * Get the version of the counter value
+     * Increases on every increment and reset and never decreases, so clients can
+     * tell whether the counter changed without comparing values
+     * @return monotonically increasing version
+     */
+    long getVersion();
+    
+    /**
+     * Get the average request rate over the last second
+     * @return requests per second
+     */
+    double getRequestRate1s();
+    
+    /**
+     * Get the average request rate over the last 10 seconds
+     * @return requests per second
+     */
+    double getRequestRate10s();
+    
+    /**
+     * Get the average request rate over the last 60 seconds
+     * @return requests per second
+     */
+    double getRequestRate60s();
+    
+    /**
+     * Get the median request latency over the last minute
+     * @return latency in microseconds
+     */
+    long getLatencyP50Micros();
+    
+    /**
+     * Get the 99th percentile request latency over the last minute
+     * @return latency in microseconds
+     */
+    long getLatencyP99Micros();
+    
+    /**
+     * Get the 99.9th percentile request latency over the last minute
+     * @return latency in microseconds
+     */
+    long getLatencyP999Micros();
+    
+    /**
+     * Get the number of latency samples over the last minute
+     * @return sample count
+     */
+    long getLatencySampleCount();
+    
+    /**
+     * Get the per-bucket latency sample counts over the last minute
+     * Buckets use the LatencyHistogram layout so histograms of several members can be merged
+     * @return sample count per bucket
+     */
+    long[] getLatencyBucketCounts();
+    
     /**
      * Get the member name
      * @return member name
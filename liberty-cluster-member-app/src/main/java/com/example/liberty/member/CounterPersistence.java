@@ -0,0 +1,169 @@
+package com.example.liberty.member;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the member's counters in a {@link CounterSnapshotFile} across restarts
+ *
+ * Counters are restored from the file before they serve requests. After that a
+ * background thread copies their values into the mapped file at a fixed
+ * interval, so increments stay in memory and never wait on a write or a sync.
+ * A crash of the server process loses at most one interval of increments; a
+ * crash of the machine loses what the kernel had not yet written back, unless
+ * a sync interval is set.
+ *
+ * Tuning (JVM system properties):
+ *   member.persist                 enable persistence, default false
+ *   member.persist.file            snapshot file, default counter-snapshot.dat in the server output
+ *                                  directory (server.output.dir, else the working directory)
+ *   member.persist.intervalMs      interval between snapshots, default 100
+ *   member.persist.syncIntervalMs  interval between syncs to the disk, default 0 (only at shutdown)
+ */
+public class CounterPersistence {
+
+    private static final Logger LOGGER = Logger.getLogger(CounterPersistence.class.getName());
+
+    static final String DEFAULT_FILE_NAME = "counter-snapshot.dat";
+
+    private final Path file;
+    private final long intervalMillis;
+    private final long syncIntervalMillis;
+
+    private CounterSnapshotFile snapshot;
+    private volatile ScheduledExecutorService scheduler;
+    private Counter counter;
+    private CounterRegistry registry;
+    private long lastSyncNanos;
+
+    public CounterPersistence(Path file, long intervalMillis, long syncIntervalMillis) {
+        this.file = file;
+        this.intervalMillis = Math.max(1L, intervalMillis);
+        this.syncIntervalMillis = Math.max(0L, syncIntervalMillis);
+    }
+
+    /**
+     * Persistence configured by the member.persist* system properties
+     *
+     * @return the persistence, or null if it is not enabled
+     */
+    public static CounterPersistence fromSystemProperties() {
+        if (!Boolean.getBoolean("member.persist")) {
+            return null;
+        }
+        String file = System.getProperty("member.persist.file");
+        Path path;
+        if (file != null && !file.trim().isEmpty()) {
+            path = Paths.get(file.trim());
+        } else {
+            path = Paths.get(System.getProperty("server.output.dir", System.getProperty("user.dir")), DEFAULT_FILE_NAME);
+        }
+        return new CounterPersistence(path,
+            Long.getLong("member.persist.intervalMs", 100L),
+            Long.getLong("member.persist.syncIntervalMs", 0L));
+    }
+
+    /**
+     * Restore the counters from the snapshot file and start copying them into it
+     *
+     * @param slots counters the file has room for: the member counter plus the named counter limit
+     * @throws IOException if the snapshot file cannot be opened or mapped
+     */
+    public synchronized void start(Counter counter, CounterRegistry registry, int slots) throws IOException {
+        this.counter = counter;
+        this.registry = registry;
+        snapshot = CounterSnapshotFile.open(file, slots);
+
+        Map<String, long[]> restored = snapshot.restore();
+        int named = 0;
+        for (Map.Entry<String, long[]> entry : restored.entrySet()) {
+            long[] state = entry.getValue();
+            if (CounterSnapshotFile.MEMBER_COUNTER.equals(entry.getKey())) {
+                counter.restore(state[0], state[1]);
+                continue;
+            }
+            try {
+                registry.getOrCreate(entry.getKey()).restore(state[0], state[1]);
+                named++;
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                LOGGER.warning("Not restoring counter " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+        LOGGER.info("Restored counter " + counter.getCounter() + " and " + named + " named counters from " + file);
+
+        lastSyncNanos = System.nanoTime();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "member-counter-persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::persist, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop copying, then write and sync a final snapshot
+     */
+    public void shutdown() {
+        // Not under the lock: a running snapshot needs it to finish
+        ScheduledExecutorService running = scheduler;
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (snapshot != null) {
+                write();
+                try {
+                    snapshot.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to close counter snapshot " + file, e);
+                }
+                snapshot = null;
+            }
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private synchronized void persist() {
+        try {
+            if (snapshot == null) {
+                return;
+            }
+            write();
+            if (syncIntervalMillis > 0 && System.nanoTime() - lastSyncNanos >= TimeUnit.MILLISECONDS.toNanos(syncIntervalMillis)) {
+                snapshot.force();
+                lastSyncNanos = System.nanoTime();
+            }
+        } catch (RuntimeException e) {
+            // Keep the schedule running; the next snapshot may succeed
+            LOGGER.log(Level.WARNING, "Failed to write counter snapshot " + file, e);
+        }
+    }
+
+    private void write() {
+        // Read each version before its value so the value is never older than the version
+        long version = counter.getVersion();
+        snapshot.write(CounterSnapshotFile.MEMBER_COUNTER, counter.getCounter(), version);
+        for (Map.Entry<String, Counter> entry : registry.getAll().entrySet()) {
+            Counter named = entry.getValue();
+            long namedVersion = named.getVersion();
+            snapshot.write(entry.getKey(), named.getCounter(), namedVersion);
+        }
+    }
+}
+
+// Made with Bob
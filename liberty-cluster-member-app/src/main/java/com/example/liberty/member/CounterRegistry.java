@@ -0,0 +1,142 @@
+package com.example.liberty.member;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of named counters (per endpoint, tenant or application)
+ *
+ * Lookups of existing counters are a single lock-free map read. A counter is
+ * created on first use, and only the thread that created it registers its
+ * MBean, so JMX registration happens once per name and never on the steady
+ * state path. All counters can be read in one call through {@link #getCounters()}.
+ */
+public class CounterRegistry implements CounterRegistryMXBean {
+
+    private static final Logger LOGGER = Logger.getLogger(CounterRegistry.class.getName());
+
+    /** ObjectName prefix of named counter MBeans; the counter name is appended as the name key */
+    public static final String COUNTER_MBEAN_PREFIX = "com.example.liberty.member:type=NamedCounter,name=";
+
+    private static final Pattern VALID_NAME = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final String memberName;
+    private final MBeanServer mBeanServer;
+    private final int maxCounters;
+
+    public CounterRegistry(String memberName, MBeanServer mBeanServer, int maxCounters) {
+        this.memberName = memberName;
+        this.mBeanServer = mBeanServer;
+        this.maxCounters = maxCounters;
+    }
+
+    /**
+     * Check whether a counter name is accepted by the registry
+     */
+    public static boolean isValidName(String name) {
+        return name != null && VALID_NAME.matcher(name).matches();
+    }
+
+    /**
+     * Get a named counter, creating and registering it on first use
+     *
+     * @param name counter name, letters, digits, '.', '_' and '-' only
+     * @return the counter
+     * @throws IllegalArgumentException if the name is invalid
+     * @throws IllegalStateException if the registry is full
+     */
+    public Counter getOrCreate(String name) {
+        Counter counter = counters.get(name);
+        if (counter != null) {
+            return counter;
+        }
+        if (!isValidName(name)) {
+            throw new IllegalArgumentException("Invalid counter name: " + name);
+        }
+        if (counters.size() >= maxCounters) {
+            throw new IllegalStateException("Counter limit of " + maxCounters + " reached");
+        }
+
+        Counter created = new Counter(memberName);
+        Counter existing = counters.putIfAbsent(name, created);
+        if (existing != null) {
+            return existing;
+        }
+        register(name, created);
+        return created;
+    }
+
+    /**
+     * Get a named counter without creating it
+     *
+     * @return the counter or null if no counter has that name
+     */
+    public Counter get(String name) {
+        return counters.get(name);
+    }
+
+    /**
+     * Get all named counters, sorted by name
+     */
+    public Map<String, Counter> getAll() {
+        return new TreeMap<>(counters);
+    }
+
+    @Override
+    public String[] getCounterNames() {
+        return getAll().keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().getCounter());
+        }
+        return values;
+    }
+
+    @Override
+    public int getCounterCount() {
+        return counters.size();
+    }
+
+    /**
+     * Unregister the MBeans of all named counters
+     */
+    public void unregisterAll() {
+        for (String name : counters.keySet()) {
+            try {
+                ObjectName objectName = new ObjectName(COUNTER_MBEAN_PREFIX + name);
+                if (mBeanServer.isRegistered(objectName)) {
+                    mBeanServer.unregisterMBean(objectName);
+                }
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Failed to unregister counter MBean: " + name, e);
+            }
+        }
+    }
+
+    private void register(String name, Counter counter) {
+        try {
+            ObjectName objectName = new ObjectName(COUNTER_MBEAN_PREFIX + name);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(counter, objectName);
+            LOGGER.info("Registered counter MBean: " + objectName);
+        } catch (Exception e) {
+            // The counter still works without its MBean; it remains readable in bulk
+            LOGGER.log(Level.WARNING, "Failed to register counter MBean: " + name, e);
+        }
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,29 @@
+package com.example.liberty.member;
+
+import java.util.Map;
+
+/**
+ * MXBean interface for reading all named counters of a member in one call
+ */
+public interface CounterRegistryMXBean {
+
+    /**
+     * Get the names of all named counters
+     * @return counter names
+     */
+    String[] getCounterNames();
+
+    /**
+     * Get the current value of every named counter
+     * @return counter values keyed by counter name
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * Get the number of named counters
+     * @return counter count
+     */
+    int getCounterCount();
+}
+
+// Made with Bob
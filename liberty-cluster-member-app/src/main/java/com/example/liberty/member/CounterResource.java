@@ -4,16 +4,24 @@ import javax.ejb.EJB;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * REST API resource for counter operations
+ * Every request is recorded in the Counter MBean's rate and latency attributes
  */
 @Path("/counter")
+@Metered
 public class CounterResource {
     
     @EJB
@@ -30,6 +38,11 @@ public class CounterResource {
         Counter counter = mBeanManager.getCounter();
         counter.increment();
         
+        CounterJson json = mBeanManager.getCounterJson(CounterJson.ENDPOINT_INCREMENT);
+        if (json != null) {
+            return Response.ok(json.increment(counter.getCounter(), counter.getTotalRequests())).build();
+        }
+        
         Map<String, Object> response = new HashMap<>();
         response.put("memberName", counter.getMemberName());
         response.put("counter", counter.getCounter());
@@ -41,20 +54,92 @@ public class CounterResource {
     
     /**
      * Get current counter value without incrementing
+     * The ETag is the counter version; a request with a matching If-None-Match
+     * is answered with 304 Not Modified and no body
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getCounter() {
-        Counter counter = mBeanManager.getCounter();
+    public Response getCounter(@Context Request request) {
+        return versionedCounterResponse(request, mBeanManager.getCounter(), null,
+            mBeanManager.getCounterJson(CounterJson.ENDPOINT_COUNTER));
+    }
+    
+    /**
+     * Get all named counters in one response
+     */
+    @GET
+    @Path("/named")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getNamedCounters() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("memberName", mBeanManager.getCounter().getMemberName());
+        response.put("counters", mBeanManager.getRegistry().getCounters());
+        response.put("timestamp", System.currentTimeMillis());
+        
+        return Response.ok(response).build();
+    }
+    
+    /**
+     * Get the value of a named counter without incrementing
+     * Supports If-None-Match on the counter version like {@link #getCounter(Request)}
+     */
+    @GET
+    @Path("/named/{name}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getNamedCounter(@PathParam("name") String name, @Context Request request) {
+        Counter counter = mBeanManager.getRegistry().get(name);
+        if (counter == null) {
+            return errorResponse(Response.Status.NOT_FOUND, "Counter not found: " + name);
+        }
+        
+        return versionedCounterResponse(request, counter, name, null);
+    }
+    
+    /**
+     * Increment a named counter, creating it on first use
+     */
+    @GET
+    @Path("/named/{name}/increment")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response incrementNamedCounter(@PathParam("name") String name) {
+        Counter counter;
+        try {
+            counter = mBeanManager.getCounter(name);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return errorResponse(Response.Status.BAD_REQUEST, e.getMessage());
+        }
+        counter.increment();
         
         Map<String, Object> response = new HashMap<>();
         response.put("memberName", counter.getMemberName());
+        response.put("name", name);
         response.put("counter", counter.getCounter());
         response.put("totalRequests", counter.getTotalRequests());
+        response.put("message", "Counter incremented successfully");
         
         return Response.ok(response).build();
     }
     
+    /**
+     * Get the counter, deployed applications and runtime stats in one response
+     * Lets the controller collect everything it needs from this member in a single request
+     *
+     * @param fields Optional comma-separated selection of counter, counters, applications and runtime (default all)
+     */
+    @GET
+    @Path("/snapshot")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getSnapshot(@QueryParam("fields") String fields) {
+        Set<String> selected;
+        try {
+            selected = MemberSnapshot.parseFields(fields);
+        } catch (IllegalArgumentException e) {
+            return errorResponse(Response.Status.BAD_REQUEST, e.getMessage());
+        }
+
+        return Response.ok(MemberSnapshot.build(mBeanManager.getCounter(), mBeanManager.getRegistry(), selected)).build();
+    }
+
     /**
      * Reset counter to zero
      */
@@ -72,6 +157,42 @@ public class CounterResource {
         
         return Response.ok(response).build();
     }
+    
+    /**
+     * Counter response tagged with the counter version, or 304 if the client already has that version
+     * Encoded with json if given, otherwise serialized with JSON-B
+     */
+    private Response versionedCounterResponse(Request request, Counter counter, String name, CounterJson json) {
+        // Read the version before the values so the body is never older than its ETag
+        long version = counter.getVersion();
+        EntityTag etag = new EntityTag(Long.toString(version));
+        
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        
+        if (json != null) {
+            return Response.ok(json.counter(counter.getCounter(), counter.getTotalRequests(), version)).tag(etag).build();
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("memberName", counter.getMemberName());
+        if (name != null) {
+            response.put("name", name);
+        }
+        response.put("counter", counter.getCounter());
+        response.put("totalRequests", counter.getTotalRequests());
+        response.put("version", version);
+        
+        return Response.ok(response).tag(etag).build();
+    }
+    
+    private Response errorResponse(Response.Status status, String message) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", message);
+        return Response.status(status).entity(error).build();
+    }
 }
 
 // Made with Bob
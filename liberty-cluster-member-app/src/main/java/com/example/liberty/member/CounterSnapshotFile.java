@@ -0,0 +1,324 @@
+package com.example.liberty.member;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Memory-mapped snapshot of the member's counters, restored after a restart
+ *
+ * Each counter owns a fixed slot holding its name and two copies of its value
+ * and version. A write goes to the older copy, filling in the generation,
+ * value and version before a checksum over all of them, so the newer copy is
+ * intact until the older one is complete again. Writes are plain stores into
+ * the mapping with no system call; the kernel writes the dirty pages back, so
+ * they survive a crash of the server process. Only {@link #force()} syncs to
+ * the disk, which protects against a crash of the machine as well.
+ *
+ * On restore a copy is used only if its checksum matches. A copy torn by a
+ * crash during a write therefore falls back to the other copy, one snapshot
+ * older; a slot with no valid copy is reported, cleared and its counter
+ * starts at zero.
+ *
+ * Layout: a header of {@value #HEADER_SIZE} bytes (magic, format, slot count,
+ * slot size) followed by slots of {@value #SLOT_SIZE} bytes. Slot 0 is the
+ * member counter, named counters take the next free slot on first write.
+ * Not thread-safe: one thread writes, after {@link #restore} returned.
+ */
+public final class CounterSnapshotFile implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(CounterSnapshotFile.class.getName());
+
+    /** ASCII "CNTRSNAP" */
+    private static final long MAGIC = 0x434E5452534E4150L;
+    private static final int FORMAT = 1;
+
+    static final int HEADER_SIZE = 64;
+    static final int SLOT_SIZE = 160;
+    private static final int MAX_NAME_BYTES = 64;
+    static final int NAME_LENGTH_OFFSET = 0;
+    static final int NAME_OFFSET = 4;
+    static final int COPY_OFFSET = 96;
+    static final int COPY_SIZE = 32;
+
+    /** Slot name of the member counter */
+    public static final String MEMBER_COUNTER = "";
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotCount;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final long[] nameHashes;
+    private final long[] generations;
+    private final long[] writtenValues;
+    private final long[] writtenVersions;
+    private int nextSlot = 1;
+    private boolean fullReported;
+
+    private CounterSnapshotFile(Path path, FileChannel channel, MappedByteBuffer buffer, int slotCount) {
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.slotCount = slotCount;
+        this.nameHashes = new long[slotCount];
+        this.generations = new long[slotCount];
+        this.writtenValues = new long[slotCount];
+        this.writtenVersions = new long[slotCount];
+        Arrays.fill(writtenVersions, -1L);
+    }
+
+    /**
+     * Open or create a snapshot file and map it
+     *
+     * @param slotCount slots for a new file: the member counter plus the named counter limit;
+     *                  an existing file keeps its slots if it has more
+     */
+    public static CounterSnapshotFile open(Path path, int slotCount) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            int slots = Math.max(1, slotCount);
+            boolean valid = false;
+            if (channel.size() >= HEADER_SIZE) {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                int fileSlots = header.getInt(12);
+                valid = header.getLong(0) == MAGIC && header.getInt(8) == FORMAT && header.getInt(16) == SLOT_SIZE
+                    && fileSlots > 0 && channel.size() >= HEADER_SIZE + (long) fileSlots * SLOT_SIZE;
+                if (valid) {
+                    slots = Math.max(slots, fileSlots);
+                } else if (channel.size() > 0) {
+                    LOGGER.warning("Counter snapshot " + path + " has an unknown layout; starting a new one");
+                }
+            }
+
+            long size = HEADER_SIZE + (long) slots * SLOT_SIZE;
+            if (!valid) {
+                channel.truncate(0);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (!valid || buffer.getInt(12) != slots) {
+                buffer.putLong(0, MAGIC);
+                buffer.putInt(8, FORMAT);
+                buffer.putInt(12, slots);
+                buffer.putInt(16, SLOT_SIZE);
+                buffer.force();
+            }
+            return new CounterSnapshotFile(path, channel, buffer, slots);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Read every slot and remember which slot each counter uses
+     *
+     * @return value and version by counter name, {@link #MEMBER_COUNTER} for the member counter
+     */
+    public Map<String, long[]> restore() {
+        Map<String, long[]> restored = new HashMap<>();
+        int tornCopies = 0;
+        int lostSlots = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int offset = slotOffset(slot);
+            int nameLength = buffer.getInt(offset + NAME_LENGTH_OFFSET);
+            if (slot > 0 && nameLength == 0) {
+                continue;
+            }
+            if (nameLength < 0 || nameLength > MAX_NAME_BYTES) {
+                lostSlots++;
+                LOGGER.warning("Counter snapshot slot " + slot + " has no readable name; the slot is cleared");
+                buffer.putInt(offset + NAME_LENGTH_OFFSET, 0);
+                clearCopies(offset);
+                continue;
+            }
+            byte[] nameBytes = new byte[nameLength];
+            for (int i = 0; i < nameLength; i++) {
+                nameBytes[i] = buffer.get(offset + NAME_OFFSET + i);
+            }
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+            long nameHash = nameHash(nameBytes);
+
+            int newest = -1;
+            long newestGeneration = 0;
+            boolean written = false;
+            for (int copy = 0; copy < 2; copy++) {
+                int copyOffset = offset + COPY_OFFSET + copy * COPY_SIZE;
+                long generation = buffer.getLong(copyOffset);
+                if (generation == 0) {
+                    continue;
+                }
+                written = true;
+                long value = buffer.getLong(copyOffset + 8);
+                long version = buffer.getLong(copyOffset + 16);
+                if (buffer.getLong(copyOffset + 24) != checksum(slot, nameHash, generation, value, version)) {
+                    tornCopies++;
+                } else if (generation > newestGeneration) {
+                    newest = copy;
+                    newestGeneration = generation;
+                }
+            }
+            if (slot > 0) {
+                slots.put(name, slot);
+                nextSlot = Math.max(nextSlot, slot + 1);
+            }
+            nameHashes[slot] = nameHash;
+            if (!written) {
+                continue;
+            }
+            if (newest < 0) {
+                lostSlots++;
+                LOGGER.warning("Counter snapshot slot " + slot + " (" + (slot == 0 ? "member counter" : name)
+                    + ") has no intact copy; the counter starts at zero");
+                clearCopies(offset);
+                continue;
+            }
+
+            int copyOffset = offset + COPY_OFFSET + newest * COPY_SIZE;
+            long value = buffer.getLong(copyOffset + 8);
+            long version = buffer.getLong(copyOffset + 16);
+            restored.put(slot == 0 ? MEMBER_COUNTER : name, new long[] {value, version});
+            generations[slot] = newestGeneration;
+            writtenValues[slot] = value;
+            writtenVersions[slot] = version;
+        }
+        if (tornCopies > 0 || lostSlots > 0) {
+            LOGGER.warning("Counter snapshot " + path + ": ignored " + tornCopies + " torn copies, "
+                + lostSlots + " counters could not be restored");
+        }
+        return restored;
+    }
+
+    /**
+     * Write a counter's value and version unless they are already in the snapshot
+     *
+     * @param name counter name, {@link #MEMBER_COUNTER} for the member counter
+     * @return false if the file has no free slot for a new named counter
+     */
+    public boolean write(String name, long value, long version) {
+        int slot = slotOf(name);
+        if (slot < 0) {
+            return false;
+        }
+        if (writtenValues[slot] == value && writtenVersions[slot] == version) {
+            return true;
+        }
+
+        long generation = ++generations[slot];
+        int copyOffset = slotOffset(slot) + COPY_OFFSET + (int) (generation & 1) * COPY_SIZE;
+        // The checksum goes last; until it is stored the copy reads as torn and the other copy is used
+        buffer.putLong(copyOffset, generation);
+        buffer.putLong(copyOffset + 8, value);
+        buffer.putLong(copyOffset + 16, version);
+        buffer.putLong(copyOffset + 24, checksum(slot, nameHashes[slot], generation, value, version));
+        writtenValues[slot] = value;
+        writtenVersions[slot] = version;
+        return true;
+    }
+
+    /**
+     * Sync the mapping to the disk
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private int slotOf(String name) {
+        if (MEMBER_COUNTER.equals(name)) {
+            return 0;
+        }
+        Integer slot = slots.get(name);
+        if (slot != null) {
+            return slot;
+        }
+        if (nextSlot >= slotCount) {
+            if (!fullReported) {
+                fullReported = true;
+                LOGGER.warning("Counter snapshot " + path + " is full; counter " + name + " and later ones are not persisted");
+            }
+            return -1;
+        }
+
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > MAX_NAME_BYTES) {
+            LOGGER.warning("Counter name too long to persist: " + name);
+            return -1;
+        }
+        int assigned = nextSlot++;
+        int offset = slotOffset(assigned);
+        for (int i = 0; i < nameBytes.length; i++) {
+            buffer.put(offset + NAME_OFFSET + i, nameBytes[i]);
+        }
+        // The length goes last so a torn name is never read; a wrong name also fails the checksum
+        buffer.putInt(offset + NAME_LENGTH_OFFSET, nameBytes.length);
+        nameHashes[assigned] = nameHash(nameBytes);
+        slots.put(name, assigned);
+        return assigned;
+    }
+
+    private void clearCopies(int slotOffset) {
+        for (int i = 0; i < 2 * COPY_SIZE; i += 8) {
+            buffer.putLong(slotOffset + COPY_OFFSET + i, 0L);
+        }
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static long nameHash(byte[] name) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : name) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Checksum of a copy; covers the slot and name so a copy is never read for another counter
+     */
+    static long checksum(int slot, long nameHash, long generation, long value, long version) {
+        long hash = mix(MAGIC ^ slot);
+        hash = mix(hash ^ nameHash);
+        hash = mix(hash ^ generation);
+        hash = mix(hash ^ value);
+        hash = mix(hash ^ version);
+        // Zero marks an unwritten copy
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static long mix(long value) {
+        // Stafford variant 13 of the 64-bit MurmurHash3 finalizer
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,185 @@
+package com.example.liberty.member;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Fixed-memory latency histogram over roughly the last minute
+ *
+ * Latencies are recorded in microseconds into log-linear buckets: values below
+ * 16 get exact buckets, larger values 16 buckets per power of two, so every
+ * bucket is within 6.25% of the values it holds. Values of 2^26 us (about 67
+ * seconds) and above share the last bucket.
+ *
+ * The window is split into 4 periods of 15 seconds; a period's buckets are cleared when it is
+ * reused, so percentiles cover the last 45 to 60 seconds. A slot only moves
+ * forward to a newer period and is cleared before the new period is published;
+ * samples recorded while it is being cleared, or by a writer whose period has
+ * already left the slot, are dropped. Recording does not allocate.
+ */
+public class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int MAX_MAGNITUDE = 26;
+    /** Number of buckets per period */
+    public static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private static final int WINDOW_SLOTS = 4;
+    private static final int PERIOD_SECONDS = 15;
+    /** Slot period while one writer clears the slot for a newer period */
+    private static final long CLEARING = -2;
+
+    private final AtomicLongArray counts = new AtomicLongArray(WINDOW_SLOTS * BUCKETS);
+    private final AtomicLongArray periods = new AtomicLongArray(WINDOW_SLOTS);
+    private final LongSupplier nanoClock;
+    private final long originNanos;
+
+    public LatencyHistogram() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock source of {@link System#nanoTime()}-like timestamps, replaceable in tests
+     */
+    LatencyHistogram(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.originNanos = nanoClock.getAsLong();
+        for (int slot = 0; slot < WINDOW_SLOTS; slot++) {
+            periods.set(slot, -1);
+        }
+    }
+
+    /**
+     * Record one latency sample
+     */
+    public void record(long latencyNanos) {
+        long period = currentPeriod();
+        int slot = (int) (period % WINDOW_SLOTS);
+        long slotPeriod = periods.get(slot);
+        while (slotPeriod != period) {
+            if (slotPeriod == CLEARING || slotPeriod > period) {
+                // Being cleared, or already reused for a newer period than this writer's
+                return;
+            }
+            if (periods.compareAndSet(slot, slotPeriod, CLEARING)) {
+                int base = slot * BUCKETS;
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts.set(base + i, 0);
+                }
+                periods.set(slot, period);
+                break;
+            }
+            slotPeriod = periods.get(slot);
+        }
+        counts.incrementAndGet(slot * BUCKETS + bucketIndex(latencyNanos / 1000));
+    }
+
+    /**
+     * Number of samples in the window
+     */
+    public long getCount() {
+        long period = currentPeriod();
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            total += windowCount(bucket, period);
+        }
+        return total;
+    }
+
+    /**
+     * Latency at a percentile over the window
+     *
+     * @param percentile between 0 and 1, for example 0.99
+     * @return upper bound of the bucket holding the percentile in microseconds, or 0 without samples
+     */
+    public long getPercentileMicros(double percentile) {
+        long period = currentPeriod();
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            total += windowCount(bucket, period);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += windowCount(bucket, period);
+            if (seen >= rank) {
+                return bucketUpperBound(bucket);
+            }
+        }
+        return bucketUpperBound(BUCKETS - 1);
+    }
+
+    /**
+     * Per-bucket sample counts over the window, for merging histograms across members
+     * Bucket i holds values up to {@link #bucketUpperBound(int)} microseconds.
+     */
+    public long[] getBucketCounts() {
+        long period = currentPeriod();
+        long[] buckets = new long[BUCKETS];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            buckets[bucket] = windowCount(bucket, period);
+        }
+        return buckets;
+    }
+
+    /**
+     * Parameters of the bucket layout, sent with the buckets so a reader need not assume them
+     */
+    public static Map<String, Object> layout() {
+        Map<String, Object> layout = new LinkedHashMap<>();
+        layout.put("subBucketBits", SUB_BUCKET_BITS);
+        layout.put("maxMagnitude", MAX_MAGNITUDE);
+        return layout;
+    }
+
+    /**
+     * Bucket holding a latency in microseconds
+     */
+    public static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) Math.max(0, micros);
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        if (magnitude >= MAX_MAGNITUDE) {
+            return BUCKETS - 1;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((micros >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Largest latency in microseconds that falls into a bucket
+     */
+    public static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    private long windowCount(int bucket, long period) {
+        long total = 0;
+        for (int slot = 0; slot < WINDOW_SLOTS; slot++) {
+            long slotPeriod = periods.get(slot);
+            if (slotPeriod >= 0 && period - slotPeriod < WINDOW_SLOTS) {
+                total += counts.get(slot * BUCKETS + bucket);
+            }
+        }
+        return total;
+    }
+
+    private long currentPeriod() {
+        return (nanoClock.getAsLong() - originNanos) / (PERIOD_SECONDS * 1_000_000_000L);
+    }
+}
+
+// Made with Bob
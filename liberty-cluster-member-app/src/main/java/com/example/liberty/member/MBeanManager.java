@@ -2,25 +2,41 @@ package com.example.liberty.member;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
 import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Singleton EJB that manages MBean registration and lifecycle
+ * Uses bean-managed concurrency: counters are thread-safe, so request threads
+ * must not queue on the container's singleton lock to reach them.
+ *
+ * Named counters are limited by the member.counters.max system property (default 1024).
+ * Counter endpoints that skip JSON-B are chosen with member.json.direct, see {@link CounterJson}.
+ * With member.persist=true the counters survive restarts, see {@link CounterPersistence}.
  */
 @Singleton
 @Startup
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
 public class MBeanManager {
     
     private static final Logger LOGGER = Logger.getLogger(MBeanManager.class.getName());
     private static final String MBEAN_NAME = "com.example.liberty.member:type=Counter";
+    private static final String REGISTRY_MBEAN_NAME = "com.example.liberty.member:type=CounterRegistry";
     
-    private Counter counter;
+    private volatile Counter counter;
+    private volatile CounterRegistry registry;
+    private volatile CounterJson counterJson;
+    private volatile Set<String> directJsonEndpoints = Collections.emptySet();
+    private CounterPersistence persistence;
     private ObjectName objectName;
     private MBeanServer mBeanServer;
     
@@ -38,9 +54,16 @@ public class MBeanManager {
             
             // Create counter instance
             counter = new Counter(memberName);
+            counterJson = new CounterJson(memberName);
+            directJsonEndpoints = CounterJson.parseEndpoints(System.getProperty("member.json.direct"));
             
             // Get platform MBean server
             mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            int maxCounters = Integer.getInteger("member.counters.max", 1024);
+            registry = new CounterRegistry(memberName, mBeanServer, maxCounters);
+            
+            // Restore persisted values before the counters are reachable
+            startPersistence(1 + maxCounters);
             
             // Create ObjectName
             objectName = new ObjectName(MBEAN_NAME);
@@ -54,18 +77,55 @@ public class MBeanManager {
             mBeanServer.registerMBean(counter, objectName);
             LOGGER.info("Successfully registered MBean: " + MBEAN_NAME + " for member: " + memberName);
             
+            // Named counters register their own MBeans on first use
+            ObjectName registryName = new ObjectName(REGISTRY_MBEAN_NAME);
+            if (mBeanServer.isRegistered(registryName)) {
+                mBeanServer.unregisterMBean(registryName);
+            }
+            mBeanServer.registerMBean(registry, registryName);
+            LOGGER.info("Successfully registered MBean: " + REGISTRY_MBEAN_NAME);
+            
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Failed to register MBean", e);
         }
     }
     
+    /**
+     * Restore the counters from their snapshot file and keep it up to date, if enabled
+     * Without a usable file the counters still work, starting from zero.
+     */
+    private void startPersistence(int slots) {
+        CounterPersistence configured = CounterPersistence.fromSystemProperties();
+        if (configured == null) {
+            return;
+        }
+        try {
+            configured.start(counter, registry, slots);
+            persistence = configured;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Failed to open counter snapshot " + configured.getFile()
+                + "; counters are not persisted", e);
+        }
+    }
+    
     @PreDestroy
     public void cleanup() {
+        if (persistence != null) {
+            persistence.shutdown();
+            persistence = null;
+        }
         try {
             if (mBeanServer != null && objectName != null && mBeanServer.isRegistered(objectName)) {
                 mBeanServer.unregisterMBean(objectName);
                 LOGGER.info("Successfully unregistered MBean: " + MBEAN_NAME);
             }
+            if (registry != null) {
+                registry.unregisterAll();
+                ObjectName registryName = new ObjectName(REGISTRY_MBEAN_NAME);
+                if (mBeanServer.isRegistered(registryName)) {
+                    mBeanServer.unregisterMBean(registryName);
+                }
+            }
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Failed to unregister MBean", e);
         }
@@ -78,6 +138,34 @@ public class MBeanManager {
     public Counter getCounter() {
         return counter;
     }
+    
+    /**
+     * Get the direct JSON encoder of the counter
+     * @param endpoint one of {@link CounterJson#ENDPOINTS}
+     * @return the encoder, or null if the endpoint serializes its response with JSON-B
+     */
+    public CounterJson getCounterJson(String endpoint) {
+        return directJsonEndpoints.contains(endpoint) ? counterJson : null;
+    }
+    
+    /**
+     * Get a named counter, creating it and registering its MBean on first use
+     * @param name counter name
+     * @return Counter instance
+     * @throws IllegalArgumentException if the name is invalid
+     * @throws IllegalStateException if the named counter limit is reached
+     */
+    public Counter getCounter(String name) {
+        return registry.getOrCreate(name);
+    }
+    
+    /**
+     * Get the named counter registry
+     * @return CounterRegistry instance
+     */
+    public CounterRegistry getRegistry() {
+        return registry;
+    }
 }
 
 // Made with Bob
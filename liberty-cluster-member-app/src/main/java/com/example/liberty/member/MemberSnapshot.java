@@ -0,0 +1,160 @@
+package com.example.liberty.member;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds the member snapshot served by {@code GET /counter/snapshot}
+ * Combines the counter, named counters, the deployed applications and basic runtime stats so
+ * the controller can collect everything it needs from a member in one request
+ */
+public final class MemberSnapshot {
+
+    private static final Logger LOGGER = Logger.getLogger(MemberSnapshot.class.getName());
+
+    public static final String FIELD_COUNTER = "counter";
+    public static final String FIELD_COUNTERS = "counters";
+    public static final String FIELD_APPLICATIONS = "applications";
+    public static final String FIELD_RUNTIME = "runtime";
+
+    /** Fields returned when no selection is given */
+    public static final Set<String> ALL_FIELDS = Collections.unmodifiableSet(
+        new LinkedHashSet<>(Arrays.asList(FIELD_COUNTER, FIELD_COUNTERS, FIELD_APPLICATIONS, FIELD_RUNTIME)));
+
+    private static final String APPLICATION_MBEAN_PATTERN =
+        "WebSphere:service=com.ibm.websphere.application.ApplicationMBean,name=*";
+
+    private MemberSnapshot() {
+    }
+
+    /**
+     * Parse a comma-separated field selection
+     *
+     * @param fields selection such as "counter,runtime", or null/empty for all fields
+     * @return the selected fields
+     * @throws IllegalArgumentException if a field is unknown
+     */
+    public static Set<String> parseFields(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return ALL_FIELDS;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim().toLowerCase(Locale.ROOT);
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!ALL_FIELDS.contains(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name + ", expected one of " + ALL_FIELDS);
+            }
+            selected.add(name);
+        }
+        return selected.isEmpty() ? ALL_FIELDS : selected;
+    }
+
+    /**
+     * Build the snapshot for the selected fields
+     */
+    public static Map<String, Object> build(Counter counter, CounterRegistry registry, Set<String> fields) {
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("memberName", counter.getMemberName());
+
+        if (fields.contains(FIELD_COUNTER)) {
+            snapshot.put("counter", counter.getCounter());
+            snapshot.put("totalRequests", counter.getTotalRequests());
+            snapshot.put("metrics", requestMetrics(counter));
+        }
+        if (fields.contains(FIELD_COUNTERS)) {
+            snapshot.put("counters", registry.getCounters());
+        }
+        if (fields.contains(FIELD_APPLICATIONS)) {
+            snapshot.put("applications", listApplications());
+        }
+        if (fields.contains(FIELD_RUNTIME)) {
+            snapshot.put("runtime", runtimeStats());
+        }
+
+        snapshot.put("timestamp", System.currentTimeMillis());
+        return snapshot;
+    }
+
+    /**
+     * List applications deployed on this server from the local ApplicationMBeans
+     */
+    private static List<Map<String, Object>> listApplications() {
+        List<Map<String, Object>> applications = new ArrayList<>();
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            for (ObjectName appMBean : mbs.queryNames(new ObjectName(APPLICATION_MBEAN_PATTERN), null)) {
+                Map<String, Object> app = new HashMap<>();
+                app.put("name", appMBean.getKeyProperty("name"));
+                try {
+                    app.put("state", String.valueOf(mbs.getAttribute(appMBean, "State")));
+                } catch (Exception e) {
+                    app.put("state", "UNKNOWN");
+                }
+                applications.add(app);
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to list applications", e);
+        }
+        return applications;
+    }
+
+    private static Map<String, Object> requestMetrics(Counter counter) {
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("requestRate1s", counter.getRequestRate1s());
+        metrics.put("requestRate10s", counter.getRequestRate10s());
+        metrics.put("requestRate60s", counter.getRequestRate60s());
+        metrics.put("latencyP50Micros", counter.getLatencyP50Micros());
+        metrics.put("latencyP99Micros", counter.getLatencyP99Micros());
+        metrics.put("latencyP999Micros", counter.getLatencyP999Micros());
+        metrics.put("latencySampleCount", counter.getLatencySampleCount());
+        metrics.put("latencyBuckets", nonEmptyBuckets(counter.getLatencyBucketCounts()));
+        metrics.put("latencyLayout", LatencyHistogram.layout());
+        return metrics;
+    }
+
+    /**
+     * Sparse [bucket, count] pairs of a latency histogram, for merging on the controller
+     */
+    private static List<long[]> nonEmptyBuckets(long[] bucketCounts) {
+        List<long[]> buckets = new ArrayList<>();
+        for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+            if (bucketCounts[bucket] > 0) {
+                buckets.add(new long[] {bucket, bucketCounts[bucket]});
+            }
+        }
+        return buckets;
+    }
+
+    private static Map<String, Object> runtimeStats() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+
+        Map<String, Object> runtime = new HashMap<>();
+        runtime.put("uptimeMillis", ManagementFactory.getRuntimeMXBean().getUptime());
+        runtime.put("heapUsed", heap.getUsed());
+        runtime.put("heapMax", heap.getMax());
+        runtime.put("threadCount", ManagementFactory.getThreadMXBean().getThreadCount());
+        runtime.put("availableProcessors", os.getAvailableProcessors());
+        runtime.put("systemLoadAverage", os.getSystemLoadAverage());
+        return runtime;
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,19 @@
+package com.example.liberty.member;
+
+import javax.ws.rs.NameBinding;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks JAX-RS resources whose requests are recorded in the Counter MBean's
+ * rate and latency attributes by {@link RequestMetricsFilter}
+ */
+@NameBinding
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Metered {
+}
+
+// Made with Bob
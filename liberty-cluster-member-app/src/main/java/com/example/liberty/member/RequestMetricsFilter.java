@@ -0,0 +1,73 @@
+package com.example.liberty.member;
+
+import javax.annotation.Priority;
+import javax.ejb.EJB;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+
+/**
+ * Records the rate and latency of {@link Metered} requests in the Counter MBean
+ * Runs first on the way in and, for a response with an entity, stops the clock
+ * after the entity has been written, so the recorded latency covers the other
+ * filters and the serialization as well as the resource method. A response
+ * without an entity is recorded by the response filter.
+ *
+ * The {@link Metered} resources are synchronous, so a request is filtered,
+ * handled and written on one thread. The start time is kept in that thread's
+ * slot instead of a request property, which would box it on every request.
+ */
+@Provider
+@Metered
+@Priority(Priorities.AUTHENTICATION - 100)
+public class RequestMetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    /** Start of the thread's current request, 0 once recorded; a long[] pins no application class to the thread */
+    private final ThreadLocal<long[]> startNanos = new ThreadLocal<>();
+
+    @EJB
+    private MBeanManager mBeanManager;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        long[] start = startNanos.get();
+        if (start == null) {
+            start = new long[1];
+            startNanos.set(start);
+        }
+        start[0] = System.nanoTime();
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (!responseContext.hasEntity()) {
+            record();
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        try {
+            context.proceed();
+        } finally {
+            record();
+        }
+    }
+
+    private void record() {
+        long[] start = startNanos.get();
+        Counter counter = mBeanManager.getCounter();
+        if (start != null && start[0] != 0 && counter != null) {
+            counter.recordRequest(System.nanoTime() - start[0]);
+            start[0] = 0;
+        }
+    }
+}
+
+// Made with Bob
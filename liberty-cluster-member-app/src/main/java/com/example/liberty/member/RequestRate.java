@@ -0,0 +1,86 @@
+package com.example.liberty.member;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Rolling request rate over the last 1, 10 and 60 seconds
+ *
+ * Keeps one slot per second for the last minute. Each slot packs the second it
+ * belongs to (high 32 bits) and its count (low 32 bits) into one long, so a
+ * slot is reused for a new second and incremented in the same CAS without
+ * losing counts at the boundary. Slots are striped by thread to spread
+ * contention; stripes are laid out far apart to avoid sharing cache lines.
+ * Memory is fixed and recording does not allocate.
+ */
+public class RequestRate {
+
+    private static final int SLOTS = 61;
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private final AtomicLongArray slots;
+    private final int stripeMask;
+    private final LongSupplier nanoClock;
+    private final long originNanos;
+
+    public RequestRate() {
+        this(System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock source of {@link System#nanoTime()}-like timestamps, replaceable in tests
+     */
+    RequestRate(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.originNanos = nanoClock.getAsLong();
+        int stripes = Integer.highestOneBit(Math.max(1, Math.min(16, Runtime.getRuntime().availableProcessors())));
+        this.stripeMask = stripes - 1;
+        this.slots = new AtomicLongArray(stripes * SLOTS);
+    }
+
+    /**
+     * Record one request at the current time
+     */
+    public void record() {
+        long second = currentSecond();
+        int index = (int) (Thread.currentThread().getId() & stripeMask) * SLOTS + (int) (second % SLOTS);
+        long stamp = second << 32;
+        while (true) {
+            long current = slots.get(index);
+            long next = (current & ~COUNT_MASK) == stamp ? current + 1 : stamp | 1;
+            if (slots.compareAndSet(index, current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Average requests per second over the last completed seconds
+     *
+     * @param seconds window length, 1 to 60
+     */
+    public double getRate(int seconds) {
+        long now = currentSecond();
+        long total = 0;
+        for (long second = now - seconds; second < now; second++) {
+            if (second < 0) {
+                continue;
+            }
+            long stamp = second << 32;
+            int slot = (int) (second % SLOTS);
+            for (int stripe = 0; stripe <= stripeMask; stripe++) {
+                long value = slots.get(stripe * SLOTS + slot);
+                if ((value & ~COUNT_MASK) == stamp) {
+                    total += value & COUNT_MASK;
+                }
+            }
+        }
+        return (double) total / seconds;
+    }
+
+    private long currentSecond() {
+        return (nanoClock.getAsLong() - originNanos) / 1_000_000_000L;
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,112 @@
+package com.example.liberty.member;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CounterJsonTest {
+
+    private static final List<String> MEMBER_NAMES = Arrays.asList(
+        "member1",
+        "",
+        "quote\"d",
+        "back\\slash\\",
+        "control\n\t\r\b\f\u0000\u001f",
+        "non-ASCII Zürich 成员 😀",
+        "\u007f  ");
+
+    private static final long[] VALUES = {
+        0, 1, -1, 9, 10, -10, 99, 100, 1_000_000_007L, -999_999_999_999L,
+        Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE - 1, Long.MIN_VALUE + 1};
+
+    private static Jsonb jsonb;
+
+    @BeforeAll
+    static void createJsonb() {
+        jsonb = JsonbBuilder.create();
+    }
+
+    @AfterAll
+    static void closeJsonb() throws Exception {
+        jsonb.close();
+    }
+
+    @Test
+    void incrementMatchesJsonb() {
+        for (String memberName : MEMBER_NAMES) {
+            CounterJson json = new CounterJson(memberName);
+            for (long counter : VALUES) {
+                for (long totalRequests : new long[] {0, counter, Long.MAX_VALUE}) {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("memberName", memberName);
+                    response.put("counter", counter);
+                    response.put("totalRequests", totalRequests);
+                    response.put("message", "Counter incremented successfully");
+
+                    assertSameJson(response, json.increment(counter, totalRequests));
+                }
+            }
+        }
+    }
+
+    @Test
+    void counterMatchesJsonb() {
+        for (String memberName : MEMBER_NAMES) {
+            CounterJson json = new CounterJson(memberName);
+            for (long counter : VALUES) {
+                for (long version : new long[] {0, counter, Long.MIN_VALUE}) {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("memberName", memberName);
+                    response.put("counter", counter);
+                    response.put("totalRequests", counter);
+                    response.put("version", version);
+
+                    assertSameJson(response, json.counter(counter, counter, version));
+                }
+            }
+        }
+    }
+
+    @Test
+    void writesLongsLikeLongToString() {
+        byte[] buffer = new byte[20];
+        for (long value : VALUES) {
+            for (long near : new long[] {value - 1, value, value + 1}) {
+                int end = CounterJson.writeLong(buffer, 0, near);
+                assertEquals(Long.toString(near), new String(buffer, 0, end, StandardCharsets.US_ASCII));
+                assertEquals(end, CounterJson.length(near));
+            }
+        }
+        for (long power = 1; power > 0 && power <= Long.MAX_VALUE / 10; power *= 10) {
+            assertEquals(Long.toString(power * 10 - 1).length(), CounterJson.length(power * 10 - 1));
+            assertEquals(Long.toString(-power * 10).length(), CounterJson.length(-power * 10));
+        }
+    }
+
+    private static void assertSameJson(Map<String, Object> expected, CounterJson.Payload payload) {
+        String direct = new String(payload.getBytes(), 0, payload.getLength(), StandardCharsets.UTF_8);
+        assertEquals(parse(jsonb.toJson(expected)), parse(direct), direct);
+    }
+
+    private static JsonObject parse(String json) {
+        try (JsonReader reader = Json.createReader(new StringReader(json))) {
+            return reader.readObject();
+        }
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,169 @@
+package com.example.liberty.member;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CounterSnapshotFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restoresWrittenCounters() throws IOException {
+        Path file = dir.resolve("snapshot.dat");
+        try (CounterSnapshotFile snapshot = CounterSnapshotFile.open(file, 4)) {
+            assertTrue(snapshot.restore().isEmpty());
+            snapshot.write(CounterSnapshotFile.MEMBER_COUNTER, 7, 3);
+            snapshot.write("orders", 42, 9);
+            snapshot.write("orders", 43, 10);
+        }
+
+        Map<String, long[]> restored = reopen(file, 4);
+        assertEquals(2, restored.size());
+        assertArrayEquals(new long[] {7, 3}, restored.get(CounterSnapshotFile.MEMBER_COUNTER));
+        assertArrayEquals(new long[] {43, 10}, restored.get("orders"));
+    }
+
+    @Test
+    void tornCopyFallsBackToTheOlderOne() throws IOException {
+        Path file = dir.resolve("snapshot.dat");
+        try (CounterSnapshotFile snapshot = CounterSnapshotFile.open(file, 4)) {
+            snapshot.restore();
+            snapshot.write("orders", 10, 1);
+            snapshot.write("orders", 20, 2);
+        }
+        // Generation 2 went to copy 0; break its checksum as a crash mid-write would
+        corrupt(file, copyOffset(1, 0) + 24);
+
+        try (CounterSnapshotFile snapshot = CounterSnapshotFile.open(file, 4)) {
+            assertArrayEquals(new long[] {10, 1}, snapshot.restore().get("orders"));
+            // The next write replaces the torn copy, not the intact one
+            snapshot.write("orders", 30, 3);
+        }
+        assertArrayEquals(new long[] {30, 3}, reopen(file, 4).get("orders"));
+    }
+
+    @Test
+    void newestIntactCopyWins() throws IOException {
+        Path file = dir.resolve("snapshot.dat");
+        try (CounterSnapshotFile snapshot = CounterSnapshotFile.open(file, 4)) {
+            snapshot.restore();
+            for (int generation = 1; generation <= 5; generation++) {
+                snapshot.write(CounterSnapshotFile.MEMBER_COUNTER, generation * 100, generation);
+            }
+        }
+        assertArrayEquals(new long[] {500, 5}, reopen(file, 4).get(CounterSnapshotFile.MEMBER_COUNTER));
+    }
+
+    @Test
+    void slotWithoutIntactCopyIsClearedAndStartsAtZero() throws IOException {
+        Path file = dir.resolve("snapshot.dat");
+        try (CounterSnapshotFile snapshot = CounterSnapshotFile.open(file, 4)) {
+            snapshot.restore();
+            snapshot.write("orders", 10, 1);
+            snapshot.write("orders", 20, 2);
+            snapshot.write("payments", 5, 1);
+        }
+        corrupt(file, copyOffset(1, 0) + 8);
+        corrupt(file, copyOffset(1, 1) + 8);
+
+        Map<String, long[]> restored = reopen(file, 4);
+        assertFalse(restored.containsKey("orders"));
+        assertArrayEquals(new long[] {5, 1}, restored.get("payments"));
+
+        // Cleared, so the loss is reported once and the slot keeps its name
+        try (CounterSnapshotFile snapshot = CounterSnapshotFile.open(file, 4)) {
+            assertFalse(snapshot.restore().containsKey("orders"));
+            snapshot.write("orders", 1, 1);
+            snapshot.write("refunds", 2, 1);
+        }
+        restored = reopen(file, 4);
+        assertArrayEquals(new long[] {1, 1}, restored.get("orders"));
+        assertArrayEquals(new long[] {2, 1}, restored.get("refunds"));
+    }
+
+    @Test
+    void copyIsNotReadForAnotherName() throws IOException {
+        Path file = dir.resolve("snapshot.dat");
+        try (CounterSnapshotFile snapshot = CounterSnapshotFile.open(file, 4)) {
+            snapshot.restore();
+            snapshot.write("orders", 10, 1);
+        }
+        // Same length, different name: the checksum covers the name hash
+        corrupt(file, CounterSnapshotFile.HEADER_SIZE + CounterSnapshotFile.SLOT_SIZE + CounterSnapshotFile.NAME_OFFSET);
+
+        assertTrue(reopen(file, 4).isEmpty());
+    }
+
+    @Test
+    void fullFileRefusesNewCounters() throws IOException {
+        Path file = dir.resolve("snapshot.dat");
+        try (CounterSnapshotFile snapshot = CounterSnapshotFile.open(file, 2)) {
+            snapshot.restore();
+            assertTrue(snapshot.write("orders", 1, 1));
+            assertFalse(snapshot.write("payments", 1, 1));
+            assertTrue(snapshot.write(CounterSnapshotFile.MEMBER_COUNTER, 1, 1));
+        }
+    }
+
+    @Test
+    void existingFileKeepsItsSlots() throws IOException {
+        Path file = dir.resolve("snapshot.dat");
+        try (CounterSnapshotFile snapshot = CounterSnapshotFile.open(file, 4)) {
+            snapshot.restore();
+            snapshot.write("a", 1, 1);
+            snapshot.write("b", 2, 1);
+            snapshot.write("c", 3, 1);
+        }
+
+        try (CounterSnapshotFile snapshot = CounterSnapshotFile.open(file, 2)) {
+            assertEquals(3, snapshot.restore().size());
+        }
+    }
+
+    @Test
+    void unknownFileIsReplaced() throws IOException {
+        Path file = dir.resolve("snapshot.dat");
+        Files.write(file, new byte[256]);
+
+        try (CounterSnapshotFile snapshot = CounterSnapshotFile.open(file, 4)) {
+            assertTrue(snapshot.restore().isEmpty());
+            snapshot.write("orders", 1, 1);
+        }
+        assertEquals(CounterSnapshotFile.HEADER_SIZE + 4L * CounterSnapshotFile.SLOT_SIZE, Files.size(file));
+        assertArrayEquals(new long[] {1, 1}, reopen(file, 4).get("orders"));
+    }
+
+    private static Map<String, long[]> reopen(Path file, int slots) throws IOException {
+        try (CounterSnapshotFile snapshot = CounterSnapshotFile.open(file, slots)) {
+            return snapshot.restore();
+        }
+    }
+
+    private static long copyOffset(int slot, int copy) {
+        return CounterSnapshotFile.HEADER_SIZE + (long) slot * CounterSnapshotFile.SLOT_SIZE
+            + CounterSnapshotFile.COPY_OFFSET + (long) copy * CounterSnapshotFile.COPY_SIZE;
+    }
+
+    private static void corrupt(Path file, long offset) throws IOException {
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(offset);
+            int value = raw.read();
+            raw.seek(offset);
+            raw.write(value ^ 0x01);
+        }
+    }
+}
+
+// Made with Bob
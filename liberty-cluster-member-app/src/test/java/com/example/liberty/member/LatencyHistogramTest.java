@@ -0,0 +1,148 @@
+package com.example.liberty.member;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000_000L);
+    private final LatencyHistogram histogram = new LatencyHistogram(clock::get);
+
+    @Test
+    void smallValuesHaveExactBuckets() {
+        for (int micros = 0; micros < LatencyHistogram.SUB_BUCKETS; micros++) {
+            assertEquals(micros, LatencyHistogram.bucketIndex(micros));
+            assertEquals(micros, LatencyHistogram.bucketUpperBound(micros));
+        }
+        assertEquals(0, LatencyHistogram.bucketIndex(-5));
+    }
+
+    @Test
+    void bucketBoundsAreContiguous() {
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKETS - 1; bucket++) {
+            long upper = LatencyHistogram.bucketUpperBound(bucket);
+            assertEquals(bucket, LatencyHistogram.bucketIndex(upper), "upper bound of bucket " + bucket);
+            assertEquals(bucket + 1, LatencyHistogram.bucketIndex(upper + 1), "value after bucket " + bucket);
+        }
+        assertEquals((1L << LatencyHistogram.MAX_MAGNITUDE) - 1,
+            LatencyHistogram.bucketUpperBound(LatencyHistogram.BUCKETS - 1));
+    }
+
+    @Test
+    void bucketsStayWithinRelativeError() {
+        for (long micros = LatencyHistogram.SUB_BUCKETS; micros < 1L << LatencyHistogram.MAX_MAGNITUDE; micros = micros * 9 / 8 + 1) {
+            long upper = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(micros));
+            assertTrue(upper >= micros, "bucket of " + micros + " ends at " + upper);
+            assertTrue(upper - micros < micros / LatencyHistogram.SUB_BUCKETS + 1, "bucket of " + micros + " ends at " + upper);
+        }
+    }
+
+    @Test
+    void largeValuesShareTheLastBucket() {
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex(1L << LatencyHistogram.MAX_MAGNITUDE));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    void percentilesReportBucketUpperBounds() {
+        assertEquals(0, histogram.getPercentileMicros(0.99));
+        for (int i = 0; i < 90; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(5000));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(100)), histogram.getPercentileMicros(0.5));
+        assertEquals(LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(100)), histogram.getPercentileMicros(0.9));
+        assertEquals(LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(5000)), histogram.getPercentileMicros(0.99));
+        assertEquals(90, histogram.getBucketCounts()[LatencyHistogram.bucketIndex(100)]);
+    }
+
+    @Test
+    void samplesLeaveTheWindowAfterFourPeriods() {
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        advanceSeconds(59);
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(200));
+        assertEquals(2, histogram.getCount());
+
+        advanceSeconds(1);
+        assertEquals(1, histogram.getCount());
+        assertEquals(LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(200)), histogram.getPercentileMicros(0.01));
+    }
+
+    @Test
+    void reusedPeriodIsClearedBeforeRecording() {
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        // Same slot, four periods later
+        advanceSeconds(60);
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(300));
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getBucketCounts()[LatencyHistogram.bucketIndex(100)]);
+        assertEquals(1, histogram.getBucketCounts()[LatencyHistogram.bucketIndex(300)]);
+    }
+
+    @Test
+    void writerWithAnOlderPeriodDoesNotClearNewerSamples() {
+        advanceSeconds(60);
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(300));
+        // A writer that read the clock before the slot moved on
+        advanceSeconds(-60);
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        advanceSeconds(60);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(1, histogram.getBucketCounts()[LatencyHistogram.bucketIndex(300)]);
+        assertEquals(0, histogram.getBucketCounts()[LatencyHistogram.bucketIndex(100)]);
+    }
+
+    @Test
+    void concurrentWritersAcrossAPeriodChangeKeepTheNewPeriodsSamples() throws InterruptedException {
+        int threads = 4;
+        int perThread = 20_000;
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        advanceSeconds(60);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int n = 0; n < perThread; n++) {
+                    histogram.record(TimeUnit.MICROSECONDS.toNanos(300));
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // Only samples racing the single clear may be dropped; none recorded after it are wiped
+        long recorded = histogram.getBucketCounts()[LatencyHistogram.bucketIndex(300)];
+        assertTrue(recorded > (long) threads * perThread - 1000, "kept " + recorded);
+        assertEquals(0, histogram.getBucketCounts()[LatencyHistogram.bucketIndex(100)]);
+    }
+
+    private void advanceSeconds(long seconds) {
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+}
+
+// Made with Bob
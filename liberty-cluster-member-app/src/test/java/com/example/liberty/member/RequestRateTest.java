@@ -0,0 +1,89 @@
+package com.example.liberty.member;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestRateTest {
+
+    private final AtomicLong clock = new AtomicLong(-5_000_000_000L);
+    private final RequestRate rate = new RequestRate(clock::get);
+
+    @Test
+    void currentSecondIsNotCounted() {
+        record(5);
+        assertEquals(0.0, rate.getRate(1));
+
+        advanceSeconds(1);
+        assertEquals(5.0, rate.getRate(1));
+        assertEquals(0.5, rate.getRate(10));
+    }
+
+    @Test
+    void secondsLeaveTheWindow() {
+        record(6);
+        advanceSeconds(10);
+        assertEquals(0.6, rate.getRate(10), 1e-9);
+
+        advanceSeconds(1);
+        assertEquals(0.0, rate.getRate(10));
+        assertEquals(0.1, rate.getRate(60), 1e-9);
+    }
+
+    @Test
+    void reusedSlotRestartsItsCount() {
+        record(5);
+        // Second 61 packs into the slot of second 0
+        advanceSeconds(61);
+        record(2);
+        advanceSeconds(1);
+
+        assertEquals(2.0, rate.getRate(1));
+        assertEquals(2.0 / 60, rate.getRate(60), 1e-9);
+    }
+
+    @Test
+    void concurrentRecordsAreNotLost() throws InterruptedException {
+        int threads = 8;
+        int perThread = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                record(perThread);
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        advanceSeconds(1);
+        assertEquals((double) threads * perThread, rate.getRate(1));
+    }
+
+    private void record(int requests) {
+        for (int i = 0; i < requests; i++) {
+            rate.record();
+        }
+    }
+
+    private void advanceSeconds(long seconds) {
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,101 @@
+package com.example.loadgen;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local stand-in for a cluster member's counter endpoint
+ *
+ * Answers GET /liberty-cluster-member-app/api/counter/increment on 127.0.0.1
+ * with the JSON fields of CounterResource.incrementCounter after a fixed
+ * latency, so the load generator can be checked without a running cluster.
+ */
+public final class CounterStub implements AutoCloseable {
+
+    static final String INCREMENT_PATH = "/liberty-cluster-member-app/api/counter/increment";
+
+    static {
+        // Without TCP_NODELAY keep-alive responses wait for the client's delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final String memberName;
+    private final long latencyNanos;
+    private final AtomicLong counter = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public CounterStub(String memberName, long latencyMicros) {
+        this.memberName = memberName;
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, latencyMicros));
+    }
+
+    /**
+     * Start serving on an ephemeral loopback port
+     */
+    public CounterStub start(int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        server.createContext(INCREMENT_PATH, this::increment);
+        executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "counter-stub-" + memberName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        return this;
+    }
+
+    public URL getIncrementUrl() throws MalformedURLException {
+        return new URL("http", "127.0.0.1", server.getAddress().getPort(), INCREMENT_PATH);
+    }
+
+    public long getCounter() {
+        return counter.get();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private void increment(HttpExchange exchange) throws IOException {
+        try {
+            if (latencyNanos > 0) {
+                long deadline = System.nanoTime() + latencyNanos;
+                for (long left = latencyNanos; left > 0; left = deadline - System.nanoTime()) {
+                    LockSupport.parkNanos(left);
+                }
+            }
+            long value = counter.incrementAndGet();
+            byte[] body = ("{\"memberName\":\"" + memberName + "\",\"counter\":" + value + ",\"totalRequests\":" + value
+                + ",\"message\":\"Counter incremented successfully\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,318 @@
+package com.example.loadgen;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator for the member counter endpoint
+ *
+ * Requests are scheduled at a constant arrival rate, independent of how fast
+ * the members answer: request i is due at start + i / rate and goes to target
+ * i modulo the number of targets. Each of the configured connections takes the
+ * next due request, waits for its due time and sends it. When every connection
+ * is busy, due requests wait for a free one instead of being skipped.
+ *
+ * Latency is recorded twice. The corrected histogram measures from the due
+ * time, so time spent queued behind a slow response counts against the
+ * service (the coordinated omission correction); the SLOs apply to it. The
+ * uncorrected histogram measures from the moment the request was sent, which
+ * is what a closed-loop client would report.
+ *
+ * Requests due during the warmup are sent but not measured. Settings are
+ * described in {@link LoadSettings}. Exit status is 0 when every SLO holds,
+ * 1 on a breach and 2 on invalid settings.
+ *
+ * Run: java -jar load-generator/target/load-generator.jar
+ *      java -Dloadgen.rate=1000 -Dloadgen.connections=32 -jar load-generator/target/load-generator.jar
+ *      java -Dloadgen.stubs=2 -Dloadgen.durationSeconds=10 -jar load-generator/target/load-generator.jar
+ */
+public class LoadGenerator {
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final byte[] DRAIN_BUFFER = new byte[8192];
+
+    private final LoadSettings settings;
+    private final List<URL> targets;
+    private final long intervalNanos;
+    private final long totalRequests;
+    private final long measuredFrom;
+
+    private final LatencyHistogram corrected = new LatencyHistogram();
+    private final LatencyHistogram uncorrected = new LatencyHistogram();
+    private final AtomicLong nextRequest = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong maxStartLagNanos = new AtomicLong();
+    private final AtomicLong lastMeasuredDoneNanos = new AtomicLong();
+    private final AtomicLongArray targetRequests;
+    private final AtomicLongArray targetErrors;
+    private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+    private final LongAdder ioErrors = new LongAdder();
+    private final LongAdder measuredErrors = new LongAdder();
+
+    private volatile long startNanos;
+    private SSLSocketFactory insecureSocketFactory;
+
+    public LoadGenerator(LoadSettings settings) {
+        this.settings = settings;
+        this.targets = settings.getTargets();
+        this.intervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / settings.getRate()));
+        this.totalRequests = (long) Math.ceil((settings.getWarmupSeconds() + settings.getDurationSeconds()) * settings.getRate());
+        this.measuredFrom = (long) Math.ceil(settings.getWarmupSeconds() * settings.getRate());
+        this.targetRequests = new AtomicLongArray(targets.size());
+        this.targetErrors = new AtomicLongArray(targets.size());
+    }
+
+    public static void main(String[] args) {
+        LoadSettings settings;
+        try {
+            settings = LoadSettings.fromSystemProperties();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid settings: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        List<CounterStub> stubs = new ArrayList<>();
+        int exitStatus;
+        try {
+            if (settings.getStubs() > 0) {
+                List<URL> stubTargets = new ArrayList<>();
+                for (int i = 1; i <= settings.getStubs(); i++) {
+                    CounterStub stub = new CounterStub("stub" + i, settings.getStubLatencyMicros())
+                        .start(settings.getConnections());
+                    stubs.add(stub);
+                    stubTargets.add(stub.getIncrementUrl());
+                }
+                settings = settings.withTargets(stubTargets);
+            }
+
+            LoadGenerator generator = new LoadGenerator(settings);
+            generator.run();
+            LoadReport report = new LoadReport(settings, generator);
+            report.print(System.out);
+            if (settings.getReportFile() != null) {
+                report.write(settings.getReportFile());
+            }
+            exitStatus = report.isPassed() ? 0 : 1;
+        } catch (Exception e) {
+            System.err.println("Load run failed: " + e);
+            exitStatus = 2;
+        } finally {
+            for (CounterStub stub : stubs) {
+                stub.close();
+            }
+        }
+        System.exit(exitStatus);
+    }
+
+    /**
+     * Send the whole schedule and wait for the last response
+     */
+    public void run() throws InterruptedException {
+        // HttpURLConnection keeps at most http.maxConnections idle connections per
+        // destination; with the default of 5 extra connections would reconnect every time
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", Integer.toString(settings.getConnections()));
+        }
+        if (settings.isInsecure()) {
+            insecureSocketFactory = trustAllSocketFactory();
+        }
+
+        System.out.printf("Sending %.1f requests/s over %d connections to %s for %d s after a %d s warmup%n",
+            settings.getRate(), settings.getConnections(), targets, settings.getDurationSeconds(), settings.getWarmupSeconds());
+
+        startNanos = System.nanoTime();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < settings.getConnections(); i++) {
+            Thread worker = new Thread(this::sendRequests, "loadgen-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                worker.join(TimeUnit.NANOSECONDS.toMillis(PROGRESS_INTERVAL_NANOS));
+                if (worker.isAlive()) {
+                    printProgress();
+                }
+            }
+        }
+    }
+
+    private void sendRequests() {
+        long request;
+        while ((request = nextRequest.getAndIncrement()) < totalRequests) {
+            long due = startNanos + request * intervalNanos;
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+
+            long sentAt = System.nanoTime();
+            int target = (int) (request % targets.size());
+            int status = send(targets.get(target));
+            long doneAt = System.nanoTime();
+            sent.incrementAndGet();
+
+            if (request >= measuredFrom) {
+                corrected.record(doneAt - due);
+                uncorrected.record(doneAt - sentAt);
+                maxStartLagNanos.accumulateAndGet(sentAt - due, Math::max);
+                lastMeasuredDoneNanos.accumulateAndGet(doneAt, Math::max);
+                targetRequests.incrementAndGet(target);
+                if (status < 200 || status >= 300) {
+                    targetErrors.incrementAndGet(target);
+                    measuredErrors.increment();
+                }
+                if (status < 0) {
+                    ioErrors.increment();
+                } else {
+                    statusCounts.computeIfAbsent(status, s -> new LongAdder()).increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Send one GET and read the whole response so the connection can be reused
+     *
+     * @return the HTTP status, or -1 if the request failed with an I/O error
+     */
+    private int send(URL target) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) target.openConnection();
+            if (insecureSocketFactory != null && connection instanceof HttpsURLConnection) {
+                ((HttpsURLConnection) connection).setSSLSocketFactory(insecureSocketFactory);
+                ((HttpsURLConnection) connection).setHostnameVerifier((host, session) -> true);
+            }
+            connection.setConnectTimeout(settings.getTimeoutMillis());
+            connection.setReadTimeout(settings.getTimeoutMillis());
+            connection.setRequestProperty("Accept", "application/json");
+            int status = connection.getResponseCode();
+            InputStream body = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (body != null) {
+                try (InputStream in = body) {
+                    // Contents are discarded, so one buffer can be shared by every worker
+                    while (in.read(DRAIN_BUFFER) >= 0) {
+                        // drain
+                    }
+                }
+            }
+            return status;
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return -1;
+        }
+    }
+
+    private void printProgress() {
+        long elapsed = System.nanoTime() - startNanos;
+        long due = Math.min(totalRequests, elapsed / intervalNanos + 1);
+        System.out.printf("  %5.1f s  due %d  sent %d  errors %d%n",
+            elapsed / 1e9, due, sent.get(), measuredErrors.sum());
+    }
+
+    private static SSLSocketFactory trustAllSocketFactory() {
+        try {
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, new TrustManager[] {new X509TrustManager() {
+                @Override
+                public void checkClientTrusted(X509Certificate[] chain, String authType) {
+                }
+
+                @Override
+                public void checkServerTrusted(X509Certificate[] chain, String authType) {
+                }
+
+                @Override
+                public X509Certificate[] getAcceptedIssuers() {
+                    return new X509Certificate[0];
+                }
+            }}, null);
+            return context.getSocketFactory();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot create an SSL context", e);
+        }
+    }
+
+    public LatencyHistogram getCorrected() {
+        return corrected;
+    }
+
+    public LatencyHistogram getUncorrected() {
+        return uncorrected;
+    }
+
+    /**
+     * Requests due in the measured part of the schedule
+     */
+    public long getMeasuredRequests() {
+        return totalRequests - measuredFrom;
+    }
+
+    public long getMeasuredErrors() {
+        return measuredErrors.sum();
+    }
+
+    public long getIoErrors() {
+        return ioErrors.sum();
+    }
+
+    /**
+     * Seconds from the first measured due time to the last measured response
+     */
+    public double getMeasuredSeconds() {
+        long from = startNanos + measuredFrom * intervalNanos;
+        long to = Math.max(lastMeasuredDoneNanos.get(), startNanos + totalRequests * intervalNanos);
+        return (to - from) / 1e9;
+    }
+
+    public long getMaxStartLagMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxStartLagNanos.get());
+    }
+
+    public List<URL> getTargets() {
+        return targets;
+    }
+
+    public long getTargetRequests(int target) {
+        return targetRequests.get(target);
+    }
+
+    public long getTargetErrors(int target) {
+        return targetErrors.get(target);
+    }
+
+    /**
+     * Measured responses by HTTP status, without I/O errors
+     */
+    public Map<Integer, Long> getStatusCounts() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        statusCounts.forEach((status, count) -> counts.put(status, count.sum()));
+        return counts;
+    }
+}
+
+// Made with Bob
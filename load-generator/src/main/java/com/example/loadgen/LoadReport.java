@@ -0,0 +1,176 @@
+package com.example.loadgen;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Throughput, latency percentiles and SLO verdicts of a finished load run
+ */
+public class LoadReport {
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final LoadSettings settings;
+    private final LoadGenerator run;
+    private final double achievedRate;
+    private final double errorRate;
+    private final List<Check> checks = new ArrayList<>();
+
+    public LoadReport(LoadSettings settings, LoadGenerator run) {
+        this.settings = settings;
+        this.run = run;
+        long completed = run.getCorrected().getCount();
+        this.achievedRate = completed / Math.max(run.getMeasuredSeconds(), 1e-9);
+        this.errorRate = completed > 0 ? (double) run.getMeasuredErrors() / completed : 1.0;
+
+        LatencyHistogram latency = run.getCorrected();
+        addLatencyCheck("p50", settings.getSloP50Millis(), latency.getPercentileMicros(0.5));
+        addLatencyCheck("p99", settings.getSloP99Millis(), latency.getPercentileMicros(0.99));
+        addLatencyCheck("p99.9", settings.getSloP999Millis(), latency.getPercentileMicros(0.999));
+        if (settings.getSloMaxErrorRate() >= 0) {
+            checks.add(new Check("error rate", settings.getSloMaxErrorRate(), errorRate,
+                errorRate <= settings.getSloMaxErrorRate()));
+        }
+        if (settings.getSloMinRateRatio() >= 0) {
+            double ratio = achievedRate / settings.getRate();
+            checks.add(new Check("rate ratio", settings.getSloMinRateRatio(), ratio,
+                ratio >= settings.getSloMinRateRatio()));
+        }
+        if (completed < run.getMeasuredRequests()) {
+            checks.add(new Check("completed", run.getMeasuredRequests(), completed, false));
+        }
+    }
+
+    private void addLatencyCheck(String name, double limitMillis, long actualMicros) {
+        if (limitMillis >= 0) {
+            double actualMillis = actualMicros / 1000.0;
+            checks.add(new Check(name + " ms", limitMillis, actualMillis, actualMillis <= limitMillis));
+        }
+    }
+
+    public boolean isPassed() {
+        for (Check check : checks) {
+            if (!check.passed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void print(PrintStream out) {
+        out.println();
+        out.printf(Locale.ROOT, "Requests:   %d measured, %d errors (%.3f%%), %d I/O errors%n",
+            run.getCorrected().getCount(), run.getMeasuredErrors(), errorRate * 100, run.getIoErrors());
+        out.printf(Locale.ROOT, "Throughput: %.1f requests/s of %.1f requested over %.1f s%n",
+            achievedRate, settings.getRate(), run.getMeasuredSeconds());
+        out.printf(Locale.ROOT, "Start lag:  %.3f ms max%n", run.getMaxStartLagMicros() / 1000.0);
+        out.printf(Locale.ROOT, "Statuses:   %s%n", run.getStatusCounts());
+        for (int i = 0; i < run.getTargets().size(); i++) {
+            out.printf(Locale.ROOT, "Target:     %s  %d requests, %d errors%n",
+                run.getTargets().get(i), run.getTargetRequests(i), run.getTargetErrors(i));
+        }
+
+        out.println();
+        out.println("Latency ms      mean      p50      p90      p99    p99.9      max");
+        printLatency(out, "corrected", run.getCorrected());
+        printLatency(out, "uncorrected", run.getUncorrected());
+
+        out.println();
+        for (Check check : checks) {
+            out.printf(Locale.ROOT, "SLO %-11s %-4s actual %s, limit %s%n", check.name, check.passed ? "PASS" : "FAIL",
+                format(check.actual), format(check.limit));
+        }
+        out.println(isPassed() ? "All SLOs met" : "SLO breached");
+    }
+
+    private static void printLatency(PrintStream out, String name, LatencyHistogram histogram) {
+        out.printf(Locale.ROOT, "%-12s %7.3f", name, histogram.getMeanMicros() / 1000.0);
+        for (double percentile : PERCENTILES) {
+            out.printf(Locale.ROOT, " %8.3f", histogram.getPercentileMicros(percentile) / 1000.0);
+        }
+        out.printf(Locale.ROOT, " %8.3f%n", histogram.getMaxMicros() / 1000.0);
+    }
+
+    /**
+     * Write the report as JSON, latencies in microseconds
+     */
+    public void write(String file) throws IOException {
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\n  \"passed\": ").append(isPassed());
+        json.append(",\n  \"requestedRate\": ").append(format(settings.getRate()));
+        json.append(",\n  \"achievedRate\": ").append(format(achievedRate));
+        json.append(",\n  \"connections\": ").append(settings.getConnections());
+        json.append(",\n  \"measuredSeconds\": ").append(format(run.getMeasuredSeconds()));
+        json.append(",\n  \"requests\": ").append(run.getCorrected().getCount());
+        json.append(",\n  \"errors\": ").append(run.getMeasuredErrors());
+        json.append(",\n  \"ioErrors\": ").append(run.getIoErrors());
+        json.append(",\n  \"errorRate\": ").append(format(errorRate));
+        json.append(",\n  \"maxStartLagMicros\": ").append(run.getMaxStartLagMicros());
+        json.append(",\n  \"statuses\": {");
+        String separator = "";
+        for (Map.Entry<Integer, Long> status : run.getStatusCounts().entrySet()) {
+            json.append(separator).append('"').append(status.getKey()).append("\": ").append(status.getValue());
+            separator = ", ";
+        }
+        json.append("},\n  \"targets\": [");
+        for (int i = 0; i < run.getTargets().size(); i++) {
+            json.append(i == 0 ? "\n" : ",\n").append("    {\"url\": \"").append(run.getTargets().get(i))
+                .append("\", \"requests\": ").append(run.getTargetRequests(i))
+                .append(", \"errors\": ").append(run.getTargetErrors(i)).append('}');
+        }
+        json.append("\n  ],\n  \"correctedMicros\": ");
+        appendLatency(json, run.getCorrected());
+        json.append(",\n  \"uncorrectedMicros\": ");
+        appendLatency(json, run.getUncorrected());
+        json.append(",\n  \"slos\": [");
+        for (int i = 0; i < checks.size(); i++) {
+            Check check = checks.get(i);
+            json.append(i == 0 ? "\n" : ",\n").append("    {\"name\": \"").append(check.name)
+                .append("\", \"limit\": ").append(format(check.limit))
+                .append(", \"actual\": ").append(format(check.actual))
+                .append(", \"passed\": ").append(check.passed).append('}');
+        }
+        json.append("\n  ]\n}\n");
+
+        try (Writer writer = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+            writer.write(json.toString());
+        }
+    }
+
+    private static void appendLatency(StringBuilder json, LatencyHistogram histogram) {
+        json.append("{\"mean\": ").append(format(histogram.getMeanMicros()))
+            .append(", \"p50\": ").append(histogram.getPercentileMicros(0.5))
+            .append(", \"p90\": ").append(histogram.getPercentileMicros(0.9))
+            .append(", \"p99\": ").append(histogram.getPercentileMicros(0.99))
+            .append(", \"p99.9\": ").append(histogram.getPercentileMicros(0.999))
+            .append(", \"max\": ").append(histogram.getMaxMicros()).append('}');
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.4f", value).replaceAll("0+$", "").replaceAll("\\.$", "");
+    }
+
+    private static final class Check {
+        private final String name;
+        private final double limit;
+        private final double actual;
+        private final boolean passed;
+
+        private Check(String name, double limit, double actual, boolean passed) {
+            this.name = name;
+            this.limit = limit;
+            this.actual = actual;
+            this.passed = passed;
+        }
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,205 @@
+package com.example.loadgen;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Settings of a load run, read from JVM system properties
+ *
+ * Load:
+ *   loadgen.targets            comma-separated URLs, requests are spread over them round robin;
+ *                              default /api/counter/increment on member1 (9081) and member2 (9082)
+ *   loadgen.rate               requests per second across all targets, default 200
+ *   loadgen.connections        concurrent connections, default 16
+ *   loadgen.durationSeconds    measured duration, default 60
+ *   loadgen.warmupSeconds      unmeasured load before the measured duration, default 10
+ *   loadgen.timeoutMs          connect and read timeout per request, default 5000
+ *   loadgen.insecure           accept any HTTPS certificate and host name, default false
+ *   loadgen.stubs              start this many local member stubs and target them, default 0
+ *   loadgen.stubLatencyMicros  latency of each stub response, default 0
+ *   loadgen.report             file to write the JSON report to, default none
+ *
+ * Service level objectives; a negative value disables the check:
+ *   loadgen.slo.p50Ms          50th percentile latency, default 25
+ *   loadgen.slo.p99Ms          99th percentile latency, default 100
+ *   loadgen.slo.p999Ms         99.9th percentile latency, default 250
+ *   loadgen.slo.maxErrorRate   failed share of requests, default 0.001
+ *   loadgen.slo.minRateRatio   completed rate over the requested rate, default 0.95
+ */
+public final class LoadSettings {
+
+    static final String DEFAULT_TARGETS =
+        "http://localhost:9081/liberty-cluster-member-app/api/counter/increment,"
+        + "http://localhost:9082/liberty-cluster-member-app/api/counter/increment";
+
+    private final List<URL> targets;
+    private final double rate;
+    private final int connections;
+    private final long durationSeconds;
+    private final long warmupSeconds;
+    private final int timeoutMillis;
+    private final boolean insecure;
+    private final int stubs;
+    private final long stubLatencyMicros;
+    private final String reportFile;
+    private final double sloP50Millis;
+    private final double sloP99Millis;
+    private final double sloP999Millis;
+    private final double sloMaxErrorRate;
+    private final double sloMinRateRatio;
+
+    public LoadSettings(List<URL> targets, double rate, int connections, long durationSeconds, long warmupSeconds,
+                        int timeoutMillis, boolean insecure, int stubs, long stubLatencyMicros, String reportFile,
+                        double sloP50Millis, double sloP99Millis, double sloP999Millis,
+                        double sloMaxErrorRate, double sloMinRateRatio) {
+        if (targets.isEmpty() && stubs <= 0) {
+            throw new IllegalArgumentException("loadgen.targets is empty");
+        }
+        if (!(rate > 0)) {
+            throw new IllegalArgumentException("loadgen.rate must be positive: " + rate);
+        }
+        if (connections < 1) {
+            throw new IllegalArgumentException("loadgen.connections must be at least 1: " + connections);
+        }
+        if (durationSeconds < 1 || warmupSeconds < 0) {
+            throw new IllegalArgumentException("loadgen.durationSeconds must be at least 1 and loadgen.warmupSeconds not negative");
+        }
+        this.targets = Collections.unmodifiableList(new ArrayList<>(targets));
+        this.rate = rate;
+        this.connections = connections;
+        this.durationSeconds = durationSeconds;
+        this.warmupSeconds = warmupSeconds;
+        this.timeoutMillis = Math.max(1, timeoutMillis);
+        this.insecure = insecure;
+        this.stubs = Math.max(0, stubs);
+        this.stubLatencyMicros = Math.max(0, stubLatencyMicros);
+        this.reportFile = reportFile;
+        this.sloP50Millis = sloP50Millis;
+        this.sloP99Millis = sloP99Millis;
+        this.sloP999Millis = sloP999Millis;
+        this.sloMaxErrorRate = sloMaxErrorRate;
+        this.sloMinRateRatio = sloMinRateRatio;
+    }
+
+    /**
+     * Settings from the loadgen.* system properties
+     *
+     * @throws IllegalArgumentException if a property has an invalid value
+     */
+    public static LoadSettings fromSystemProperties() {
+        List<URL> targets = new ArrayList<>();
+        int stubs = Integer.getInteger("loadgen.stubs", 0);
+        if (stubs <= 0) {
+            for (String target : System.getProperty("loadgen.targets", DEFAULT_TARGETS).split(",")) {
+                if (!target.trim().isEmpty()) {
+                    try {
+                        targets.add(new URL(target.trim()));
+                    } catch (MalformedURLException e) {
+                        throw new IllegalArgumentException("Invalid target URL: " + target, e);
+                    }
+                }
+            }
+        }
+        return new LoadSettings(
+            targets,
+            doubleProperty("loadgen.rate", 200),
+            Integer.getInteger("loadgen.connections", 16),
+            Long.getLong("loadgen.durationSeconds", 60L),
+            Long.getLong("loadgen.warmupSeconds", 10L),
+            Integer.getInteger("loadgen.timeoutMs", 5000),
+            Boolean.getBoolean("loadgen.insecure"),
+            stubs,
+            Long.getLong("loadgen.stubLatencyMicros", 0L),
+            System.getProperty("loadgen.report"),
+            doubleProperty("loadgen.slo.p50Ms", 25),
+            doubleProperty("loadgen.slo.p99Ms", 100),
+            doubleProperty("loadgen.slo.p999Ms", 250),
+            doubleProperty("loadgen.slo.maxErrorRate", 0.001),
+            doubleProperty("loadgen.slo.minRateRatio", 0.95));
+    }
+
+    /**
+     * The same settings aimed at other targets
+     */
+    public LoadSettings withTargets(List<URL> newTargets) {
+        return new LoadSettings(newTargets, rate, connections, durationSeconds, warmupSeconds, timeoutMillis, insecure,
+            stubs, stubLatencyMicros, reportFile, sloP50Millis, sloP99Millis, sloP999Millis, sloMaxErrorRate, sloMinRateRatio);
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + name + ": " + value, e);
+        }
+    }
+
+    public List<URL> getTargets() {
+        return targets;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public long getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public boolean isInsecure() {
+        return insecure;
+    }
+
+    public int getStubs() {
+        return stubs;
+    }
+
+    public long getStubLatencyMicros() {
+        return stubLatencyMicros;
+    }
+
+    public String getReportFile() {
+        return reportFile;
+    }
+
+    public double getSloP50Millis() {
+        return sloP50Millis;
+    }
+
+    public double getSloP99Millis() {
+        return sloP99Millis;
+    }
+
+    public double getSloP999Millis() {
+        return sloP999Millis;
+    }
+
+    public double getSloMaxErrorRate() {
+        return sloMaxErrorRate;
+    }
+
+    public double getSloMinRateRatio() {
+        return sloMinRateRatio;
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,70 @@
+package com.example.loadgen;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadGeneratorTest {
+
+    private CounterStub stub;
+
+    @AfterEach
+    void stop() {
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void correctedLatencyIncludesTheStartLag() throws Exception {
+        // One connection answering in 20 ms cannot keep up with 100 requests/s, so requests start late
+        LoadGenerator generator = run(20_000, 100, 1, 0);
+
+        LatencyHistogram corrected = generator.getCorrected();
+        LatencyHistogram uncorrected = generator.getUncorrected();
+        long maxStartLag = generator.getMaxStartLagMicros();
+        assertEquals(100, corrected.getCount());
+        assertEquals(100, uncorrected.getCount());
+        assertTrue(maxStartLag > 500_000, "max start lag " + maxStartLag + "us");
+        // The request that started latest still took the stub's latency after it was sent
+        assertTrue(corrected.getMaxMicros() >= maxStartLag + 19_000,
+            "corrected max " + corrected.getMaxMicros() + "us, start lag " + maxStartLag + "us");
+        assertTrue(uncorrected.getMaxMicros() < maxStartLag,
+            "uncorrected max " + uncorrected.getMaxMicros() + "us, start lag " + maxStartLag + "us");
+        assertTrue(corrected.getMeanMicros() > uncorrected.getMeanMicros() + 250_000,
+            "corrected mean " + corrected.getMeanMicros() + "us, uncorrected " + uncorrected.getMeanMicros() + "us");
+    }
+
+    @Test
+    void warmupRequestsAreSentButNotMeasured() throws Exception {
+        LoadGenerator generator = run(0, 50, 4, 1);
+
+        assertEquals(100, stub.getCounter());
+        assertEquals(50, generator.getMeasuredRequests());
+        assertEquals(50, generator.getCorrected().getCount());
+        assertEquals(50, generator.getUncorrected().getCount());
+        assertEquals(50, generator.getTargetRequests(0));
+        assertEquals(Collections.singletonMap(200, 50L), generator.getStatusCounts());
+        assertEquals(0, generator.getMeasuredErrors());
+        double measuredSeconds = generator.getMeasuredSeconds();
+        assertTrue(measuredSeconds >= 1.0 && measuredSeconds < 2.0, "measured " + measuredSeconds + "s");
+    }
+
+    private LoadGenerator run(long stubLatencyMicros, double rate, int connections, long warmupSeconds)
+            throws IOException, InterruptedException {
+        stub = new CounterStub("stub1", stubLatencyMicros).start(connections);
+        // Negative SLO limits disable the checks; these tests look at the measurements only
+        LoadSettings settings = new LoadSettings(Collections.singletonList(stub.getIncrementUrl()), rate, connections,
+            1, warmupSeconds, 5000, false, 0, 0, null, -1, -1, -1, -1, -1);
+        LoadGenerator generator = new LoadGenerator(settings);
+        generator.run();
+        return generator;
+    }
+}
+
+// Made with Bob
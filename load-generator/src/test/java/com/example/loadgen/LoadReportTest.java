@@ -0,0 +1,86 @@
+package com.example.loadgen;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadReportTest {
+
+    private CounterStub stub;
+
+    @AfterEach
+    void stop() {
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void fastStubMeetsTheSlos() throws Exception {
+        stub = new CounterStub("stub1", 1_000).start(4);
+
+        LoadReport report = report(settings(stub.getIncrementUrl(), 50, 500, 1000, 0.0, 0.5));
+        String printed = print(report);
+
+        assertTrue(report.isPassed(), printed);
+        assertTrue(printed.contains("SLO p50 ms      PASS"), printed);
+        assertTrue(printed.contains("All SLOs met"), printed);
+    }
+
+    @Test
+    void slowStubBreachesTheLatencySlo() throws Exception {
+        stub = new CounterStub("stub1", 30_000).start(4);
+
+        LoadReport report = report(settings(stub.getIncrementUrl(), 10, 500, 1000, 0.0, 0.5));
+        String printed = print(report);
+
+        assertFalse(report.isPassed(), printed);
+        assertTrue(printed.contains("SLO p50 ms      FAIL"), printed);
+        assertTrue(printed.contains("SLO error rate  PASS"), printed);
+        assertTrue(printed.contains("SLO breached"), printed);
+    }
+
+    @Test
+    void unreachableTargetBreachesTheErrorRateSlo() throws Exception {
+        URL closed;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closed = new URL("http", "127.0.0.1", socket.getLocalPort(), CounterStub.INCREMENT_PATH);
+        }
+
+        LoadReport report = report(settings(closed, -1, -1, -1, 0.001, -1));
+        String printed = print(report);
+
+        assertFalse(report.isPassed(), printed);
+        assertTrue(printed.contains("SLO error rate  FAIL"), printed);
+        assertTrue(printed.contains("50 I/O errors"), printed);
+    }
+
+    private static LoadSettings settings(URL target, double p50Millis, double p99Millis, double p999Millis,
+                                         double maxErrorRate, double minRateRatio) {
+        return new LoadSettings(Collections.singletonList(target), 50, 4, 1, 0, 1000, false, 0, 0, null,
+            p50Millis, p99Millis, p999Millis, maxErrorRate, minRateRatio);
+    }
+
+    private static LoadReport report(LoadSettings settings) throws InterruptedException {
+        LoadGenerator generator = new LoadGenerator(settings);
+        generator.run();
+        return new LoadReport(settings, generator);
+    }
+
+    private static String print(LoadReport report) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        report.print(new PrintStream(out, true));
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,156 @@
+package com.example.mbean;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded cache with an optional time to live, for MBean metadata
+ *
+ * Lookups are a single lock-free map read. When a put takes the cache over its
+ * limit, the entries put longest ago are evicted one by one until it fits
+ * again, so a full cache keeps its recent entries instead of being emptied.
+ * Expired entries are dropped when they are looked up.
+ *
+ * Used by the controller's MBean metadata cache and the cluster application's
+ * attribute harvester.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class BoundedCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final ConcurrentHashMap<K, Entry<K, V>> entries = new ConcurrentHashMap<>();
+    /** Entries in the order they were put; replaced and removed ones are skipped when they come up */
+    private final ConcurrentLinkedQueue<Entry<K, V>> putOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean purging = new AtomicBoolean();
+
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param maxEntries entries kept at most
+     * @param ttlMillis lifetime of an entry, or 0 for entries that only leave by eviction or removal
+     */
+    public BoundedCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlMillis = Math.max(0, ttlMillis);
+    }
+
+    /**
+     * Cached value of a key
+     *
+     * @return the value, or null if the key is not cached or its entry expired
+     */
+    public V get(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (ttlMillis > 0 && System.currentTimeMillis() >= entry.expiresAt) {
+            if (entries.remove(key, entry)) {
+                expirations.increment();
+            }
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Cache a value, replacing any value of the key, and evict the oldest entries if the cache is full
+     */
+    public void put(K key, V value) {
+        Entry<K, V> entry = new Entry<>(key, value, ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : Long.MAX_VALUE);
+        entries.put(key, entry);
+        putOrder.add(entry);
+        queued.incrementAndGet();
+        evict();
+    }
+
+    /**
+     * Drop the value of a key
+     *
+     * @return true if the key was cached
+     */
+    public boolean remove(K key) {
+        return entries.remove(key) != null;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * Entries evicted to keep the cache within its limit
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Entries dropped because their time to live had passed
+     */
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    private void evict() {
+        while (entries.size() > maxEntries) {
+            Entry<K, V> oldest = putOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            queued.decrementAndGet();
+            if (entries.remove(oldest.key, oldest)) {
+                evictions.increment();
+            }
+        }
+        // Without evictions, replaced and removed entries would pile up in the put order
+        if (queued.get() > 2 * maxEntries && purging.compareAndSet(false, true)) {
+            try {
+                for (Iterator<Entry<K, V>> it = putOrder.iterator(); it.hasNext(); ) {
+                    Entry<K, V> entry = it.next();
+                    if (entries.get(entry.key) != entry) {
+                        it.remove();
+                        queued.decrementAndGet();
+                    }
+                }
+            } finally {
+                purging.set(false);
+            }
+        }
+    }
+
+    private static final class Entry<K, V> {
+        final K key;
+        final V value;
+        final long expiresAt;
+
+        Entry(K key, V value, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,351 @@
+package com.example.mbean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory catalog of the MBeans registered with the platform MBeanServer
+ *
+ * Shared by the controller and cluster applications; each application gets its
+ * own instance from the copy of this jar in its WEB-INF/lib.
+ *
+ * Names are indexed by domain and by the values of the type, feature, server
+ * and host key properties. The catalog is loaded once and then kept current
+ * from MBeanServerDelegate registration and unregistration notifications, so
+ * a pattern query that fixes the domain or one of the indexed keys only looks
+ * at the names under the smallest matching index entry instead of scanning
+ * every MBean. Other patterns are matched against the catalog without calling
+ * the MBeanServer. Names are kept sorted by canonical name, so a page of a
+ * listing is read from the name after the cursor onwards and stops once the
+ * page is full. The WebSphere and collective MBeans, listed by the cluster
+ * application's {@code /members/mbeans}, are also kept as their own sorted set.
+ *
+ * If the registration listener cannot be added, queries go to the MBeanServer.
+ */
+@ApplicationScoped
+public class MBeanCatalog {
+
+    private static final Logger LOGGER = Logger.getLogger(MBeanCatalog.class.getName());
+
+    /** Key properties with an index */
+    static final String[] INDEXED_KEYS = {"type", "feature", "server", "host"};
+
+    private final MBeanServer mbs;
+
+    /** Every registered name by canonical name */
+    private final ConcurrentSkipListMap<String, ObjectName> names = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, ObjectName> webSphereOrCollective = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Set<ObjectName>> byDomain = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Set<ObjectName>>> byKey = new ConcurrentHashMap<>();
+
+    private final AtomicLong indexedQueries = new AtomicLong();
+    private final AtomicLong scanQueries = new AtomicLong();
+    private final AtomicLong registrations = new AtomicLong();
+    private final AtomicLong unregistrations = new AtomicLong();
+
+    private volatile boolean listening;
+    private Set<ObjectName> unregisteredWhileLoading;
+
+    private final NotificationListener registrationListener = (notification, handback) -> {
+        if (notification instanceof MBeanServerNotification) {
+            MBeanServerNotification registration = (MBeanServerNotification) notification;
+            if (MBeanServerNotification.REGISTRATION_NOTIFICATION.equals(registration.getType())) {
+                registered(registration.getMBeanName());
+            } else if (MBeanServerNotification.UNREGISTRATION_NOTIFICATION.equals(registration.getType())) {
+                unregistered(registration.getMBeanName());
+            }
+        }
+    };
+
+    public MBeanCatalog() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public MBeanCatalog(MBeanServer mbs) {
+        this.mbs = mbs;
+        for (String key : INDEXED_KEYS) {
+            byKey.put(key, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Create the catalog when the application starts so the first query finds it loaded
+     */
+    public void onApplicationStart(@Observes @Initialized(ApplicationScoped.class) Object ignored) {
+        LOGGER.fine("MBean catalog initialized");
+    }
+
+    @PostConstruct
+    public void start() {
+        try {
+            mbs.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, registrationListener, null, null);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Could not listen for MBean registrations, MBean queries will scan the MBeanServer", e);
+            return;
+        }
+
+        // Listen first, then load, so no registration is missed; unregistrations seen
+        // while loading are remembered so the snapshot cannot bring those names back
+        synchronized (this) {
+            unregisteredWhileLoading = new HashSet<>();
+        }
+        Set<ObjectName> snapshot = mbs.queryNames(null, null);
+        synchronized (this) {
+            for (ObjectName name : snapshot) {
+                if (!unregisteredWhileLoading.contains(name)) {
+                    add(name);
+                }
+            }
+            unregisteredWhileLoading = null;
+        }
+        listening = true;
+        LOGGER.fine("MBean catalog loaded with " + names.size() + " MBeans");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        listening = false;
+        try {
+            mbs.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, registrationListener);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "MBeanServerDelegate listener already removed", e);
+        }
+    }
+
+    /**
+     * Names of the registered MBeans matching an ObjectName pattern
+     *
+     * @param pattern ObjectName or pattern, or null for all MBeans
+     * @return a new set owned by the caller
+     */
+    public Set<ObjectName> query(ObjectName pattern) {
+        if (!listening) {
+            scanQueries.incrementAndGet();
+            return mbs.queryNames(pattern, null);
+        }
+        if (pattern == null) {
+            scanQueries.incrementAndGet();
+            return new HashSet<>(names.values());
+        }
+        if (!pattern.isPattern()) {
+            indexedQueries.incrementAndGet();
+            return isRegistered(pattern) ? new HashSet<>(Collections.singleton(pattern)) : new HashSet<>();
+        }
+
+        Set<ObjectName> candidates = indexedCandidates(pattern, true);
+        Collection<ObjectName> scanned = candidates != null ? candidates : names.values();
+        Set<ObjectName> matches = new HashSet<>();
+        for (ObjectName name : scanned) {
+            // Index entries can briefly outlive an unregistration
+            if (pattern.apply(name) && isRegistered(name)) {
+                matches.add(name);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * One page of the registered MBeans matching an ObjectName pattern, in canonical name order
+     *
+     * @param pattern ObjectName or pattern, or null for all MBeans
+     * @param cursor canonical name of the last name of the previous page, or null for the first page
+     * @param limit maximum names in the page
+     */
+    public MBeanNamePage page(ObjectName pattern, String cursor, int limit) {
+        if (!listening) {
+            scanQueries.incrementAndGet();
+            return MBeanNamePage.select(mbs.queryNames(pattern, null), name -> true, cursor, limit);
+        }
+        if (pattern != null && !pattern.isPattern()) {
+            indexedQueries.incrementAndGet();
+            Set<ObjectName> registered = isRegistered(pattern) ? Collections.singleton(pattern) : Collections.emptySet();
+            return MBeanNamePage.select(registered, name -> true, cursor, limit);
+        }
+        if (pattern == null) {
+            scanQueries.incrementAndGet();
+            return MBeanNamePage.walk(names, name -> true, cursor, limit);
+        }
+        Set<ObjectName> candidates = indexedCandidates(pattern, false);
+        if (candidates != null) {
+            // A key index entry is usually far smaller than the catalog; pick the page from it
+            return MBeanNamePage.select(candidates, name -> pattern.apply(name) && isRegistered(name), cursor, limit);
+        }
+        if (pattern.isDomainPattern()) {
+            return MBeanNamePage.walk(names, pattern::apply, cursor, limit);
+        }
+        // Canonical names start with the domain and a colon, so a domain's names are one range
+        NavigableMap<String, ObjectName> domain = names.subMap(pattern.getDomain() + ":", true, pattern.getDomain() + ";", false);
+        return MBeanNamePage.walk(domain, pattern::apply, cursor, limit);
+    }
+
+    /**
+     * Names of the registered MBeans in the WebSphere domain or with collective in their name
+     *
+     * @return the names in canonical name order; a live view while the catalog is kept current
+     */
+    public Collection<ObjectName> webSphereOrCollective() {
+        if (!listening) {
+            scanQueries.incrementAndGet();
+            Set<ObjectName> matches = new HashSet<>();
+            for (ObjectName name : mbs.queryNames(null, null)) {
+                if (isWebSphereOrCollective(name)) {
+                    matches.add(name);
+                }
+            }
+            return matches;
+        }
+        indexedQueries.incrementAndGet();
+        return Collections.unmodifiableCollection(webSphereOrCollective.values());
+    }
+
+    /**
+     * One page of the WebSphere and collective MBeans, in canonical name order
+     *
+     * @param cursor canonical name of the last name of the previous page, or null for the first page
+     * @param limit maximum names in the page
+     */
+    public MBeanNamePage webSphereOrCollectivePage(String cursor, int limit) {
+        if (!listening) {
+            return MBeanNamePage.select(webSphereOrCollective(), name -> true, cursor, limit);
+        }
+        indexedQueries.incrementAndGet();
+        return MBeanNamePage.walk(webSphereOrCollective, name -> true, cursor, limit);
+    }
+
+    /**
+     * Names under the smallest index entry fixed by a pattern, counted as an indexed query
+     *
+     * @param domainIndex whether the domain index may be used
+     * @return the indexed names, or null if the pattern fixes no indexed key (nor the domain)
+     */
+    private Set<ObjectName> indexedCandidates(ObjectName pattern, boolean domainIndex) {
+        Set<ObjectName> candidates = null;
+        if (domainIndex && !pattern.isDomainPattern()) {
+            candidates = byDomain.getOrDefault(pattern.getDomain(), Collections.emptySet());
+        }
+        for (String key : INDEXED_KEYS) {
+            String value = pattern.getKeyProperty(key);
+            if (value != null && !pattern.isPropertyValuePattern(key)) {
+                Set<ObjectName> indexed = byKey.get(key).getOrDefault(value, Collections.emptySet());
+                if (candidates == null || indexed.size() < candidates.size()) {
+                    candidates = indexed;
+                }
+            }
+        }
+        if (candidates == null) {
+            scanQueries.incrementAndGet();
+        } else {
+            indexedQueries.incrementAndGet();
+        }
+        return candidates;
+    }
+
+    private boolean isRegistered(ObjectName name) {
+        return names.containsKey(name.getCanonicalName());
+    }
+
+    /**
+     * Number of registered MBeans
+     */
+    public int size() {
+        return listening ? names.size() : mbs.getMBeanCount();
+    }
+
+    /**
+     * Catalog size and query counters
+     */
+    public JsonObject getStatistics() {
+        return Json.createObjectBuilder()
+            .add("listening", listening)
+            .add("mbeans", names.size())
+            .add("domains", byDomain.size())
+            .add("webSphereOrCollective", webSphereOrCollective.size())
+            .add("indexedQueries", indexedQueries.get())
+            .add("scanQueries", scanQueries.get())
+            .add("registrations", registrations.get())
+            .add("unregistrations", unregistrations.get())
+            .build();
+    }
+
+    private synchronized void registered(ObjectName name) {
+        registrations.incrementAndGet();
+        if (unregisteredWhileLoading != null) {
+            unregisteredWhileLoading.remove(name);
+        }
+        add(name);
+    }
+
+    private synchronized void unregistered(ObjectName name) {
+        unregistrations.incrementAndGet();
+        if (unregisteredWhileLoading != null) {
+            unregisteredWhileLoading.add(name);
+        }
+        if (names.remove(name.getCanonicalName()) == null) {
+            return;
+        }
+        webSphereOrCollective.remove(name.getCanonicalName());
+        remove(byDomain, name.getDomain(), name);
+        for (String key : INDEXED_KEYS) {
+            String value = name.getKeyProperty(key);
+            if (value != null) {
+                remove(byKey.get(key), value, name);
+            }
+        }
+    }
+
+    private void add(ObjectName name) {
+        if (names.putIfAbsent(name.getCanonicalName(), name) != null) {
+            return;
+        }
+        if (isWebSphereOrCollective(name)) {
+            webSphereOrCollective.put(name.getCanonicalName(), name);
+        }
+        byDomain.computeIfAbsent(name.getDomain(), domain -> ConcurrentHashMap.newKeySet()).add(name);
+        for (String key : INDEXED_KEYS) {
+            String value = name.getKeyProperty(key);
+            if (value != null) {
+                byKey.get(key).computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet()).add(name);
+            }
+        }
+    }
+
+    private static void remove(ConcurrentHashMap<String, Set<ObjectName>> index, String value, ObjectName name) {
+        Set<ObjectName> entry = index.get(value);
+        if (entry != null) {
+            entry.remove(name);
+            if (entry.isEmpty()) {
+                index.remove(value, entry);
+            }
+        }
+    }
+
+    static boolean isWebSphereOrCollective(ObjectName mbean) {
+        String name = mbean.getCanonicalName();
+        return "WebSphere".equals(mbean.getDomain())
+            || name.contains("collective")
+            || name.contains("Collective");
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,108 @@
+package com.example.mbean;
+
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * One page of MBean names for paginated MBean listings
+ *
+ * Pages are ordered by canonical name and the cursor is the canonical name of
+ * the last entry of the previous page. A page is read from a sorted index
+ * starting right after the cursor and stops at the first name past the page,
+ * so paging through tens of thousands of MBeans never copies or sorts the
+ * whole set. Unsorted names are selected in a single pass that keeps at most
+ * {@code limit} names.
+ */
+public final class MBeanNamePage {
+
+    /** Page size used when a cursor is given without a limit */
+    public static final int DEFAULT_LIMIT = 1000;
+
+    private static final Comparator<ObjectName> BY_CANONICAL_NAME =
+        Comparator.comparing(ObjectName::getCanonicalName);
+
+    private final List<ObjectName> names;
+    private final boolean more;
+
+    private MBeanNamePage(List<ObjectName> names, boolean more) {
+        this.names = names;
+        this.more = more;
+    }
+
+    /**
+     * Read the matching names following the cursor from an index sorted by canonical name
+     *
+     * @param sorted names by canonical name
+     * @param filter names to include
+     * @param cursor canonical name of the last name already returned, or null for the first page
+     * @param limit maximum names in the page
+     */
+    public static MBeanNamePage walk(NavigableMap<String, ObjectName> sorted, Predicate<ObjectName> filter,
+                              String cursor, int limit) {
+        Collection<ObjectName> following = cursor != null ? sorted.tailMap(cursor, false).values() : sorted.values();
+        List<ObjectName> names = new ArrayList<>(Math.min(limit, 1024));
+        for (ObjectName name : following) {
+            if (!filter.test(name)) {
+                continue;
+            }
+            if (names.size() == limit) {
+                return new MBeanNamePage(names, true);
+            }
+            names.add(name);
+        }
+        return new MBeanNamePage(names, false);
+    }
+
+    /**
+     * Select the matching names following the cursor from names in any order
+     *
+     * @param candidates all names to page through
+     * @param filter names to include
+     * @param cursor canonical name of the last name already returned, or null for the first page
+     * @param limit maximum names in the page
+     */
+    public static MBeanNamePage select(Collection<ObjectName> candidates, Predicate<ObjectName> filter,
+                                String cursor, int limit) {
+        // Max-heap of the smallest names after the cursor seen so far
+        PriorityQueue<ObjectName> smallest = new PriorityQueue<>(Math.min(limit, 1024) + 1, BY_CANONICAL_NAME.reversed());
+        boolean more = false;
+        for (ObjectName name : candidates) {
+            if (!filter.test(name) || (cursor != null && name.getCanonicalName().compareTo(cursor) <= 0)) {
+                continue;
+            }
+            if (smallest.size() < limit) {
+                smallest.add(name);
+                continue;
+            }
+            more = true;
+            if (BY_CANONICAL_NAME.compare(name, smallest.peek()) < 0) {
+                smallest.poll();
+                smallest.add(name);
+            }
+        }
+
+        List<ObjectName> names = new ArrayList<>(smallest);
+        Collections.sort(names, BY_CANONICAL_NAME);
+        return new MBeanNamePage(names, more);
+    }
+
+    public List<ObjectName> getNames() {
+        return names;
+    }
+
+    /**
+     * Cursor for the next page, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return more && !names.isEmpty() ? names.get(names.size() - 1).getCanonicalName() : null;
+    }
+}
+
+// Made with Bob
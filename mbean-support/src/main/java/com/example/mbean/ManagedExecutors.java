@@ -0,0 +1,61 @@
+package com.example.mbean;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lookup of managed executors configured in server.xml, and the thread factory
+ * of the local pools the applications fall back to outside the server
+ *
+ * Used by the controller's and the cluster application's thread pools.
+ */
+public final class ManagedExecutors {
+
+    /** The server's default managed scheduled executor, for timers and background housekeeping */
+    public static final String DEFAULT_SCHEDULER = "java:comp/DefaultManagedScheduledExecutorService";
+
+    private static final Logger LOGGER = Logger.getLogger(ManagedExecutors.class.getName());
+
+    private ManagedExecutors() {
+    }
+
+    /**
+     * Look up a managed executor configured in server.xml (concurrent-1.0)
+     *
+     * @return the executor, or null if the name is not bound, as outside the server
+     */
+    public static <T extends ExecutorService> T lookup(String jndiName, Class<T> type) {
+        if (jndiName == null || jndiName.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            Object executor = InitialContext.doLookup(jndiName.trim());
+            if (type.isInstance(executor)) {
+                return type.cast(executor);
+            }
+            LOGGER.warning(jndiName + " is not a " + type.getSimpleName());
+        } catch (NamingException e) {
+            LOGGER.log(Level.FINE, "No managed executor bound at " + jndiName, e);
+        }
+        return null;
+    }
+
+    /**
+     * Thread factory producing daemon threads named {@code <prefix>-<n>}
+     */
+    public static ThreadFactory namedDaemonThreads(final String prefix) {
+        final AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,117 @@
+package com.example.mbean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MBeanCatalogTest {
+
+    private static final String[] PATTERNS = {
+        "*:*",
+        "test:*",
+        "te?t:*",
+        "*:type=Item,*",
+        "test:type=Item,*",
+        "test:type=It*,*",
+        "test:type=Item,server=s1,*",
+        "test:type=Item,server=s?,host=h2,*",
+        "test:feature=f1,*",
+        "*:host=h1,*",
+        "test:id=3,*",
+        "test:id=3,type=Item",
+        "test:type=Missing,*",
+        "missing:*",
+        "WebSphere:*",
+        "WebSphere:type=Server,*",
+        "*:name=*collective*,*",
+        "JMImplementation:*",
+    };
+
+    private final MBeanServer mbs = MBeanServerFactory.newMBeanServer();
+    private final MBeanCatalog catalog = new MBeanCatalog(mbs);
+
+    @BeforeEach
+    void registerMBeans() throws JMException {
+        for (int id = 0; id < 12; id++) {
+            register("test:type=Item,id=" + id + ",server=s" + id % 3 + ",host=h" + id % 2);
+        }
+        register("test:type=Items,id=1");
+        register("test:type=Other,feature=f1,id=1");
+        register("tent:type=Item,id=1,host=h1");
+        register("WebSphere:type=Server,name=s1");
+        register("WebSphere:feature=collectiveController,type=ClusterManager,name=ClusterManager");
+        register("other:name=collectiveMember,type=Member");
+        catalog.start();
+    }
+
+    @AfterEach
+    void stop() {
+        catalog.shutdown();
+    }
+
+    @Test
+    void queriesMatchQueryNames() throws JMException {
+        assertMatchesQueryNames();
+    }
+
+    @Test
+    void queriesMatchQueryNamesAfterRegistrationsAndUnregistrations() throws JMException {
+        mbs.unregisterMBean(new ObjectName("test:type=Item,id=3,server=s0,host=h1"));
+        mbs.unregisterMBean(new ObjectName("test:type=Other,feature=f1,id=1"));
+        mbs.unregisterMBean(new ObjectName("WebSphere:type=Server,name=s1"));
+        register("test:type=Item,id=3,server=s9,host=h2");
+        register("test:type=Item,id=20,server=s1,host=h2");
+        register("WebSphere:type=Server,name=s2");
+
+        assertMatchesQueryNames();
+    }
+
+    @Test
+    void webSphereOrCollectiveMatchesTheirNames() {
+        Set<ObjectName> expected = new HashSet<>();
+        for (ObjectName name : mbs.queryNames(null, null)) {
+            if (name.getDomain().equals("WebSphere") || name.getCanonicalName().toLowerCase().contains("collective")) {
+                expected.add(name);
+            }
+        }
+
+        assertEquals(3, expected.size());
+        assertEquals(expected, new HashSet<>(catalog.webSphereOrCollective()));
+        assertEquals(new ArrayList<>(catalog.webSphereOrCollective()),
+            catalog.webSphereOrCollectivePage(null, 10).getNames());
+    }
+
+    private void assertMatchesQueryNames() throws JMException {
+        for (String patternName : PATTERNS) {
+            ObjectName pattern = new ObjectName(patternName);
+            Set<ObjectName> expected = mbs.queryNames(pattern, null);
+
+            assertEquals(expected, catalog.query(pattern), patternName);
+            List<ObjectName> paged = catalog.page(pattern, null, Integer.MAX_VALUE).getNames();
+            assertEquals(expected, new HashSet<>(paged), patternName);
+            assertEquals(expected.size(), paged.size(), patternName);
+        }
+        assertEquals(mbs.queryNames(null, null), catalog.query(null));
+        assertEquals(mbs.getMBeanCount().intValue(), catalog.size());
+        assertTrue(catalog.size() > 18);
+    }
+
+    private void register(String name) throws JMException {
+        mbs.registerMBean(new StandardMBean(() -> { }, Runnable.class), new ObjectName(name));
+    }
+}
+
+// Made with Bob
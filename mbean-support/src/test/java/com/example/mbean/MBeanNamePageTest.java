@@ -0,0 +1,146 @@
+package com.example.mbean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MBeanNamePageTest {
+
+    private static final String[] PATTERNS = {null, "test:*", "test:type=Item,*", "*:type=Item,*", "t*:*"};
+
+    private final MBeanServer mbs = MBeanServerFactory.newMBeanServer();
+    private final MBeanCatalog catalog = new MBeanCatalog(mbs);
+
+    @BeforeEach
+    void registerItems() throws JMException {
+        for (int id = 0; id < 100; id++) {
+            register(String.format("test:type=Item,id=%03d", id));
+        }
+        register("test:type=Other,id=1");
+        register("other:type=Item,id=1");
+    }
+
+    @AfterEach
+    void stop() {
+        catalog.shutdown();
+    }
+
+    @Test
+    void pagesReturnEveryNameOnceWhileMBeansComeAndGo() throws JMException {
+        catalog.start();
+        assertPagesWhileMBeansComeAndGo();
+    }
+
+    @Test
+    void pagesFromTheMBeanServerReturnEveryNameOnceWhileMBeansComeAndGo() throws JMException {
+        // Not started, so pages are selected from queryNames
+        assertPagesWhileMBeansComeAndGo();
+    }
+
+    @Test
+    void selectReturnsTheSamePagesAsWalk() throws JMException {
+        TreeMap<String, ObjectName> sorted = new TreeMap<>();
+        for (ObjectName name : mbs.queryNames(null, null)) {
+            sorted.put(name.getCanonicalName(), name);
+        }
+        for (int limit : new int[] {1, 7, 51, 102, 1000}) {
+            String walkCursor = null;
+            String selectCursor = null;
+            do {
+                MBeanNamePage walked = MBeanNamePage.walk(sorted, name -> !name.getDomain().equals("other"), walkCursor, limit);
+                MBeanNamePage selected = MBeanNamePage.select(sorted.values(), name -> !name.getDomain().equals("other"), selectCursor, limit);
+                assertEquals(walked.getNames(), selected.getNames(), "limit " + limit);
+                assertEquals(walked.getNextCursor(), selected.getNextCursor(), "limit " + limit);
+                walkCursor = walked.getNextCursor();
+                selectCursor = selected.getNextCursor();
+            } while (walkCursor != null);
+        }
+    }
+
+    @Test
+    void fullLastPageHasNoNextCursor() throws JMException {
+        catalog.start();
+        ObjectName pattern = new ObjectName("test:type=Item,*");
+
+        MBeanNamePage first = catalog.page(pattern, null, 60);
+        assertEquals(60, first.getNames().size());
+        assertNotNull(first.getNextCursor());
+
+        MBeanNamePage last = catalog.page(pattern, first.getNextCursor(), 40);
+        assertEquals(40, last.getNames().size());
+        assertNull(last.getNextCursor());
+        assertTrue(catalog.page(pattern, last.getNames().get(39).getCanonicalName(), 10).getNames().isEmpty());
+    }
+
+    /**
+     * Page through each pattern, registering one MBean and unregistering another between pages
+     * Names present throughout must be returned exactly once; names that came or went at most once.
+     */
+    private void assertPagesWhileMBeansComeAndGo() throws JMException {
+        int changes = 0;
+        for (String patternName : PATTERNS) {
+            ObjectName pattern = patternName != null ? new ObjectName(patternName) : null;
+            Set<ObjectName> stable = new HashSet<>(mbs.queryNames(pattern, null));
+            Set<ObjectName> changed = new HashSet<>();
+            Map<ObjectName, Integer> returned = new HashMap<>();
+            List<String> order = new ArrayList<>();
+
+            String cursor = null;
+            do {
+                MBeanNamePage page = catalog.page(pattern, cursor, 7);
+                for (ObjectName name : page.getNames()) {
+                    returned.merge(name, 1, Integer::sum);
+                    order.add(name.getCanonicalName());
+                }
+                cursor = page.getNextCursor();
+
+                ObjectName added = new ObjectName(String.format("test:type=Item,id=new%03d", changes));
+                ObjectName removed = new ObjectName(String.format("test:type=Item,id=%03d", 99 - changes));
+                changes++;
+                register(added.getCanonicalName());
+                mbs.unregisterMBean(removed);
+                changed.add(added);
+                changed.add(removed);
+                stable.remove(removed);
+            } while (cursor != null);
+
+            for (ObjectName name : stable) {
+                assertEquals(Integer.valueOf(1), returned.get(name), name + " for " + patternName);
+            }
+            for (Map.Entry<ObjectName, Integer> entry : returned.entrySet()) {
+                assertEquals(1, (int) entry.getValue(), entry.getKey() + " for " + patternName);
+                assertTrue(stable.contains(entry.getKey()) || changed.contains(entry.getKey()),
+                    entry.getKey() + " does not match " + patternName);
+            }
+            List<String> sorted = new ArrayList<>(order);
+            sorted.sort(null);
+            assertEquals(sorted, order, "pages of " + patternName + " are out of order");
+        }
+        assertFalse(mbs.isRegistered(new ObjectName("test:type=Item,id=099")));
+    }
+
+    private void register(String name) throws JMException {
+        mbs.registerMBean(new StandardMBean(() -> { }, Runnable.class), new ObjectName(name));
+    }
+}
+
+// Made with Bob